@@ -0,0 +1,125 @@
+package org.renjin.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares JMH results written with {@code -rf csv} against a stored baseline and
+ * reports benchmarks that have become slower.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar org.renjin.benchmarks.BaselineComparison \
+ *     baselines/0.9.0.csv results.csv [threshold]
+ * </pre>
+ *
+ * <p>A benchmark is reported as a regression when its score is worse than the baseline by
+ * more than {@code threshold} (10% by default) and by more than the sum of the two
+ * confidence intervals. The process exits with status 1 if any regression is found.</p>
+ */
+public class BaselineComparison {
+
+  private static class Result {
+    private String mode;
+    private double score;
+    private double error;
+    private String unit;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if(args.length < 2) {
+      System.err.println("usage: BaselineComparison baseline.csv results.csv [threshold]");
+      System.exit(2);
+    }
+    Map<String, Result> baseline = read(new File(args[0]));
+    Map<String, Result> current = read(new File(args[1]));
+    double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+
+    int regressions = 0;
+    System.out.println(String.format("%-80s %12s %12s %8s", "Benchmark", "Baseline", "Current", "Change"));
+    for (Map.Entry<String, Result> entry : current.entrySet()) {
+      Result now = entry.getValue();
+      Result before = baseline.get(entry.getKey());
+      if(before == null) {
+        System.out.println(String.format("%-80s %12s %12.3f %8s", entry.getKey(), "-", now.score, "new"));
+        continue;
+      }
+      if(!before.unit.equals(now.unit) || !before.mode.equals(now.mode)) {
+        System.out.println(String.format("%-80s units differ: %s %s", entry.getKey(), before.unit, now.unit));
+        continue;
+      }
+      // Throughput scores are better when higher, all other modes when lower.
+      double slowdown = now.mode.equals("thrpt") ? before.score / now.score : now.score / before.score;
+      boolean regression = slowdown > 1 + threshold &&
+          Math.abs(now.score - before.score) > before.error + now.error;
+      if(regression) {
+        regressions++;
+      }
+      System.out.println(String.format("%-80s %12.3f %12.3f %+7.1f%%%s", entry.getKey(), before.score, now.score,
+          (slowdown - 1) * 100, regression ? "  REGRESSION" : ""));
+    }
+    System.out.println();
+    System.out.println(regressions + " regression(s) found");
+
+    if(regressions > 0) {
+      System.exit(1);
+    }
+  }
+
+  private static Map<String, Result> read(File file) throws IOException {
+    List<String> lines = Files.readLines(file, Charsets.UTF_8);
+    List<String> header = parseLine(lines.get(0));
+    Map<String, Result> results = new LinkedHashMap<>();
+    for (String line : lines.subList(1, lines.size())) {
+      if(line.trim().isEmpty()) {
+        continue;
+      }
+      List<String> fields = parseLine(line);
+      StringBuilder key = new StringBuilder(fields.get(header.indexOf("Benchmark")));
+      for (int i = 0; i < header.size(); i++) {
+        if(header.get(i).startsWith("Param: ") && i < fields.size() && !fields.get(i).isEmpty()) {
+          key.append(" ").append(header.get(i).substring("Param: ".length())).append("=").append(fields.get(i));
+        }
+      }
+      Result result = new Result();
+      result.mode = fields.get(header.indexOf("Mode"));
+      result.score = parseDouble(fields.get(header.indexOf("Score")));
+      result.error = parseDouble(fields.get(header.indexOf("Score Error (99.9%)")));
+      result.unit = fields.get(header.indexOf("Unit"));
+      results.put(key.toString(), result);
+    }
+    return results;
+  }
+
+  private static double parseDouble(String field) {
+    if(field.isEmpty() || field.equals("NaN")) {
+      return 0;
+    }
+    return Double.parseDouble(field);
+  }
+
+  private static List<String> parseLine(String line) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if(c == '"') {
+        quoted = !quoted;
+      } else if(c == ',' && !quoted) {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+}
@@ -0,0 +1,92 @@
+package org.renjin.compiler.tiered;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares scalar loop kernels run by the interpreter, by the generic compiled
+ * body, and by type-specialized loops.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoopKernelBenchmark {
+
+  private static final String KERNELS =
+      "dot <- function(x, y) { s <- 0; for(i in seq_along(x)) s <- s + x[i] * y[i]; s }\n" +
+      "lcg <- function(n) { s <- 0; x <- 1; for(i in 1:n) { x <- (x * 1103515245 + 12345) %% 2147483648; " +
+      "    if(x > 1073741824) s <- s + 1 else s <- s - 1 }; s }\n" +
+      "cumulate <- function(x, y) { for(i in 2:length(x)) x[i] <- x[i - 1] + y[i]; x }\n" +
+      "collatz <- function(n) { steps <- 0L; for(k in 1:n) { m <- k; " +
+      "    while(m != 1) { if(m %% 2 == 0) m <- m / 2 else m <- 3 * m + 1; steps <- steps + 1L } }; steps }\n" +
+      "msum <- function(m) { t <- 0; for(i in 1:nrow(m)) for(j in 1:ncol(m)) t <- t + m[i, j]; t }\n";
+
+  @Param({"interpreted", "tiered", "specialized"})
+  public String mode;
+
+  @Param({"dot", "lcg", "cumulate", "collatz", "matrix"})
+  public String kernel;
+
+  private Session session;
+  private SEXP call;
+
+  @Setup
+  public void setup() throws IOException {
+    TieredCompiler.setEnabled(!mode.equals("interpreted"));
+    TieredCompiler.setLoopSpecializationEnabled(mode.equals("specialized"));
+    TieredCompiler.setInvocationThreshold(1);
+    TieredCompiler.setBackground(false);
+
+    session = new SessionBuilder().build();
+    eval(KERNELS);
+    eval("x <- sin(1:100000); y <- cos(1:100000); m <- matrix(sqrt(1:100000), 100)");
+
+    switch (kernel) {
+      case "dot":
+        call = parse("dot(x, y)");
+        break;
+      case "lcg":
+        call = parse("lcg(100000)");
+        break;
+      case "cumulate":
+        call = parse("cumulate(x, y)");
+        break;
+      case "collatz":
+        call = parse("collatz(1000)");
+        break;
+      default:
+        call = parse("msum(m)");
+        break;
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    TieredCompiler.setEnabled(true);
+    TieredCompiler.setLoopSpecializationEnabled(true);
+  }
+
+  @Benchmark
+  public SEXP run() {
+    return session.getTopLevelContext().evaluate(call, session.getGlobalEnvironment());
+  }
+
+  private void eval(String source) throws IOException {
+    for(SEXP expression : RParser.parseAllSource(new StringReader(source))) {
+      session.getTopLevelContext().evaluate(expression, session.getGlobalEnvironment());
+    }
+  }
+
+  private SEXP parse(String source) throws IOException {
+    ExpressionVector expressions = RParser.parseAllSource(new StringReader(source));
+    return expressions.getElementAsSEXP(0);
+  }
+}
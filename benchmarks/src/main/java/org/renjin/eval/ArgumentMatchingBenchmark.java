@@ -0,0 +1,70 @@
+package org.renjin.eval;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ClosureDispatcher#matchArguments(PairList, PairList)} for calls that
+ * match their formals by position, by exact name, by partial name and through {@code ...},
+ * and the reuse of a plan cached at the call site.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ArgumentMatchingBenchmark {
+
+  @Param({"positional", "named", "partial", "dots"})
+  public String matching;
+
+  private PairList formals;
+  private PairList actuals;
+  private ArgumentMatcher.Plan plan;
+
+  @Setup
+  public void setup() throws IOException {
+    switch (matching) {
+      case "positional":
+        setup("function(x, y, z) NULL", "f(1, 2, 3)");
+        break;
+      case "named":
+        setup("function(x, y, z, w = 1) NULL", "f(z = 1, x = 2, y = 3)");
+        break;
+      case "partial":
+        setup("function(data, subset, weights, na.action) NULL", "f(d = 1, sub = 2, w = 3)");
+        break;
+      default:
+        setup("function(x, ..., na.rm = FALSE) NULL", "f(1, 2, 3, 4, 5, na.rm = TRUE)");
+        break;
+    }
+  }
+
+  private void setup(String function, String call) throws IOException {
+    FunctionCall definition = (FunctionCall) parse(function);
+    formals = (PairList) definition.getArgument(0);
+    actuals = ((FunctionCall) parse(call)).getArguments();
+    plan = new ArgumentMatcher(formals).plan(actuals);
+  }
+
+  @Benchmark
+  public PairList match() {
+    return ClosureDispatcher.matchArguments(formals, actuals);
+  }
+
+  @Benchmark
+  public PairList matchCached() {
+    if(!plan.appliesTo(formals, actuals)) {
+      throw new IllegalStateException();
+    }
+    return plan.toPairList(actuals, true);
+  }
+
+  private SEXP parse(String source) throws IOException {
+    ExpressionVector expressions = RParser.parseAllSource(new StringReader(source));
+    return expressions.getElementAsSEXP(0);
+  }
+}
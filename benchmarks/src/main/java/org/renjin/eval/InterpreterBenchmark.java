@@ -0,0 +1,66 @@
+package org.renjin.eval;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs small, typical R programs through {@link Context#evaluate(SEXP, Environment)}
+ * to track the overall speed of the interpreter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class InterpreterBenchmark {
+
+  private static final String SOURCE =
+      "fib <- function(n) if(n < 2) n else fib(n - 1) + fib(n - 2)\n" +
+      "loop <- function(n) { s <- 0; i <- 0; while(i < n) { i <- i + 1; if(i %% 3 == 0) s <- s + i } ; s }\n" +
+      "apply <- function(n) { l <- lapply(seq_len(n), function(i) c(i, i^2)); sum(vapply(l, sum, 0)) }\n" +
+      "frame <- function(n) { df <- data.frame(id = seq_len(n), x = sqrt(seq_len(n)), g = rep(c('a', 'b', 'c'), length.out = n)); " +
+      "    df$y <- df$x * 2; s <- df[df$x > 10, c('id', 'y')]; " +
+      "    sapply(split(df$y, df$g), mean) + nrow(s) }\n";
+
+  @Param({"fib", "loop", "lapply", "dataframe"})
+  public String workload;
+
+  private Session session;
+  private SEXP call;
+
+  @Setup
+  public void setup() throws IOException {
+    session = new SessionBuilder().build();
+    for(SEXP expression : RParser.parseAllSource(new StringReader(SOURCE))) {
+      session.getTopLevelContext().evaluate(expression, session.getGlobalEnvironment());
+    }
+    switch (workload) {
+      case "fib":
+        call = parse("fib(18)");
+        break;
+      case "loop":
+        call = parse("loop(100000)");
+        break;
+      case "lapply":
+        call = parse("apply(10000)");
+        break;
+      default:
+        call = parse("frame(10000)");
+        break;
+    }
+  }
+
+  @Benchmark
+  public SEXP run() {
+    return session.getTopLevelContext().evaluate(call, session.getGlobalEnvironment());
+  }
+
+  private SEXP parse(String source) throws IOException {
+    ExpressionVector expressions = RParser.parseAllSource(new StringReader(source));
+    return expressions.getElementAsSEXP(0);
+  }
+}
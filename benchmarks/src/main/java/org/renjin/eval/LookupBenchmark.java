@@ -0,0 +1,59 @@
+package org.renjin.eval;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.compiler.tiered.TieredCompiler;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures calls to base functions from a closure whose enclosure is several environments
+ * away from the base namespace, as is the case for package code, with and without the
+ * inline lookup caches.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LookupBenchmark {
+
+  private static final String SOURCE =
+      "ns <- new.env(parent = new.env(parent = new.env(parent = new.env(parent = globalenv()))))\n" +
+      "f <- function(x) { s <- 0; for(i in seq_len(length(x))) s <- s + abs(x[i]) + max(i, 1L); s }\n" +
+      "environment(f) <- ns\n" +
+      "g <- function(n) { t <- 0; for(k in 1:n) t <- t + f(c(1, -2, 3)); t }\n" +
+      "environment(g) <- ns\n";
+
+  @Param({"true", "false"})
+  public boolean cache;
+
+  private Session session;
+  private SEXP call;
+
+  @Setup
+  public void setup() throws IOException {
+    LookupCache.setEnabled(cache);
+    TieredCompiler.setEnabled(false);
+
+    session = new SessionBuilder().build();
+    for(SEXP expression : RParser.parseAllSource(new StringReader(SOURCE))) {
+      session.getTopLevelContext().evaluate(expression, session.getGlobalEnvironment());
+    }
+    ExpressionVector expressions = RParser.parseAllSource(new StringReader("g(10000)"));
+    call = expressions.getElementAsSEXP(0);
+  }
+
+  @TearDown
+  public void tearDown() {
+    LookupCache.setEnabled(true);
+    TieredCompiler.setEnabled(true);
+  }
+
+  @Benchmark
+  public SEXP run() {
+    return session.getTopLevelContext().evaluate(call, session.getGlobalEnvironment());
+  }
+}
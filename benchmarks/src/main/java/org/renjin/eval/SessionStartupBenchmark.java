@@ -0,0 +1,32 @@
+package org.renjin.eval;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time needed to create a new {@link Session}, which loads the base package,
+ * and to fork a child session from an existing one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SessionStartupBenchmark {
+
+  private Session parent;
+
+  @Setup
+  public void setup() {
+    parent = new SessionBuilder().build();
+  }
+
+  @Benchmark
+  public Session build() {
+    return new SessionBuilder().build();
+  }
+
+  @Benchmark
+  public Session fork() {
+    return parent.fork();
+  }
+}
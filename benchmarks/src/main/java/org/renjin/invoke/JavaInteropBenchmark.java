@@ -0,0 +1,63 @@
+package org.renjin.invoke;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of calling JVM methods from R: 10,000 calls to a method with a
+ * single overload, to the heavily overloaded {@code StringBuilder.append}, and to a
+ * static method.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JavaInteropBenchmark {
+
+  private static final String SOURCE =
+      "import(java.util.ArrayList)\n" +
+      "import(java.lang.StringBuilder)\n" +
+      "import(java.lang.Math)\n";
+
+  @Param({"instance", "overloaded", "static"})
+  public String call;
+
+  private Session session;
+  private SEXP loop;
+
+  @Setup
+  public void setup() throws IOException {
+    session = new SessionBuilder().build();
+    for(SEXP expression : RParser.parseAllSource(new StringReader(SOURCE))) {
+      session.getTopLevelContext().evaluate(expression, session.getGlobalEnvironment());
+    }
+    switch (call) {
+      case "instance":
+        loop = parse("{ list <- ArrayList$new(); for(i in 1:10000) list$add(i) }");
+        break;
+      case "overloaded":
+        loop = parse("{ sb <- StringBuilder$new(); for(i in 1:10000) sb$append(i) }");
+        break;
+      default:
+        loop = parse("for(i in 1:10000) Math$max(i, 5000L)");
+        break;
+    }
+  }
+
+  @Benchmark
+  public SEXP run() {
+    return session.getTopLevelContext().evaluate(loop, session.getGlobalEnvironment());
+  }
+
+  private SEXP parse(String source) throws IOException {
+    ExpressionVector expressions = RParser.parseAllSource(new StringReader(source));
+    return expressions.getElementAsSEXP(0);
+  }
+}
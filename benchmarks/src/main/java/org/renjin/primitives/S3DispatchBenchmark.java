@@ -0,0 +1,70 @@
+package org.renjin.primitives;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generic calls dispatched through {@code UseMethod()} and {@code NextMethod()},
+ * compared with calling the method directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class S3DispatchBenchmark {
+
+  private static final String SOURCE =
+      "area <- function(shape, ...) UseMethod('area')\n" +
+      "area.default <- function(shape, ...) 0\n" +
+      "area.square <- function(shape, ...) shape$side^2\n" +
+      "area.tile <- function(shape, ...) NextMethod() + 1\n" +
+      "sq <- structure(list(side = 2), class = 'square')\n" +
+      "tile <- structure(list(side = 2), class = c('tile', 'square'))\n" +
+      "circle <- structure(list(r = 1), class = 'circle')\n" +
+      "repeatedly <- function(f, x, n) { s <- 0; for(i in seq_len(n)) s <- s + f(x); s }\n";
+
+  @Param({"direct", "UseMethod", "default", "NextMethod"})
+  public String dispatch;
+
+  private Session session;
+  private SEXP call;
+
+  @Setup
+  public void setup() throws IOException {
+    session = new SessionBuilder().build();
+    for(SEXP expression : RParser.parseAllSource(new StringReader(SOURCE))) {
+      session.getTopLevelContext().evaluate(expression, session.getGlobalEnvironment());
+    }
+    switch (dispatch) {
+      case "direct":
+        call = parse("repeatedly(area.square, sq, 10000)");
+        break;
+      case "UseMethod":
+        call = parse("repeatedly(area, sq, 10000)");
+        break;
+      case "default":
+        call = parse("repeatedly(area, circle, 10000)");
+        break;
+      default:
+        call = parse("repeatedly(area, tile, 10000)");
+        break;
+    }
+  }
+
+  @Benchmark
+  public SEXP run() {
+    return session.getTopLevelContext().evaluate(call, session.getGlobalEnvironment());
+  }
+
+  private SEXP parse(String source) throws IOException {
+    ExpressionVector expressions = RParser.parseAllSource(new StringReader(source));
+    return expressions.getElementAsSEXP(0);
+  }
+}
@@ -0,0 +1,68 @@
+package org.renjin.primitives.combine;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code c()} and {@code unlist()} on atomic vectors, named vectors and lists.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CombineBenchmark {
+
+  private static final String SOURCE =
+      "x <- sin(1:10000); y <- 1:10000; s <- as.character(1:1000)\n" +
+      "nx <- structure(x[1:1000], names = paste0('n', 1:1000))\n" +
+      "pieces <- lapply(1:1000, function(i) c(i, i + 0.5))\n" +
+      "named <- lapply(structure(1:1000, names = paste0('p', 1:1000)), function(i) list(a = i, b = 'x'))\n";
+
+  @Param({"atomic", "mixed", "names", "unlist", "recursive"})
+  public String combine;
+
+  private Session session;
+  private SEXP call;
+
+  @Setup
+  public void setup() throws IOException {
+    session = new SessionBuilder().build();
+    for(SEXP expression : RParser.parseAllSource(new StringReader(SOURCE))) {
+      session.getTopLevelContext().evaluate(expression, session.getGlobalEnvironment());
+    }
+    switch (combine) {
+      case "atomic":
+        call = parse("c(x, x, x)");
+        break;
+      case "mixed":
+        call = parse("c(x, y, s, TRUE)");
+        break;
+      case "names":
+        call = parse("c(nx, a = 1, nx)");
+        break;
+      case "unlist":
+        call = parse("unlist(pieces)");
+        break;
+      default:
+        call = parse("unlist(named)");
+        break;
+    }
+  }
+
+  @Benchmark
+  public SEXP run() {
+    return session.getTopLevelContext().evaluate(call, session.getGlobalEnvironment());
+  }
+
+  private SEXP parse(String source) throws IOException {
+    ExpressionVector expressions = RParser.parseAllSource(new StringReader(source));
+    return expressions.getElementAsSEXP(0);
+  }
+}
@@ -0,0 +1,61 @@
+package org.renjin.primitives.io;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading a data frame of a million rows and filtering it, from an RDS file and
+ * from a columnar file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ColumnarBenchmark {
+
+  private static final String SOURCE =
+      "df <- data.frame(id = 1:1000000, group = rep(c('a', 'b', 'c', 'd'), 250000), " +
+      "value = rep(c(1.5, 2.25, NA, 4), 250000) * (1:1000000 %% 100))\n" +
+      "rds <- tempfile()\n" +
+      "columnar <- tempfile()\n" +
+      "saveRDS(df, rds, compress = FALSE)\n" +
+      "saveColumnar(df, columnar)\n";
+
+  @Param({"rds", "columnar", "column", "rows"})
+  public String read;
+
+  private Session session;
+  private SEXP call;
+
+  @Setup
+  public void setup() throws IOException {
+    session = new SessionBuilder().build();
+    for(SEXP expression : RParser.parseAllSource(new StringReader(SOURCE))) {
+      session.getTopLevelContext().evaluate(expression, session.getGlobalEnvironment());
+    }
+    String source;
+    if(read.equals("rds")) {
+      source = "sum(readRDS(rds)$value[500001:501000], na.rm = TRUE)";
+    } else if(read.equals("columnar")) {
+      source = "sum(readRDS(columnar)$value[500001:501000], na.rm = TRUE)";
+    } else if(read.equals("column")) {
+      source = "sum(readColumnar(columnar, columns = 'value')$value[500001:501000], na.rm = TRUE)";
+    } else {
+      source = "sum(readColumnar(columnar, rows = 500001:501000)$value, na.rm = TRUE)";
+    }
+    ExpressionVector expressions = RParser.parseAllSource(new StringReader(source));
+    call = expressions.getElementAsSEXP(0);
+  }
+
+  @Benchmark
+  public SEXP run() {
+    return session.getTopLevelContext().evaluate(call, session.getGlobalEnvironment());
+  }
+}
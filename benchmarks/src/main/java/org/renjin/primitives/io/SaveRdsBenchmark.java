@@ -0,0 +1,49 @@
+package org.renjin.primitives.io;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing a data frame of a million rows with {@code saveRDS()}, uncompressed,
+ * gzipped and LZ4-compressed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SaveRdsBenchmark {
+
+  private static final String SOURCE =
+      "df <- data.frame(id = 1:1000000, group = rep(c('a', 'b', 'c', 'd'), 250000), " +
+      "value = rep(c(1.5, 2.25, NA, 4), 250000) * (1:1000000 %% 100))\n" +
+      "f <- tempfile()\n";
+
+  @Param({"FALSE", "TRUE", "'lz4'"})
+  public String compress;
+
+  private Session session;
+  private SEXP call;
+
+  @Setup
+  public void setup() throws IOException {
+    session = new SessionBuilder().build();
+    for(SEXP expression : RParser.parseAllSource(new StringReader(SOURCE))) {
+      session.getTopLevelContext().evaluate(expression, session.getGlobalEnvironment());
+    }
+    ExpressionVector expressions = RParser.parseAllSource(
+        new StringReader("saveRDS(df, f, compress = " + compress + ")"));
+    call = expressions.getElementAsSEXP(0);
+  }
+
+  @Benchmark
+  public SEXP run() {
+    return session.getTopLevelContext().evaluate(call, session.getGlobalEnvironment());
+  }
+}
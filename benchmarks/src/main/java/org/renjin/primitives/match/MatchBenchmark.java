@@ -0,0 +1,80 @@
+package org.renjin.primitives.match;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.sexp.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hashed implementation of {@code match()} against 
+ * a linear scan of the table
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MatchBenchmark {
+
+  @Param({"1000", "10000", "100000"})
+  public int n;
+
+  @Param({"integer", "double", "character"})
+  public String type;
+
+  private Vector search;
+  private Vector scalar;
+  private Vector table;
+  private Vector.Type keyType;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(42);
+    int[] searchValues = new int[n];
+    int[] tableValues = new int[n];
+    for (int i = 0; i < n; i++) {
+      searchValues[i] = random.nextInt(n * 2);
+      tableValues[i] = random.nextInt(n * 2);
+    }
+    search = vectorOf(searchValues);
+    table = vectorOf(tableValues);
+    scalar = (Vector) search.getElementAsSEXP(0);
+    keyType = MatchIndex.keyType(search, table);
+  }
+
+  private Vector vectorOf(int[] values) {
+    switch (type) {
+      case "integer":
+        return new IntArrayVector(values);
+      case "double":
+        double[] doubles = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+          doubles[i] = values[i] / 2d;
+        }
+        return new DoubleArrayVector(doubles);
+      default:
+        String[] strings = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+          strings[i] = "id" + values[i];
+        }
+        return new StringArrayVector(strings);
+    }
+  }
+
+  @Benchmark
+  public int[] linear() {
+    return Match.linearMatch(search, table, IntVector.NA, Null.INSTANCE);
+  }
+
+  @Benchmark
+  public int[] hashed() {
+    return Match.hashedMatch(search, MatchIndex.build(table, keyType), IntVector.NA, Null.INSTANCE);
+  }
+
+  /**
+   * Repeated lookups of a single value, as in {@code for(x in xs) if(x %in% lookup) ...}
+   */
+  @Benchmark
+  public int scalarCached() {
+    return Match.match(scalar, table, IntVector.NA, Null.INSTANCE)[0];
+  }
+}
@@ -0,0 +1,61 @@
+package org.renjin.primitives.subset;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.compiler.tiered.TieredCompiler;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills vectors element by element with {@code x[i] <- v}. Once the first assignment has
+ * copied the vector, later assignments modify it in place and the loop runs in linear time;
+ * the {@code aliased} variant keeps a second reference to the vector alive, forcing a full
+ * copy on every assignment.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReplacementBenchmark {
+
+  private static final String SOURCE =
+      "fill <- function(n) { x <- numeric(n); for(i in seq_len(n)) x[i] <- i * 2; x }\n" +
+      "fillList <- function(n) { x <- vector('list', n); for(i in seq_len(n)) x[[i]] <- i; x }\n" +
+      "fillAliased <- function(n) { x <- numeric(n); for(i in seq_len(n)) { x[i] <- i * 2; y <- x }; x }\n";
+
+  @Param({"1000", "10000", "100000"})
+  public int n;
+
+  @Param({"fill", "fillList", "fillAliased"})
+  public String kernel;
+
+  private Session session;
+  private SEXP call;
+
+  @Setup
+  public void setup() throws IOException {
+    TieredCompiler.setEnabled(false);
+
+    session = new SessionBuilder().build();
+    for(SEXP expression : RParser.parseAllSource(new StringReader(SOURCE))) {
+      session.getTopLevelContext().evaluate(expression, session.getGlobalEnvironment());
+    }
+    ExpressionVector expressions = RParser.parseAllSource(new StringReader(kernel + "(" + n + ")"));
+    call = expressions.getElementAsSEXP(0);
+  }
+
+  @TearDown
+  public void tearDown() {
+    TieredCompiler.setEnabled(true);
+  }
+
+  @Benchmark
+  public SEXP run() {
+    return session.getTopLevelContext().evaluate(call, session.getGlobalEnvironment());
+  }
+}
@@ -0,0 +1,77 @@
+package org.renjin.primitives.subset;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures single subsetting operations on vectors, matrices, lists and data frames.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SubsetBenchmark {
+
+  private static final String SOURCE =
+      "x <- sin(1:100000); i <- 5000L; idx <- seq(1, 100000, by = 7)\n" +
+      "m <- matrix(x, 1000); j <- 50L\n" +
+      "l <- list(alpha = 1, beta = 'b', gamma = x, name = 42)\n" +
+      "df <- data.frame(a = x, b = cos(1:100000))\n";
+
+  @Param({"scalar", "vector", "logical", "matrix", "column", "dollar", "element", "dataframe"})
+  public String subset;
+
+  private Session session;
+  private SEXP call;
+
+  @Setup
+  public void setup() throws IOException {
+    session = new SessionBuilder().build();
+    for(SEXP expression : RParser.parseAllSource(new StringReader(SOURCE))) {
+      session.getTopLevelContext().evaluate(expression, session.getGlobalEnvironment());
+    }
+    switch (subset) {
+      case "scalar":
+        call = parse("x[i]");
+        break;
+      case "vector":
+        call = parse("x[idx]");
+        break;
+      case "logical":
+        call = parse("x[x > 0.5]");
+        break;
+      case "matrix":
+        call = parse("m[i %% 1000L, j]");
+        break;
+      case "column":
+        call = parse("m[, j]");
+        break;
+      case "dollar":
+        call = parse("l$name");
+        break;
+      case "element":
+        call = parse("l[['name']]");
+        break;
+      default:
+        call = parse("df[idx, 'a']");
+        break;
+    }
+  }
+
+  @Benchmark
+  public SEXP run() {
+    return session.getTopLevelContext().evaluate(call, session.getGlobalEnvironment());
+  }
+
+  private SEXP parse(String source) throws IOException {
+    ExpressionVector expressions = RParser.parseAllSource(new StringReader(source));
+    return expressions.getElementAsSEXP(0);
+  }
+}
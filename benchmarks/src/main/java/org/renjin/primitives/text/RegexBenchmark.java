@@ -0,0 +1,71 @@
+package org.renjin.primitives.text;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures regular expression functions applied to a vector of log lines, and
+ * matching a pattern which backtracking matchers take exponential time to reject.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RegexBenchmark {
+
+  private static final String SOURCE =
+      "lines <- paste0('2016-03-', 10 + (1:20000 %% 20), ' GET /api/v1/items/', 1:20000, ' status=', " +
+      "c(200, 404, 500)[1 + 1:20000 %% 3])\n" +
+      "as <- paste(rep('a', 22), collapse = '')\n";
+
+  @Param({"gsub", "sub", "grepl", "regexpr", "perl", "backtracking"})
+  public String function;
+
+  private Session session;
+  private SEXP call;
+
+  @Setup
+  public void setup() throws IOException {
+    session = new SessionBuilder().build();
+    for(SEXP expression : RParser.parseAllSource(new StringReader(SOURCE))) {
+      session.getTopLevelContext().evaluate(expression, session.getGlobalEnvironment());
+    }
+    switch (function) {
+      case "gsub":
+        call = parse("gsub('[0-9]+', '#', lines)");
+        break;
+      case "sub":
+        call = parse("sub('status=([0-9]+)', '\\\\1', lines)");
+        break;
+      case "grepl":
+        call = parse("grepl('items/[0-9]*7 ', lines)");
+        break;
+      case "regexpr":
+        call = parse("regexpr('status=5[0-9]+', lines)");
+        break;
+      case "perl":
+        call = parse("gsub('(?<=/)[0-9]+', 'ID', lines, perl = TRUE)");
+        break;
+      default:
+        call = parse("grepl('^(a|aa)*b$', as)");
+        break;
+    }
+  }
+
+  @Benchmark
+  public SEXP run() {
+    return session.getTopLevelContext().evaluate(call, session.getGlobalEnvironment());
+  }
+
+  private SEXP parse(String source) throws IOException {
+    ExpressionVector expressions = RParser.parseAllSource(new StringReader(source));
+    return expressions.getElementAsSEXP(0);
+  }
+}
@@ -0,0 +1,51 @@
+package org.renjin.stats.internals.distributions;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures drawing a million uniform and normal deviates with each generator and, for
+ * normal deviates, with inversion and the Ziggurat method.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RandomBenchmark {
+
+  @Param({"runif", "rnorm"})
+  public String draw;
+
+  @Param({"Mersenne-Twister", "L'Ecuyer-CMRG"})
+  public String kind;
+
+  @Param({"Inversion", "Ziggurat"})
+  public String normalKind;
+
+  private Session session;
+  private SEXP call;
+
+  @Setup
+  public void setup() throws IOException {
+    session = new SessionBuilder().build();
+    String source = "set.seed(1, kind = \"" + kind + "\", normal.kind = \"" + normalKind + "\")\n";
+    for(SEXP expression : RParser.parseAllSource(new StringReader(source))) {
+      session.getTopLevelContext().evaluate(expression, session.getGlobalEnvironment());
+    }
+    ExpressionVector expressions = RParser.parseAllSource(
+        new StringReader(".Internal(" + draw + "(1000000, 0, 1))"));
+    call = expressions.getElementAsSEXP(0);
+  }
+
+  @Benchmark
+  public SEXP run() {
+    return session.getTopLevelContext().evaluate(call, session.getGlobalEnvironment());
+  }
+}
@@ -23,7 +23,7 @@ package org.renjin.base;
 
 import com.google.common.collect.Sets;
 import org.renjin.eval.Context;
-import org.renjin.packaging.LazyLoadFrame;
+import org.renjin.packaging.LazyLoadSnapshot;
 import org.renjin.primitives.Primitives;
 import org.renjin.sexp.*;
 import org.renjin.util.FileSystemUtils;
@@ -31,7 +31,9 @@ import org.renjin.util.FileSystemUtils;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  *  The {@code Frame} that provides the primitive functions for the
@@ -41,15 +43,46 @@ import java.util.Set;
  *  <p>
  *  The base frame is actually SHARED between the base namespace and the base environment:
  *  they are identical except for their place within the environment hierarchy.
- *  
+ *
+ *  <p>The R-language functions of the base package are deserialized only once per JVM
+ *  into a {@link LazyLoadSnapshot} which is shared by all Sessions. Each session's values
+ *  are created from the snapshot when they are first accessed, and any assignments
+ *  or removals are recorded only in this frame.
  */
 public class BaseFrame implements Frame {
 
-  private final IdentityHashMap<Symbol, SEXP> loaded = new IdentityHashMap<Symbol, SEXP>(1100);
-  
+  private static LazyLoadSnapshot SNAPSHOT;
+
+  /**
+   * Values which have been assigned or removed (marked with {@code Symbol.UNBOUND_VALUE})
+   * in this session.
+   */
+  private final IdentityHashMap<Symbol, SEXP> loaded = new IdentityHashMap<Symbol, SEXP>();
+
+  private LazyLoadSnapshot snapshot;
+
+  /**
+   * This session's values from the snapshot, created as they are first needed.
+   */
+  private AtomicReferenceArray<SEXP> instances;
+
+  private Context loadContext;
+
   @Override
   public Set<Symbol> getSymbols() {
-    return Sets.union(Primitives.getBuiltinSymbols(), loaded.keySet());
+    Set<Symbol> symbols = Sets.newIdentityHashSet();
+    symbols.addAll(Primitives.getBuiltinSymbols());
+    if(snapshot != null) {
+      symbols.addAll(snapshot.getSymbols());
+    }
+    for (Map.Entry<Symbol, SEXP> entry : loaded.entrySet()) {
+      if(entry.getValue() == Symbol.UNBOUND_VALUE) {
+        symbols.remove(entry.getKey());
+      } else {
+        symbols.add(entry.getKey());
+      }
+    }
+    return symbols;
   }
 
   @Override
@@ -58,7 +91,7 @@ public class BaseFrame implements Frame {
     if(value != null) {
       return value;
     }
-    value = loaded.get(name);
+    value = getLoaded(name);
     if(value != null ) {
       return value;
     }
@@ -69,7 +102,7 @@ public class BaseFrame implements Frame {
   public Function getFunction(Context context, Symbol name) {
     SEXP value = Primitives.getBuiltin(name);
     if(value == null) {
-      value = loaded.get(name);
+      value = getLoaded(name);
     }
     if(value == null) {
       return null;
@@ -84,6 +117,25 @@ public class BaseFrame implements Frame {
     }
   }
 
+  private SEXP getLoaded(Symbol name) {
+    SEXP value = loaded.get(name);
+    if(value != null || snapshot == null) {
+      return value;
+    }
+    int slot = snapshot.indexOf(name);
+    if(slot == -1) {
+      return null;
+    }
+    value = instances.get(slot);
+    if(value == null) {
+      value = snapshot.instantiate(slot, loadContext, loadContext.getSession().getBaseNamespaceEnv());
+      if(!instances.compareAndSet(slot, null, value)) {
+        value = instances.get(slot);
+      }
+    }
+    return value;
+  }
+
   @Override
   public void setVariable(Symbol name, SEXP value) {
     loaded.put(name, value);
@@ -126,7 +178,11 @@ public class BaseFrame implements Frame {
 
   @Override
   public void remove(Symbol name) {
-    loaded.remove(name);
+    if(snapshot != null && snapshot.indexOf(name) != -1) {
+      loaded.put(name, Symbol.UNBOUND_VALUE);
+    } else {
+      loaded.remove(name);
+    }
   }
 
   /**
@@ -175,22 +231,11 @@ public class BaseFrame implements Frame {
   }
   
   public void load(Context context) throws IOException {
-    Iterable<NamedValue> frame = LazyLoadFrame.load(context, new com.google.common.base.Function<String, InputStream>() {
-
-      @Override
-      public InputStream apply(String name) {
-        String resourcePath = "/org/renjin/base/" + name;
-        InputStream in = getClass().getResourceAsStream(resourcePath);
-        if(in == null) {
-          throw new RuntimeException("Could not open resource " + resourcePath);
-        }
-        return in;
-      }
-    });
-    for(NamedValue name : frame) {
-      loaded.put(Symbol.get(name.getName()), name.getValue());
-    }
-   
+    this.loadContext = context;
+    this.snapshot = loadSnapshot();
+    this.instances = new AtomicReferenceArray<>(snapshot.size());
+
+
     // aliases
     addPrimitiveAlias("as.double", "as.numeric");
     addPrimitiveAlias("as.double", "as.real");
@@ -198,6 +243,24 @@ public class BaseFrame implements Frame {
     
   }
 
+  private static synchronized LazyLoadSnapshot loadSnapshot() throws IOException {
+    if(SNAPSHOT == null) {
+      SNAPSHOT = LazyLoadSnapshot.read(new com.google.common.base.Function<String, InputStream>() {
+
+        @Override
+        public InputStream apply(String name) {
+          String resourcePath = "/org/renjin/base/" + name;
+          InputStream in = BaseFrame.class.getResourceAsStream(resourcePath);
+          if(in == null) {
+            throw new RuntimeException("Could not open resource " + resourcePath);
+          }
+          return in;
+        }
+      }, null);
+    }
+    return SNAPSHOT;
+  }
+
   private void addPrimitiveAlias(String primitiveName, String alias) {
     loaded.put(Symbol.get(alias), Primitives.getBuiltin(primitiveName));
   }
@@ -0,0 +1,21 @@
+package org.renjin.compiler.ir.exception;
+
+import org.renjin.sexp.SEXP;
+
+/**
+ * Indicates that an expression uses a construct which the compiler
+ * cannot translate faithfully, and must be left to the interpreter.
+ */
+public class NotCompilableException extends RuntimeException {
+
+  private final SEXP sexp;
+
+  public NotCompilableException(SEXP sexp, String message) {
+    super(message);
+    this.sexp = sexp;
+  }
+
+  public SEXP getSEXP() {
+    return sexp;
+  }
+}
@@ -8,6 +8,7 @@ import org.renjin.eval.Context;
 import org.renjin.sexp.SEXP;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -18,9 +19,15 @@ public class IRBody {
   private Object temp[];
   private Statement statements[];
   private int labels[];
+  private IRLoop loops[];
   
   public IRBody(List<Statement> statements, Map<IRLabel, Integer> labels, int tempCount) {
+    this(statements, labels, Collections.<IRLoop>emptyList(), tempCount);
+  }
+  
+  public IRBody(List<Statement> statements, Map<IRLabel, Integer> labels, List<IRLoop> loops, int tempCount) {
     this.statements = statements.toArray(new Statement[statements.size()]);
+    this.loops = loops.toArray(new IRLoop[loops.size()]);
     this.labels = new int[labels.size()];
     this.temp = new Object[tempCount];
   
@@ -50,6 +57,14 @@ public class IRBody {
     return null;
   }
 
+  /**
+   * @return the loops in this body, with inner loops listed before
+   * the loops which enclose them
+   */
+  public List<IRLoop> getLoops() {
+    return Arrays.asList(loops);
+  }
+
   public int getLabelInstructionIndex(IRLabel label) {
     return labels[label.getIndex()];
   }
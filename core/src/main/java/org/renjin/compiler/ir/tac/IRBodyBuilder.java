@@ -7,12 +7,20 @@ import org.renjin.compiler.ir.tac.functions.FunctionCallTranslator;
 import org.renjin.compiler.ir.tac.functions.FunctionCallTranslators;
 import org.renjin.compiler.ir.tac.functions.TranslationContext;
 import org.renjin.compiler.ir.tac.statements.*;
+import org.renjin.primitives.Primitives;
 import org.renjin.sexp.*;
 
 import java.util.List;
 import java.util.Map;
 
 public class IRBodyBuilder {
+
+  /**
+   * Stands in for the value argument of replacement function calls, 
+   * such as {@code `names<-`(x, value=*vtmp*)}, whose value is only
+   * known at runtime.
+   */
+  public static final Symbol VALUE_PLACEHOLDER = Symbol.get("*vtmp*");
   
   private int nextTemp = 0;
   private int nextLocalVariableIndex = 0;
@@ -26,15 +34,27 @@ public class IRBodyBuilder {
   
   private IRFunctionTable functionTable;
   private List<IRThunk> thunks = Lists.newArrayList();
+  private List<IRLoop> loops;
+  private boolean translateNestedBodies = true;
   
   public IRBodyBuilder(IRFunctionTable functionTable) {
     this.functionTable = functionTable;
   }
+
+  /**
+   * Sets whether the IR bodies of promised arguments and nested function definitions
+   * should be built. Backends which leave these to the interpreter can skip this work, 
+   * in which case the {@link IRThunk} and {@link IRFunction} bodies will be {@code null}.
+   */
+  public void setTranslateNestedBodies(boolean translateNestedBodies) {
+    this.translateNestedBodies = translateNestedBodies;
+  }
   
   public IRBody build(SEXP exp) {
     
     statements = Lists.newArrayList();
     labels = Maps.newHashMap();
+    loops = Lists.newArrayList();
     
     TranslationContext context = new TopLevelContext();
     Expression returnValue = translateExpression(context, exp);
@@ -43,7 +63,7 @@ public class IRBodyBuilder {
    
     removeRedundantJumps();
     
-    return new IRBody(statements, labels, nextTemp);
+    return new IRBody(statements, labels, loops, nextTemp);
   }
   
   public void dump(SEXP exp) {
@@ -101,12 +121,20 @@ public class IRBodyBuilder {
     if(function instanceof Symbol && ((Symbol) function).isReservedWord()) {
       return translatePrimitiveCall(context, call);
     } else {
-      return new DynamicCall(call, 
-          translateSimpleExpression(context, function), 
-          makeNameList(call), 
-          makeUnevaledArgList(context, call.getArguments()));
+      return translateDynamicCall(context, call);
     }
   }
+
+  /**
+   * Translates a call whose function is resolved at runtime, and whose 
+   * arguments are passed unevaluated to the function.
+   */
+  public DynamicCall translateDynamicCall(TranslationContext context, FunctionCall call) {
+    return new DynamicCall(call, 
+        translateSimpleExpression(context, call.getFunction()), 
+        makeNameList(call), 
+        makeUnevaledArgList(context, call.getArguments()));
+  }
   
   public List<Expression> makeUnevaledArgList(TranslationContext context, PairList argumentSexps) {
     List<Expression> list = Lists.newArrayList();
@@ -132,6 +160,9 @@ public class IRBodyBuilder {
   
   
   private IRThunk translateThunk(SEXP exp) {
+    if(!translateNestedBodies) {
+      return new IRThunk(exp, null);
+    }
     IRBodyBuilder thunkBodyBuilder = new IRBodyBuilder(functionTable);
     IRBody body = thunkBodyBuilder.build(exp);
     IRThunk thunk = new IRThunk(exp, body);
@@ -145,12 +176,12 @@ public class IRBodyBuilder {
     
     // normally this call is created at runtime, with the  value 
     // of the rhs in the argument list. Since we don't have
-    // the value of the rhs yet
+    // the value of the rhs yet, use the same placeholder as GNU R
     FunctionCall setterCall = new FunctionCall(
         setter,
         PairList.Node.newBuilder()
           .addAll(getterCall.getArguments())
-          .add("value", new StringArrayVector("TODO: evaluated RHS here"))
+          .add("value", VALUE_PLACEHOLDER)
           .build());
     
     FunctionCallTranslator translator = builders.get(setter);
@@ -191,6 +222,11 @@ public class IRBodyBuilder {
       if(!(function instanceof Symbol)) {
         throw new IllegalArgumentException("Expected symbol, got '" + function + "'");
       }
+      if(Primitives.getBuiltin((Symbol) function) instanceof SpecialFunction) {
+        // specials receive their arguments unevaluated, so they can only
+        // be applied at runtime
+        return translateDynamicCall(context, call);
+      }
       return new PrimitiveCall(call, (Symbol)function, makeEvaledArgList(context, call.getArguments()));
     }
   }
@@ -253,6 +289,9 @@ public class IRBodyBuilder {
   }
   
   public IRFunction newFunction(PairList formals, SEXP body) {
+    if(!translateNestedBodies) {
+      return new IRFunction(formals, body, null);
+    }
     return functionTable.newFunction(formals, body);
   }
 
@@ -275,6 +314,14 @@ public class IRBodyBuilder {
     labels.put(label, statements.size());
     currentLabel = label;
   }
+
+  /**
+   * Records the extent of a loop whose statements have been added 
+   * between {@code headerLabel} and {@code exitLabel}
+   */
+  public void addLoop(IRLabel headerLabel, IRLabel exitLabel) {
+    loops.add(new IRLoop(headerLabel, exitLabel));
+  }
   
   /**
    * Streamlines IR in the case that you have one goto 
@@ -0,0 +1,31 @@
+package org.renjin.compiler.ir.tac;
+
+/**
+ * Marks a {@code for}, {@code while} or {@code repeat} loop in the three-address 
+ * code. The loop is entered by falling through to the statement at its header label, 
+ * jumps back to the header at the end of each iteration, and leaves the loop 
+ * by jumping to the exit label.
+ */
+public class IRLoop {
+  
+  private final IRLabel headerLabel;
+  private final IRLabel exitLabel;
+  
+  public IRLoop(IRLabel headerLabel, IRLabel exitLabel) {
+    this.headerLabel = headerLabel;
+    this.exitLabel = exitLabel;
+  }
+
+  public IRLabel getHeaderLabel() {
+    return headerLabel;
+  }
+
+  public IRLabel getExitLabel() {
+    return exitLabel;
+  }
+
+  @Override
+  public String toString() {
+    return "loop " + headerLabel + " -> " + exitLabel;
+  }
+}
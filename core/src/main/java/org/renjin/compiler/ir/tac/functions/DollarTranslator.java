@@ -1,14 +1,9 @@
 package org.renjin.compiler.ir.tac.functions;
 
-import org.renjin.compiler.ir.exception.InvalidSyntaxException;
 import org.renjin.compiler.ir.tac.IRBodyBuilder;
-import org.renjin.compiler.ir.tac.expressions.Constant;
 import org.renjin.compiler.ir.tac.expressions.Expression;
-import org.renjin.compiler.ir.tac.expressions.PrimitiveCall;
 import org.renjin.compiler.ir.tac.statements.ExprStatement;
 import org.renjin.sexp.FunctionCall;
-import org.renjin.sexp.SEXP;
-import org.renjin.sexp.StringVector;
 import org.renjin.sexp.Symbol;
 
 
@@ -22,21 +17,11 @@ public class DollarTranslator extends FunctionCallTranslator {
   @Override
   public Expression translateToExpression(IRBodyBuilder builder,
       TranslationContext context, FunctionCall call) {
-    Expression object = builder.translateExpression(context, call.getArgument(0));
-    Symbol index = toSymbol(call.getArgument(1));
     
-    return new PrimitiveCall(call, "$", builder.simplify(object), new Constant(index) ); 
-  }
-
-  private Symbol toSymbol(SEXP argument) {
-    if(argument instanceof Symbol) {
-      return (Symbol) argument;
-    } else if(argument.length() == 1 && argument instanceof StringVector) {
-      StringVector vector = (StringVector)argument;
-      return Symbol.get(vector.getElementAsString(0));
-    } else {
-      throw new InvalidSyntaxException("Illegal index value: " + argument);
-    }
+    // `$` is a special: it receives its arguments unevaluated and 
+    // may dispatch to a `$` method for the object, so it is applied 
+    // at runtime with the original arguments.
+    return builder.translateDynamicCall(context, call);
   }
 
   @Override
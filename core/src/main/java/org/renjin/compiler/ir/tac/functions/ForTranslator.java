@@ -52,8 +52,11 @@ public class ForTranslator extends FunctionCallTranslator {
     
     Variable elementVariable = new EnvironmentVariable(symbol);
     
-    Expression vector = 
-        factory.translateSimpleExpression(context, call.getArgument(1));
+    // the sequence is evaluated only once, even if the
+    // variable it came from is reassigned within the loop
+    Temp vector = factory.newTemp();
+    factory.addStatement(new Assignment(vector, 
+        factory.translateExpression(context, call.getArgument(1))));
     
     SEXP body = call.getArgument(2);
 
@@ -65,7 +68,7 @@ public class ForTranslator extends FunctionCallTranslator {
     // initialize the counter
     factory.addStatement(new Assignment(counter, new Constant(0)));
     factory.addStatement(new Assignment(length, 
-        new Length((Expression)vector)));
+        new Length(vector)));
 
     // check the counter and potentially loop
     factory.addLabel(counterLabel);
@@ -84,5 +87,6 @@ public class ForTranslator extends FunctionCallTranslator {
     factory.addStatement(new GotoStatement(counterLabel));
 
     factory.addLabel(exitLabel);
+    factory.addLoop(counterLabel, exitLabel);
   }  
 }
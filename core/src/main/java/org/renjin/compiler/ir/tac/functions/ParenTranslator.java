@@ -21,6 +21,6 @@ public class ParenTranslator extends FunctionCallTranslator {
 
   @Override
   public void addStatement(IRBodyBuilder builder, TranslationContext context, FunctionCall call) {
-    builder.translateStatements(context, call);
+    builder.translateStatements(context, call.getArgument(0));
   }
 }
@@ -25,13 +25,17 @@ public class RepeatTranslator extends FunctionCallTranslator {
 
   @Override
   public void addStatement(IRBodyBuilder builder, TranslationContext context, FunctionCall call) {
-    IRLabel beginLabel = builder.addLabel();
+    // the loop gets its own header label, rather than sharing a label
+    // with a preceding statement which might jump to it
+    IRLabel beginLabel = builder.newLabel();
     IRLabel exitLabel = builder.newLabel();
+    builder.addLabel(beginLabel);
     
     LoopContext loopContext = new LoopContext(beginLabel, exitLabel);
     builder.translateStatements(loopContext, call.getArgument(0));
     
     builder.addStatement(new GotoStatement(beginLabel));
     builder.addLabel(exitLabel);
+    builder.addLoop(beginLabel, exitLabel);
   }
 }
@@ -28,7 +28,7 @@ public class WhileTranslator extends FunctionCallTranslator {
   
   @Override
   public Symbol getName() {
-    return Symbol.get("for");
+    return Symbol.get("while");
   }
 
   @Override
@@ -70,6 +70,7 @@ public class WhileTranslator extends FunctionCallTranslator {
     factory.addStatement(new GotoStatement(checkLabel));
     
     factory.addLabel(exitLabel);
+    factory.addLoop(checkLabel, exitLabel);
   }
   
 }
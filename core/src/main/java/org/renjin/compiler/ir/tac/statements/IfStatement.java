@@ -52,6 +52,14 @@ public class IfStatement implements Statement, BasicBlockEndingStatement {
   public IRLabel getFalseTarget() {
     return falseTarget;
   }
+
+  /**
+   * @return the target if the condition is NA, or {@code null} if 
+   * an NA condition is an error
+   */
+  public IRLabel getNaTarget() {
+    return naTarget;
+  }
   
   public IfStatement setTrueTarget(IRLabel label) {
     return new IfStatement(condition, label, falseTarget, naTarget);
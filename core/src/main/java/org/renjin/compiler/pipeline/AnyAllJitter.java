@@ -0,0 +1,68 @@
+package org.renjin.compiler.pipeline;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.renjin.compiler.pipeline.accessor.Accessor;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Computes {@code any()} or {@code all()} of a fused element-wise computation,
+ * stopping at the first {@code TRUE} or {@code FALSE} element respectively.
+ *
+ * <p>The logical result is returned as a double: 1, 0 or {@code NA}.</p>
+ */
+public class AnyAllJitter extends LoopJitter {
+
+  private final boolean any;
+  private int valueLocal;
+  private int naLocal;
+
+  public AnyAllJitter(boolean any) {
+    this.any = any;
+  }
+
+  @Override
+  protected void init(ComputeMethod method, int lengthLocal) {
+    MethodVisitor mv = method.getVisitor();
+    valueLocal = method.reserveLocal(2);
+    naLocal = method.reserveLocal(1);
+    mv.visitInsn(ICONST_0);
+    mv.visitVarInsn(ISTORE, naLocal);
+  }
+
+  @Override
+  protected void visitElement(ComputeMethod method, Accessor accessor, int counterLocal, Label next) {
+    MethodVisitor mv = method.getVisitor();
+    storeElement(method, accessor, counterLocal, valueLocal);
+
+    Label na = new Label();
+    jumpIfNaN(mv, valueLocal, na);
+
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitInsn(DCONST_0);
+    mv.visitInsn(DCMPL);
+    if(any) {
+      mv.visitJumpInsn(IFEQ, next);
+      returnScalar(mv, 1);
+    } else {
+      mv.visitJumpInsn(IFNE, next);
+      returnScalar(mv, 0);
+    }
+
+    mv.visitLabel(na);
+    mv.visitInsn(ICONST_1);
+    mv.visitVarInsn(ISTORE, naLocal);
+  }
+
+  @Override
+  protected void returnResult(ComputeMethod method, int lengthLocal) {
+    MethodVisitor mv = method.getVisitor();
+    Label noNA = new Label();
+    mv.visitVarInsn(ILOAD, naLocal);
+    mv.visitJumpInsn(IFEQ, noNA);
+    returnNA(mv);
+    mv.visitLabel(noNA);
+    returnScalar(mv, any ? 0 : 1);
+  }
+}
@@ -0,0 +1,72 @@
+package org.renjin.compiler.pipeline;
+
+import org.renjin.sexp.Vector;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes a jitted computation by recursively splitting its input into ranges
+ * of at most {@code chunkSize} elements, which are computed on a fork/join pool
+ * and then combined by the computation's {@link Reduction}.
+ */
+public class ChunkedComputation extends RecursiveTask<double[]> {
+
+  private final JittedComputation computation;
+  private final Reduction reduction;
+  private final Vector[] operands;
+  private final int start;
+  private final int end;
+  private final int chunkSize;
+  private final double[] result;
+
+  private ChunkedComputation(JittedComputation computation, Reduction reduction, Vector[] operands,
+                             int start, int end, int chunkSize, double[] result) {
+    this.computation = computation;
+    this.reduction = reduction;
+    this.operands = operands;
+    this.start = start;
+    this.end = end;
+    this.chunkSize = chunkSize;
+    this.result = result;
+  }
+
+  @Override
+  protected double[] compute() {
+    if(end - start <= chunkSize) {
+      return computation.compute(operands, start, end, result);
+    }
+    int middle = start + (end - start) / 2;
+    ChunkedComputation left = new ChunkedComputation(computation, reduction, operands, start, middle, chunkSize, result);
+    ChunkedComputation right = new ChunkedComputation(computation, reduction, operands, middle, end, chunkSize, result);
+    left.fork();
+    double[] rightResult = right.compute();
+    return reduction.combine(left.join(), rightResult);
+  }
+
+  /**
+   * Computes the result of a node which can be jitted.
+   *
+   * @param node the node to compute
+   * @param pool the pool on which to compute ranges of the node's input, or {@code null}
+   *             if the node should be computed on the current thread.
+   * @param chunkSize the maximum number of elements of the input computed by a single task
+   */
+  public static double[] compute(DeferredNode node, ForkJoinPool pool, int chunkSize) {
+    Reduction reduction = Reduction.of(node);
+    JittedComputation computation = DeferredJitCache.INSTANCE.compile(node);
+    Vector[] operands = node.flattenVectors();
+
+    int length = reduction.getInput(node).getVector().length();
+    if(pool == null || length <= chunkSize) {
+      return computation.compute(operands);
+    }
+
+    double[] result = null;
+    if(reduction == Reduction.ELEMENTWISE) {
+      result = new double[length];
+    }
+    double[] combined = pool.invoke(new ChunkedComputation(computation, reduction, operands, 0, length, chunkSize, result));
+    return reduction.finish(combined, length);
+  }
+}
@@ -8,11 +8,24 @@ public class ComputeMethod {
   private MethodVisitor visitor;
   private int maxStackSize = 0;
   private int currentStack = 0;
+  private boolean range;
 
   public ComputeMethod(MethodVisitor visitor) {
     this.visitor = visitor;
   }
 
+  /**
+   * @param range true if the method computes only the range of elements given by its
+   *              {@code start}, {@code end} and {@code result} parameters.
+   */
+  public ComputeMethod(MethodVisitor visitor, boolean range) {
+    this.visitor = visitor;
+    this.range = range;
+    if(range) {
+      localCount = 5;
+    }
+  }
+
   public MethodVisitor getVisitor() {
     return visitor;
   }
@@ -38,6 +51,36 @@ public class ComputeMethod {
     return 1;
   }
 
+  /**
+   * @return true if this method computes a range of elements, whose bounds are
+   * in the {@link #getStartLocalIndex()} and {@link #getEndLocalIndex()} locals
+   */
+  public boolean isRange() {
+    return range;
+  }
+
+  /**
+   * @return the index of the first element to compute (inclusive)
+   */
+  public int getStartLocalIndex() {
+    return 2;
+  }
+
+  /**
+   * @return the index of the last element to compute (exclusive)
+   */
+  public int getEndLocalIndex() {
+    return 3;
+  }
+
+  /**
+   * @return the index of the preallocated {@code double[]} array into which
+   * element-wise results are written
+   */
+  public int getResultLocalIndex() {
+    return 4;
+  }
+
   public int getMaxLocals() {
     return localCount;
   }
@@ -0,0 +1,47 @@
+package org.renjin.compiler.pipeline;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.renjin.compiler.pipeline.accessor.Accessor;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Counts the {@code TRUE} elements of a fused element-wise computation, which
+ * allows {@code length(which(x))} to be computed without allocating the indices.
+ */
+public class CountTrueJitter extends LoopJitter {
+
+  private int valueLocal;
+  private int countLocal;
+
+  @Override
+  protected void init(ComputeMethod method, int lengthLocal) {
+    MethodVisitor mv = method.getVisitor();
+    valueLocal = method.reserveLocal(2);
+    countLocal = method.reserveLocal(1);
+    mv.visitInsn(ICONST_0);
+    mv.visitVarInsn(ISTORE, countLocal);
+  }
+
+  @Override
+  protected void visitElement(ComputeMethod method, Accessor accessor, int counterLocal, Label next) {
+    MethodVisitor mv = method.getVisitor();
+    storeElement(method, accessor, counterLocal, valueLocal);
+    jumpIfNaN(mv, valueLocal, next);
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitInsn(DCONST_0);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(IFEQ, next);
+    mv.visitIincInsn(countLocal, 1);
+  }
+
+  @Override
+  protected void returnResult(ComputeMethod method, int lengthLocal) {
+    MethodVisitor mv = method.getVisitor();
+    beginScalarResult(mv);
+    mv.visitVarInsn(ILOAD, countLocal);
+    mv.visitInsn(I2D);
+    endScalarResult(mv);
+  }
+}
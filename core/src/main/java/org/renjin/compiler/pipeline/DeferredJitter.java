@@ -37,6 +37,11 @@ import static org.objectweb.asm.Opcodes.*;
  *
  * <p>Because we totally inline getElementAsDouble,
  * we need a new Jitted class for each combination of operators and vector classes.</p>
+ *
+ * <p>Element-wise operations are inlined through their generated static {@code compute} methods,
+ * and can be fused into the summary functions mean, rowMeans, sum, min, max, any, all and
+ * countTrue (used for {@code length(which(x))}), or materialized into a {@code double[]}
+ * array.</p>
  */
 public class DeferredJitter {
 
@@ -60,6 +65,7 @@ public class DeferredJitter {
 
     writeConstructor();
     writeCompute(node);
+    writeComputeRange(node);
 
     cv.visitEnd();
 
@@ -105,14 +111,34 @@ public class DeferredJitter {
     mv.visitEnd();
   }
 
+  private void writeComputeRange(DeferredNode node) {
+    MethodVisitor mv = cv.visitMethod(ACC_PUBLIC, "compute", "([Lorg/renjin/sexp/Vector;II[D)[D", null, null);
+    mv.visitCode();
+
+    ComputeMethod methodContext = new ComputeMethod(mv, true);
+
+    FunctionJitter function = getFunction(node);
+    function.compute(methodContext, node);
+
+    mv.visitMaxs(1, methodContext.getMaxLocals());
+    mv.visitEnd();
+  }
+
+  /**
+   * @return true if the given node can be computed by a jitted class, either because it is
+   * a summary function which has a {@link FunctionJitter}, or because it is an element-wise
+   * computation which can be materialized into a {@code double[]} array
+   */
+  public static boolean canCompile(DeferredNode node) {
+    return Reduction.of(node) != null;
+  }
+
   private FunctionJitter getFunction(DeferredNode node) {
-    if(node.getComputation().getComputationName().equals("mean")) {
-      return new MeanJitter();
-    } else if(node.getComputation().getComputationName().equals("rowMeans")) {
-      return new RowMeanJitter();
-    } else {
+    Reduction reduction = Reduction.of(node);
+    if(reduction == null) {
       throw new UnsupportedOperationException(node.toString());
     }
+    return reduction.newJitter();
   }
 
   class MyClassLoader extends ClassLoader {
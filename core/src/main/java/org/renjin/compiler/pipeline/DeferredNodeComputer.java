@@ -4,6 +4,8 @@ import org.renjin.primitives.vector.MemoizedComputation;
 import org.renjin.sexp.DoubleArrayVector;
 import org.renjin.sexp.Vector;
 
+import java.util.concurrent.ForkJoinPool;
+
 
 /**
  * Fully computes a node and stores its value
@@ -11,9 +13,22 @@ import org.renjin.sexp.Vector;
 public class DeferredNodeComputer implements Runnable {
 
   private final DeferredNode node;
+  private final ForkJoinPool pool;
+  private final int chunkSize;
 
   public DeferredNodeComputer(DeferredNode node) {
+    this(node, null, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param node the node to compute
+   * @param pool the pool on which to split the computation of large nodes, or {@code null}
+   * @param chunkSize the number of elements above which the computation is split
+   */
+  public DeferredNodeComputer(DeferredNode node, ForkJoinPool pool, int chunkSize) {
     this.node = node;
+    this.pool = pool;
+    this.chunkSize = chunkSize;
   }
 
   @Override
@@ -21,15 +36,11 @@ public class DeferredNodeComputer implements Runnable {
     // TODO: at the moment, we can compile only a small number of summary
     // function, eventually we want to generate bytecode on the fly based
     // on their implementations elsewhere.
-    if(node.getComputation().getComputationName().equals("mean") ||
-        node.getComputation().getComputationName().equals("rowMeans")) {
+    if(node.getVector() instanceof MemoizedComputation && DeferredJitter.canCompile(node)) {
       try {
-        Vector[] operands = node.flattenVectors();
-        JittedComputation computer = DeferredJitCache.INSTANCE.compile(node);
-
         long start = System.nanoTime();
 
-        Vector result = DoubleArrayVector.unsafe(computer.compute(operands));
+        Vector result = DoubleArrayVector.unsafe(ChunkedComputation.compute(node, pool, chunkSize));
 
         long time = System.nanoTime() - start;
         if(VectorPipeliner.DEBUG) {
@@ -14,4 +14,14 @@ public interface JittedComputation {
    * @return
    */
   public double[] compute(Vector[] operands);
+
+  /**
+   * Computes the part of the result which depends on the elements {@code [start, end)} of
+   * the node's input, so that a large computation can be split between threads.
+   *
+   * <p>Element-wise computations write their elements into {@code result} and return it.
+   * Summaries return a partial result which must be combined with those of other ranges
+   * by the {@link Reduction}.</p>
+   */
+  public double[] compute(Vector[] operands, int start, int end, double[] result);
 }
@@ -0,0 +1,146 @@
+package org.renjin.compiler.pipeline;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.renjin.compiler.pipeline.accessor.Accessor;
+import org.renjin.compiler.pipeline.accessor.Accessors;
+import org.renjin.compiler.pipeline.accessor.InputGraph;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Base class for jitters which make a single pass over the elements of a
+ * fused element-wise computation, such as {@code sum(sqrt(x*y))}.
+ *
+ * <p>Subclasses emit the loop body, which may return early from the
+ * compute method, and the code which returns the result once all
+ * elements have been visited.</p>
+ *
+ * <p>If the {@link ComputeMethod} is a range method, only the elements between
+ * its {@code start} and {@code end} parameters are visited, and the subclass
+ * returns a partial result which can be combined by its {@link Reduction}.</p>
+ */
+public abstract class LoopJitter implements FunctionJitter {
+
+  @Override
+  public final void compute(ComputeMethod method, DeferredNode node) {
+
+    InputGraph inputGraph = new InputGraph(node);
+
+    Accessor accessor = Accessors.create(getInput(node), inputGraph);
+    accessor.init(method);
+
+    MethodVisitor mv = method.getVisitor();
+
+    int lengthLocal = method.reserveLocal(1);
+    accessor.pushLength(method);
+    mv.visitVarInsn(ISTORE, lengthLocal);
+
+    init(method, lengthLocal);
+
+    int counterLocal = method.reserveLocal(1);
+    pushStart(method);
+    mv.visitVarInsn(ISTORE, counterLocal);
+
+    Label loopHead = new Label();
+    Label loopEnd = new Label();
+    mv.visitLabel(loopHead);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    mv.visitVarInsn(ILOAD, method.isRange() ? method.getEndLocalIndex() : lengthLocal);
+    mv.visitJumpInsn(IF_ICMPEQ, loopEnd);
+
+    Label next = new Label();
+    visitElement(method, accessor, counterLocal, next);
+
+    mv.visitLabel(next);
+    mv.visitIincInsn(counterLocal, 1);
+    mv.visitJumpInsn(GOTO, loopHead);
+    mv.visitLabel(loopEnd);
+
+    returnResult(method, lengthLocal);
+  }
+
+  /**
+   * @return the node whose elements are visited
+   */
+  protected DeferredNode getInput(DeferredNode node) {
+    return node.getOperand(0);
+  }
+
+  /**
+   * Emits code to initialize local variables before the loop.
+   */
+  protected abstract void init(ComputeMethod method, int lengthLocal);
+
+  /**
+   * Emits the body of the loop for the element at the index stored in {@code counterLocal}.
+   * The body may jump to {@code next} to continue with the next element.
+   */
+  protected abstract void visitElement(ComputeMethod method, Accessor accessor, int counterLocal, Label next);
+
+  /**
+   * Emits code to return the {@code double[]} result after all elements have been visited,
+   * or the partial result if this is a range method.
+   */
+  protected abstract void returnResult(ComputeMethod method, int lengthLocal);
+
+  /**
+   * Pushes the index of the first element to visit on to the stack.
+   */
+  protected static void pushStart(ComputeMethod method) {
+    if(method.isRange()) {
+      method.getVisitor().visitVarInsn(ILOAD, method.getStartLocalIndex());
+    } else {
+      method.getVisitor().visitInsn(ICONST_0);
+    }
+  }
+
+  /**
+   * Pushes the element at the index stored in {@code counterLocal} on to the stack as a double
+   * and stores it in the given local variable.
+   */
+  protected static void storeElement(ComputeMethod method, Accessor accessor, int counterLocal, int valueLocal) {
+    MethodVisitor mv = method.getVisitor();
+    mv.visitVarInsn(ILOAD, counterLocal);
+    accessor.pushDouble(method);
+    mv.visitVarInsn(DSTORE, valueLocal);
+  }
+
+  /**
+   * Jumps to {@code label} if the double stored in {@code valueLocal} is {@code NaN} (including {@code NA})
+   */
+  protected static void jumpIfNaN(MethodVisitor mv, int valueLocal, Label label) {
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(IFNE, label);
+  }
+
+  /**
+   * Pushes a new {@code double[1]} array and its first index on to the stack. The value should
+   * be pushed and then {@link #endScalarResult(MethodVisitor)} called.
+   */
+  protected static void beginScalarResult(MethodVisitor mv) {
+    mv.visitInsn(ICONST_1);
+    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+    mv.visitInsn(DUP);
+    mv.visitInsn(ICONST_0);
+  }
+
+  protected static void endScalarResult(MethodVisitor mv) {
+    mv.visitInsn(DASTORE);
+    mv.visitInsn(ARETURN);
+  }
+
+  protected static void returnScalar(MethodVisitor mv, double value) {
+    beginScalarResult(mv);
+    mv.visitLdcInsn(value);
+    endScalarResult(mv);
+  }
+
+  protected static void returnNA(MethodVisitor mv) {
+    beginScalarResult(mv);
+    mv.visitFieldInsn(GETSTATIC, "org/renjin/sexp/DoubleVector", "NA", "D");
+    endScalarResult(mv);
+  }
+}
@@ -0,0 +1,51 @@
+package org.renjin.compiler.pipeline;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.renjin.compiler.pipeline.accessor.Accessor;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Computes every element of a fused element-wise computation into a new {@code double[]} array.
+ */
+public class MaterializeJitter extends LoopJitter {
+
+  private int arrayLocal;
+
+  @Override
+  protected DeferredNode getInput(DeferredNode node) {
+    return node;
+  }
+
+  @Override
+  protected void init(ComputeMethod method, int lengthLocal) {
+    if(method.isRange()) {
+      // write into the slice of the preallocated array
+      arrayLocal = method.getResultLocalIndex();
+    } else {
+      MethodVisitor mv = method.getVisitor();
+      arrayLocal = method.reserveLocal(1);
+      mv.visitVarInsn(ILOAD, lengthLocal);
+      mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+      mv.visitVarInsn(ASTORE, arrayLocal);
+    }
+  }
+
+  @Override
+  protected void visitElement(ComputeMethod method, Accessor accessor, int counterLocal, Label next) {
+    MethodVisitor mv = method.getVisitor();
+    mv.visitVarInsn(ALOAD, arrayLocal);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    accessor.pushDouble(method);
+    mv.visitInsn(DASTORE);
+  }
+
+  @Override
+  protected void returnResult(ComputeMethod method, int lengthLocal) {
+    MethodVisitor mv = method.getVisitor();
+    mv.visitVarInsn(ALOAD, arrayLocal);
+    mv.visitInsn(ARETURN);
+  }
+}
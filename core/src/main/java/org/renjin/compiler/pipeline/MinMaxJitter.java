@@ -0,0 +1,85 @@
+package org.renjin.compiler.pipeline;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.renjin.compiler.pipeline.accessor.Accessor;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Computes the minimum or maximum of a fused element-wise computation.
+ *
+ * <p>Returns {@code NA} as soon as an {@code NA} is encountered, otherwise
+ * {@code NaN} if any element is {@code NaN}.</p>
+ */
+public class MinMaxJitter extends LoopJitter {
+
+  private final boolean max;
+  private int valueLocal;
+  private int resultLocal;
+  private int nanLocal;
+
+  public MinMaxJitter(boolean max) {
+    this.max = max;
+  }
+
+  @Override
+  protected void init(ComputeMethod method, int lengthLocal) {
+    MethodVisitor mv = method.getVisitor();
+    valueLocal = method.reserveLocal(2);
+    resultLocal = method.reserveLocal(2);
+    nanLocal = method.reserveLocal(1);
+
+    mv.visitLdcInsn(max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+    mv.visitVarInsn(DSTORE, resultLocal);
+    mv.visitInsn(ICONST_0);
+    mv.visitVarInsn(ISTORE, nanLocal);
+  }
+
+  @Override
+  protected void visitElement(ComputeMethod method, Accessor accessor, int counterLocal, Label next) {
+    MethodVisitor mv = method.getVisitor();
+    storeElement(method, accessor, counterLocal, valueLocal);
+
+    Label nan = new Label();
+    jumpIfNaN(mv, valueLocal, nan);
+
+    // compare with the current extreme
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DLOAD, resultLocal);
+    if(max) {
+      mv.visitInsn(DCMPL);
+      mv.visitJumpInsn(IFLE, next);
+    } else {
+      mv.visitInsn(DCMPG);
+      mv.visitJumpInsn(IFGE, next);
+    }
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DSTORE, resultLocal);
+    mv.visitJumpInsn(GOTO, next);
+
+    // NA ends the computation, NaN is remembered
+    mv.visitLabel(nan);
+    Label notNA = new Label();
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitMethodInsn(INVOKESTATIC, "org/renjin/sexp/DoubleVector", "isNA", "(D)Z");
+    mv.visitJumpInsn(IFEQ, notNA);
+    returnNA(mv);
+    mv.visitLabel(notNA);
+    mv.visitInsn(ICONST_1);
+    mv.visitVarInsn(ISTORE, nanLocal);
+  }
+
+  @Override
+  protected void returnResult(ComputeMethod method, int lengthLocal) {
+    MethodVisitor mv = method.getVisitor();
+    Label noNaN = new Label();
+    mv.visitVarInsn(ILOAD, nanLocal);
+    mv.visitJumpInsn(IFEQ, noNaN);
+    returnScalar(mv, Double.NaN);
+    mv.visitLabel(noNaN);
+    beginScalarResult(mv);
+    mv.visitVarInsn(DLOAD, resultLocal);
+    endScalarResult(mv);
+  }
+}
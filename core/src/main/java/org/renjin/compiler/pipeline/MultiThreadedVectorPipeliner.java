@@ -4,6 +4,8 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import org.renjin.primitives.vector.DeferredComputation;
+import org.renjin.sexp.DoubleArrayVector;
+import org.renjin.sexp.DoubleVector;
 import org.renjin.sexp.Vector;
 
 import java.util.Collection;
@@ -12,14 +14,88 @@ import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 
+/**
+ * Computes deferred computations using multiple threads.
+ *
+ * <p>Independent memoized nodes are computed concurrently on the executor service. In addition,
+ * if the executor service is a fork/join pool, the input of a single large summary or element-wise
+ * computation is split into chunks, which are computed on the pool and then combined.</p>
+ */
 public class MultiThreadedVectorPipeliner implements VectorPipeliner {
 
-  private final ExecutorService executorService;
+  /**
+   * The default number of elements computed by a single fork/join task
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
 
+  private final ExecutorService executorService;
+  private final ForkJoinPool forkJoinPool;
+  private final int chunkSize;
+
+  /**
+   * True if the pool was created by this pipeliner, which is then responsible for shutting it down
+   */
+  private final boolean ownsPool;
+
+  /**
+   * Creates a pipeliner which computes deferred computations on the given executor service, which
+   * remains owned by the caller. Large computations are split into chunks only if it is a
+   * {@link ForkJoinPool}.
+   */
   public MultiThreadedVectorPipeliner(ExecutorService executorService) {
+    this(executorService,
+        executorService instanceof ForkJoinPool ? (ForkJoinPool) executorService : null,
+        DEFAULT_CHUNK_SIZE, false);
+  }
+
+  /**
+   * Creates a pipeliner which computes deferred computations on a new pool.
+   *
+   * @param threads the number of threads to use
+   * @param chunkSize the maximum number of elements computed by a single task
+   */
+  public MultiThreadedVectorPipeliner(int threads, int chunkSize) {
+    this(new ForkJoinPool(threads), chunkSize);
+  }
+
+  private MultiThreadedVectorPipeliner(ForkJoinPool pool, int chunkSize) {
+    this(pool, pool, chunkSize, true);
+  }
+
+  private MultiThreadedVectorPipeliner(ExecutorService executorService, ForkJoinPool forkJoinPool,
+                                       int chunkSize, boolean ownsPool) {
+    if(chunkSize < 1) {
+      throw new IllegalArgumentException("chunkSize: " + chunkSize);
+    }
     this.executorService = executorService;
+    this.forkJoinPool = forkJoinPool;
+    this.chunkSize = chunkSize;
+    this.ownsPool = ownsPool;
+  }
+
+  /**
+   * @return the number of threads among which large computations are split, or 1 if
+   * they are not split.
+   */
+  public int getThreadCount() {
+    return forkJoinPool == null ? 1 : forkJoinPool.getParallelism();
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Shuts down the pool created by this pipeliner, after any computations already started have
+   * completed. A pipeliner constructed with an {@code ExecutorService} leaves it to the caller.
+   */
+  public void shutdown() {
+    if(ownsPool) {
+      forkJoinPool.shutdown();
+    }
   }
 
   @Override
@@ -52,7 +128,15 @@ public class MultiThreadedVectorPipeliner implements VectorPipeliner {
       graph.dumpGraph();
     }
 
-    return materialize(root);
+    Vector vector = materialize(root);
+    if(vector instanceof DeferredComputation && vector instanceof DoubleVector) {
+      DeferredNode node = new DeferredGraph((DeferredComputation) vector).getRoot();
+      if(forkJoinPool != null && DeferredJitter.canCompile(node)) {
+        double[] array = ChunkedComputation.compute(node, forkJoinPool, chunkSize);
+        return DoubleArrayVector.unsafe(array, vector.getAttributes());
+      }
+    }
+    return vector;
   }
 
   private void forceMemoizedValues(DeferredGraph graph) throws InterruptedException, ExecutionException {
@@ -81,7 +165,7 @@ public class MultiThreadedVectorPipeliner implements VectorPipeliner {
           if(VectorPipeliner.DEBUG) {
             System.out.println("Starting " + node);
           }
-          service.submit(new DeferredNodeComputer(node), node);
+          service.submit(new DeferredNodeComputer(node, forkJoinPool, chunkSize), node);
           running ++;
           it.remove();
         }
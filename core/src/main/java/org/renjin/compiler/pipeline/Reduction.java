@@ -0,0 +1,213 @@
+package org.renjin.compiler.pipeline;
+
+import org.renjin.primitives.vector.MemoizedComputation;
+import org.renjin.sexp.DoubleVector;
+
+/**
+ * The computations which can be jitted, together with the way in which the partial
+ * results of ranges of their input are combined when a computation is split between
+ * threads.
+ */
+public enum Reduction {
+
+  MEAN("mean") {
+    @Override
+    public FunctionJitter newJitter() {
+      return new MeanJitter();
+    }
+
+    @Override
+    public double[] combine(double[] x, double[] y) {
+      return SUM.combine(x, y);
+    }
+
+    @Override
+    public double[] finish(double[] result, int inputLength) {
+      return new double[] { result[0] / inputLength };
+    }
+  },
+
+  ROW_MEANS("rowMeans") {
+    @Override
+    public FunctionJitter newJitter() {
+      return new RowMeanJitter();
+    }
+
+    @Override
+    public double[] combine(double[] x, double[] y) {
+      for(int i=0;i!=x.length;++i) {
+        x[i] += y[i];
+      }
+      return x;
+    }
+
+    @Override
+    public double[] finish(double[] result, int inputLength) {
+      double numCols = inputLength / result.length;
+      for(int i=0;i!=result.length;++i) {
+        result[i] /= numCols;
+      }
+      return result;
+    }
+  },
+
+  SUM("sum") {
+    @Override
+    public FunctionJitter newJitter() {
+      return new SumJitter();
+    }
+
+    @Override
+    public double[] combine(double[] x, double[] y) {
+      return new double[] { x[0] + y[0] };
+    }
+  },
+
+  MIN("min") {
+    @Override
+    public FunctionJitter newJitter() {
+      return new MinMaxJitter(false);
+    }
+
+    @Override
+    public double[] combine(double[] x, double[] y) {
+      return new double[] { combineNaN(x[0], y[0], Math.min(x[0], y[0])) };
+    }
+  },
+
+  MAX("max") {
+    @Override
+    public FunctionJitter newJitter() {
+      return new MinMaxJitter(true);
+    }
+
+    @Override
+    public double[] combine(double[] x, double[] y) {
+      return new double[] { combineNaN(x[0], y[0], Math.max(x[0], y[0])) };
+    }
+  },
+
+  ANY("any") {
+    @Override
+    public FunctionJitter newJitter() {
+      return new AnyAllJitter(true);
+    }
+
+    @Override
+    public double[] combine(double[] x, double[] y) {
+      if(x[0] == 1 || y[0] == 1) {
+        return x[0] == 1 ? x : y;
+      }
+      return Double.isNaN(x[0]) ? x : y;
+    }
+  },
+
+  ALL("all") {
+    @Override
+    public FunctionJitter newJitter() {
+      return new AnyAllJitter(false);
+    }
+
+    @Override
+    public double[] combine(double[] x, double[] y) {
+      if(x[0] == 0 || y[0] == 0) {
+        return x[0] == 0 ? x : y;
+      }
+      return Double.isNaN(x[0]) ? x : y;
+    }
+  },
+
+  COUNT_TRUE("countTrue") {
+    @Override
+    public FunctionJitter newJitter() {
+      return new CountTrueJitter();
+    }
+
+    @Override
+    public double[] combine(double[] x, double[] y) {
+      return SUM.combine(x, y);
+    }
+  },
+
+  /**
+   * Computes all the elements of a deferred {@code DoubleVector}. Each range
+   * writes its elements into a slice of the same preallocated array.
+   */
+  ELEMENTWISE(null) {
+    @Override
+    public FunctionJitter newJitter() {
+      return new MaterializeJitter();
+    }
+
+    @Override
+    public DeferredNode getInput(DeferredNode node) {
+      return node;
+    }
+
+    @Override
+    public double[] combine(double[] x, double[] y) {
+      return x;
+    }
+  };
+
+  private final String computationName;
+
+  Reduction(String computationName) {
+    this.computationName = computationName;
+  }
+
+  public abstract FunctionJitter newJitter();
+
+  /**
+   * @return the node whose elements are split into ranges
+   */
+  public DeferredNode getInput(DeferredNode node) {
+    return node.getOperand(0);
+  }
+
+  /**
+   * Combines the partial results of two adjacent ranges. The arrays may be reused.
+   */
+  public abstract double[] combine(double[] x, double[] y);
+
+  /**
+   * Computes the final result from the combination of all partial results.
+   */
+  public double[] finish(double[] result, int inputLength) {
+    return result;
+  }
+
+  /**
+   * @return {@code NA} if either partial result is {@code NA}, otherwise {@code NaN} if either is {@code NaN},
+   * or {@code result} otherwise.
+   */
+  private static double combineNaN(double x, double y, double result) {
+    if(DoubleVector.isNA(x) || DoubleVector.isNA(y)) {
+      return DoubleVector.NA;
+    }
+    if(Double.isNaN(x) || Double.isNaN(y)) {
+      return Double.NaN;
+    }
+    return result;
+  }
+
+  /**
+   * @return the {@code Reduction} which computes the given node, or {@code null} if the
+   * node cannot be jitted
+   */
+  public static Reduction of(DeferredNode node) {
+    if(!node.isComputation()) {
+      return null;
+    }
+    if(!(node.getVector() instanceof MemoizedComputation)) {
+      return node.getVector() instanceof DoubleVector ? ELEMENTWISE : null;
+    }
+    String name = node.getComputation().getComputationName();
+    for(Reduction reduction : values()) {
+      if(name.equals(reduction.computationName)) {
+        return reduction;
+      }
+    }
+    return null;
+  }
+}
@@ -36,19 +36,25 @@ public class RowMeanJitter implements FunctionJitter  {
     mv.visitIntInsn(NEWARRAY, T_DOUBLE);
     mv.visitVarInsn(ASTORE, meansLocal);
 
-    // initialize counter
-    mv.visitInsn(ICONST_0);
+    // initialize row index
+    LoopJitter.pushStart(method);
+    mv.visitVarInsn(ILOAD, numRowsLocal);
+    mv.visitInsn(IREM);
     mv.visitVarInsn(ISTORE, rowLocal);
 
-    // initialize row index
-    mv.visitInsn(ICONST_0);
+    // initialize counter
+    LoopJitter.pushStart(method);
     mv.visitVarInsn(ISTORE, counterLocal);
 
     // check whether to loop
     Label l4 = new Label();
     mv.visitLabel(l4);
     mv.visitVarInsn(ILOAD, counterLocal);
-    matrix.pushLength(method);
+    if(method.isRange()) {
+      mv.visitVarInsn(ILOAD, method.getEndLocalIndex());
+    } else {
+      matrix.pushLength(method);
+    }
 
     Label l5 = new Label();
     mv.visitJumpInsn(IF_ICMPEQ, l5);
@@ -94,6 +100,14 @@ public class RowMeanJitter implements FunctionJitter  {
 
     mv.visitLabel(l5);
 
+    if(method.isRange()) {
+      // the partial result is the row sums, which are divided
+      // once all the ranges have been combined
+      mv.visitVarInsn(ALOAD, meansLocal);
+      mv.visitInsn(ARETURN);
+      return;
+    }
+
     int numColsLocal = method.reserveLocal(2);
     // calculate num cols (length / num rows)
     matrix.pushLength(method);
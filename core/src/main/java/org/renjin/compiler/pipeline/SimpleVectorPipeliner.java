@@ -35,6 +35,11 @@ public class SimpleVectorPipeliner implements VectorPipeliner {
     if(vector instanceof MemoizedDoubleVector) {
       return vector;
     } else if(vector instanceof DeferredComputation && vector instanceof DoubleVector) {
+      DeferredNode node = new DeferredGraph((DeferredComputation) vector).getRoot();
+      if(DeferredJitter.canCompile(node)) {
+        double[] array = ChunkedComputation.compute(node, null, Integer.MAX_VALUE);
+        return DoubleArrayVector.unsafe(array, vector.getAttributes());
+      }
       return DoubleArrayVector.unsafe(((DoubleVector) vector).toDoubleArray(), vector.getAttributes());
     } else {
       return vector;
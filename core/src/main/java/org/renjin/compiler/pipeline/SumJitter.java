@@ -0,0 +1,41 @@
+package org.renjin.compiler.pipeline;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.renjin.compiler.pipeline.accessor.Accessor;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Computes the sum of a fused element-wise computation.
+ */
+public class SumJitter extends LoopJitter {
+
+  protected int sumLocal;
+
+  @Override
+  protected void init(ComputeMethod method, int lengthLocal) {
+    MethodVisitor mv = method.getVisitor();
+    sumLocal = method.reserveLocal(2);
+    mv.visitInsn(DCONST_0);
+    mv.visitVarInsn(DSTORE, sumLocal);
+  }
+
+  @Override
+  protected void visitElement(ComputeMethod method, Accessor accessor, int counterLocal, Label next) {
+    MethodVisitor mv = method.getVisitor();
+    mv.visitVarInsn(DLOAD, sumLocal);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    accessor.pushDouble(method);
+    mv.visitInsn(DADD);
+    mv.visitVarInsn(DSTORE, sumLocal);
+  }
+
+  @Override
+  protected void returnResult(ComputeMethod method, int lengthLocal) {
+    MethodVisitor mv = method.getVisitor();
+    beginScalarResult(mv);
+    mv.visitVarInsn(DLOAD, sumLocal);
+    endScalarResult(mv);
+  }
+}
@@ -1,5 +1,6 @@
 package org.renjin.compiler.pipeline.accessor;
 
+import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.renjin.compiler.pipeline.ComputeMethod;
 
@@ -42,9 +43,51 @@ public abstract class Accessor {
     }
   }
 
+  /**
+   * The index is on the stack, the method should
+   * push the corresponding int on to the stack, using
+   * {@code IntVector.NA} for missing values.
+   */
   public void pushInt(ComputeMethod method) {
     pushDouble(method);
-    method.getVisitor().visitInsn(D2I);
+    doubleToInt(method.getVisitor());
+  }
+
+  /**
+   * Converts the int on the top of the stack to a double,
+   * mapping {@code IntVector.NA} to {@code DoubleVector.NA}
+   */
+  protected static void intToDouble(MethodVisitor mv) {
+    Label notNA = new Label();
+    Label done = new Label();
+    mv.visitInsn(DUP);
+    mv.visitLdcInsn(Integer.MIN_VALUE);
+    mv.visitJumpInsn(IF_ICMPNE, notNA);
+    mv.visitInsn(POP);
+    mv.visitFieldInsn(GETSTATIC, "org/renjin/sexp/DoubleVector", "NA", "D");
+    mv.visitJumpInsn(GOTO, done);
+    mv.visitLabel(notNA);
+    mv.visitInsn(I2D);
+    mv.visitLabel(done);
+  }
+
+  /**
+   * Converts the double on the top of the stack to an int,
+   * mapping {@code NaN} and {@code NA} to {@code IntVector.NA}
+   */
+  protected static void doubleToInt(MethodVisitor mv) {
+    Label notNaN = new Label();
+    Label done = new Label();
+    mv.visitInsn(DUP2);
+    mv.visitInsn(DUP2);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(IFEQ, notNaN);
+    mv.visitInsn(POP2);
+    mv.visitLdcInsn(Integer.MIN_VALUE);
+    mv.visitJumpInsn(GOTO, done);
+    mv.visitLabel(notNaN);
+    mv.visitInsn(D2I);
+    mv.visitLabel(done);
   }
 
 }
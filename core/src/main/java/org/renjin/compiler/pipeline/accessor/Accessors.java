@@ -15,11 +15,8 @@ public class Accessors {
     } else if(node.getVector() instanceof IntArrayVector) {
       return new IntArrayAccessor(inputGraph.getOperandIndex(node));
       
-    } else if(UnaryVectorOpAccessor.accept(node)) {
-      return new UnaryVectorOpAccessor(node, inputGraph);
-    
-    } else if(BinaryVectorOpAccessor.accept(node)) {
-      return new BinaryVectorOpAccessor(node, inputGraph);
+    } else if(VectorOpAccessor.accept(node)) {
+      return new VectorOpAccessor(node, inputGraph);
     
     } else if(node.getVector() instanceof TransposingMatrix) {
       return new TransposingAccessor(node, inputGraph);
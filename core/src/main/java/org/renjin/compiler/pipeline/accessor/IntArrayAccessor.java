@@ -9,7 +9,7 @@ public class IntArrayAccessor extends Accessor {
 
   /**
    * The local variable where we're storing the
-   * raw array, double[]
+   * raw array, int[]
    */
   private int arrayLocalIndex;
   private int operandIndex;
@@ -44,7 +44,7 @@ public class IntArrayAccessor extends Accessor {
     mv.visitVarInsn(ALOAD, arrayLocalIndex);
     mv.visitInsn(SWAP);
     mv.visitInsn(IALOAD);
-    mv.visitInsn(I2D);
+    intToDouble(mv);
   }
 
   @Override
@@ -0,0 +1,212 @@
+package org.renjin.compiler.pipeline.accessor;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.renjin.compiler.pipeline.ComputeMethod;
+import org.renjin.compiler.pipeline.DeferredNode;
+import org.renjin.sexp.Vector;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Inlines an element-wise {@code @DataParallel} operation by invoking the static
+ * {@code compute} method of the generated deferred vector class directly, with
+ * the same recycling and NA handling as the vector's own accessor.
+ */
+public class VectorOpAccessor extends Accessor {
+
+  private final Method applyMethod;
+  private final boolean passNA;
+  private final Accessor[] operandAccessors;
+
+  private int indexLocal;
+  private int lengthLocal;
+  private int[] operandLengthLocals;
+  private int[] argumentLocals;
+
+  public VectorOpAccessor(DeferredNode node, InputGraph inputGraph) {
+    this.applyMethod = findStaticApply(node.getVector());
+    this.passNA = isPassNA(node.getVector());
+    this.operandAccessors = new Accessor[node.getOperands().size()];
+    for(int i=0;i!=operandAccessors.length;++i) {
+      operandAccessors[i] = Accessors.create(node.getOperand(i), inputGraph);
+    }
+  }
+
+  public static boolean accept(DeferredNode node) {
+    Method method = findStaticApply(node.getVector());
+    return method != null &&
+        method.getParameterTypes().length == node.getOperands().size();
+  }
+
+  private static Method findStaticApply(Vector vector) {
+    for(Method method : vector.getClass().getMethods()) {
+      if(method.getName().equals("compute") &&
+          Modifier.isPublic(method.getModifiers()) &&
+          Modifier.isStatic(method.getModifiers()) &&
+          isSupportedType(method.getReturnType()) &&
+          allSupportedTypes(method.getParameterTypes())) {
+        return method;
+      }
+    }
+    return null;
+  }
+
+  private static boolean allSupportedTypes(Class<?>[] parameterTypes) {
+    if(parameterTypes.length == 0) {
+      return false;
+    }
+    for(Class<?> type : parameterTypes) {
+      if(!isSupportedType(type)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isSupportedType(Class<?> type) {
+    return type == double.class || type == int.class;
+  }
+
+  private static boolean isPassNA(Vector vector) {
+    try {
+      Field field = vector.getClass().getField("PASS_NA");
+      return field.getBoolean(null);
+    } catch (NoSuchFieldException e) {
+      return false;
+    } catch (IllegalAccessException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public void init(ComputeMethod method) {
+    MethodVisitor mv = method.getVisitor();
+    Class<?>[] parameterTypes = applyMethod.getParameterTypes();
+
+    indexLocal = method.reserveLocal(1);
+    lengthLocal = method.reserveLocal(1);
+    operandLengthLocals = new int[operandAccessors.length];
+    argumentLocals = new int[operandAccessors.length];
+
+    mv.visitInsn(ICONST_0);
+    mv.visitVarInsn(ISTORE, lengthLocal);
+
+    for(int i=0;i!=operandAccessors.length;++i) {
+      operandAccessors[i].init(method);
+      operandLengthLocals[i] = method.reserveLocal(1);
+      argumentLocals[i] = method.reserveLocal(parameterTypes[i] == double.class ? 2 : 1);
+
+      operandAccessors[i].pushLength(method);
+      mv.visitInsn(DUP);
+      mv.visitVarInsn(ISTORE, operandLengthLocals[i]);
+      mv.visitVarInsn(ILOAD, lengthLocal);
+      mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "max", "(II)I");
+      mv.visitVarInsn(ISTORE, lengthLocal);
+    }
+  }
+
+  @Override
+  public void pushLength(ComputeMethod method) {
+    method.getVisitor().visitVarInsn(ILOAD, lengthLocal);
+  }
+
+  @Override
+  public void pushDouble(ComputeMethod method) {
+    pushResult(method, double.class);
+  }
+
+  @Override
+  public void pushInt(ComputeMethod method) {
+    pushResult(method, int.class);
+  }
+
+  private void pushResult(ComputeMethod method, Class<?> resultType) {
+    MethodVisitor mv = method.getVisitor();
+    Class<?>[] parameterTypes = applyMethod.getParameterTypes();
+    Label naLabel = new Label();
+    Label doneLabel = new Label();
+
+    // stack => { index }
+    mv.visitVarInsn(ISTORE, indexLocal);
+
+    // fetch each argument into a local variable, recycling shorter operands
+    for(int i=0;i!=operandAccessors.length;++i) {
+      pushRecycledIndex(mv, i);
+      if(parameterTypes[i] == double.class) {
+        operandAccessors[i].pushDouble(method);
+        mv.visitVarInsn(DSTORE, argumentLocals[i]);
+      } else {
+        operandAccessors[i].pushInt(method);
+        mv.visitVarInsn(ISTORE, argumentLocals[i]);
+      }
+    }
+
+    // the result is NA if any argument is NA, unless the function handles NAs itself
+    if(!passNA) {
+      for(int i=0;i!=operandAccessors.length;++i) {
+        if(parameterTypes[i] == double.class) {
+          mv.visitVarInsn(DLOAD, argumentLocals[i]);
+          mv.visitMethodInsn(INVOKESTATIC, "org/renjin/sexp/DoubleVector", "isNA", "(D)Z");
+          mv.visitJumpInsn(IFNE, naLabel);
+        } else {
+          mv.visitVarInsn(ILOAD, argumentLocals[i]);
+          mv.visitLdcInsn(Integer.MIN_VALUE);
+          mv.visitJumpInsn(IF_ICMPEQ, naLabel);
+        }
+      }
+    }
+
+    for(int i=0;i!=operandAccessors.length;++i) {
+      mv.visitVarInsn(parameterTypes[i] == double.class ? DLOAD : ILOAD, argumentLocals[i]);
+    }
+    mv.visitMethodInsn(INVOKESTATIC,
+        Type.getInternalName(applyMethod.getDeclaringClass()),
+        applyMethod.getName(),
+        Type.getMethodDescriptor(applyMethod));
+
+    if(applyMethod.getReturnType() != resultType) {
+      if(resultType == double.class) {
+        intToDouble(mv);
+      } else {
+        doubleToInt(mv);
+      }
+    }
+
+    if(!passNA) {
+      mv.visitJumpInsn(GOTO, doneLabel);
+      mv.visitLabel(naLabel);
+      if(resultType == double.class) {
+        mv.visitFieldInsn(GETSTATIC, "org/renjin/sexp/DoubleVector", "NA", "D");
+      } else {
+        mv.visitLdcInsn(Integer.MIN_VALUE);
+      }
+      mv.visitLabel(doneLabel);
+    }
+  }
+
+  private void pushRecycledIndex(MethodVisitor mv, int operand) {
+    if(operandAccessors.length == 1) {
+      mv.visitVarInsn(ILOAD, indexLocal);
+    } else {
+      // avoid the modulus if we can
+      Label inRange = new Label();
+      Label done = new Label();
+      mv.visitVarInsn(ILOAD, indexLocal);
+      mv.visitVarInsn(ILOAD, operandLengthLocals[operand]);
+      mv.visitJumpInsn(IF_ICMPLT, inRange);
+      mv.visitVarInsn(ILOAD, indexLocal);
+      mv.visitVarInsn(ILOAD, operandLengthLocals[operand]);
+      mv.visitInsn(IREM);
+      mv.visitJumpInsn(GOTO, done);
+      mv.visitLabel(inRange);
+      mv.visitVarInsn(ILOAD, indexLocal);
+      mv.visitLabel(done);
+    }
+  }
+}
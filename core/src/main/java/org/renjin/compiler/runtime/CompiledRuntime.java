@@ -1,10 +1,10 @@
 package org.renjin.compiler.runtime;
 
+import com.google.common.collect.Iterables;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
-import org.renjin.sexp.Logical;
-import org.renjin.sexp.PairList;
-import org.renjin.sexp.SEXP;
+import org.renjin.eval.LookupCache;
+import org.renjin.sexp.*;
 
 
 public class CompiledRuntime {
@@ -42,8 +42,9 @@ public class CompiledRuntime {
     int j = insertPos;
     for(PairList.Node node : elipses.nodes()) {
       if(node.hasTag()) {
-        spliced[j++] = node.getTag().getPrintName();
+        spliced[j] = node.getTag().getPrintName();
       }
+      j++;
     }
     for(i=insertPos+1;i<staticArgName.length;++i) {
       spliced[j++] = staticArgName[i];
@@ -66,4 +67,195 @@ public class CompiledRuntime {
     }
     return spliced;
   }
+
+  /**
+   * Evaluates the condition of an {@code if} or {@code while} statement, 
+   * following the rules of {@link SpecialFunction#asLogicalNoNA(Context, FunctionCall, SEXP)}
+   */
+  public static boolean evaluateCondition(Context context, SEXP condition) {
+    return SpecialFunction.asLogicalNoNA(context, null, context.materialize(condition));
+  }
+
+  /**
+   * Evaluates an operand of {@code &&} or {@code ||}
+   * 
+   * @return 1 if the condition is {@code TRUE}, 0 if {@code FALSE}, or -1 if {@code NA}
+   */
+  public static int evaluateLogicalOperand(SEXP operand) {
+    if(!(operand instanceof AtomicVector)) {
+      throw new EvalException("invalid type in logical operator");
+    }
+    if(operand.length() == 0) {
+      return -1;
+    }
+    switch(((AtomicVector) operand).getElementAsLogical(0)) {
+      case TRUE:
+        return 1;
+      case FALSE:
+        return 0;
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * Evaluates a symbol in the given environment, forcing any promise to 
+   * which the symbol is bound.
+   */
+  public static SEXP evaluateVariable(Context context, Environment rho, Symbol symbol) {
+    SEXP value = rho.findVariable(symbol);
+    if(value == Symbol.UNBOUND_VALUE) {
+      throw new EvalException(String.format("object '%s' not found", symbol.getPrintName()));
+    }
+    if(value instanceof Promise) {
+      return value.force(context);
+    }
+    return value;
+  }
+
+  /**
+   * Evaluates a symbol in the given environment, forcing any promise to
+   * which the symbol is bound, using the lookup cache of the call site.
+   */
+  public static SEXP evaluateVariable(Context context, Environment rho, Symbol symbol, LookupCache cache) {
+    SEXP value = cache.findVariable(rho, symbol);
+    if(value == Symbol.UNBOUND_VALUE) {
+      throw new EvalException(String.format("object '%s' not found", symbol.getPrintName()));
+    }
+    if(value instanceof Promise) {
+      return value.force(context);
+    }
+    return value;
+  }
+
+  /**
+   * Finds the function value of {@code symbol}, skipping over bindings to 
+   * non-function values.
+   */
+  public static Function findFunction(Context context, Environment rho, Symbol symbol) {
+    Function function = rho.findFunction(context, symbol);
+    if(function == null) {
+      throw new EvalException("could not find function '%s'", symbol.getPrintName());
+    }
+    return function;
+  }
+
+  /**
+   * Finds the function value of {@code symbol}, skipping over bindings to
+   * non-function values, using the lookup cache of the call site.
+   */
+  public static Function findFunction(Context context, Environment rho, Symbol symbol, LookupCache cache) {
+    Function function = cache.findFunction(context, rho, symbol);
+    if(function == null) {
+      throw new EvalException("could not find function '%s'", symbol.getPrintName());
+    }
+    return function;
+  }
+
+  public static Function checkFunction(Context context, SEXP value) {
+    SEXP function = value.force(context);
+    if(!(function instanceof Function)) {
+      throw new EvalException("'function' of lang expression is of unsupported type '%s'", function.getTypeName());
+    }
+    return (Function) function;
+  }
+
+  /**
+   * @return the length of the sequence of a {@code for} loop
+   */
+  public static int loopLength(SEXP sequence) {
+    if(!(sequence instanceof Vector)) {
+      throw new EvalException("invalid for() loop sequence");
+    }
+    return sequence.length();
+  }
+
+  /**
+   * Applies a replacement function such as {@code names<-} to the already-evaluated
+   * value of the right hand side, in the same way as the {@code <-} special function.
+   * 
+   * @param setterCall the call to the replacement function, whose last argument 
+   *                   is a placeholder for the value
+   */
+  public static SEXP applySetter(Context context, Environment rho, Function setter, FunctionCall setterCall,
+                                 SEXP value) {
+    PairList.Builder arguments = new PairList.Builder();
+    for(PairList.Node node : setterCall.getArguments().nodes()) {
+      if(node.hasNextNode()) {
+        arguments.add(node.getRawTag(), node.getValue());
+      } else {
+        arguments.add(node.getRawTag(), Promise.repromise(value));
+      }
+    }
+    PairList args = arguments.build();
+    return setter.apply(context, rho, new FunctionCall(setterCall.getFunction(), args), args);
+  }
+
+  /**
+   * Retrieves the value of the '...' argument
+   */
+  public static PairList findEllipses(Environment rho) {
+    SEXP ellipses = rho.findVariable(Symbols.ELLIPSES);
+    if(ellipses == Symbol.UNBOUND_VALUE) {
+      throw new EvalException("'...' used in an incorrect context");
+    }
+    return (PairList) ellipses;
+  }
+
+  public static boolean hasObjectArguments(SEXP[] arguments) {
+    for(int i=0;i!=arguments.length;++i) {
+      if(arguments[i].isObject()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Applies a builtin to already-evaluated arguments through its full 
+   * {@link Function#apply(Context, Environment, FunctionCall, PairList)} method, so that 
+   * any S3 methods for the arguments are dispatched to, and named arguments are matched.
+   */
+  public static SEXP applyBuiltin(Context context, Environment rho, Function builtin, FunctionCall call,
+                                  String[] argumentNames, SEXP[] arguments) {
+    
+    // if no '...' has been spliced in, then the arguments line up with
+    // the original call and we can keep the original expressions
+    PairList.Node node = null;
+    if(call.getArguments().length() == arguments.length && 
+       call.getArguments() instanceof PairList.Node &&
+       !Iterables.contains(call.getArguments().values(), Symbols.ELLIPSES)) {
+      node = (PairList.Node) call.getArguments();
+    }
+    
+    PairList.Builder promised = new PairList.Builder();
+    for(int i=0;i!=arguments.length;++i) {
+      if(arguments[i] == Symbol.MISSING_ARG || (node != null && node.getValue() == arguments[i])) {
+        // literal arguments, such as the name in x$name <- value, are 
+        // passed as-is 
+        promised.add(argumentNames[i], arguments[i]);
+      } else if(node != null) {
+        promised.add(argumentNames[i], new Promise(node.getValue(), arguments[i]));
+      } else {
+        promised.add(argumentNames[i], Promise.repromise(arguments[i]));
+      }
+      if(node != null && node.hasNextNode()) {
+        node = node.getNextNode();
+      }
+    }
+    return builtin.apply(context, rho, call, promised.build());
+  }
+
+  /**
+   * Assigns a value for the {@code <<-} operator.
+   */
+  public static void reassign(Context context, Environment rho, Symbol name, SEXP value) {
+    for(Environment env : rho.parents()) {
+      if(env.hasVariable(name))  {
+        env.setVariable(name, value);
+        return;
+      }
+    }
+    context.getGlobalEnvironment().setVariable(name, value);
+  }
 }
@@ -0,0 +1,262 @@
+package org.renjin.compiler.tiered;
+
+import com.google.common.collect.Sets;
+import org.renjin.compiler.ir.exception.NotCompilableException;
+import org.renjin.primitives.Primitives;
+import org.renjin.sexp.*;
+
+import java.util.Set;
+
+/**
+ * Checks that a closure body only uses constructs which the tiered compiler
+ * can translate faithfully, and collects the assumptions which the compiled
+ * code will make about the environment in which it runs.
+ *
+ * <p>Calls to reserved words such as {@code +}, {@code [} or {@code if} are compiled
+ * inline, on the assumption that they resolve to the primitives in the base package.
+ * All other calls are applied dynamically, with their arguments promised and
+ * evaluated by the interpreter.
+ */
+class BodyAnalysis {
+
+  /**
+   * How the compiled body must leave the context's visibility flag
+   */
+  enum Visibility {
+
+    /**
+     * The flag is left as set by the last expression evaluated
+     */
+    NATURAL,
+
+    /**
+     * The body ends with an assignment or a loop, and its value is invisible
+     */
+    INVISIBLE
+  }
+
+  private final Set<Symbol> assumedPrimitives = Sets.newLinkedHashSet();
+  private final Set<FunctionCall> internalCalls = Sets.newIdentityHashSet();
+  private final Visibility visibility;
+
+  BodyAnalysis(SEXP body) {
+    scan(body, false);
+    visibility = tailVisibility(body);
+  }
+
+  /**
+   * @return the reserved words which the compiled body assumes are bound
+   * to the primitive functions of the same name
+   */
+  public Set<Symbol> getAssumedPrimitives() {
+    return assumedPrimitives;
+  }
+
+  /**
+   * @return true if {@code call} is the argument to an {@code .Internal} call
+   */
+  public boolean isInternalCall(FunctionCall call) {
+    return internalCalls.contains(call);
+  }
+
+  public Visibility getVisibility() {
+    return visibility;
+  }
+
+  /**
+   * Scans an expression which will be evaluated by compiled code.
+   */
+  private void scan(SEXP exp, boolean inLoop) {
+    if(exp instanceof ExpressionVector) {
+      for(SEXP element : (ExpressionVector) exp) {
+        scan(element, inLoop);
+      }
+    } else if(exp instanceof FunctionCall) {
+      scanCall((FunctionCall) exp, inLoop);
+    }
+  }
+
+  private void scanCall(FunctionCall call, boolean inLoop) {
+    SEXP function = call.getFunction();
+    if(!isReservedWord(function)) {
+      // applied dynamically, the arguments are promised
+      scan(function, inLoop);
+      scanPromised(call.getArguments(), inLoop);
+      return;
+    }
+
+    Symbol name = (Symbol) function;
+    String printName = name.getPrintName();
+    assumedPrimitives.add(name);
+
+    if(printName.equals("function")) {
+      scanPromised(call.getArgument(1), false);
+
+    } else if(printName.equals("break") || printName.equals("next")) {
+      if(!inLoop) {
+        throw new NotCompilableException(call, "'" + printName + "' used outside of a loop");
+      }
+    } else if(printName.equals("for")) {
+      scan(call.getArgument(1), inLoop);
+      scan(call.getArgument(2), true);
+
+    } else if(printName.equals("while")) {
+      scan(call.getArgument(0), inLoop);
+      scan(call.getArgument(1), true);
+
+    } else if(printName.equals("repeat")) {
+      scan(call.getArgument(0), true);
+
+    } else if(printName.equals("<-") || printName.equals("=") || printName.equals("<<-")) {
+      scanAssignment(call, inLoop);
+
+    } else if(printName.equals(".Internal")) {
+      scanInternal(call, inLoop);
+
+    } else if(Primitives.getBuiltin(name) instanceof SpecialFunction && !isControlFlow(printName)) {
+      // other specials, such as `$`, are applied dynamically
+      scanPromised(call.getArguments(), inLoop);
+
+    } else {
+      for(SEXP argument : call.getArguments().values()) {
+        scan(argument, inLoop);
+      }
+    }
+  }
+
+  private boolean isControlFlow(String name) {
+    return name.equals("if") || name.equals("{") || name.equals("(") ||
+           name.equals("&&") || name.equals("||");
+  }
+
+  private void scanAssignment(FunctionCall call, boolean inLoop) {
+    if(call.getArguments().length() != 2) {
+      throw new NotCompilableException(call, "invalid assignment");
+    }
+    scan(call.getArgument(1), inLoop);
+
+    SEXP lhs = call.getArgument(0);
+    if(lhs instanceof FunctionCall && call.getFunction() == Symbol.get("<<-")) {
+      // the interpreter evaluates the target of complex superassignments
+      // in the enclosing environment
+      throw new NotCompilableException(call, "complex superassignment");
+    }
+
+    while(lhs instanceof FunctionCall) {
+      FunctionCall getterCall = (FunctionCall) lhs;
+      if(!(getterCall.getFunction() instanceof Symbol)) {
+        throw new NotCompilableException(call, "invalid function in complex assignment");
+      }
+      Symbol setter = Symbol.get(((Symbol) getterCall.getFunction()).getPrintName() + "<-");
+      if(setter.isReservedWord()) {
+        // the getter's arguments are evaluated inline and passed to the primitive
+        assumedPrimitives.add(setter);
+        for(SEXP argument : getterCall.getArguments().values()) {
+          scan(argument, inLoop);
+        }
+      } else {
+        if(Primitives.getBuiltin(setter) instanceof SpecialFunction) {
+          throw new NotCompilableException(call, "assignment through special function " + setter);
+        }
+        scanPromised(getterCall.getArguments(), inLoop);
+      }
+      lhs = getterCall.getArgument(0);
+    }
+
+    Symbol target;
+    if(lhs instanceof Symbol) {
+      target = (Symbol) lhs;
+    } else if(lhs instanceof StringVector && lhs.length() > 0) {
+      target = Symbol.get(((StringVector) lhs).getElementAsString(0));
+    } else {
+      throw new NotCompilableException(call, "invalid assignment target");
+    }
+    if(target.isReservedWord()) {
+      throw new NotCompilableException(call, "assignment to reserved word " + target);
+    }
+  }
+
+  private void scanInternal(FunctionCall call, boolean inLoop) {
+    if(call.getArguments().length() != 1 || !(call.getArgument(0) instanceof FunctionCall)) {
+      throw new NotCompilableException(call, "invalid .Internal() argument");
+    }
+    FunctionCall internalCall = call.getArgument(0);
+    if(!(internalCall.getFunction() instanceof Symbol)) {
+      throw new NotCompilableException(call, "invalid .Internal() argument");
+    }
+    Symbol name = (Symbol) internalCall.getFunction();
+    PrimitiveFunction internal = Primitives.getInternal(name);
+    if(internal == null || internal instanceof SpecialFunction ||
+        Primitives.getBuiltin(name) instanceof SpecialFunction) {
+      throw new NotCompilableException(call, "special .Internal function " + name);
+    }
+    internalCalls.add(internalCall);
+    for(SEXP argument : internalCall.getArguments().values()) {
+      scan(argument, inLoop);
+    }
+  }
+
+  /**
+   * Scans an expression which will be evaluated by the interpreter, from
+   * where a {@code break} or {@code next} cannot reach a compiled loop.
+   */
+  private void scanPromised(SEXP exp, boolean inCompiledLoop) {
+    if(exp instanceof FunctionCall) {
+      FunctionCall call = (FunctionCall) exp;
+      SEXP function = call.getFunction();
+      if(function == Symbol.get("break") || function == Symbol.get("next")) {
+        if(inCompiledLoop) {
+          throw new NotCompilableException(call, "'" + function + "' within a promised argument");
+        }
+      } else if(function == Symbol.get("for") || function == Symbol.get("while") ||
+                function == Symbol.get("repeat") || function == Symbol.get("function")) {
+        scanPromised(call.getArguments(), false);
+      } else {
+        scanPromised(function, inCompiledLoop);
+        scanPromised(call.getArguments(), inCompiledLoop);
+      }
+    } else if(exp instanceof PairList) {
+      for(SEXP element : ((PairList) exp).values()) {
+        scanPromised(element, inCompiledLoop);
+      }
+    } else if(exp instanceof ExpressionVector) {
+      for(SEXP element : (ExpressionVector) exp) {
+        scanPromised(element, inCompiledLoop);
+      }
+    }
+  }
+
+  private Visibility tailVisibility(SEXP exp) {
+    if(exp instanceof FunctionCall && isReservedWord(((FunctionCall) exp).getFunction())) {
+      FunctionCall call = (FunctionCall) exp;
+      String name = ((Symbol) call.getFunction()).getPrintName();
+      if(name.equals("{")) {
+        if(call.getArguments().length() == 0) {
+          return Visibility.INVISIBLE;
+        }
+        return tailVisibility(call.getArgument(call.getArguments().length() - 1));
+
+      } else if(name.equals("(")) {
+        return tailVisibility(call.getArgument(0));
+
+      } else if(name.equals("<-") || name.equals("=") || name.equals("<<-") ||
+                name.equals("for") || name.equals("while") || name.equals("repeat")) {
+        return Visibility.INVISIBLE;
+
+      } else if(name.equals("if")) {
+        Visibility ifTrue = tailVisibility(call.getArgument(1));
+        Visibility ifFalse = call.getArguments().length() == 3 ?
+            tailVisibility(call.getArgument(2)) : Visibility.INVISIBLE;
+        if(ifTrue != ifFalse) {
+          throw new NotCompilableException(call, "branches differ in visibility");
+        }
+        return ifTrue;
+      }
+    }
+    return Visibility.NATURAL;
+  }
+
+  private static boolean isReservedWord(SEXP function) {
+    return function instanceof Symbol && ((Symbol) function).isReservedWord();
+  }
+}
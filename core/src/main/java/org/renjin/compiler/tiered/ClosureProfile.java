@@ -0,0 +1,80 @@
+package org.renjin.compiler.tiered;
+
+/**
+ * Counts the invocations and loop iterations of a closure body, and holds
+ * its compiled form once it becomes hot.
+ *
+ * <p>A profile is shared by all closures with the same body, so that closures
+ * created repeatedly by the same {@code function} expression, or copied by
+ * {@code environment<-}, accumulate their counts together. The counters are
+ * deliberately not synchronized: lost updates only delay compilation.
+ */
+public final class ClosureProfile {
+
+  enum State {
+    INTERPRETED,
+    QUEUED,
+    COMPILED,
+    FAILED
+  }
+
+  private int invocations;
+  private int backEdges;
+  private volatile State state = State.INTERPRETED;
+  private volatile CompiledClosureBody compiledBody;
+
+  ClosureProfile() {
+  }
+
+  /**
+   * @return true if this invocation makes the body hot enough to compile
+   */
+  boolean countInvocation(int threshold) {
+    return ++invocations >= threshold && state == State.INTERPRETED;
+  }
+
+  /**
+   * @return true if this loop iteration makes the body hot enough to compile
+   */
+  boolean countBackEdge(int threshold) {
+    return ++backEdges >= threshold && state == State.INTERPRETED;
+  }
+
+  int getInvocations() {
+    return invocations;
+  }
+
+  int getBackEdges() {
+    return backEdges;
+  }
+
+  State getState() {
+    return state;
+  }
+
+  CompiledClosureBody getCompiledBody() {
+    return compiledBody;
+  }
+
+  /**
+   * Moves this profile from the interpreted to the queued state.
+   *
+   * @return false if the body has already been queued by another thread
+   */
+  synchronized boolean markQueued() {
+    if(state != State.INTERPRETED) {
+      return false;
+    }
+    state = State.QUEUED;
+    return true;
+  }
+
+  void compiled(CompiledClosureBody body) {
+    this.compiledBody = body;
+    this.state = State.COMPILED;
+  }
+
+  void failed() {
+    this.state = State.FAILED;
+  }
+}
@@ -0,0 +1,48 @@
+package org.renjin.compiler.tiered;
+
+import org.renjin.compiler.CompiledBody;
+import org.renjin.eval.Context;
+import org.renjin.eval.LookupCache;
+import org.renjin.sexp.*;
+
+import java.util.Collection;
+
+/**
+ * A compiled closure body together with the guards under which it is
+ * equivalent to interpreting the original body.
+ */
+class CompiledClosureBody {
+
+  private final CompiledBody body;
+  private final Symbol[] assumedPrimitives;
+  private final LookupCache[] guardCaches;
+
+  CompiledClosureBody(CompiledBody body, Collection<Symbol> assumedPrimitives) {
+    this.body = body;
+    this.assumedPrimitives = assumedPrimitives.toArray(new Symbol[assumedPrimitives.size()]);
+    this.guardCaches = new LookupCache[this.assumedPrimitives.length];
+    for(int i = 0; i != guardCaches.length; ++i) {
+      guardCaches[i] = new LookupCache();
+    }
+  }
+
+  /**
+   * Checks that each reserved word which the compiled code inlines still resolves
+   * to its primitive when called from {@code rho}.
+   */
+  boolean guardsHold(Context context, Environment rho) {
+    for(int i = 0; i != assumedPrimitives.length; ++i) {
+      Symbol name = assumedPrimitives[i];
+      Function function = guardCaches[i].findFunction(context, rho, name);
+      if(!(function instanceof PrimitiveFunction) ||
+         !((PrimitiveFunction) function).getName().equals(name.getPrintName())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  SEXP evaluate(Context context, Environment rho) {
+    return body.eval(context, rho);
+  }
+}
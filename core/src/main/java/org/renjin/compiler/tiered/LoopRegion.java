@@ -0,0 +1,372 @@
+package org.renjin.compiler.tiered;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.renjin.compiler.ir.exception.NotCompilableException;
+import org.renjin.compiler.ir.tac.IRBody;
+import org.renjin.compiler.ir.tac.IRLabel;
+import org.renjin.compiler.ir.tac.IRLoop;
+import org.renjin.compiler.ir.tac.expressions.*;
+import org.renjin.compiler.ir.tac.statements.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The statements of a loop in the three-address code of a compiled body,
+ * and the variables through which they communicate with the statements
+ * around them.
+ *
+ * <p>A region is specializable if it consists only of scalar arithmetic,
+ * comparisons, element access and element assignment, which
+ * can be computed on unboxed values once the types of the variables entering
+ * the loop are known.
+ */
+class LoopRegion {
+
+  /**
+   * How a variable is used within the loop
+   */
+  enum Role {
+    SCALAR,
+    VECTOR
+  }
+
+  private static final Set<String> ARITHMETIC = Sets.newHashSet("+", "-", "*", "/", "^", "%%", "%/%");
+  private static final Set<String> COMPARISON = Sets.newHashSet("==", "!=", "<", "<=", ">", ">=");
+  private static final Set<String> SUBSET = Sets.newHashSet("[", "[[");
+  private static final Set<String> REPLACE = Sets.newHashSet("[<-", "[[<-");
+
+  private final IRBody body;
+  private final IRLoop loop;
+  private final int headerIndex;
+  private final int exitIndex;
+  private final Set<LValue> intVariables;
+
+  private final List<EnvironmentVariable> environmentVariables = Lists.newArrayList();
+  private final Set<EnvironmentVariable> readVariables = Sets.newHashSet();
+  private final Set<EnvironmentVariable> assignedVariables = Sets.newHashSet();
+  private final Set<EnvironmentVariable> replacedVectors = Sets.newHashSet();
+
+  private final List<LValue> temps = Lists.newArrayList();
+  private final List<LValue> intTemps = Lists.newArrayList();
+  private final Set<LValue> assignedTemps = Sets.newHashSet();
+
+  private final Map<LValue, Role> roles = Maps.newHashMap();
+
+  /**
+   * @throws NotCompilableException if the loop cannot be specialized
+   */
+  LoopRegion(IRBody body, IRLoop loop, Set<LValue> intVariables) {
+    this.body = body;
+    this.loop = loop;
+    this.headerIndex = body.getLabelInstructionIndex(loop.getHeaderLabel());
+    this.exitIndex = body.getLabelInstructionIndex(loop.getExitLabel());
+    this.intVariables = intVariables;
+
+    List<Statement> statements = body.getStatements();
+    for(int i = headerIndex; i < exitIndex; ++i) {
+      scanStatement(statements.get(i));
+    }
+    assignRoles(statements);
+  }
+
+  /**
+   * @return the variables which the generated code stores as JVM {@code int}s rather
+   * than as SEXPs: the counters and lengths of {@code for} loops.
+   */
+  static Set<LValue> findIntVariables(IRBody body) {
+    Set<LValue> variables = Sets.newHashSet();
+    for(Statement statement : body.getStatements()) {
+      if(statement instanceof Assignment) {
+        Expression rhs = statement.getRHS();
+        if(rhs instanceof Increment || rhs instanceof Length ||
+            (rhs instanceof Constant && ((Constant) rhs).getValue() instanceof Integer)) {
+          variables.add(((Assignment) statement).getLHS());
+        }
+      }
+    }
+    return variables;
+  }
+
+  private void scanStatement(Statement statement) {
+    for(IRLabel target : statement.possibleTargets()) {
+      int index = body.getLabelInstructionIndex(target);
+      if(index < headerIndex || index > exitIndex) {
+        throw new NotCompilableException(null, "jump out of loop");
+      }
+    }
+    if(statement instanceof Assignment) {
+      if(statement instanceof Reassignment) {
+        throw new NotCompilableException(null, "<<- within loop");
+      }
+      Assignment assignment = (Assignment) statement;
+      LValue lhs = assignment.getLHS();
+      scanExpression(assignment.getRHS());
+      if(lhs instanceof EnvironmentVariable) {
+        addEnvironmentVariable((EnvironmentVariable) lhs);
+        assignedVariables.add((EnvironmentVariable) lhs);
+        if(isReplacement(assignment.getRHS())) {
+          Expression target = ((PrimitiveCall) assignment.getRHS()).getArguments().get(0);
+          if(!lhs.equals(target)) {
+            throw new NotCompilableException(null, "replacement assigned to another variable");
+          }
+          replacedVectors.add((EnvironmentVariable) lhs);
+        }
+      } else if(isReplacement(assignment.getRHS())) {
+        throw new NotCompilableException(null, "nested replacement");
+      } else {
+        addTemp(lhs);
+        assignedTemps.add(lhs);
+      }
+
+    } else if(statement instanceof IfStatement) {
+      Expression condition = statement.getRHS();
+      if(condition instanceof CmpGE) {
+        scanExpression(((CmpGE) condition).getOp1());
+        scanExpression(((CmpGE) condition).getOp2());
+      } else {
+        scanExpression(condition);
+      }
+
+    } else if(statement instanceof ExprStatement) {
+      scanExpression(statement.getRHS());
+
+    } else if(!(statement instanceof GotoStatement)) {
+      throw new NotCompilableException(null, "unsupported statement " + statement);
+    }
+  }
+
+  private void scanExpression(Expression expression) {
+    if(expression instanceof EnvironmentVariable) {
+      addEnvironmentVariable((EnvironmentVariable) expression);
+      readVariables.add((EnvironmentVariable) expression);
+
+    } else if(expression instanceof Temp || expression instanceof LocalVariable) {
+      addTemp((LValue) expression);
+
+    } else if(expression instanceof Constant) {
+      // types are checked when the loop is specialized
+
+    } else if(expression instanceof Length) {
+      scanExpression(((Length) expression).getVector());
+
+    } else if(expression instanceof Increment) {
+      scanExpression(((Increment) expression).getCounter());
+
+    } else if(expression instanceof ElementAccess) {
+      scanExpression(((ElementAccess) expression).getVector());
+      scanExpression(((ElementAccess) expression).getIndex());
+
+    } else if(expression instanceof PrimitiveCall) {
+      PrimitiveCall call = (PrimitiveCall) expression;
+      checkPrimitive(call);
+      for(Expression argument : call.getArguments()) {
+        scanExpression(argument);
+      }
+    } else {
+      throw new NotCompilableException(null, "unsupported expression " + expression);
+    }
+  }
+
+  private void checkPrimitive(PrimitiveCall call) {
+    String name = call.getName().getPrintName();
+    int arity = call.getArguments().size();
+    boolean supported;
+    if(ARITHMETIC.contains(name)) {
+      supported = arity == 2 || (arity == 1 && (name.equals("-") || name.equals("+")));
+    } else if(COMPARISON.contains(name)) {
+      supported = arity == 2;
+    } else if(name.equals("!")) {
+      supported = arity == 1;
+    } else if(SUBSET.contains(name)) {
+      supported = arity == 2 || arity == 3;
+    } else if(REPLACE.contains(name)) {
+      supported = arity == 3 || arity == 4;
+    } else {
+      supported = false;
+    }
+    if(!supported || call.hasElipses()) {
+      throw new NotCompilableException(call.getSExpression(), "unsupported primitive in loop");
+    }
+    // only the value of a replacement may be named
+    List<String> names = call.getArgumentNames();
+    for(int i = 0; i != arity; ++i) {
+      if(names.get(i) != null && !(REPLACE.contains(name) && i == arity - 1)) {
+        throw new NotCompilableException(call.getSExpression(), "named argument in loop");
+      }
+    }
+  }
+
+  private void addEnvironmentVariable(EnvironmentVariable variable) {
+    if(!environmentVariables.contains(variable)) {
+      environmentVariables.add(variable);
+    }
+  }
+
+  private void addTemp(LValue temp) {
+    if(intVariables.contains(temp)) {
+      if(!intTemps.contains(temp)) {
+        intTemps.add(temp);
+      }
+    } else if(!temps.contains(temp)) {
+      temps.add(temp);
+    }
+  }
+
+  /**
+   * Classifies each variable as a scalar or a vector, depending on whether
+   * its elements are selected. A variable cannot be both.
+   */
+  private void assignRoles(List<Statement> statements) {
+    List<Assignment> copies = Lists.newArrayList();
+    for(int i = headerIndex; i < exitIndex; ++i) {
+      Statement statement = statements.get(i);
+      for(Expression expression : expressions(statement)) {
+        if(expression instanceof Length) {
+          assignRole(((Length) expression).getVector(), Role.VECTOR);
+        } else if(expression instanceof ElementAccess) {
+          assignRole(((ElementAccess) expression).getVector(), Role.VECTOR);
+        } else if(expression instanceof PrimitiveCall) {
+          PrimitiveCall call = (PrimitiveCall) expression;
+          String name = call.getName().getPrintName();
+          boolean subset = SUBSET.contains(name) || REPLACE.contains(name);
+          List<Expression> arguments = call.getArguments();
+          for(int j = 0; j != arguments.size(); ++j) {
+            assignRole(arguments.get(j), subset && j == 0 ? Role.VECTOR : Role.SCALAR);
+          }
+        }
+      }
+      if(statement instanceof IfStatement) {
+        assignRole(statement.getRHS(), Role.SCALAR);
+      } else if(statement instanceof Assignment) {
+        Assignment assignment = (Assignment) statement;
+        if(assignment.getRHS() instanceof LValue) {
+          copies.add(assignment);
+        } else if(!isReplacement(assignment.getRHS())) {
+          assignRole(assignment.getLHS(), Role.SCALAR);
+        }
+      }
+    }
+
+    // a copied variable, such as the sequence of a nested for loop,
+    // has the same role as its copy
+    boolean changed;
+    do {
+      changed = false;
+      for(Assignment copy : copies) {
+        Role lhsRole = roles.get(copy.getLHS());
+        Role rhsRole = roles.get(copy.getRHS());
+        if(lhsRole != rhsRole) {
+          assignRole(copy.getLHS(), rhsRole);
+          assignRole(copy.getRHS(), lhsRole);
+          changed = true;
+        }
+      }
+    } while(changed);
+  }
+
+  private void assignRole(Expression expression, Role role) {
+    if(role == null || !(expression instanceof LValue) || intVariables.contains(expression)) {
+      return;
+    }
+    Role existing = roles.get(expression);
+    if(existing == null) {
+      roles.put((LValue) expression, role);
+    } else if(existing != role) {
+      throw new NotCompilableException(null, expression + " is used both as a scalar and as a vector");
+    }
+  }
+
+  private static List<Expression> expressions(Statement statement) {
+    List<Expression> list = Lists.newArrayList();
+    if(statement.getRHS() != null) {
+      addExpressions(list, statement.getRHS());
+    }
+    return list;
+  }
+
+  private static void addExpressions(List<Expression> list, Expression expression) {
+    list.add(expression);
+    for(Expression child : expression.getChildren()) {
+      addExpressions(list, child);
+    }
+  }
+
+  static boolean isReplacement(Expression rhs) {
+    return rhs instanceof PrimitiveCall &&
+        REPLACE.contains(((PrimitiveCall) rhs).getName().getPrintName());
+  }
+
+  public IRLabel getHeaderLabel() {
+    return loop.getHeaderLabel();
+  }
+
+  public int getHeaderIndex() {
+    return headerIndex;
+  }
+
+  public int getExitIndex() {
+    return exitIndex;
+  }
+
+  public List<Statement> getStatements() {
+    return body.getStatements().subList(headerIndex, exitIndex);
+  }
+
+  public IRBody getBody() {
+    return body;
+  }
+
+  /**
+   * @return the environment variables read or assigned within the loop
+   */
+  public List<EnvironmentVariable> getEnvironmentVariables() {
+    return environmentVariables;
+  }
+
+  public boolean isRead(EnvironmentVariable variable) {
+    return readVariables.contains(variable);
+  }
+
+  public boolean isAssigned(EnvironmentVariable variable) {
+    return assignedVariables.contains(variable);
+  }
+
+  /**
+   * @return true if elements of {@code variable} are replaced within the loop
+   */
+  public boolean isReplaced(EnvironmentVariable variable) {
+    return replacedVectors.contains(variable);
+  }
+
+  /**
+   * @return the temps referenced within the loop which are held as SEXPs by the
+   * generic compiled body
+   */
+  public List<LValue> getTemps() {
+    return temps;
+  }
+
+  /**
+   * @return the temps referenced within the loop which are held as {@code int}s by
+   * the generic compiled body
+   */
+  public List<LValue> getIntTemps() {
+    return intTemps;
+  }
+
+  /**
+   * @return true if {@code temp} is assigned before the loop is entered
+   */
+  public boolean isLiveIn(LValue temp) {
+    return !assignedTemps.contains(temp);
+  }
+
+  public Role getRole(LValue variable) {
+    Role role = roles.get(variable);
+    return role == null ? Role.SCALAR : role;
+  }
+}
@@ -0,0 +1,268 @@
+package org.renjin.compiler.tiered;
+
+import com.google.common.collect.Maps;
+import org.renjin.compiler.ir.exception.NotCompilableException;
+import org.renjin.compiler.ir.tac.expressions.EnvironmentVariable;
+import org.renjin.compiler.ir.tac.expressions.LValue;
+import org.renjin.eval.Context;
+import org.renjin.sexp.AtomicVector;
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.Promise;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Symbol;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A loop in a compiled closure body which may be run by a {@link SpecializedLoop}.
+ *
+ * <p>Each time the generic compiled body reaches the loop, it calls {@link #run}, which
+ * determines the types of the values entering the loop, and runs the specialization
+ * for those types, compiling it on first use. A site keeps a handful of specializations,
+ * for loops which are entered with, say, both integer and double vectors, and gives
+ * up on loops which keep leaving their specializations early.
+ */
+public final class LoopSite {
+
+  private static final Logger LOGGER = Logger.getLogger(LoopSite.class.getName());
+
+  /**
+   * Returned by {@link #run} if the loop was not run, and must be run by
+   * the generic compiled body from its header
+   */
+  public static final int NOT_RUN = -1;
+
+  /**
+   * Returned by {@link #run} if the loop was not run because an argument which it reads
+   * has not yet been evaluated. The generic compiled body runs the loop from its header, and
+   * calls the site again at the start of the next iteration, by which time the loop
+   * will usually have forced the argument.
+   */
+  public static final int RETRY_NEXT_ITERATION = -2;
+
+  private static final int MAX_SPECIALIZATIONS = 4;
+
+  private static final int MAX_PROMISE_DEPTH = 3;
+
+  private final LoopRegion region;
+
+  private volatile Specialization[] specializations = new Specialization[0];
+  private volatile boolean disabled;
+
+  private int entries;
+  private int deoptimizations;
+
+  LoopSite(LoopRegion region) {
+    this.region = region;
+  }
+
+  LoopRegion getRegion() {
+    return region;
+  }
+
+  private static class Specialization {
+    private final ValueType[] signature;
+
+    /**
+     * The specialized loop, or {@code null} if the loop cannot be specialized
+     * for this signature
+     */
+    private final SpecializedLoop loop;
+
+    private Specialization(ValueType[] signature, SpecializedLoop loop) {
+      this.signature = signature;
+      this.loop = loop;
+    }
+  }
+
+  /**
+   * Runs the loop in the environment {@code rho}, if it can be specialized for the
+   * types of the values which enter it.
+   *
+   * @param temps the values of the SEXP-valued temps of the loop region, updated on exit
+   * @param intTemps the values of the int-valued temps of the loop region, updated on exit
+   * @return the index of the statement from which the generic compiled body must
+   * continue, or {@link #NOT_RUN} or {@link #RETRY_NEXT_ITERATION}
+   */
+  public int run(Context context, Environment rho, SEXP[] temps, int[] intTemps) {
+    if(disabled || !TieredCompiler.isLoopSpecializationEnabled()) {
+      return NOT_RUN;
+    }
+
+    List<EnvironmentVariable> variables = region.getEnvironmentVariables();
+    List<LValue> regionTemps = region.getTemps();
+    SEXP[] values = new SEXP[variables.size()];
+    ValueType[] signature = new ValueType[variables.size() + regionTemps.size()];
+
+    for(int i = 0; i != values.length; ++i) {
+      EnvironmentVariable variable = variables.get(i);
+      if(region.isRead(variable)) {
+        SEXP value = rho.findVariable(variable.getName());
+        if(value instanceof Promise) {
+          value = peek((Promise) value, MAX_PROMISE_DEPTH);
+          if(value == null) {
+            return RETRY_NEXT_ITERATION;
+          }
+        }
+        if(value == Symbol.UNBOUND_VALUE) {
+          // a variable may only be unbound if it is assigned before it is read
+          if(!region.isAssigned(variable) || region.getRole(variable) != LoopRegion.Role.SCALAR) {
+            return NOT_RUN;
+          }
+          signature[i] = ValueType.UNBOUND;
+        } else {
+          signature[i] = typeOf(variable, value);
+          values[i] = value;
+        }
+        if(signature[i] == null) {
+          return NOT_RUN;
+        }
+      }
+    }
+    for(int j = 0; j != regionTemps.size(); ++j) {
+      LValue temp = regionTemps.get(j);
+      if(region.isLiveIn(temp)) {
+        signature[values.length + j] = typeOf(temp, temps[j]);
+        if(signature[values.length + j] == null) {
+          return NOT_RUN;
+        }
+      }
+    }
+
+    SpecializedLoop loop = specializationFor(signature);
+    if(loop == null) {
+      return NOT_RUN;
+    }
+
+    int resumeIndex = loop.run(context, rho, values, temps, intTemps);
+
+    for(int i = 0; i != values.length; ++i) {
+      EnvironmentVariable variable = variables.get(i);
+      if(region.isAssigned(variable) && values[i] != null) {
+        rho.setVariable(variable.getName(), values[i]);
+      }
+    }
+
+    countEntry(resumeIndex != region.getExitIndex());
+
+    return resumeIndex;
+  }
+
+  /**
+   * @return the value of {@code promise}, if it has been evaluated or if it can be
+   * determined without evaluating anything, or {@code null} otherwise
+   */
+  private static SEXP peek(Promise promise, int depth) {
+    if(promise.isEvaluated()) {
+      return promise.getValue();
+    }
+    // Arguments which are just a variable from the calling function or a literal
+    // are usually still unevaluated when the loop is entered. Looking them up
+    // has no side effects, and yields the value which the promise will
+    // have when the loop forces it.
+    SEXP expression = promise.getExpression();
+    if(expression instanceof AtomicVector) {
+      return expression;
+    }
+    if(expression instanceof Symbol && expression != Symbol.MISSING_ARG && depth > 0 &&
+        promise.getEnvironment() != null) {
+      SEXP value = promise.getEnvironment().findVariable((Symbol) expression);
+      if(value instanceof Promise) {
+        return peek((Promise) value, depth - 1);
+      }
+      if(value != Symbol.UNBOUND_VALUE && value != Symbol.MISSING_ARG) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  private ValueType typeOf(LValue variable, SEXP value) {
+    if(value == null) {
+      return null;
+    }
+    if(region.getRole(variable) == LoopRegion.Role.VECTOR) {
+      return ValueType.ofVector(value);
+    } else {
+      return ValueType.ofScalar(value);
+    }
+  }
+
+  private synchronized void countEntry(boolean deoptimized) {
+    entries++;
+    if(deoptimized) {
+      deoptimizations++;
+      TieredCompiler.countDeoptimization();
+
+      // give up on loops which are mostly left early, as each exit costs
+      // a round trip through the generic code
+      if(deoptimizations > 100 && deoptimizations * 2 > entries) {
+        disabled = true;
+      }
+    }
+  }
+
+  private SpecializedLoop specializationFor(ValueType[] signature) {
+    for(Specialization specialization : specializations) {
+      if(Arrays.equals(specialization.signature, signature)) {
+        return specialization.loop;
+      }
+    }
+    synchronized (this) {
+      Specialization[] current = specializations;
+      for(Specialization specialization : current) {
+        if(Arrays.equals(specialization.signature, signature)) {
+          return specialization.loop;
+        }
+      }
+      if(current.length >= MAX_SPECIALIZATIONS) {
+        return null;
+      }
+      SpecializedLoop loop = specialize(signature);
+      Specialization[] updated = Arrays.copyOf(current, current.length + 1);
+      updated[current.length] = new Specialization(signature, loop);
+      specializations = updated;
+      return loop;
+    }
+  }
+
+  private SpecializedLoop specialize(ValueType[] signature) {
+    List<EnvironmentVariable> variables = region.getEnvironmentVariables();
+    List<LValue> temps = region.getTemps();
+    Map<LValue, ValueType> entryTypes = Maps.newHashMap();
+    for(int i = 0; i != variables.size(); ++i) {
+      if(signature[i] != null) {
+        entryTypes.put(variables.get(i), signature[i]);
+      }
+    }
+    for(int j = 0; j != temps.size(); ++j) {
+      if(signature[variables.size() + j] != null) {
+        entryTypes.put(temps.get(j), signature[variables.size() + j]);
+      }
+    }
+    try {
+      SpecializedLoop loop = LoopSpecializer.specialize(region, entryTypes);
+      TieredCompiler.countSpecializedLoop();
+      return loop;
+
+    } catch(NotCompilableException e) {
+      logFailure(signature, e);
+    } catch(RuntimeException e) {
+      logFailure(signature, e);
+    } catch(LinkageError e) {
+      // the generated class failed verification
+      logFailure(signature, e);
+    }
+    return null;
+  }
+
+  private void logFailure(ValueType[] signature, Throwable cause) {
+    if(LOGGER.isLoggable(Level.FINE)) {
+      LOGGER.log(Level.FINE, "Could not specialize loop for " + Arrays.toString(signature), cause);
+    }
+  }
+}
@@ -0,0 +1,789 @@
+package org.renjin.compiler.tiered;
+
+import com.google.common.collect.Maps;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.renjin.compiler.ir.exception.NotCompilableException;
+import org.renjin.compiler.ir.tac.IRLabel;
+import org.renjin.compiler.ir.tac.expressions.*;
+import org.renjin.compiler.ir.tac.statements.*;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Vector;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates a {@link SpecializedLoop} from a {@link LoopRegion} and the
+ * types of the values entering it.
+ *
+ * <p>Scalars are held in JVM locals as {@code double}s or {@code int}s, and vectors
+ * whose elements are replaced are copied into a JVM array on entry and boxed again
+ * on exit. Arithmetic and comparisons call {@link ScalarOps}, which the JIT inlines.
+ *
+ * <p>Every statement first checks the conditions under which it can be executed
+ * on unboxed values: that indices are within bounds, that conditions are not missing,
+ * and that variables have been assigned. If a check fails, the loop exits at that
+ * statement, before it has had any effect, and the generic compiled body resumes
+ * from there and produces whatever result, error or warning the primitives would.
+ */
+class LoopSpecializer implements Opcodes {
+
+  private static final AtomicInteger NEXT_CLASS_ID = new AtomicInteger(1);
+
+  private static final String SCALAR_OPS = "org/renjin/compiler/tiered/ScalarOps";
+  private static final String VECTOR = "org/renjin/sexp/Vector";
+  private static final String SEXP_TYPE = "org/renjin/sexp/SEXP";
+
+  private static final int VARIABLES_SLOT = 3;
+  private static final int TEMPS_SLOT = 4;
+  private static final int INTS_SLOT = 5;
+  private static final int RESUME_SLOT = 6;
+  private static final int OFFSET_SLOT = 7;
+  private static final int INDEX_SLOT = 8;
+  private static final int INT_SCRATCH_SLOT = 9;
+  private static final int DOUBLE_SCRATCH_SLOT = 10;
+  private static final int FIRST_VARIABLE_SLOT = 12;
+
+  private final String className;
+  private final LoopRegion region;
+  private final Map<LValue, ValueType> entryTypes;
+  private final LoopTypes types;
+
+  /*
+   * Scalars occupy a value slot. Vectors occupy a value slot, holding the Vector or,
+   * if their elements are replaced, the array of its elements, and slots for the
+   * original vector, the length, and the number of rows and columns.
+   */
+  private final Map<LValue, Integer> valueSlots = Maps.newHashMap();
+  private final Map<LValue, Integer> originalSlots = Maps.newHashMap();
+  private final Map<LValue, Integer> lengthSlots = Maps.newHashMap();
+  private final Map<LValue, Integer> rowSlots = Maps.newHashMap();
+  private final Map<LValue, Integer> columnSlots = Maps.newHashMap();
+  private final Map<LValue, Integer> assignedFlagSlots = Maps.newHashMap();
+  private int nextSlot = FIRST_VARIABLE_SLOT;
+
+  private Label[] statementLabels;
+  private Label[] deoptLabels;
+  private Label exitLabel;
+  private Label leaveLabel;
+  private MethodVisitor mv;
+
+  private LoopSpecializer(String className, LoopRegion region, Map<LValue, ValueType> entryTypes) {
+    this.className = className;
+    this.region = region;
+    this.entryTypes = entryTypes;
+    this.types = new LoopTypes(region, entryTypes);
+  }
+
+  /**
+   * Compiles and loads a specialization of {@code region}.
+   *
+   * @param entryTypes the types of the environment variables read by the loop and the
+   *                   temps assigned before the loop
+   * @throws NotCompilableException if the loop cannot be specialized for these types
+   */
+  public static SpecializedLoop specialize(LoopRegion region, Map<LValue, ValueType> entryTypes) {
+    String className = "org/renjin/compiler/tiered/SpecializedLoop$" + NEXT_CLASS_ID.getAndIncrement();
+    LoopSpecializer specializer = new LoopSpecializer(className, region, entryTypes);
+    byte[] classFile = specializer.generate();
+
+    Class<?> loopClass = new LoopClassLoader().defineClass(className.replace('/', '.'), classFile);
+    try {
+      return (SpecializedLoop) loopClass.newInstance();
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to instantiate specialized loop", e);
+    }
+  }
+
+  private byte[] generate() {
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    cw.visit(V1_6, ACC_PUBLIC + ACC_SUPER + ACC_FINAL, className, null, "java/lang/Object",
+        new String[] { "org/renjin/compiler/tiered/SpecializedLoop" });
+
+    MethodVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+    init.visitCode();
+    init.visitVarInsn(ALOAD, 0);
+    init.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+    init.visitInsn(RETURN);
+    init.visitMaxs(0, 0);
+    init.visitEnd();
+
+    mv = cw.visitMethod(ACC_PUBLIC, "run",
+        "(Lorg/renjin/eval/Context;Lorg/renjin/sexp/Environment;[Lorg/renjin/sexp/SEXP;[Lorg/renjin/sexp/SEXP;[I)I",
+        null, null);
+    mv.visitCode();
+
+    List<Statement> statements = region.getStatements();
+    statementLabels = new Label[statements.size()];
+    deoptLabels = new Label[statements.size()];
+    for(int i = 0; i != statements.size(); ++i) {
+      statementLabels[i] = new Label();
+    }
+    exitLabel = new Label();
+    leaveLabel = new Label();
+
+    allocateSlots();
+    writePrologue();
+
+    for(int i = 0; i != statements.size(); ++i) {
+      mv.visitLabel(statementLabels[i]);
+      writeStatement(i, statements.get(i));
+    }
+
+    mv.visitLabel(exitLabel);
+    pushInt(region.getExitIndex());
+    mv.visitJumpInsn(GOTO, leaveLabel);
+
+    for(int i = 0; i != deoptLabels.length; ++i) {
+      if(deoptLabels[i] != null) {
+        mv.visitLabel(deoptLabels[i]);
+        pushInt(region.getHeaderIndex() + i);
+        mv.visitJumpInsn(GOTO, leaveLabel);
+      }
+    }
+
+    mv.visitLabel(leaveLabel);
+    writeLeave();
+
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  private void allocateSlots() {
+    for(EnvironmentVariable variable : region.getEnvironmentVariables()) {
+      allocate(variable, region.isReplaced(variable));
+      if(region.isAssigned(variable)) {
+        assignedFlagSlots.put(variable, nextSlot++);
+      }
+    }
+    for(LValue temp : region.getTemps()) {
+      allocate(temp, false);
+    }
+    for(LValue temp : region.getIntTemps()) {
+      valueSlots.put(temp, nextSlot++);
+    }
+  }
+
+  private void allocate(LValue variable, boolean replaced) {
+    ValueType type = typeOf(variable);
+    valueSlots.put(variable, nextSlot);
+    nextSlot += (type == ValueType.DOUBLE) ? 2 : 1;
+    if(type.isVector()) {
+      if(replaced) {
+        originalSlots.put(variable, nextSlot++);
+      }
+      lengthSlots.put(variable, nextSlot++);
+      rowSlots.put(variable, nextSlot++);
+      columnSlots.put(variable, nextSlot++);
+    }
+  }
+
+  private ValueType typeOf(LValue variable) {
+    ValueType type = types.get(variable);
+    if(type == null || type == ValueType.UNBOUND) {
+      throw new NotCompilableException(null, "cannot infer the type of " + variable);
+    }
+    return type;
+  }
+
+  private boolean isReplaced(LValue variable) {
+    return originalSlots.containsKey(variable);
+  }
+
+  private void writePrologue() {
+    mv.visitInsn(ICONST_0);
+    mv.visitVarInsn(ISTORE, OFFSET_SLOT);
+    mv.visitInsn(ICONST_0);
+    mv.visitVarInsn(ISTORE, INDEX_SLOT);
+    mv.visitInsn(ICONST_0);
+    mv.visitVarInsn(ISTORE, INT_SCRATCH_SLOT);
+    mv.visitInsn(DCONST_0);
+    mv.visitVarInsn(DSTORE, DOUBLE_SCRATCH_SLOT);
+
+    List<EnvironmentVariable> variables = region.getEnvironmentVariables();
+    for(int k = 0; k != variables.size(); ++k) {
+      EnvironmentVariable variable = variables.get(k);
+      if(region.isRead(variable) && entryTypes.get(variable) != ValueType.UNBOUND) {
+        mv.visitVarInsn(ALOAD, VARIABLES_SLOT);
+        pushInt(k);
+        mv.visitInsn(AALOAD);
+        unbox(variable);
+      } else {
+        initialize(variable);
+      }
+      if(region.isAssigned(variable)) {
+        mv.visitInsn(ICONST_0);
+        mv.visitVarInsn(ISTORE, assignedFlagSlots.get(variable));
+      }
+    }
+    List<LValue> temps = region.getTemps();
+    for(int j = 0; j != temps.size(); ++j) {
+      LValue temp = temps.get(j);
+      if(region.isLiveIn(temp)) {
+        mv.visitVarInsn(ALOAD, TEMPS_SLOT);
+        pushInt(j);
+        mv.visitInsn(AALOAD);
+        unbox(temp);
+      } else {
+        initialize(temp);
+      }
+    }
+    List<LValue> intTemps = region.getIntTemps();
+    for(int j = 0; j != intTemps.size(); ++j) {
+      mv.visitVarInsn(ALOAD, INTS_SLOT);
+      pushInt(j);
+      mv.visitInsn(IALOAD);
+      mv.visitVarInsn(ISTORE, valueSlots.get(intTemps.get(j)));
+    }
+  }
+
+  /**
+   * Stores the SEXP on the top of the stack into the slots of {@code variable}
+   */
+  private void unbox(LValue variable) {
+    ValueType type = typeOf(variable);
+    int slot = valueSlots.get(variable);
+    mv.visitTypeInsn(CHECKCAST, VECTOR);
+    if(type == ValueType.DOUBLE) {
+      mv.visitInsn(ICONST_0);
+      mv.visitMethodInsn(INVOKEINTERFACE, VECTOR, "getElementAsDouble", "(I)D", true);
+      mv.visitVarInsn(DSTORE, slot);
+    } else if(type.isScalar()) {
+      mv.visitInsn(ICONST_0);
+      mv.visitMethodInsn(INVOKEINTERFACE, VECTOR, "getElementAsInt", "(I)I", true);
+      mv.visitVarInsn(ISTORE, slot);
+    } else {
+      int vectorSlot = isReplaced(variable) ? originalSlots.get(variable) : slot;
+      mv.visitVarInsn(ASTORE, vectorSlot);
+      if(isReplaced(variable)) {
+        mv.visitVarInsn(ALOAD, vectorSlot);
+        mv.visitTypeInsn(CHECKCAST, "org/renjin/sexp/AtomicVector");
+        if(type == ValueType.DOUBLE_VECTOR) {
+          mv.visitMethodInsn(INVOKEINTERFACE, "org/renjin/sexp/AtomicVector", "toDoubleArray", "()[D", true);
+        } else {
+          mv.visitMethodInsn(INVOKEINTERFACE, "org/renjin/sexp/AtomicVector", "toIntArray", "()[I", true);
+        }
+        mv.visitVarInsn(ASTORE, slot);
+      }
+      mv.visitVarInsn(ALOAD, vectorSlot);
+      mv.visitMethodInsn(INVOKEINTERFACE, SEXP_TYPE, "length", "()I", true);
+      mv.visitVarInsn(ISTORE, lengthSlots.get(variable));
+      mv.visitVarInsn(ALOAD, vectorSlot);
+      mv.visitMethodInsn(INVOKESTATIC, SCALAR_OPS, "rowCount", "(Lorg/renjin/sexp/Vector;)I", false);
+      mv.visitVarInsn(ISTORE, rowSlots.get(variable));
+      mv.visitVarInsn(ALOAD, vectorSlot);
+      mv.visitMethodInsn(INVOKESTATIC, SCALAR_OPS, "columnCount", "(Lorg/renjin/sexp/Vector;)I", false);
+      mv.visitVarInsn(ISTORE, columnSlots.get(variable));
+    }
+  }
+
+  /**
+   * Initializes the slots of a variable which has no value on entry
+   */
+  private void initialize(LValue variable) {
+    ValueType type = typeOf(variable);
+    int slot = valueSlots.get(variable);
+    if(type == ValueType.DOUBLE) {
+      mv.visitInsn(DCONST_0);
+      mv.visitVarInsn(DSTORE, slot);
+    } else if(type.isScalar()) {
+      mv.visitInsn(ICONST_0);
+      mv.visitVarInsn(ISTORE, slot);
+    } else {
+      mv.visitInsn(ACONST_NULL);
+      mv.visitVarInsn(ASTORE, slot);
+      if(isReplaced(variable)) {
+        mv.visitInsn(ACONST_NULL);
+        mv.visitVarInsn(ASTORE, originalSlots.get(variable));
+      }
+      for(Map<LValue, Integer> slots : dimensionSlots()) {
+        mv.visitInsn(ICONST_0);
+        mv.visitVarInsn(ISTORE, slots.get(variable));
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<LValue, Integer>[] dimensionSlots() {
+    return new Map[] { lengthSlots, rowSlots, columnSlots };
+  }
+
+  private void writeStatement(int i, Statement statement) {
+    writeGuards(i, statement.getRHS());
+
+    if(statement instanceof Assignment) {
+      writeAssignment((Assignment) statement);
+    } else if(statement instanceof IfStatement) {
+      writeIf(i, (IfStatement) statement);
+    } else if(statement instanceof GotoStatement) {
+      mv.visitJumpInsn(GOTO, target(((GotoStatement) statement).getTarget()));
+    } else if(statement instanceof ExprStatement) {
+      ValueType type = types.typeOf(statement.getRHS());
+      if(type.isScalar()) {
+        writeValue(statement.getRHS());
+        mv.visitInsn(type == ValueType.DOUBLE ? POP2 : POP);
+      }
+    } else {
+      throw new IllegalStateException("unexpected statement " + statement);
+    }
+  }
+
+  /**
+   * Writes the checks that {@code expression} can be evaluated on unboxed values,
+   * and computes the offset of the element selected, if any, into {@code OFFSET_SLOT}.
+   * The stack is empty before and after.
+   */
+  private void writeGuards(int i, Expression expression) {
+    if(expression == null) {
+      return;
+    }
+    checkAssigned(i, expression);
+    for(Expression child : expression.getChildren()) {
+      checkAssigned(i, child);
+    }
+    if(expression instanceof PrimitiveCall) {
+      PrimitiveCall call = (PrimitiveCall) expression;
+      String name = call.getName().getPrintName();
+      List<Expression> arguments = call.getArguments();
+      if(name.equals("[") || name.equals("[[")) {
+        writeOffset(i, (LValue) arguments.get(0), arguments.subList(1, arguments.size()));
+      } else if(LoopRegion.isReplacement(call)) {
+        writeOffset(i, (LValue) arguments.get(0), arguments.subList(1, arguments.size() - 1));
+      }
+    }
+  }
+
+  /**
+   * Leaves the loop if {@code expression} is a variable which was unbound on entry,
+   * and has not yet been assigned
+   */
+  private void checkAssigned(int i, Expression expression) {
+    if(expression instanceof EnvironmentVariable &&
+        entryTypes.get(expression) == ValueType.UNBOUND) {
+      mv.visitVarInsn(ILOAD, assignedFlagSlots.get(expression));
+      mv.visitJumpInsn(IFEQ, deopt(i));
+    }
+  }
+
+  private void writeOffset(int i, LValue vector, List<Expression> indices) {
+    if(indices.size() == 1) {
+      writeIndex(i, indices.get(0), lengthSlots.get(vector));
+      mv.visitVarInsn(ISTORE, OFFSET_SLOT);
+    } else {
+      mv.visitVarInsn(ILOAD, rowSlots.get(vector));
+      mv.visitJumpInsn(IFLT, deopt(i));
+      writeIndex(i, indices.get(0), rowSlots.get(vector));
+      mv.visitVarInsn(ISTORE, OFFSET_SLOT);
+      writeIndex(i, indices.get(1), columnSlots.get(vector));
+      mv.visitVarInsn(ILOAD, rowSlots.get(vector));
+      mv.visitInsn(IMUL);
+      mv.visitVarInsn(ILOAD, OFFSET_SLOT);
+      mv.visitInsn(IADD);
+      mv.visitVarInsn(ISTORE, OFFSET_SLOT);
+    }
+  }
+
+  /**
+   * Pushes the zero-based value of a one-based index, leaving the loop unless
+   * it lies between 1 and the value of {@code boundSlot}
+   */
+  private void writeIndex(int i, Expression index, int boundSlot) {
+    if(types.typeOf(index) == ValueType.DOUBLE) {
+      writeValue(index);
+      mv.visitVarInsn(DSTORE, DOUBLE_SCRATCH_SLOT);
+      // !(index >= 1), which is also true for NaN
+      mv.visitVarInsn(DLOAD, DOUBLE_SCRATCH_SLOT);
+      mv.visitInsn(DCONST_1);
+      mv.visitInsn(DCMPL);
+      mv.visitJumpInsn(IFLT, deopt(i));
+      // !(index < bound + 1)
+      mv.visitVarInsn(DLOAD, DOUBLE_SCRATCH_SLOT);
+      mv.visitVarInsn(ILOAD, boundSlot);
+      mv.visitInsn(I2D);
+      mv.visitInsn(DCONST_1);
+      mv.visitInsn(DADD);
+      mv.visitInsn(DCMPG);
+      mv.visitJumpInsn(IFGE, deopt(i));
+      mv.visitVarInsn(DLOAD, DOUBLE_SCRATCH_SLOT);
+      mv.visitInsn(D2I);
+    } else {
+      writeValue(index);
+      mv.visitVarInsn(ISTORE, INDEX_SLOT);
+      // NA is also less than 1
+      mv.visitVarInsn(ILOAD, INDEX_SLOT);
+      mv.visitInsn(ICONST_1);
+      mv.visitJumpInsn(IF_ICMPLT, deopt(i));
+      mv.visitVarInsn(ILOAD, INDEX_SLOT);
+      mv.visitVarInsn(ILOAD, boundSlot);
+      mv.visitJumpInsn(IF_ICMPGT, deopt(i));
+      mv.visitVarInsn(ILOAD, INDEX_SLOT);
+    }
+    mv.visitInsn(ICONST_1);
+    mv.visitInsn(ISUB);
+  }
+
+  private void writeAssignment(Assignment assignment) {
+    LValue lhs = assignment.getLHS();
+    Expression rhs = assignment.getRHS();
+
+    if(region.getIntTemps().contains(lhs)) {
+      if(rhs instanceof Increment) {
+        mv.visitIincInsn(valueSlots.get(lhs), 1);
+      } else if(rhs instanceof Length) {
+        mv.visitVarInsn(ILOAD, lengthSlots.get(((Length) rhs).getVector()));
+        mv.visitVarInsn(ISTORE, valueSlots.get(lhs));
+      } else {
+        pushInt((Integer) ((Constant) rhs).getValue());
+        mv.visitVarInsn(ISTORE, valueSlots.get(lhs));
+      }
+
+    } else if(LoopRegion.isReplacement(rhs)) {
+      List<Expression> arguments = ((PrimitiveCall) rhs).getArguments();
+      ValueType elementType = typeOf(lhs).elementType();
+      mv.visitVarInsn(ALOAD, valueSlots.get(lhs));
+      mv.visitVarInsn(ILOAD, OFFSET_SLOT);
+      writeValue(arguments.get(arguments.size() - 1), elementType);
+      mv.visitInsn(elementType == ValueType.DOUBLE ? DASTORE : IASTORE);
+
+    } else if(typeOf(lhs).isVector()) {
+      // a copy of a vector which is not modified within the loop
+      LValue source = (LValue) rhs;
+      mv.visitVarInsn(ALOAD, valueSlots.get(source));
+      mv.visitVarInsn(ASTORE, valueSlots.get(lhs));
+      for(Map<LValue, Integer> slots : dimensionSlots()) {
+        mv.visitVarInsn(ILOAD, slots.get(source));
+        mv.visitVarInsn(ISTORE, slots.get(lhs));
+      }
+
+    } else {
+      ValueType type = typeOf(lhs);
+      writeValue(rhs, type);
+      mv.visitVarInsn(type == ValueType.DOUBLE ? DSTORE : ISTORE, valueSlots.get(lhs));
+    }
+
+    Integer flagSlot = assignedFlagSlots.get(lhs);
+    if(flagSlot != null) {
+      mv.visitInsn(ICONST_1);
+      mv.visitVarInsn(ISTORE, flagSlot);
+    }
+  }
+
+  private void writeIf(int i, IfStatement statement) {
+    Expression condition = statement.getCondition();
+    Label trueTarget = target(statement.getTrueTarget());
+    Label falseTarget = target(statement.getFalseTarget());
+
+    if(condition instanceof CmpGE) {
+      CmpGE cmp = (CmpGE) condition;
+      mv.visitVarInsn(ILOAD, valueSlots.get(cmp.getOp1()));
+      mv.visitVarInsn(ILOAD, valueSlots.get(cmp.getOp2()));
+      mv.visitJumpInsn(IF_ICMPGE, trueTarget);
+      mv.visitJumpInsn(GOTO, falseTarget);
+      return;
+    }
+
+    // missing conditions are an error, except as operands of && and ||
+    Label naTarget = statement.getNaTarget() == null ? deopt(i) : target(statement.getNaTarget());
+
+    if(types.typeOf(condition) == ValueType.DOUBLE) {
+      writeValue(condition);
+      mv.visitVarInsn(DSTORE, DOUBLE_SCRATCH_SLOT);
+      mv.visitVarInsn(DLOAD, DOUBLE_SCRATCH_SLOT);
+      mv.visitVarInsn(DLOAD, DOUBLE_SCRATCH_SLOT);
+      mv.visitInsn(DCMPL);
+      mv.visitJumpInsn(IFNE, naTarget);
+      mv.visitVarInsn(DLOAD, DOUBLE_SCRATCH_SLOT);
+      mv.visitInsn(DCONST_0);
+      mv.visitInsn(DCMPL);
+    } else {
+      writeValue(condition);
+      mv.visitVarInsn(ISTORE, INT_SCRATCH_SLOT);
+      mv.visitVarInsn(ILOAD, INT_SCRATCH_SLOT);
+      mv.visitLdcInsn(Integer.MIN_VALUE);
+      mv.visitJumpInsn(IF_ICMPEQ, naTarget);
+      mv.visitVarInsn(ILOAD, INT_SCRATCH_SLOT);
+    }
+    mv.visitJumpInsn(IFNE, trueTarget);
+    mv.visitJumpInsn(GOTO, falseTarget);
+  }
+
+  /**
+   * Pushes the value of {@code expression}, converted to {@code type}
+   */
+  private void writeValue(Expression expression, ValueType type) {
+    ValueType actual = types.typeOf(expression);
+    writeValue(expression);
+    if(type == ValueType.DOUBLE && actual.isIntLike()) {
+      mv.visitMethodInsn(INVOKESTATIC, SCALAR_OPS, "toDouble", "(I)D", false);
+    } else if(type.isIntLike() && !actual.isIntLike()) {
+      throw new IllegalStateException("cannot convert " + actual + " to " + type);
+    }
+  }
+
+  /**
+   * Pushes the value of {@code expression} as a {@code double} or {@code int}, according
+   * to its type
+   */
+  private void writeValue(Expression expression) {
+    if(expression instanceof Constant) {
+      writeConstant((Constant) expression);
+
+    } else if(expression instanceof LValue) {
+      ValueType type = typeOf((LValue) expression);
+      mv.visitVarInsn(type == ValueType.DOUBLE ? DLOAD : ILOAD, valueSlots.get(expression));
+
+    } else if(expression instanceof ElementAccess) {
+      ElementAccess access = (ElementAccess) expression;
+      mv.visitVarInsn(ILOAD, valueSlots.get(access.getIndex()));
+      mv.visitVarInsn(ISTORE, OFFSET_SLOT);
+      writeElement((LValue) access.getVector());
+
+    } else if(expression instanceof PrimitiveCall) {
+      writeCall((PrimitiveCall) expression);
+
+    } else {
+      throw new IllegalStateException("unexpected expression " + expression);
+    }
+  }
+
+  private void writeConstant(Constant constant) {
+    Object value = constant.getValue();
+    if(value instanceof Integer) {
+      pushInt((Integer) value);
+      return;
+    }
+    Vector vector = (Vector) value;
+    if(ValueType.ofScalar((SEXP) value) == ValueType.DOUBLE) {
+      double x = vector.getElementAsDouble(0);
+      if(DoubleVector.isNA(x)) {
+        mv.visitFieldInsn(GETSTATIC, "org/renjin/sexp/DoubleVector", "NA", "D");
+      } else if(Double.doubleToRawLongBits(x) == 0L) {
+        mv.visitInsn(DCONST_0);
+      } else if(x == 1d) {
+        mv.visitInsn(DCONST_1);
+      } else {
+        mv.visitLdcInsn(x);
+      }
+    } else {
+      pushInt(vector.getElementAsInt(0));
+    }
+  }
+
+  /**
+   * Pushes the element of {@code vector} at {@code OFFSET_SLOT}
+   */
+  private void writeElement(LValue vector) {
+    ValueType elementType = typeOf(vector).elementType();
+    mv.visitVarInsn(ALOAD, valueSlots.get(vector));
+    mv.visitVarInsn(ILOAD, OFFSET_SLOT);
+    if(isReplaced(vector)) {
+      mv.visitInsn(elementType == ValueType.DOUBLE ? DALOAD : IALOAD);
+    } else if(elementType == ValueType.DOUBLE) {
+      mv.visitMethodInsn(INVOKEINTERFACE, VECTOR, "getElementAsDouble", "(I)D", true);
+    } else {
+      mv.visitMethodInsn(INVOKEINTERFACE, VECTOR, "getElementAsInt", "(I)I", true);
+    }
+  }
+
+  private void writeCall(PrimitiveCall call) {
+    String name = call.getName().getPrintName();
+    List<Expression> arguments = call.getArguments();
+
+    if(name.equals("[") || name.equals("[[")) {
+      // the offset has been computed by the guards of the statement
+      writeElement((LValue) arguments.get(0));
+
+    } else if(name.equals("!")) {
+      ValueType type = types.typeOf(arguments.get(0));
+      writeValue(arguments.get(0));
+      mv.visitMethodInsn(INVOKESTATIC, SCALAR_OPS, "not", type == ValueType.DOUBLE ? "(D)I" : "(I)I", false);
+
+    } else if(arguments.size() == 1) {
+      writeValue(arguments.get(0));
+      if(name.equals("-")) {
+        mv.visitMethodInsn(INVOKESTATIC, SCALAR_OPS, "negative",
+            types.typeOf(call) == ValueType.DOUBLE ? "(D)D" : "(I)I", false);
+      }
+
+    } else if(LoopTypes.isComparison(name)) {
+      ValueType operandType = types.typeOf(arguments.get(0)) == ValueType.DOUBLE ||
+                              types.typeOf(arguments.get(1)) == ValueType.DOUBLE ?
+          ValueType.DOUBLE : ValueType.INT;
+      writeValue(arguments.get(0), operandType);
+      writeValue(arguments.get(1), operandType);
+      mv.visitMethodInsn(INVOKESTATIC, SCALAR_OPS, comparisonMethod(name),
+          operandType == ValueType.DOUBLE ? "(DD)I" : "(II)I", false);
+
+    } else {
+      ValueType resultType = types.typeOf(call);
+      writeValue(arguments.get(0), resultType);
+      writeValue(arguments.get(1), resultType);
+      mv.visitMethodInsn(INVOKESTATIC, SCALAR_OPS, arithmeticMethod(name),
+          resultType == ValueType.DOUBLE ? "(DD)D" : "(II)I", false);
+    }
+  }
+
+  private static String arithmeticMethod(String name) {
+    if(name.equals("+")) {
+      return "plus";
+    } else if(name.equals("-")) {
+      return "minus";
+    } else if(name.equals("*")) {
+      return "multiply";
+    } else if(name.equals("/")) {
+      return "divide";
+    } else if(name.equals("^")) {
+      return "power";
+    } else if(name.equals("%%")) {
+      return "modulus";
+    } else if(name.equals("%/%")) {
+      return "integerDivision";
+    }
+    throw new IllegalArgumentException(name);
+  }
+
+  private static String comparisonMethod(String name) {
+    if(name.equals("==")) {
+      return "equalTo";
+    } else if(name.equals("!=")) {
+      return "notEqualTo";
+    } else if(name.equals("<")) {
+      return "lessThan";
+    } else if(name.equals("<=")) {
+      return "lessThanOrEqualTo";
+    } else if(name.equals(">")) {
+      return "greaterThan";
+    } else if(name.equals(">=")) {
+      return "greaterThanOrEqual";
+    }
+    throw new IllegalArgumentException(name);
+  }
+
+  /**
+   * Writes the values of the variables back to the arrays shared with the
+   * generic compiled body, and returns the index on top of the stack.
+   */
+  private void writeLeave() {
+    mv.visitVarInsn(ISTORE, RESUME_SLOT);
+
+    List<EnvironmentVariable> variables = region.getEnvironmentVariables();
+    for(int k = 0; k != variables.size(); ++k) {
+      EnvironmentVariable variable = variables.get(k);
+      if(region.isAssigned(variable)) {
+        Label notAssigned = new Label();
+        Label next = new Label();
+        mv.visitVarInsn(ILOAD, assignedFlagSlots.get(variable));
+        mv.visitJumpInsn(IFEQ, notAssigned);
+        mv.visitVarInsn(ALOAD, VARIABLES_SLOT);
+        pushInt(k);
+        box(variable);
+        mv.visitInsn(AASTORE);
+        mv.visitJumpInsn(GOTO, next);
+        mv.visitLabel(notAssigned);
+        mv.visitVarInsn(ALOAD, VARIABLES_SLOT);
+        pushInt(k);
+        mv.visitInsn(ACONST_NULL);
+        mv.visitInsn(AASTORE);
+        mv.visitLabel(next);
+      }
+    }
+
+    List<LValue> temps = region.getTemps();
+    for(int j = 0; j != temps.size(); ++j) {
+      LValue temp = temps.get(j);
+      if(!region.isLiveIn(temp)) {
+        mv.visitVarInsn(ALOAD, TEMPS_SLOT);
+        pushInt(j);
+        box(temp);
+        mv.visitInsn(AASTORE);
+      }
+    }
+
+    List<LValue> intTemps = region.getIntTemps();
+    for(int j = 0; j != intTemps.size(); ++j) {
+      mv.visitVarInsn(ALOAD, INTS_SLOT);
+      pushInt(j);
+      mv.visitVarInsn(ILOAD, valueSlots.get(intTemps.get(j)));
+      mv.visitInsn(IASTORE);
+    }
+
+    mv.visitVarInsn(ILOAD, RESUME_SLOT);
+    mv.visitInsn(IRETURN);
+  }
+
+  private void box(LValue variable) {
+    ValueType type = typeOf(variable);
+    int slot = valueSlots.get(variable);
+    switch (type) {
+      case DOUBLE:
+        mv.visitVarInsn(DLOAD, slot);
+        mv.visitMethodInsn(INVOKESTATIC, "org/renjin/sexp/DoubleVector", "valueOf",
+            "(D)Lorg/renjin/sexp/DoubleVector;", false);
+        break;
+      case INT:
+        mv.visitVarInsn(ILOAD, slot);
+        mv.visitMethodInsn(INVOKESTATIC, "org/renjin/sexp/IntVector", "valueOf",
+            "(I)Lorg/renjin/sexp/IntVector;", false);
+        break;
+      case LOGICAL:
+        mv.visitVarInsn(ILOAD, slot);
+        mv.visitMethodInsn(INVOKESTATIC, SCALAR_OPS, "logicalVector", "(I)Lorg/renjin/sexp/SEXP;", false);
+        break;
+      default:
+        mv.visitVarInsn(ALOAD, slot);
+        if(isReplaced(variable)) {
+          mv.visitVarInsn(ALOAD, originalSlots.get(variable));
+          String method = type == ValueType.DOUBLE_VECTOR ? "doubleVector" :
+              (type == ValueType.INT_VECTOR ? "intVector" : "logicalVector");
+          String array = type == ValueType.DOUBLE_VECTOR ? "[D" : "[I";
+          mv.visitMethodInsn(INVOKESTATIC, SCALAR_OPS, method,
+              "(" + array + "Lorg/renjin/sexp/SEXP;)Lorg/renjin/sexp/SEXP;", false);
+        }
+        break;
+    }
+  }
+
+  private Label target(IRLabel label) {
+    int index = region.getBody().getLabelInstructionIndex(label);
+    if(index == region.getExitIndex()) {
+      return exitLabel;
+    }
+    return statementLabels[index - region.getHeaderIndex()];
+  }
+
+  private Label deopt(int i) {
+    if(deoptLabels[i] == null) {
+      deoptLabels[i] = new Label();
+    }
+    return deoptLabels[i];
+  }
+
+  private void pushInt(int i) {
+    if(i >= -1 && i <= 5) {
+      mv.visitInsn(ICONST_0 + i);
+    } else if(i >= Byte.MIN_VALUE && i <= Byte.MAX_VALUE) {
+      mv.visitIntInsn(BIPUSH, i);
+    } else if(i >= Short.MIN_VALUE && i <= Short.MAX_VALUE) {
+      mv.visitIntInsn(SIPUSH, i);
+    } else {
+      mv.visitLdcInsn(i);
+    }
+  }
+
+  private static class LoopClassLoader extends ClassLoader {
+    public LoopClassLoader() {
+      super(LoopSpecializer.class.getClassLoader());
+    }
+
+    public Class<?> defineClass(String name, byte[] classFile) {
+      return defineClass(name, classFile, 0, classFile.length);
+    }
+  }
+}
@@ -0,0 +1,218 @@
+package org.renjin.compiler.tiered;
+
+import com.google.common.collect.Maps;
+import org.renjin.compiler.ir.exception.NotCompilableException;
+import org.renjin.compiler.ir.tac.expressions.*;
+import org.renjin.compiler.ir.tac.statements.*;
+import org.renjin.sexp.SEXP;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Infers the types of the variables of a loop region, given the types of the
+ * values which enter the loop.
+ *
+ * <p>Each variable is given a single type throughout the loop, which is the
+ * fixed point of propagating the entry types through the assignments of the loop
+ * body. This is what SSA form with phi functions at the loop header would yield for
+ * a type-stable loop; a variable whose type changes from one iteration to the next,
+ * such as an integer counter which is incremented by a double, makes the loop
+ * unspecializable for this signature.
+ */
+class LoopTypes {
+
+  private final LoopRegion region;
+  private final Map<LValue, ValueType> types = Maps.newHashMap();
+
+  /**
+   * @param entryTypes the types of the environment variables read by the loop,
+   *                   and of the temps assigned before the loop is entered
+   * @throws NotCompilableException if the loop cannot be specialized for these types
+   */
+  LoopTypes(LoopRegion region, Map<LValue, ValueType> entryTypes) {
+    this.region = region;
+    this.types.putAll(entryTypes);
+    for(LValue intTemp : region.getIntTemps()) {
+      types.put(intTemp, ValueType.INT);
+    }
+
+    boolean changed;
+    do {
+      changed = false;
+      for(Statement statement : region.getStatements()) {
+        if(statement instanceof Assignment) {
+          LValue lhs = ((Assignment) statement).getLHS();
+          ValueType type = typeOf(statement.getRHS());
+          if(type != null && !region.getIntTemps().contains(lhs)) {
+            ValueType existing = types.get(lhs);
+            if(existing == null || existing == ValueType.UNBOUND) {
+              types.put(lhs, type);
+              changed = true;
+            } else if(existing != type) {
+              throw new NotCompilableException(null, lhs + " changes from " + existing + " to " + type);
+            }
+          }
+        }
+      }
+    } while(changed);
+
+    verify();
+  }
+
+  private void verify() {
+    for(Statement statement : region.getStatements()) {
+      if(statement instanceof IfStatement) {
+        Expression condition = statement.getRHS();
+        if(!(condition instanceof CmpGE) && !require(condition).isScalar()) {
+          throw new NotCompilableException(null, "condition is not a scalar");
+        }
+      } else if(!(statement instanceof GotoStatement)) {
+        require(statement.getRHS());
+      }
+      if(statement instanceof Assignment) {
+        Assignment assignment = (Assignment) statement;
+        if(assignment.getRHS() instanceof EnvironmentVariable &&
+            region.isReplaced((EnvironmentVariable) assignment.getRHS())) {
+          throw new NotCompilableException(null, "copy of a vector whose elements are replaced");
+        }
+      }
+    }
+  }
+
+  private ValueType require(Expression expression) {
+    ValueType type = typeOf(expression);
+    if(type == null || type == ValueType.UNBOUND) {
+      throw new NotCompilableException(null, "cannot infer the type of " + expression);
+    }
+    return type;
+  }
+
+  public ValueType get(LValue variable) {
+    return types.get(variable);
+  }
+
+  /**
+   * @return the type of {@code expression}, or {@code null} if the types of its
+   * operands are not yet known
+   */
+  public ValueType typeOf(Expression expression) {
+    if(expression instanceof Constant) {
+      Object value = ((Constant) expression).getValue();
+      if(value instanceof Integer) {
+        return ValueType.INT;
+      }
+      ValueType type = ValueType.ofScalar((SEXP) value);
+      if(type == null) {
+        throw new NotCompilableException(null, "constant " + value + " is not a scalar");
+      }
+      return type;
+
+    } else if(expression instanceof LValue) {
+      ValueType type = types.get(expression);
+      return type == ValueType.UNBOUND ? null : type;
+
+    } else if(expression instanceof Length || expression instanceof Increment) {
+      return ValueType.INT;
+
+    } else if(expression instanceof ElementAccess) {
+      ValueType vectorType = typeOf(((ElementAccess) expression).getVector());
+      if(vectorType == null) {
+        return null;
+      }
+      requireVector(vectorType);
+      return vectorType.elementType();
+
+    } else if(expression instanceof PrimitiveCall) {
+      return typeOfCall((PrimitiveCall) expression);
+
+    } else {
+      throw new NotCompilableException(null, "unsupported expression " + expression);
+    }
+  }
+
+  private ValueType typeOfCall(PrimitiveCall call) {
+    List<Expression> arguments = call.getArguments();
+    ValueType[] argumentTypes = new ValueType[arguments.size()];
+    for(int i = 0; i != argumentTypes.length; ++i) {
+      argumentTypes[i] = typeOf(arguments.get(i));
+      if(argumentTypes[i] == null) {
+        return null;
+      }
+    }
+
+    String name = call.getName().getPrintName();
+    if(name.equals("[") || name.equals("[[")) {
+      requireVector(argumentTypes[0]);
+      requireIndices(argumentTypes, argumentTypes.length);
+      return argumentTypes[0].elementType();
+
+    } else if(name.equals("[<-") || name.equals("[[<-")) {
+      requireVector(argumentTypes[0]);
+      requireIndices(argumentTypes, argumentTypes.length - 1);
+      ValueType value = requireScalar(argumentTypes[argumentTypes.length - 1]);
+      if(!canStore(argumentTypes[0].elementType(), value)) {
+        throw new NotCompilableException(null, "assigning " + value + " to " + argumentTypes[0]);
+      }
+      return argumentTypes[0];
+    }
+
+    for(ValueType argumentType : argumentTypes) {
+      requireScalar(argumentType);
+    }
+    if(name.equals("!")) {
+      return ValueType.LOGICAL;
+    } else if(argumentTypes.length == 1) {
+      // unary plus returns its argument unchanged
+      if(name.equals("-") && argumentTypes[0] == ValueType.LOGICAL) {
+        return ValueType.INT;
+      }
+      return argumentTypes[0];
+    } else if(name.equals("/") || name.equals("^")) {
+      return ValueType.DOUBLE;
+    } else if(isComparison(name)) {
+      return ValueType.LOGICAL;
+    } else if(argumentTypes[0] == ValueType.DOUBLE || argumentTypes[1] == ValueType.DOUBLE) {
+      return ValueType.DOUBLE;
+    } else {
+      return ValueType.INT;
+    }
+  }
+
+  static boolean isComparison(String name) {
+    return name.equals("==") || name.equals("!=") || name.equals("<") || name.equals("<=") ||
+        name.equals(">") || name.equals(">=");
+  }
+
+  private static boolean canStore(ValueType elementType, ValueType value) {
+    switch (elementType) {
+      case DOUBLE:
+        return true;
+      case INT:
+        return value.isIntLike();
+      default:
+        return value == ValueType.LOGICAL;
+    }
+  }
+
+  private static void requireVector(ValueType type) {
+    if(!type.isVector()) {
+      throw new NotCompilableException(null, "elements selected from " + type);
+    }
+  }
+
+  private static ValueType requireScalar(ValueType type) {
+    if(!type.isScalar()) {
+      throw new NotCompilableException(null, "expected a scalar, found " + type);
+    }
+    return type;
+  }
+
+  private static void requireIndices(ValueType[] argumentTypes, int end) {
+    for(int i = 1; i < end; ++i) {
+      if(argumentTypes[i] != ValueType.INT && argumentTypes[i] != ValueType.DOUBLE) {
+        throw new NotCompilableException(null, "unsupported index type " + argumentTypes[i]);
+      }
+    }
+  }
+}
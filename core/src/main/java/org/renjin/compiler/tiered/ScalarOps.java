@@ -0,0 +1,194 @@
+package org.renjin.compiler.tiered;
+
+import org.renjin.primitives.Ops;
+import org.renjin.sexp.*;
+
+/**
+ * Scalar versions of the arithmetic and comparison primitives, called by
+ * specialized loops on unboxed values.
+ *
+ * <p>Each method applies the same missing value rules as the generated wrapper
+ * of the corresponding primitive, and then delegates to the implementation in
+ * {@link Ops}, so that specialized loops compute exactly the values that the
+ * primitives would.
+ */
+public final class ScalarOps {
+
+  private static final int NA = IntVector.NA;
+
+  private ScalarOps() {
+  }
+
+  public static double toDouble(int x) {
+    return x == NA ? DoubleVector.NA : x;
+  }
+
+  public static double plus(double x, double y) {
+    return DoubleVector.isNA(x) || DoubleVector.isNA(y) ? DoubleVector.NA : Ops.plus(x, y);
+  }
+
+  public static int plus(int x, int y) {
+    return x == NA || y == NA ? NA : Ops.plus(x, y);
+  }
+
+  public static double minus(double x, double y) {
+    return DoubleVector.isNA(x) || DoubleVector.isNA(y) ? DoubleVector.NA : Ops.minus(x, y);
+  }
+
+  public static int minus(int x, int y) {
+    return x == NA || y == NA ? NA : Ops.minus(x, y);
+  }
+
+  public static double multiply(double x, double y) {
+    return DoubleVector.isNA(x) || DoubleVector.isNA(y) ? DoubleVector.NA : Ops.multiply(x, y);
+  }
+
+  public static int multiply(int x, int y) {
+    return x == NA || y == NA ? NA : Ops.multiply(x, y);
+  }
+
+  public static double divide(double x, double y) {
+    return DoubleVector.isNA(x) || DoubleVector.isNA(y) ? DoubleVector.NA : Ops.divide(x, y);
+  }
+
+  public static double power(double x, double y) {
+    return Ops.power(x, y);
+  }
+
+  public static double modulus(double x, double y) {
+    return DoubleVector.isNA(x) || DoubleVector.isNA(y) ? DoubleVector.NA : Ops.modulus(x, y);
+  }
+
+  public static int modulus(int x, int y) {
+    return x == NA || y == NA ? NA : Ops.modulus(x, y);
+  }
+
+  public static double integerDivision(double x, double y) {
+    return DoubleVector.isNA(x) || DoubleVector.isNA(y) ? DoubleVector.NA : Ops.integerDivision(x, y);
+  }
+
+  public static int integerDivision(int x, int y) {
+    return x == NA || y == NA ? NA : Ops.integerDivision(x, y);
+  }
+
+  public static double negative(double x) {
+    return DoubleVector.isNA(x) ? DoubleVector.NA : Ops.minus(x);
+  }
+
+  public static int negative(int x) {
+    return x == NA ? NA : Ops.minus(x);
+  }
+
+  public static int not(int x) {
+    return x == NA ? NA : (x == 0 ? 1 : 0);
+  }
+
+  public static int not(double x) {
+    return Double.isNaN(x) ? NA : (x == 0 ? 1 : 0);
+  }
+
+  /*
+   * Comparisons are made between doubles, and are NA if either operand is NaN
+   */
+
+  public static int equalTo(double x, double y) {
+    return Double.isNaN(x) || Double.isNaN(y) ? NA : logical(Ops.equalTo(x, y));
+  }
+
+  public static int notEqualTo(double x, double y) {
+    return Double.isNaN(x) || Double.isNaN(y) ? NA : logical(Ops.notEqualTo(x, y));
+  }
+
+  public static int lessThan(double x, double y) {
+    return Double.isNaN(x) || Double.isNaN(y) ? NA : logical(Ops.lessThan(x, y));
+  }
+
+  public static int lessThanOrEqualTo(double x, double y) {
+    return Double.isNaN(x) || Double.isNaN(y) ? NA : logical(Ops.lessThanOrEqualTo(x, y));
+  }
+
+  public static int greaterThan(double x, double y) {
+    return Double.isNaN(x) || Double.isNaN(y) ? NA : logical(Ops.greaterThan(x, y));
+  }
+
+  public static int greaterThanOrEqual(double x, double y) {
+    return Double.isNaN(x) || Double.isNaN(y) ? NA : logical(Ops.greaterThanOrEqual(x, y));
+  }
+
+  public static int equalTo(int x, int y) {
+    return x == NA || y == NA ? NA : logical(x == y);
+  }
+
+  public static int notEqualTo(int x, int y) {
+    return x == NA || y == NA ? NA : logical(x != y);
+  }
+
+  public static int lessThan(int x, int y) {
+    return x == NA || y == NA ? NA : logical(x < y);
+  }
+
+  public static int lessThanOrEqualTo(int x, int y) {
+    return x == NA || y == NA ? NA : logical(x <= y);
+  }
+
+  public static int greaterThan(int x, int y) {
+    return x == NA || y == NA ? NA : logical(x > y);
+  }
+
+  public static int greaterThanOrEqual(int x, int y) {
+    return x == NA || y == NA ? NA : logical(x >= y);
+  }
+
+  private static int logical(boolean value) {
+    return value ? 1 : 0;
+  }
+
+  /*
+   * Boxing of values when leaving a specialized loop
+   */
+
+  public static SEXP logicalVector(int value) {
+    if(value == NA) {
+      return LogicalVector.NA_VECTOR;
+    }
+    return LogicalVector.valueOf(value != 0);
+  }
+
+  public static SEXP doubleVector(double[] values, SEXP original) {
+    return new DoubleArrayVector(values, original.getAttributes());
+  }
+
+  public static SEXP intVector(int[] values, SEXP original) {
+    return new IntArrayVector(values, original.getAttributes());
+  }
+
+  public static SEXP logicalVector(int[] values, SEXP original) {
+    return new LogicalArrayVector(values, original.getAttributes());
+  }
+
+  /**
+   * @return the number of rows of {@code vector}, if it is a matrix whose
+   * elements can be selected by row and column without names, or -1 otherwise
+   */
+  public static int rowCount(Vector vector) {
+    AttributeMap attributes = vector.getAttributes();
+    int[] dim = attributes.getDimArray();
+    if(dim.length != 2 || attributes.getDimNames() != Null.INSTANCE) {
+      return -1;
+    }
+    return dim[0];
+  }
+
+  /**
+   * @return the number of columns of {@code vector}, if it is a matrix whose
+   * elements can be selected by row and column without names, or -1 otherwise
+   */
+  public static int columnCount(Vector vector) {
+    AttributeMap attributes = vector.getAttributes();
+    int[] dim = attributes.getDimArray();
+    if(dim.length != 2 || attributes.getDimNames() != Null.INSTANCE) {
+      return -1;
+    }
+    return dim[1];
+  }
+}
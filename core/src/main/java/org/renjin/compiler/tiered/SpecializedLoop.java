@@ -0,0 +1,28 @@
+package org.renjin.compiler.tiered;
+
+import org.renjin.eval.Context;
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.SEXP;
+
+/**
+ * A loop compiled for a particular combination of the types of the values
+ * entering it, which computes on unboxed values.
+ *
+ * <p>Implementations are generated by {@link LoopSpecializer}.
+ */
+public interface SpecializedLoop {
+
+  /**
+   * Runs the loop until it exits, or until it reaches a statement which it
+   * cannot execute with the types it was specialized for.
+   *
+   * @param variables on entry, the values of the environment variables of the loop region;
+   *                  on exit, the boxed values of the variables assigned by the loop, or
+   *                  {@code null} for those which were not assigned
+   * @param temps the SEXP-valued temps of the loop region, updated on exit
+   * @param intTemps the int-valued temps of the loop region, updated on exit
+   * @return the index of the statement at which the generic compiled body must resume,
+   * which is the exit index of the loop if it ran to completion
+   */
+  int run(Context context, Environment rho, SEXP[] variables, SEXP[] temps, int[] intTemps);
+}
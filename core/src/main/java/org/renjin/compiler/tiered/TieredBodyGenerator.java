@@ -0,0 +1,777 @@
+package org.renjin.compiler.tiered;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.renjin.compiler.CompiledBody;
+import org.renjin.compiler.ir.exception.NotCompilableException;
+import org.renjin.compiler.ir.ssa.PhiFunction;
+import org.renjin.compiler.ir.ssa.SsaVariable;
+import org.renjin.compiler.ir.tac.IRBody;
+import org.renjin.compiler.ir.tac.IRBodyBuilder;
+import org.renjin.compiler.ir.tac.IRFunctionTable;
+import org.renjin.compiler.ir.tac.IRLabel;
+import org.renjin.compiler.ir.tac.IRLoop;
+import org.renjin.compiler.ir.tac.expressions.*;
+import org.renjin.compiler.ir.tac.statements.*;
+import org.renjin.compiler.runtime.UnimplementedPrimitive;
+import org.renjin.eval.LookupCache;
+import org.renjin.primitives.Primitives;
+import org.renjin.sexp.*;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates a {@link CompiledBody} class from the three-address-code form of
+ * a closure body.
+ *
+ * <p>Unlike the {@link org.renjin.compiler.ClosureCompiler}, promised arguments
+ * are not compiled but passed to the interpreter, and literal values are
+ * passed to the generated class by reference rather than re-created, so that the
+ * compiled body is interchangeable with the body it was compiled from.
+ *
+ * <p>Loops which consist only of scalar arithmetic and element access are preceded by a
+ * call to a {@link LoopSite}, which runs a {@link SpecializedLoop} if the values entering
+ * the loop have suitable types, and otherwise lets the generic code run the loop. The
+ * specialized loop can stop at any statement, from where the generic code continues.
+ */
+class TieredBodyGenerator implements StatementVisitor, ExpressionVisitor, Opcodes {
+
+  private static final AtomicInteger NEXT_CLASS_ID = new AtomicInteger(1);
+
+  private static final String CONTEXT = "org/renjin/eval/Context";
+  private static final String RUNTIME = "org/renjin/compiler/runtime/CompiledRuntime";
+
+  private static final int CONTEXT_SLOT = 1;
+  private static final int ENVIRONMENT_SLOT = 2;
+  private static final int CONSTANTS_SLOT = 3;
+  private static final int ELLIPSES_SLOT = 4;
+  private static final int NAMES_SLOT = 5;
+  private static final int VALUES_SLOT = 6;
+  private static final int LOOP_TEMPS_SLOT = 7;
+  private static final int LOOP_INTS_SLOT = 8;
+  private static final int RESUME_SLOT = 9;
+  private static final int FIRST_VARIABLE_SLOT = 10;
+
+  private static final String LOOP_SITE = "org/renjin/compiler/tiered/LoopSite";
+  private static final String LOOKUP_CACHE = "org/renjin/eval/LookupCache";
+
+  private final String className;
+  private final BodyAnalysis analysis;
+
+  private final List<SEXP> constants = Lists.newArrayList();
+  private final Map<SEXP, Integer> constantIndexes = new IdentityHashMap<SEXP, Integer>();
+  private final Map<LValue, Integer> variableSlots = Maps.newHashMap();
+  private final Map<IRLabel, Label> labels = Maps.newHashMap();
+
+  private final List<LoopSite> loopSites = Lists.newArrayList();
+
+  /**
+   * The caches for each lookup of a variable or function in the environment
+   */
+  private final List<LookupCache> lookupCaches = Lists.newArrayList();
+
+  /**
+   * The loop sites called before the header of each loop, keyed by the index of the
+   * header statement, outer loops first
+   */
+  private final Map<Integer, List<LoopSite>> loopSitesByHeader = Maps.newHashMap();
+
+  /**
+   * Labels before each statement, preceding any loop site calls
+   */
+  private Label[] entryLabels;
+
+  /**
+   * Labels immediately before each statement
+   */
+  private Label[] statementLabels;
+
+  private MethodVisitor mv;
+
+  private TieredBodyGenerator(String className, BodyAnalysis analysis) {
+    this.className = className;
+    this.analysis = analysis;
+  }
+
+  /**
+   * Compiles and loads the given closure body.
+   *
+   * @throws NotCompilableException if the body contains constructs which cannot be compiled
+   */
+  public static CompiledBody compile(SEXP body, BodyAnalysis analysis) {
+    IRBodyBuilder builder = new IRBodyBuilder(new IRFunctionTable());
+    builder.setTranslateNestedBodies(false);
+    IRBody ir = builder.build(body);
+
+    String className = "org/renjin/compiler/tiered/CompiledBody$" + NEXT_CLASS_ID.getAndIncrement();
+    TieredBodyGenerator generator = new TieredBodyGenerator(className, analysis);
+    byte[] classFile = generator.generate(ir);
+
+    Class<?> bodyClass = new BodyClassLoader().defineClass(className.replace('/', '.'), classFile);
+    SEXP[] constants = generator.constants.toArray(new SEXP[generator.constants.size()]);
+    LoopSite[] loopSites = generator.loopSites.toArray(new LoopSite[generator.loopSites.size()]);
+    LookupCache[] lookupCaches = generator.lookupCaches.toArray(new LookupCache[generator.lookupCaches.size()]);
+    try {
+      return (CompiledBody) bodyClass.getConstructor(SEXP[].class, LoopSite[].class, LookupCache[].class)
+          .newInstance(constants, loopSites, lookupCaches);
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to instantiate compiled body", e);
+    }
+  }
+
+  private byte[] generate(IRBody body) {
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    cw.visit(V1_6, ACC_PUBLIC + ACC_SUPER + ACC_FINAL, className, null, "java/lang/Object",
+        new String[] { "org/renjin/compiler/CompiledBody" });
+
+    cw.visitField(ACC_PRIVATE + ACC_FINAL, "constants", "[Lorg/renjin/sexp/SEXP;", null, null);
+    cw.visitField(ACC_PRIVATE + ACC_FINAL, "loopSites", "[L" + LOOP_SITE + ";", null, null);
+    cw.visitField(ACC_PRIVATE + ACC_FINAL, "lookupCaches", "[L" + LOOKUP_CACHE + ";", null, null);
+
+    MethodVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>",
+        "([Lorg/renjin/sexp/SEXP;[L" + LOOP_SITE + ";[L" + LOOKUP_CACHE + ";)V", null, null);
+    init.visitCode();
+    init.visitVarInsn(ALOAD, 0);
+    init.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+    init.visitVarInsn(ALOAD, 0);
+    init.visitVarInsn(ALOAD, 1);
+    init.visitFieldInsn(PUTFIELD, className, "constants", "[Lorg/renjin/sexp/SEXP;");
+    init.visitVarInsn(ALOAD, 0);
+    init.visitVarInsn(ALOAD, 2);
+    init.visitFieldInsn(PUTFIELD, className, "loopSites", "[L" + LOOP_SITE + ";");
+    init.visitVarInsn(ALOAD, 0);
+    init.visitVarInsn(ALOAD, 3);
+    init.visitFieldInsn(PUTFIELD, className, "lookupCaches", "[L" + LOOKUP_CACHE + ";");
+    init.visitInsn(RETURN);
+    init.visitMaxs(0, 0);
+    init.visitEnd();
+
+    mv = cw.visitMethod(ACC_PUBLIC, "eval",
+        "(Lorg/renjin/eval/Context;Lorg/renjin/sexp/Environment;)Lorg/renjin/sexp/SEXP;", null, null);
+    mv.visitCode();
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitFieldInsn(GETFIELD, className, "constants", "[Lorg/renjin/sexp/SEXP;");
+    mv.visitVarInsn(ASTORE, CONSTANTS_SLOT);
+
+    List<Statement> statements = body.getStatements();
+    entryLabels = new Label[statements.size()];
+    statementLabels = new Label[statements.size()];
+    for(int i=0;i!=statements.size();++i) {
+      entryLabels[i] = new Label();
+      statementLabels[i] = new Label();
+    }
+
+    if(TieredCompiler.isLoopSpecializationEnabled()) {
+      findLoopSites(body);
+    }
+    if(!loopSites.isEmpty()) {
+      // loop sites exchange all temps of a loop with the generic code,
+      // whether or not they have been assigned yet
+      initializeVariables(body);
+    }
+
+    for(int i=0;i!=loopSites.size();++i) {
+      mv.visitInsn(ICONST_0);
+      mv.visitVarInsn(ISTORE, getRetrySlot(i));
+    }
+
+    for(int i=0;i!=statements.size();++i) {
+      mv.visitLabel(entryLabels[i]);
+      List<LoopSite> sites = loopSitesByHeader.get(i);
+      if(sites == null) {
+        for(IRLabel label : body.getIntructionLabels(i)) {
+          mv.visitLabel(getAsmLabel(label));
+        }
+      } else {
+        // jumps to the header of a loop come from within the loop, and call
+        // the loop site again only if it asked to be retried
+        Set<IRLabel> headers = Sets.newHashSet();
+        for(LoopSite site : sites) {
+          headers.add(site.getRegion().getHeaderLabel());
+        }
+        for(IRLabel label : body.getIntructionLabels(i)) {
+          if(!headers.contains(label)) {
+            mv.visitLabel(getAsmLabel(label));
+          }
+        }
+        for(LoopSite site : sites) {
+          Label call = new Label();
+          mv.visitLabel(call);
+          writeLoopSiteCall(site);
+          mv.visitLabel(getAsmLabel(site.getRegion().getHeaderLabel()));
+          mv.visitVarInsn(ILOAD, getRetrySlot(loopSites.indexOf(site)));
+          mv.visitJumpInsn(IFNE, call);
+        }
+      }
+      mv.visitLabel(statementLabels[i]);
+      statements.get(i).accept(this);
+    }
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  private void findLoopSites(IRBody body) {
+    Set<LValue> intVariables = LoopRegion.findIntVariables(body);
+    List<IRLoop> loops = body.getLoops();
+
+    // loops are listed inner loops first, and calls to the sites of
+    // enclosing loops must come first
+    for(int i = loops.size() - 1; i >= 0; --i) {
+      LoopRegion region;
+      try {
+        region = new LoopRegion(body, loops.get(i), intVariables);
+      } catch(NotCompilableException e) {
+        continue;
+      }
+      if(region.getExitIndex() >= body.getStatements().size()) {
+        continue;
+      }
+      LoopSite site = new LoopSite(region);
+      loopSites.add(site);
+      List<LoopSite> sites = loopSitesByHeader.get(region.getHeaderIndex());
+      if(sites == null) {
+        sites = Lists.newArrayList();
+        loopSitesByHeader.put(region.getHeaderIndex(), sites);
+      }
+      sites.add(site);
+    }
+  }
+
+  private void initializeVariables(IRBody body) {
+    Set<LValue> intVariables = LoopRegion.findIntVariables(body);
+    for(Statement statement : body.getStatements()) {
+      if(statement instanceof Assignment) {
+        LValue lhs = ((Assignment) statement).getLHS();
+        if(!(lhs instanceof EnvironmentVariable)) {
+          if(intVariables.contains(lhs)) {
+            mv.visitInsn(ICONST_0);
+            mv.visitVarInsn(ISTORE, getVariableSlot(lhs));
+          } else {
+            mv.visitInsn(ACONST_NULL);
+            mv.visitVarInsn(ASTORE, getVariableSlot(lhs));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Calls the loop site, passing the temps of the loop, and continues with the statement
+   * at which the specialized loop stopped, or with the generic loop if the site did not
+   * run the loop.
+   */
+  private void writeLoopSiteCall(LoopSite site) {
+    LoopRegion region = site.getRegion();
+    List<LValue> temps = region.getTemps();
+    List<LValue> intTemps = region.getIntTemps();
+    // jumps to the header from within the loop check whether to call the site
+    // again, but the generic loop starts after that check
+    Label header = statementLabels[region.getHeaderIndex()];
+    int retrySlot = getRetrySlot(loopSites.indexOf(site));
+
+    mv.visitInsn(ICONST_0);
+    mv.visitVarInsn(ISTORE, retrySlot);
+
+    pushInt(temps.size());
+    mv.visitTypeInsn(ANEWARRAY, "org/renjin/sexp/SEXP");
+    for(int j = 0; j != temps.size(); ++j) {
+      mv.visitInsn(DUP);
+      pushInt(j);
+      mv.visitVarInsn(ALOAD, getVariableSlot(temps.get(j)));
+      mv.visitInsn(AASTORE);
+    }
+    mv.visitVarInsn(ASTORE, LOOP_TEMPS_SLOT);
+
+    pushInt(intTemps.size());
+    mv.visitIntInsn(NEWARRAY, T_INT);
+    for(int j = 0; j != intTemps.size(); ++j) {
+      mv.visitInsn(DUP);
+      pushInt(j);
+      mv.visitVarInsn(ILOAD, getVariableSlot(intTemps.get(j)));
+      mv.visitInsn(IASTORE);
+    }
+    mv.visitVarInsn(ASTORE, LOOP_INTS_SLOT);
+
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitFieldInsn(GETFIELD, className, "loopSites", "[L" + LOOP_SITE + ";");
+    pushInt(loopSites.indexOf(site));
+    mv.visitInsn(AALOAD);
+    loadContext();
+    loadEnvironment();
+    mv.visitVarInsn(ALOAD, LOOP_TEMPS_SLOT);
+    mv.visitVarInsn(ALOAD, LOOP_INTS_SLOT);
+    mv.visitMethodInsn(INVOKEVIRTUAL, LOOP_SITE, "run",
+        "(Lorg/renjin/eval/Context;Lorg/renjin/sexp/Environment;[Lorg/renjin/sexp/SEXP;[I)I", false);
+    mv.visitVarInsn(ISTORE, RESUME_SLOT);
+    Label resume = new Label();
+    mv.visitVarInsn(ILOAD, RESUME_SLOT);
+    mv.visitJumpInsn(IFGE, resume);
+    mv.visitVarInsn(ILOAD, RESUME_SLOT);
+    pushInt(LoopSite.RETRY_NEXT_ITERATION);
+    mv.visitJumpInsn(IF_ICMPNE, header);
+    mv.visitInsn(ICONST_1);
+    mv.visitVarInsn(ISTORE, retrySlot);
+    mv.visitJumpInsn(GOTO, header);
+
+    mv.visitLabel(resume);
+
+    for(int j = 0; j != temps.size(); ++j) {
+      mv.visitVarInsn(ALOAD, LOOP_TEMPS_SLOT);
+      pushInt(j);
+      mv.visitInsn(AALOAD);
+      mv.visitVarInsn(ASTORE, getVariableSlot(temps.get(j)));
+    }
+    for(int j = 0; j != intTemps.size(); ++j) {
+      mv.visitVarInsn(ALOAD, LOOP_INTS_SLOT);
+      pushInt(j);
+      mv.visitInsn(IALOAD);
+      mv.visitVarInsn(ISTORE, getVariableSlot(intTemps.get(j)));
+    }
+
+    int headerIndex = region.getHeaderIndex();
+    int exitIndex = region.getExitIndex();
+    Label[] targets = new Label[exitIndex - headerIndex + 1];
+    targets[0] = statementLabels[headerIndex];
+    for(int i = 1; i < targets.length; ++i) {
+      targets[i] = entryLabels[headerIndex + i];
+    }
+    mv.visitVarInsn(ILOAD, RESUME_SLOT);
+    pushInt(headerIndex);
+    mv.visitInsn(ISUB);
+    mv.visitTableSwitchInsn(0, targets.length - 1, header, targets);
+  }
+
+  @Override
+  public void visitAssignment(Assignment assignment) {
+    LValue lhs = assignment.getLHS();
+    Expression rhs = assignment.getRHS();
+
+    if(lhs instanceof EnvironmentVariable) {
+      Symbol name = ((EnvironmentVariable) lhs).getName();
+      if(assignment instanceof Reassignment) {
+        loadContext();
+        loadEnvironment();
+        pushConstant(name, "org/renjin/sexp/Symbol");
+        rhs.accept(this);
+        mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "reassign",
+            "(Lorg/renjin/eval/Context;Lorg/renjin/sexp/Environment;Lorg/renjin/sexp/Symbol;Lorg/renjin/sexp/SEXP;)V",
+            false);
+      } else {
+        loadEnvironment();
+        pushConstant(name, "org/renjin/sexp/Symbol");
+        rhs.accept(this);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "org/renjin/sexp/Environment", "setVariable",
+            "(Lorg/renjin/sexp/Symbol;Lorg/renjin/sexp/SEXP;)V", false);
+      }
+
+    } else if(rhs instanceof Increment) {
+      // the IR only increments the loop counter in place
+      mv.visitIincInsn(getVariableSlot(lhs), 1);
+
+    } else if(rhs instanceof Length ||
+             (rhs instanceof Constant && ((Constant) rhs).getValue() instanceof Integer)) {
+      rhs.accept(this);
+      mv.visitVarInsn(ISTORE, getVariableSlot(lhs));
+
+    } else {
+      rhs.accept(this);
+      mv.visitVarInsn(ASTORE, getVariableSlot(lhs));
+    }
+  }
+
+  @Override
+  public void visitExprStatement(ExprStatement statement) {
+    statement.getRHS().accept(this);
+    mv.visitInsn(POP);
+  }
+
+  @Override
+  public void visitGoto(GotoStatement statement) {
+    mv.visitJumpInsn(GOTO, getAsmLabel(statement.getTarget()));
+  }
+
+  @Override
+  public void visitIf(IfStatement statement) {
+    Expression condition = statement.getCondition();
+    if(condition instanceof CmpGE) {
+      CmpGE cmp = (CmpGE) condition;
+      mv.visitVarInsn(ILOAD, getVariableSlot((LValue) cmp.getOp1()));
+      mv.visitVarInsn(ILOAD, getVariableSlot((LValue) cmp.getOp2()));
+      mv.visitJumpInsn(IF_ICMPGE, getAsmLabel(statement.getTrueTarget()));
+
+    } else if(statement.getNaTarget() != null) {
+      // operands of && and ||
+      condition.accept(this);
+      mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "evaluateLogicalOperand", "(Lorg/renjin/sexp/SEXP;)I", false);
+      mv.visitTableSwitchInsn(-1, 1, getAsmLabel(statement.getNaTarget()),
+          getAsmLabel(statement.getNaTarget()),
+          getAsmLabel(statement.getFalseTarget()),
+          getAsmLabel(statement.getTrueTarget()));
+      return;
+
+    } else {
+      loadContext();
+      condition.accept(this);
+      mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "evaluateCondition",
+          "(Lorg/renjin/eval/Context;Lorg/renjin/sexp/SEXP;)Z", false);
+      mv.visitJumpInsn(IFNE, getAsmLabel(statement.getTrueTarget()));
+    }
+    mv.visitJumpInsn(GOTO, getAsmLabel(statement.getFalseTarget()));
+  }
+
+  @Override
+  public void visitReturn(ReturnStatement statement) {
+    statement.getValue().accept(this);
+    if(analysis.getVisibility() == BodyAnalysis.Visibility.INVISIBLE) {
+      loadContext();
+      mv.visitMethodInsn(INVOKEVIRTUAL, CONTEXT, "setInvisibleFlag", "()V", false);
+    }
+    mv.visitInsn(ARETURN);
+  }
+
+  @Override
+  public void visitConstant(Constant constant) {
+    Object value = constant.getValue();
+    if(value instanceof Integer) {
+      pushInt((Integer) value);
+    } else {
+      clearInvisibleFlag();
+      pushConstant((SEXP) value);
+    }
+  }
+
+  @Override
+  public void visitEnvironmentVariable(EnvironmentVariable variable) {
+    clearInvisibleFlag();
+    loadContext();
+    loadEnvironment();
+    pushConstant(variable.getName(), "org/renjin/sexp/Symbol");
+    pushNewLookupCache();
+    mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "evaluateVariable",
+        "(Lorg/renjin/eval/Context;Lorg/renjin/sexp/Environment;Lorg/renjin/sexp/Symbol;L" + LOOKUP_CACHE +
+            ";)Lorg/renjin/sexp/SEXP;",
+        false);
+  }
+
+  @Override
+  public void visitTemp(Temp temp) {
+    mv.visitVarInsn(ALOAD, getVariableSlot(temp));
+  }
+
+  @Override
+  public void visitLocalVariable(LocalVariable variable) {
+    mv.visitVarInsn(ILOAD, getVariableSlot(variable));
+  }
+
+  @Override
+  public void visitLength(Length length) {
+    length.getVector().accept(this);
+    mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "loopLength", "(Lorg/renjin/sexp/SEXP;)I", false);
+  }
+
+  @Override
+  public void visitElementAccess(ElementAccess access) {
+    access.getVector().accept(this);
+    mv.visitTypeInsn(CHECKCAST, "org/renjin/sexp/Vector");
+    access.getIndex().accept(this);
+    mv.visitMethodInsn(INVOKEINTERFACE, "org/renjin/sexp/Vector", "getElementAsSEXP",
+        "(I)Lorg/renjin/sexp/SEXP;", true);
+  }
+
+  @Override
+  public void visitMakeClosure(MakeClosure closure) {
+    clearInvisibleFlag();
+    mv.visitTypeInsn(NEW, "org/renjin/sexp/Closure");
+    mv.visitInsn(DUP);
+    loadEnvironment();
+    pushConstant(closure.getFunction().getFormals(), "org/renjin/sexp/PairList");
+    pushConstant(closure.getFunction().getBodyExpression());
+    mv.visitMethodInsn(INVOKESPECIAL, "org/renjin/sexp/Closure", "<init>",
+        "(Lorg/renjin/sexp/Environment;Lorg/renjin/sexp/PairList;Lorg/renjin/sexp/SEXP;)V", false);
+  }
+
+  @Override
+  public void visitDynamicCall(DynamicCall call) {
+    FunctionCall sexp = call.getCall();
+    List<Expression> arguments = call.getArguments();
+
+    if(isSetterCall(call)) {
+      // the replacement function of a complex assignment, which receives
+      // the value of the right hand side as its last argument
+      loadContext();
+      loadEnvironment();
+      pushFunction(call);
+      clearInvisibleFlag();
+      pushConstant(sexp, "org/renjin/sexp/FunctionCall");
+      arguments.get(arguments.size() - 1).accept(this);
+      mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "applySetter",
+          "(Lorg/renjin/eval/Context;Lorg/renjin/sexp/Environment;Lorg/renjin/sexp/Function;" +
+          "Lorg/renjin/sexp/FunctionCall;Lorg/renjin/sexp/SEXP;)Lorg/renjin/sexp/SEXP;", false);
+    } else {
+      // all other arguments are promised by the function itself
+      pushFunction(call);
+      clearInvisibleFlag();
+      loadContext();
+      loadEnvironment();
+      pushConstant(sexp, "org/renjin/sexp/FunctionCall");
+      pushConstant(sexp.getArguments(), "org/renjin/sexp/PairList");
+      mv.visitMethodInsn(INVOKEINTERFACE, "org/renjin/sexp/Function", "apply",
+          "(Lorg/renjin/eval/Context;Lorg/renjin/sexp/Environment;Lorg/renjin/sexp/FunctionCall;" +
+          "Lorg/renjin/sexp/PairList;)Lorg/renjin/sexp/SEXP;", true);
+    }
+  }
+
+  private boolean isSetterCall(DynamicCall call) {
+    FunctionCall sexp = call.getCall();
+    List<Expression> arguments = call.getArguments();
+    return !arguments.isEmpty() &&
+        !(arguments.get(arguments.size() - 1) instanceof IRThunk) &&
+        sexp.getArguments().length() == arguments.size() &&
+        sexp.getArgument(arguments.size() - 1) == IRBodyBuilder.VALUE_PLACEHOLDER;
+  }
+
+  private void pushFunction(DynamicCall call) {
+    Expression function = call.getFunction();
+    if(function instanceof EnvironmentVariable) {
+      loadContext();
+      loadEnvironment();
+      pushConstant(((EnvironmentVariable) function).getName(), "org/renjin/sexp/Symbol");
+      pushNewLookupCache();
+      mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "findFunction",
+          "(Lorg/renjin/eval/Context;Lorg/renjin/sexp/Environment;Lorg/renjin/sexp/Symbol;L" + LOOKUP_CACHE +
+              ";)Lorg/renjin/sexp/Function;",
+          false);
+    } else {
+      loadContext();
+      function.accept(this);
+      mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "checkFunction",
+          "(Lorg/renjin/eval/Context;Lorg/renjin/sexp/SEXP;)Lorg/renjin/sexp/Function;", false);
+    }
+  }
+
+  @Override
+  public void visitPrimitiveCall(PrimitiveCall call) {
+    FunctionCall sexp = call.getSExpression();
+    PrimitiveFunction function = analysis.isInternalCall(sexp) ?
+        Primitives.getInternal(call.getName()) : Primitives.getBuiltin(call.getName());
+    if(function == null) {
+      throw new NotCompilableException(sexp, "no primitive named " + call.getName());
+    }
+
+    // '...' is spliced into the argument list at runtime
+    if(call.hasElipses()) {
+      loadEnvironment();
+      mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "findEllipses",
+          "(Lorg/renjin/sexp/Environment;)Lorg/renjin/sexp/PairList;", false);
+      mv.visitVarInsn(ASTORE, ELLIPSES_SLOT);
+    }
+
+    boolean named = false;
+    pushInt(call.getArguments().size());
+    mv.visitTypeInsn(ANEWARRAY, "java/lang/String");
+    for(int i=0;i!=call.getArguments().size();++i) {
+      String name = call.getArgumentNames().get(i);
+      if(name != null) {
+        mv.visitInsn(DUP);
+        pushInt(i);
+        mv.visitLdcInsn(name);
+        mv.visitInsn(AASTORE);
+        named = true;
+      }
+    }
+    if(call.hasElipses()) {
+      mv.visitVarInsn(ALOAD, ELLIPSES_SLOT);
+      pushInt(call.getElipsesIndex());
+      mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "spliceArgNames",
+          "([Ljava/lang/String;Lorg/renjin/sexp/PairList;I)[Ljava/lang/String;", false);
+    }
+    mv.visitVarInsn(ASTORE, NAMES_SLOT);
+
+    if(call.hasElipses()) {
+      loadContext();
+    }
+    pushInt(call.getArguments().size());
+    mv.visitTypeInsn(ANEWARRAY, "org/renjin/sexp/SEXP");
+    for(int i=0;i!=call.getArguments().size();++i) {
+      Expression argument = call.getArguments().get(i);
+      if(argument != Elipses.INSTANCE) {
+        mv.visitInsn(DUP);
+        pushInt(i);
+        argument.accept(this);
+        mv.visitInsn(AASTORE);
+      }
+    }
+    if(call.hasElipses()) {
+      mv.visitVarInsn(ALOAD, ELLIPSES_SLOT);
+      pushInt(call.getElipsesIndex());
+      mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "spliceArgValues",
+          "(Lorg/renjin/eval/Context;[Lorg/renjin/sexp/SEXP;Lorg/renjin/sexp/PairList;I)[Lorg/renjin/sexp/SEXP;",
+          false);
+    }
+    mv.visitVarInsn(ASTORE, VALUES_SLOT);
+
+    clearInvisibleFlag();
+
+    // The generated static doApply() methods neither dispatch to S3 methods
+    // nor match named arguments, so they can only be called directly
+    // with positional arguments that are not objects
+    boolean direct = !named && !call.hasElipses() && call.getWrapperClass() != UnimplementedPrimitive.class;
+    Label done = new Label();
+    Label applyDirectly = new Label();
+    if(direct) {
+      mv.visitVarInsn(ALOAD, VALUES_SLOT);
+      mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "hasObjectArguments", "([Lorg/renjin/sexp/SEXP;)Z", false);
+      mv.visitJumpInsn(IFEQ, applyDirectly);
+    }
+
+    loadContext();
+    loadEnvironment();
+    pushConstant(function, "org/renjin/sexp/Function");
+    pushConstant(sexp, "org/renjin/sexp/FunctionCall");
+    mv.visitVarInsn(ALOAD, NAMES_SLOT);
+    mv.visitVarInsn(ALOAD, VALUES_SLOT);
+    mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "applyBuiltin",
+        "(Lorg/renjin/eval/Context;Lorg/renjin/sexp/Environment;Lorg/renjin/sexp/Function;" +
+        "Lorg/renjin/sexp/FunctionCall;[Ljava/lang/String;[Lorg/renjin/sexp/SEXP;)Lorg/renjin/sexp/SEXP;", false);
+
+    if(direct) {
+      mv.visitJumpInsn(GOTO, done);
+      mv.visitLabel(applyDirectly);
+      loadContext();
+      loadEnvironment();
+      pushConstant(sexp, "org/renjin/sexp/FunctionCall");
+      mv.visitVarInsn(ALOAD, NAMES_SLOT);
+      mv.visitVarInsn(ALOAD, VALUES_SLOT);
+      mv.visitMethodInsn(INVOKESTATIC, call.getWrapperClass().getName().replace('.', '/'), "doApply",
+          "(Lorg/renjin/eval/Context;Lorg/renjin/sexp/Environment;Lorg/renjin/sexp/FunctionCall;" +
+          "[Ljava/lang/String;[Lorg/renjin/sexp/SEXP;)Lorg/renjin/sexp/SEXP;", false);
+      mv.visitLabel(done);
+    }
+  }
+
+  @Override
+  public void visitIncrement(Increment increment) {
+    throw new UnsupportedOperationException("increment outside of assignment");
+  }
+
+  @Override
+  public void visitCmpGE(CmpGE cmp) {
+    throw new UnsupportedOperationException("comparison outside of if statement");
+  }
+
+  @Override
+  public void visitSsaVariable(SsaVariable variable) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void visitPhiFunction(PhiFunction phiFunction) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void visitPromise(IRThunk promise) {
+    throw new UnsupportedOperationException("promises are created by the interpreter");
+  }
+
+  private void clearInvisibleFlag() {
+    loadContext();
+    mv.visitMethodInsn(INVOKEVIRTUAL, CONTEXT, "clearInvisibleFlag", "()V", false);
+  }
+
+  private void loadContext() {
+    mv.visitVarInsn(ALOAD, CONTEXT_SLOT);
+  }
+
+  private void loadEnvironment() {
+    mv.visitVarInsn(ALOAD, ENVIRONMENT_SLOT);
+  }
+
+  /**
+   * Pushes a new cache for a lookup which is made only at this point in the body
+   */
+  private void pushNewLookupCache() {
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitFieldInsn(GETFIELD, className, "lookupCaches", "[L" + LOOKUP_CACHE + ";");
+    pushInt(lookupCaches.size());
+    mv.visitInsn(AALOAD);
+    lookupCaches.add(new LookupCache());
+  }
+
+  private void pushConstant(SEXP value) {
+    Integer index = constantIndexes.get(value);
+    if(index == null) {
+      index = constants.size();
+      constants.add(value);
+      constantIndexes.put(value, index);
+    }
+    mv.visitVarInsn(ALOAD, CONSTANTS_SLOT);
+    pushInt(index);
+    mv.visitInsn(AALOAD);
+  }
+
+  private void pushInt(int i) {
+    if(i >= -1 && i <= 5) {
+      mv.visitInsn(ICONST_0 + i);
+    } else if(i >= Byte.MIN_VALUE && i <= Byte.MAX_VALUE) {
+      mv.visitIntInsn(BIPUSH, i);
+    } else if(i >= Short.MIN_VALUE && i <= Short.MAX_VALUE) {
+      mv.visitIntInsn(SIPUSH, i);
+    } else {
+      mv.visitLdcInsn(i);
+    }
+  }
+
+  private void pushConstant(SEXP value, String type) {
+    pushConstant(value);
+    mv.visitTypeInsn(CHECKCAST, type);
+  }
+
+  private Label getAsmLabel(IRLabel label) {
+    Label asmLabel = labels.get(label);
+    if(asmLabel == null) {
+      asmLabel = new Label();
+      labels.put(label, asmLabel);
+    }
+    return asmLabel;
+  }
+
+  private int getVariableSlot(LValue variable) {
+    Integer index = variableSlots.get(variable);
+    if(index == null) {
+      index = variableSlots.size();
+      variableSlots.put(variable, index);
+    }
+    return FIRST_VARIABLE_SLOT + loopSites.size() + index;
+  }
+
+  /**
+   * @return the slot of the flag which is set when the loop site {@code siteIndex}
+   * is to be called again at the next iteration of its loop
+   */
+  private int getRetrySlot(int siteIndex) {
+    return FIRST_VARIABLE_SLOT + siteIndex;
+  }
+
+  private static class BodyClassLoader extends ClassLoader {
+    public BodyClassLoader() {
+      super(TieredBodyGenerator.class.getClassLoader());
+    }
+
+    public Class<?> defineClass(String name, byte[] classFile) {
+      return defineClass(name, classFile, 0, classFile.length);
+    }
+  }
+}
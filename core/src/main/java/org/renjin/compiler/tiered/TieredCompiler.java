@@ -0,0 +1,275 @@
+package org.renjin.compiler.tiered;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.renjin.eval.Context;
+import org.renjin.sexp.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tiered execution of closures: bodies start out interpreted, and once a body has
+ * been invoked or has looped often enough, it is compiled to JVM bytecode in the
+ * background and the compiled form is used for subsequent calls.
+ *
+ * <p>Compiled bodies inline calls to reserved words such as {@code +}, {@code [}
+ * and {@code for}. Before each compiled call, the body checks that these still resolve
+ * to the base primitives from the function's environment, and if any has been
+ * redefined, the call falls back to the interpreter.
+ *
+ * <p>The compiler is configured through system properties:
+ * <ul>
+ *   <li>{@code renjin.compile.tiered} enables tiered compilation (default {@code true})</li>
+ *   <li>{@code renjin.compile.threshold} the number of invocations after which a
+ *   closure is compiled (default 500)</li>
+ *   <li>{@code renjin.compile.backEdgeThreshold} the number of loop iterations after which
+ *   a closure is compiled (default 10000)</li>
+ *   <li>{@code renjin.compile.background} compiles on a background thread rather than
+ *   the calling thread (default {@code true})</li>
+ *   <li>{@code renjin.compile.specializeLoops} compiles loops over scalars and atomic
+ *   vectors into type-specialized code when they are first run (default {@code true})</li>
+ * </ul>
+ *
+ * <p>There is no on-stack replacement: a call which is already running in the interpreter
+ * continues to be interpreted, and the compiled body is used from the next call onward.
+ *
+ * <p>Within compiled bodies, loops over scalars and unnamed atomic vectors are further
+ * specialized for the types of the values entering them, see {@link LoopSite}. A specialized
+ * loop hands over to the generic compiled code at the first statement it cannot execute
+ * on unboxed values, such as an out-of-bounds subscript, and the generic code carries on
+ * from that statement.
+ */
+public class TieredCompiler {
+
+  private static final Logger LOGGER = Logger.getLogger(TieredCompiler.class.getName());
+
+  private static volatile boolean enabled =
+      Boolean.parseBoolean(System.getProperty("renjin.compile.tiered", "true"));
+
+  private static volatile int invocationThreshold =
+      Integer.getInteger("renjin.compile.threshold", 500);
+
+  private static volatile int backEdgeThreshold =
+      Integer.getInteger("renjin.compile.backEdgeThreshold", 10000);
+
+  private static volatile boolean background =
+      Boolean.parseBoolean(System.getProperty("renjin.compile.background", "true"));
+
+  private static volatile boolean specializeLoops =
+      Boolean.parseBoolean(System.getProperty("renjin.compile.specializeLoops", "true"));
+
+  private static final AtomicLong COMPILED = new AtomicLong();
+  private static final AtomicLong FAILED = new AtomicLong();
+  private static final AtomicLong GUARD_FAILURES = new AtomicLong();
+  private static final AtomicLong SPECIALIZED_LOOPS = new AtomicLong();
+  private static final AtomicLong DEOPTIMIZATIONS = new AtomicLong();
+
+  /**
+   * Profiles are keyed by the identity of the closure body
+   */
+  private static final LoadingCache<SEXP, ClosureProfile> PROFILES = CacheBuilder.newBuilder()
+      .weakKeys()
+      .build(new CacheLoader<SEXP, ClosureProfile>() {
+        @Override
+        public ClosureProfile load(SEXP body) {
+          return new ClosureProfile();
+        }
+      });
+
+  private static ExecutorService executor;
+
+  private TieredCompiler() {
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  public static void setEnabled(boolean enabled) {
+    TieredCompiler.enabled = enabled;
+  }
+
+  public static void setInvocationThreshold(int threshold) {
+    TieredCompiler.invocationThreshold = threshold;
+  }
+
+  public static void setBackEdgeThreshold(int threshold) {
+    TieredCompiler.backEdgeThreshold = threshold;
+  }
+
+  /**
+   * Sets whether hot closures are compiled on a background thread, or
+   * synchronously by the thread which calls them.
+   */
+  public static void setBackground(boolean background) {
+    TieredCompiler.background = background;
+  }
+
+  public static boolean isLoopSpecializationEnabled() {
+    return specializeLoops;
+  }
+
+  /**
+   * Sets whether loops within compiled bodies are specialized for the types
+   * of the values entering them.
+   */
+  public static void setLoopSpecializationEnabled(boolean enabled) {
+    TieredCompiler.specializeLoops = enabled;
+  }
+
+  /**
+   * @return the number of closure bodies which have been compiled
+   */
+  public static long getCompiledCount() {
+    return COMPILED.get();
+  }
+
+  /**
+   * @return the number of closure bodies which could not be compiled, and
+   * which will continue to be interpreted
+   */
+  public static long getFailedCount() {
+    return FAILED.get();
+  }
+
+  /**
+   * @return the number of calls to compiled closures which fell back to the
+   * interpreter because a primitive had been redefined
+   */
+  public static long getGuardFailureCount() {
+    return GUARD_FAILURES.get();
+  }
+
+  /**
+   * @return the number of loop specializations which have been compiled
+   */
+  public static long getSpecializedLoopCount() {
+    return SPECIALIZED_LOOPS.get();
+  }
+
+  /**
+   * @return the number of times a specialized loop was left before the loop completed,
+   * because it reached a statement it could not execute, such as an out-of-bounds subscript
+   */
+  public static long getDeoptimizationCount() {
+    return DEOPTIMIZATIONS.get();
+  }
+
+  static void countSpecializedLoop() {
+    SPECIALIZED_LOOPS.incrementAndGet();
+  }
+
+  static void countDeoptimization() {
+    DEOPTIMIZATIONS.incrementAndGet();
+  }
+
+  /**
+   * Evaluates the body of {@code closure} in the function context {@code context},
+   * using its compiled form if available.
+   */
+  public static SEXP evaluate(Context context, Closure closure) {
+    ClosureProfile profile = profileOf(closure);
+    if(profile != null) {
+      CompiledClosureBody compiledBody = profile.getCompiledBody();
+      if(compiledBody != null) {
+        Environment rho = context.getEnvironment();
+        if(compiledBody.guardsHold(context, rho)) {
+          return compiledBody.evaluate(context, rho);
+        }
+        GUARD_FAILURES.incrementAndGet();
+
+      } else if(profile.countInvocation(invocationThreshold)) {
+        schedule(profile, closure.getBody());
+        compiledBody = profile.getCompiledBody();
+        if(compiledBody != null && compiledBody.guardsHold(context, context.getEnvironment())) {
+          return compiledBody.evaluate(context, context.getEnvironment());
+        }
+      }
+    }
+    return context.evaluate(closure.getBody());
+  }
+
+  /**
+   * Counts an iteration of a loop evaluated by the interpreter in the
+   * environment {@code rho}.
+   */
+  public static void countBackEdge(Context context, Environment rho) {
+    if(enabled) {
+      Closure closure = context.getClosure();
+      if(closure != null && context.getEnvironment() == rho) {
+        ClosureProfile profile = profileOf(closure);
+        if(profile != null && profile.countBackEdge(backEdgeThreshold)) {
+          schedule(profile, closure.getBody());
+        }
+      }
+    }
+  }
+
+  private static ClosureProfile profileOf(Closure closure) {
+    ClosureProfile profile = closure.getProfile();
+    if(profile == null) {
+      // bodies which are just a symbol or a constant gain nothing from compilation
+      if(!(closure.getBody() instanceof FunctionCall)) {
+        return null;
+      }
+      profile = PROFILES.getUnchecked(closure.getBody());
+      closure.setProfile(profile);
+    }
+    return profile;
+  }
+
+  private static void schedule(final ClosureProfile profile, final SEXP body) {
+    if(profile.markQueued()) {
+      if(background) {
+        executor().execute(new Runnable() {
+          @Override
+          public void run() {
+            compile(profile, body);
+          }
+        });
+      } else {
+        compile(profile, body);
+      }
+    }
+  }
+
+  private static synchronized ExecutorService executor() {
+    if(executor == null) {
+      executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+          .setNameFormat("renjin-tiered-compiler")
+          .setDaemon(true)
+          .build());
+    }
+    return executor;
+  }
+
+  private static void compile(ClosureProfile profile, SEXP body) {
+    try {
+      BodyAnalysis analysis = new BodyAnalysis(body);
+      profile.compiled(new CompiledClosureBody(
+          TieredBodyGenerator.compile(body, analysis),
+          analysis.getAssumedPrimitives()));
+      COMPILED.incrementAndGet();
+
+    } catch(Exception e) {
+      compileFailed(profile, body, e);
+    } catch(LinkageError e) {
+      // the generated class failed verification
+      compileFailed(profile, body, e);
+    }
+  }
+
+  private static void compileFailed(ClosureProfile profile, SEXP body, Throwable cause) {
+    profile.failed();
+    FAILED.incrementAndGet();
+    if(LOGGER.isLoggable(Level.FINE)) {
+      LOGGER.log(Level.FINE, "Could not compile closure body " + body, cause);
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package org.renjin.compiler.tiered;
+
+import org.renjin.sexp.*;
+
+/**
+ * The types of values which specialized loops hold in unboxed JVM locals.
+ *
+ * <p>Scalars are length-one atomic vectors without attributes, which can be
+ * replaced by a fresh vector of the same value without changing the meaning
+ * of the program. Vectors are accessed element-wise, and must not have names
+ * or a class, so that their elements can be selected without dispatch or
+ * carrying names along.
+ */
+enum ValueType {
+
+  /**
+   * A variable which is not bound when the loop is entered, and
+   * so must be assigned by the loop before it is read
+   */
+  UNBOUND,
+
+  DOUBLE,
+  INT,
+  LOGICAL,
+
+  DOUBLE_VECTOR,
+  INT_VECTOR,
+  LOGICAL_VECTOR;
+
+  public boolean isScalar() {
+    return this == DOUBLE || this == INT || this == LOGICAL;
+  }
+
+  public boolean isVector() {
+    return this == DOUBLE_VECTOR || this == INT_VECTOR || this == LOGICAL_VECTOR;
+  }
+
+  /**
+   * @return true if the JVM representation of this type is an {@code int}
+   */
+  public boolean isIntLike() {
+    return this == INT || this == LOGICAL;
+  }
+
+  public ValueType elementType() {
+    switch (this) {
+      case DOUBLE_VECTOR:
+        return DOUBLE;
+      case INT_VECTOR:
+        return INT;
+      case LOGICAL_VECTOR:
+        return LOGICAL;
+      default:
+        throw new IllegalStateException(name() + " is not a vector type");
+    }
+  }
+
+  /**
+   * @return the type of {@code value} when used as a scalar, or {@code null} if
+   * it cannot be held unboxed
+   */
+  public static ValueType ofScalar(SEXP value) {
+    if(value.length() != 1 || !value.getAttributes().empty()) {
+      return null;
+    }
+    if(value instanceof DoubleVector) {
+      return DOUBLE;
+    } else if(value instanceof IntVector) {
+      return INT;
+    } else if(value instanceof LogicalVector) {
+      return LOGICAL;
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * @return the type of {@code value} when its elements are accessed by index,
+   * or {@code null} if they cannot be accessed directly
+   */
+  public static ValueType ofVector(SEXP value) {
+    AttributeMap attributes = value.getAttributes();
+    if(attributes.hasClass() || attributes.hasNames()) {
+      return null;
+    }
+    // elements selected from one-dimensional arrays keep their dim attribute
+    if(attributes.getDim() != Null.INSTANCE && attributes.getDim().length() == 1) {
+      return null;
+    }
+    if(value instanceof DoubleVector) {
+      return DOUBLE_VECTOR;
+    } else if(value instanceof IntVector) {
+      return INT_VECTOR;
+    } else if(value instanceof LogicalVector) {
+      return LOGICAL_VECTOR;
+    } else {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,343 @@
+package org.renjin.eval;
+
+import org.renjin.sexp.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Index of a closure's formal arguments, used to match the arguments supplied to a call.
+ *
+ * <p>The result of matching depends only on the formals and on the tags of the supplied
+ * arguments, not on their values. It is therefore computed once as a {@link Plan}, a
+ * permutation of the supplied arguments, which is cached at the call site and reapplied
+ * for as long as the call passes arguments with the same tags to a closure with the same
+ * formals.</p>
+ *
+ * <p>See {@link ClosureDispatcher#matchArguments(PairList, PairList, boolean)} for the
+ * matching rules.</p>
+ */
+public final class ArgumentMatcher {
+
+  private static final int MISSING = -1;
+  private static final int DOTS = -2;
+
+  private final PairList formals;
+  private final Symbol[] names;
+  private final SEXP[] defaultValues;
+
+  /**
+   * The position of {@code ...} among the formals, or -1
+   */
+  private final int ellipses;
+
+  /**
+   * The names of the formals preceding {@code ...}, which alone can be partially matched,
+   * in sorted order so that all names starting with a given prefix are adjacent.
+   */
+  private final String[] prefixNames;
+  private final int[] prefixSlots;
+
+  public ArgumentMatcher(PairList formals) {
+    this.formals = formals;
+
+    int count = formals.length();
+    names = new Symbol[count];
+    defaultValues = new SEXP[count];
+    int ellipses = -1;
+    int i = 0;
+    for (PairList.Node formal : formals.nodes()) {
+      names[i] = formal.hasTag() ? formal.getTag() : null;
+      defaultValues[i] = formal.getValue();
+      if(names[i] == Symbols.ELLIPSES && ellipses == -1) {
+        ellipses = i;
+      }
+      i++;
+    }
+    this.ellipses = ellipses;
+
+    List<Integer> partial = new ArrayList<>();
+    for (i = 0; i < count && i != ellipses; i++) {
+      if(names[i] != null) {
+        partial.add(i);
+      }
+    }
+    Collections.sort(partial, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return names[a].getPrintName().compareTo(names[b].getPrintName());
+      }
+    });
+    prefixNames = new String[partial.size()];
+    prefixSlots = new int[partial.size()];
+    for (i = 0; i < prefixSlots.length; i++) {
+      prefixSlots[i] = partial.get(i);
+      prefixNames[i] = names[prefixSlots[i]].getPrintName();
+    }
+  }
+
+  public PairList getFormals() {
+    return formals;
+  }
+
+  /**
+   * Matches {@code actuals} to the formals of {@code closure} and binds them in
+   * {@code innerEnv}, reusing the plan cached at {@code call} if it was computed for the same
+   * formals and argument tags.
+   *
+   * @param call the call site, or {@code null} if the match should not be cached
+   */
+  public static void matchInto(FunctionCall call, Closure closure, PairList actuals, Environment innerEnv) {
+    Plan plan = call == null ? null : call.getArgumentMatchPlan();
+    if(plan == null || !plan.appliesTo(closure.getFormals(), actuals)) {
+      plan = closure.getArgumentMatcher().plan(actuals);
+      if(call != null) {
+        call.setArgumentMatchPlan(plan);
+      }
+    }
+    plan.bind(actuals, innerEnv);
+  }
+
+  /**
+   * Computes the permutation which matches arguments with the tags of {@code actuals}
+   * to the formals.
+   *
+   * @throws EvalException if the arguments cannot be matched.
+   */
+  public Plan plan(PairList actuals) {
+    int actualCount = actuals.length();
+    SEXP[] tags = new SEXP[actualCount];
+    int i = 0;
+    for (PairList.Node actual : actuals.nodes()) {
+      tags[i++] = actual.getRawTag();
+    }
+
+    boolean[] formalMatched = new boolean[names.length];
+    boolean[] actualMatched = new boolean[actualCount];
+    int[] slots = new int[names.length];
+    int[] sources = new int[names.length];
+    int entries = 0;
+
+    // Exact matching on tags
+    for (int formal = 0; formal < names.length; formal++) {
+      Symbol name = names[formal];
+      if(name == null || name == Symbols.ELLIPSES) {
+        continue;
+      }
+      int match = -1;
+      for (int actual = 0; actual < actualCount; actual++) {
+        if(tags[actual] instanceof Symbol && ((Symbol) tags[actual]).getPrintName().equals(name.getPrintName())) {
+          if(match != -1) {
+            throw new EvalException(String.format("Multiple named values provided for argument '%s'",
+                name.getPrintName()));
+          }
+          match = actual;
+        }
+      }
+      if(match != -1) {
+        slots[entries] = formal;
+        sources[entries] = match;
+        entries++;
+        formalMatched[formal] = true;
+        actualMatched[match] = true;
+      }
+    }
+
+    // Partial matching on tags
+    for (int actual = 0; actual < actualCount; actual++) {
+      if(!actualMatched[actual] && tags[actual] != Null.INSTANCE && tags[actual] != Symbols.ELLIPSES) {
+        String argumentName = ((Symbol) tags[actual]).getPrintName();
+        int match = matchPartial(argumentName, formalMatched);
+        if(match != -1) {
+          slots[entries] = match;
+          sources[entries] = actual;
+          entries++;
+          formalMatched[match] = true;
+          actualMatched[actual] = true;
+        }
+      }
+    }
+
+    // Positional matching of the remaining formals to the remaining untagged arguments,
+    // stopping at the first remaining tagged argument.
+    int[] dots = null;
+    int next = nextUnmatched(actualMatched, 0);
+    for (int formal = 0; formal < names.length; formal++) {
+      if(formalMatched[formal]) {
+        continue;
+      }
+      slots[entries] = formal;
+      if(formal == ellipses) {
+        dots = new int[actualCount];
+        int dotCount = 0;
+        while(next < actualCount) {
+          dots[dotCount++] = next;
+          next = nextUnmatched(actualMatched, next + 1);
+        }
+        dots = Arrays.copyOf(dots, dotCount);
+        sources[entries] = DOTS;
+
+      } else if(next < actualCount && tags[next] == Null.INSTANCE) {
+        sources[entries] = next;
+        next = nextUnmatched(actualMatched, next + 1);
+
+      } else {
+        sources[entries] = MISSING;
+      }
+      entries++;
+    }
+    if(next < actualCount) {
+      throw new EvalException("Unmatched positional arguments");
+    }
+
+    return new Plan(this, tags, slots, sources, dots);
+  }
+
+  private static int nextUnmatched(boolean[] actualMatched, int start) {
+    int i = start;
+    while(i < actualMatched.length && actualMatched[i]) {
+      i++;
+    }
+    return i;
+  }
+
+  private int matchPartial(String argumentName, boolean[] formalMatched) {
+    int match = -1;
+    int i = lowerBound(argumentName);
+    while(i < prefixNames.length && prefixNames[i].startsWith(argumentName)) {
+      int slot = prefixSlots[i];
+      if(!formalMatched[slot]) {
+        if(match != -1) {
+          throw new EvalException(String.format("Provided argument '%s' matches multiple named formal arguments",
+              argumentName));
+        }
+        match = slot;
+      }
+      i++;
+    }
+    return match;
+  }
+
+  private int lowerBound(String prefix) {
+    int low = 0;
+    int high = prefixNames.length;
+    while(low < high) {
+      int mid = (low + high) >>> 1;
+      if(prefixNames[mid].compareTo(prefix) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * The permutation matching arguments with a given list of tags to a closure's formals.
+   * Plans are immutable, and so can be shared by threads evaluating the same call.
+   */
+  public static final class Plan {
+    private final ArgumentMatcher matcher;
+    private final SEXP[] tags;
+
+    /**
+     * The formal bound by each entry, in the order in which the arguments were matched.
+     */
+    private final int[] slots;
+
+    /**
+     * The index of the argument bound by each entry, or {@code MISSING} or {@code DOTS}
+     */
+    private final int[] sources;
+
+    /**
+     * The indexes of the arguments passed on through {@code ...}
+     */
+    private final int[] dots;
+
+    private Plan(ArgumentMatcher matcher, SEXP[] tags, int[] slots, int[] sources, int[] dots) {
+      this.matcher = matcher;
+      this.tags = tags;
+      this.slots = slots;
+      this.sources = sources;
+      this.dots = dots;
+    }
+
+    /**
+     * @return true if this plan matches {@code actuals} to {@code formals}.
+     */
+    public boolean appliesTo(PairList formals, PairList actuals) {
+      if(formals != matcher.formals) {
+        return false;
+      }
+      int i = 0;
+      for (PairList.Node actual : actuals.nodes()) {
+        if(i >= tags.length || actual.getRawTag() != tags[i]) {
+          return false;
+        }
+        i++;
+      }
+      return i == tags.length;
+    }
+
+    private SEXP[] values(PairList actuals) {
+      SEXP[] values = new SEXP[tags.length];
+      int i = 0;
+      for (PairList.Node actual : actuals.nodes()) {
+        values[i++] = actual.getValue();
+      }
+      return values;
+    }
+
+    private SEXP value(int entry, SEXP[] values) {
+      int source = sources[entry];
+      if(source == MISSING) {
+        return Symbol.MISSING_ARG;
+      } else if(source == DOTS) {
+        PromisePairList.Builder promises = new PromisePairList.Builder();
+        for (int dot : dots) {
+          promises.add(tags[dot], values[dot]);
+        }
+        return promises.build();
+      } else {
+        return values[source];
+      }
+    }
+
+    /**
+     * Binds the matched arguments in the function environment {@code innerEnv}, promising
+     * the default values of missing arguments.
+     */
+    public void bind(PairList actuals, Environment innerEnv) {
+      SEXP[] values = values(actuals);
+      for (int entry = 0; entry < slots.length; entry++) {
+        int slot = slots[entry];
+        SEXP value = value(entry, values);
+        if(value == Symbol.MISSING_ARG) {
+          SEXP defaultValue = matcher.defaultValues[slot];
+          if(defaultValue != Symbol.MISSING_ARG) {
+            value = Promise.promiseMissing(innerEnv, defaultValue);
+          }
+        }
+        innerEnv.setVariable(matcher.names[slot], value);
+      }
+    }
+
+    /**
+     * @return the matched arguments, tagged with the names of their formals
+     */
+    public PairList toPairList(PairList actuals, boolean populateMissing) {
+      SEXP[] values = values(actuals);
+      PairList.Builder result = new PairList.Builder();
+      for (int entry = 0; entry < slots.length; entry++) {
+        if(sources[entry] != MISSING || populateMissing) {
+          result.add(matcher.names[slots[entry]], value(entry, values));
+        }
+      }
+      return result.build();
+    }
+  }
+}
@@ -47,14 +47,14 @@ public class Calls {
     Environment functionEnvironment = functionContext.getEnvironment();
 
     try {
-      matchArgumentsInto(closure.getFormals(), promisedArgs, functionContext, functionEnvironment);
+      ArgumentMatcher.matchInto(call, closure, promisedArgs, functionEnvironment);
 
       // copy supplied environment values into the function environment
       for(Symbol name : suppliedEnvironment.getSymbols()) {
         functionEnvironment.setVariable(name, suppliedEnvironment.getVariable(name));
       }
 
-      SEXP result = functionContext.evaluate( closure.getBody(), functionEnvironment);
+      SEXP result = closure.doApply(functionContext);
 
       functionContext.exit();
 
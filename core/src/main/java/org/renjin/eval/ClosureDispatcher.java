@@ -21,20 +21,11 @@
 
 package org.renjin.eval;
 
-import com.google.common.base.Joiner;
-import com.google.common.collect.Collections2;
-import com.google.common.collect.Iterators;
-import com.google.common.collect.Lists;
-import com.google.common.collect.PeekingIterator;
-import org.renjin.primitives.CollectionUtils;
 import org.renjin.primitives.special.ReturnException;
 import org.renjin.sexp.*;
 
 import java.util.*;
 
-import static com.google.common.collect.Collections2.filter;
-import static com.google.common.collect.Collections2.transform;
-
 
 public class ClosureDispatcher {
 
@@ -67,7 +58,7 @@ public class ClosureDispatcher {
     Environment functionEnvironment = functionContext.getEnvironment();
 
     try {
-      matchArgumentsInto(closure.getFormals(), promisedArgs, functionContext, functionEnvironment);
+      ArgumentMatcher.matchInto(call, closure, promisedArgs, functionEnvironment);
 
       if(dispatchChain != null) {
         dispatchChain.populateEnvironment(functionEnvironment);
@@ -120,18 +111,7 @@ public class ClosureDispatcher {
   
   public static void matchArgumentsInto(PairList formals, PairList actuals, 
       Context innerContext, Environment innerEnv) {
-
-    PairList matched = matchArguments(formals, actuals);
-    for(PairList.Node node : matched.nodes()) {
-      SEXP value = node.getValue();
-      if(value == Symbol.MISSING_ARG) {
-        SEXP defaultValue = formals.findByTag(node.getTag());
-        if(defaultValue != Symbol.MISSING_ARG) {
-          value =  Promise.promiseMissing(innerEnv, defaultValue);
-        }
-      }
-      innerEnv.setVariable(node.getTag(), value);
-    }
+    new ArgumentMatcher(formals).plan(actuals).bind(actuals, innerEnv);
   }
 
   public static PairList matchArguments(PairList formals, PairList actuals) {
@@ -162,121 +142,6 @@ public class ClosureDispatcher {
      * @param actuals the actual arguments supplied to the list
      */
   public static PairList matchArguments(PairList formals, PairList actuals, boolean populateMissing) {
-
-    PairList.Builder result = new PairList.Builder();
-
-    List<PairList.Node> unmatchedActuals = Lists.newArrayList();
-    for(PairList.Node argNode : actuals.nodes()) {
-      unmatchedActuals.add(argNode);
-    }
-
-    List<PairList.Node> unmatchedFormals = Lists.newArrayList(formals.nodes());
-
-
-    // do exact matching
-    for(ListIterator<PairList.Node> formalIt = unmatchedFormals.listIterator(); formalIt.hasNext(); ) {
-      PairList.Node formal = formalIt.next();
-      if(formal.hasTag()) {
-        Symbol name = formal.getTag();
-        if(name != Symbols.ELLIPSES) {
-          Collection<PairList.Node> matches = Collections2.filter(unmatchedActuals, PairList.Predicates.matches(name));
-
-          if (matches.size() == 1) {
-            PairList.Node match = first(matches);
-            SEXP value = match.getValue();
-         
-            result.add(name, value);
-            formalIt.remove();
-            unmatchedActuals.remove(match);
-
-          } else if (matches.size() > 1) {
-            throw new EvalException(String.format("Multiple named values provided for argument '%s'", name.getPrintName()));
-          }
-        }
-      }
-    }
-
-    // Partial matching
-    Collection<PairList.Node> remainingNamedFormals = filter(unmatchedFormals, PairList.Predicates.hasTag());
-    for (Iterator<PairList.Node> actualIt = unmatchedActuals.iterator(); actualIt.hasNext(); ) {
-      PairList.Node actual = actualIt.next();
-      if (actual.hasTag() && actual.getTag() != Symbols.ELLIPSES) {
-        PairList.Node partialMatch = matchPartial(actual.getTag().getPrintName(), remainingNamedFormals);
-        if (partialMatch != null) {
-          result.add(partialMatch.getTag(), actual.getValue());
-          actualIt.remove();
-          unmatchedFormals.remove(partialMatch);
-        }
-      }
-    }
-  
-
-    // match any unnamed args positionally
-
-    Iterator<PairList.Node> formalIt = unmatchedFormals.iterator();
-    PeekingIterator<PairList.Node> actualIt = Iterators.peekingIterator(unmatchedActuals.iterator());
-    while( formalIt.hasNext()) {
-      PairList.Node formal = formalIt.next();
-      if(Symbols.ELLIPSES.equals(formal.getTag())) {
-        PromisePairList.Builder promises = new PromisePairList.Builder();
-        while(actualIt.hasNext()) {
-          PairList.Node actual = actualIt.next();
-          promises.add( actual.getRawTag(),  actual.getValue() );
-        }
-        result.add(formal.getTag(), promises.build() );
-
-      } else if( hasNextUnTagged(actualIt) ) {
-        result.add(formal.getTag(), nextUnTagged(actualIt).getValue() );
-
-      } else if(populateMissing) {
-        result.add(formal.getTag(), Symbol.MISSING_ARG);
-      }
-    }
-    if(actualIt.hasNext()) {
-      throw new EvalException("Unmatched positional arguments");
-    }
-
-    return result.build();
-  }
-
-  private static PairList.Node matchPartial(String argumentName, Collection<PairList.Node> formals) {
-    PairList.Node partialMatch = null;
-            
-    for (PairList.Node formal : formals) {
-      // only partially match on formal arguments preceding ELIPSES
-      if(formal.getTag() == Symbols.ELLIPSES) {
-        break;
-      }
-      if(formal.getTag().getPrintName().startsWith(argumentName)) {
-        if(partialMatch == null) {
-          partialMatch = formal;
-        } else {
-          throw new EvalException(String.format("Provided argument '%s' matches multiple named formal arguments",
-                  argumentName));
-        }
-      }
-    }
-    return partialMatch;
-  }
-
-
-  private static boolean hasNextUnTagged(PeekingIterator<PairList.Node> it) {
-    return it.hasNext() && !it.peek().hasTag();
-  }
-
-  private static PairList.Node nextUnTagged(Iterator<PairList.Node> it) {
-    PairList.Node arg = it.next() ;
-    while( arg.hasTag() ) {
-      arg = it.next();
-    }
-    return arg;
-  }
-
-  private static String argumentTagList(Collection<PairList.Node> matches) {
-    return Joiner.on(", ").join(transform(matches, new CollectionUtils.TagName()));
-  }
-
-  private static <X> X first(Iterable<X> values) {
-    return values.iterator().next();
+    return new ArgumentMatcher(formals).plan(actuals).toPairList(actuals, populateMissing);
   }
 }
@@ -86,7 +86,10 @@ public class Context {
     BUILTIN
   }
 
-  private List<SEXP> onExit = Lists.newArrayList();
+  /**
+   * Expressions to evaluate upon exiting this context, or {@code null} if none have been added.
+   */
+  private List<SEXP> onExit = null;
 
   private Context parent;
   private int evaluationDepth;
@@ -108,7 +111,7 @@ public class Context {
    * Handlers are R functions that are called immediately when
    * conditions are signaled.
    */
-  private Map<String, SEXP> conditionHandlers = Maps.newHashMap();
+  private Map<String, SEXP> conditionHandlers = null;
 
   private Map<Class, Object> stateMap = null;
 
@@ -140,7 +143,8 @@ public class Context {
     context.parent = this;
     context.evaluationDepth = evaluationDepth+1;
     context.closure = closure;
-    context.environment = Environment.createChildEnvironment(closure.getEnclosingEnvironment());
+    context.environment = Environment.createChildEnvironment(closure.getEnclosingEnvironment(),
+        new ArrayFrame(closure.getFrameSize()));
     context.session = session;
     context.arguments = arguments;
     context.call= call;
@@ -272,7 +276,7 @@ public class Context {
     clearInvisibleFlag();
 
     SEXP fn = call.getFunction();
-    Function functionExpr = evaluateFunction(fn, rho);
+    Function functionExpr = evaluateFunction(call, rho);
 
     boolean profiling = Profiler.ENABLED && fn instanceof Symbol && !((Symbol) fn).isReservedWord();
     if(Profiler.ENABLED && profiling) {
@@ -287,10 +291,11 @@ public class Context {
     }
   }
 
-  private Function evaluateFunction(SEXP functionExp, Environment rho) {
+  private Function evaluateFunction(FunctionCall call, Environment rho) {
+    SEXP functionExp = call.getFunction();
     if(functionExp instanceof Symbol) {
       Symbol symbol = (Symbol) functionExp;
-      Function fn = rho.findFunction(this, symbol);
+      Function fn = call.getFunctionLookupCache().findFunction(this, rho, symbol);
       if(fn == null) {
         throw new EvalException("could not find function '%s'", symbol.getPrintName());      
       }
@@ -413,6 +418,9 @@ public class Context {
    * @param exp the expression to evaluate upon exiting this context.
    */
   public void addOnExit(SEXP exp) {
+    if(onExit == null) {
+      onExit = Lists.newArrayList();
+    }
     onExit.add(exp);
   }
 
@@ -425,15 +433,17 @@ public class Context {
    * Removes all previously added expressions to evaluate upon exiting this context.
    */
   public void clearOnExits() {
-    onExit = Lists.newArrayList();
+    onExit = null;
   }
 
   /**
    * Invokes any on.exit expressions that have been set.
    */
   public void exit() {
-    for(SEXP exp : onExit) {
-      evaluate(exp, environment);
+    if(onExit != null) {
+      for(SEXP exp : onExit) {
+        evaluate(exp, environment);
+      }
     }
   }
 
@@ -446,11 +456,14 @@ public class Context {
    * condition as an argument.
    */
   public void setConditionHandler(String conditionClass, SEXP function) {
+    if(conditionHandlers == null) {
+      conditionHandlers = Maps.newHashMap();
+    }
     conditionHandlers.put(conditionClass, function);
   }
 
   public SEXP getConditionHandler(String conditionClass) {
-    return conditionHandlers.get(conditionClass);
+    return conditionHandlers == null ? null : conditionHandlers.get(conditionClass);
   }
 
   /**
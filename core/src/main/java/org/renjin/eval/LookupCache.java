@@ -0,0 +1,315 @@
+package org.renjin.eval;
+
+import org.renjin.base.BaseFrame;
+import org.renjin.sexp.*;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inline cache for the lookup of a symbol at a single call site, so that a call to
+ * {@code length} from package code does not probe the namespace, imports, base namespace, global
+ * and attached package frames on every evaluation.
+ *
+ * <p>The frame of the environment in which the symbol is evaluated is always searched first,
+ * because it is usually a new function frame. The rest of the search is cached by the identity
+ * of its parent, the enclosure of the function. An entry records the
+ * {@linkplain Environment#getLookupModCount() lookup modification count} of each environment it
+ * passed through without finding the symbol, and is only used while all of those counts are unchanged.
+ * Since changing an environment's parent also changes this count, the chain of environments itself
+ * cannot have changed either. The frame in which the symbol was found is read again on each lookup,
+ * and ordinary assignments to existing bindings are not counted, so a top-level loop assigning to
+ * global variables does not invalidate the entries of functions defined in the global environment.</p>
+ *
+ * <p>Each cache holds a single entry, and only weakly references the environment it was resolved
+ * from, so that call sites do not keep function environments alive.</p>
+ *
+ * <p>The cache is configured through system properties:
+ * <ul>
+ *   <li>{@code renjin.lookupCache} enables caching (default {@code true})</li>
+ *   <li>{@code renjin.lookupCache.statistics} maintains the global hit and miss counts
+ *   (default {@code false})</li>
+ * </ul>
+ * The counts of each cache are always maintained.</p>
+ */
+public final class LookupCache {
+
+  /**
+   * Chains longer than this are searched each time
+   */
+  private static final int MAX_DEPTH = 64;
+
+  private static volatile boolean enabled =
+      Boolean.parseBoolean(System.getProperty("renjin.lookupCache", "true"));
+
+  private static volatile boolean statistics =
+      Boolean.parseBoolean(System.getProperty("renjin.lookupCache.statistics", "false"));
+
+  private static final AtomicLong HITS = new AtomicLong();
+  private static final AtomicLong MISSES = new AtomicLong();
+  private static final AtomicLong INVALIDATIONS = new AtomicLong();
+
+  private Entry entry;
+
+  private long hitCount;
+  private long missCount;
+  private long invalidationCount;
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  public static void setEnabled(boolean enabled) {
+    LookupCache.enabled = enabled;
+  }
+
+  public static boolean isStatisticsEnabled() {
+    return statistics;
+  }
+
+  /**
+   * Sets whether the global hit and miss counts are maintained. They are shared by all
+   * threads, so counting every lookup has a cost when many threads evaluate concurrently.
+   */
+  public static void setStatisticsEnabled(boolean enabled) {
+    LookupCache.statistics = enabled;
+  }
+
+  /**
+   * @return the number of lookups, by all call sites, resolved from the cache while
+   * statistics were enabled
+   */
+  public static long getTotalHitCount() {
+    return HITS.get();
+  }
+
+  /**
+   * @return the number of lookups, by all call sites, which searched the environment chain
+   * while statistics were enabled
+   */
+  public static long getTotalMissCount() {
+    return MISSES.get();
+  }
+
+  /**
+   * @return the number of cached entries, for all call sites, discarded because an environment
+   * had been modified while statistics were enabled
+   */
+  public static long getTotalInvalidationCount() {
+    return INVALIDATIONS.get();
+  }
+
+  public static void resetStatistics() {
+    HITS.set(0);
+    MISSES.set(0);
+    INVALIDATIONS.set(0);
+  }
+
+  /**
+   * @return the number of lookups at this call site resolved from the cache
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return the number of lookups at this call site which searched the environment chain,
+   * including those for which the cached entry had been invalidated.
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return the number of times the entry at this call site was discarded because an environment
+   * had been modified
+   */
+  public long getInvalidationCount() {
+    return invalidationCount;
+  }
+
+  /**
+   * Finds the value bound to {@code symbol}, equivalent to {@link Environment#findVariable(Symbol)}.
+   *
+   * @return the bound value, or {@code Symbol.UNBOUND_VALUE} if not found
+   */
+  public SEXP findVariable(Environment rho, Symbol symbol) {
+    if(!enabled || rho == Environment.EMPTY || symbol.isVarArgReference()) {
+      return rho.findVariable(symbol);
+    }
+    SEXP value = rho.getFrame().getVariable(symbol);
+    if(value != Symbol.UNBOUND_VALUE) {
+      return value;
+    }
+    Environment start = rho.getParent();
+    Environment found = cached(start, symbol, false);
+    if(found != null) {
+      if(found == Environment.EMPTY) {
+        return Symbol.UNBOUND_VALUE;
+      }
+      value = found.getFrame().getVariable(symbol);
+      if(value != Symbol.UNBOUND_VALUE) {
+        return value;
+      }
+    }
+    return searchVariable(start, symbol);
+  }
+
+  /**
+   * Finds the function bound to {@code symbol}, skipping over bindings to non-function values,
+   * equivalent to {@link Environment#findFunction(Context, Symbol)}.
+   *
+   * @return the function, or {@code null} if not found
+   */
+  public Function findFunction(Context context, Environment rho, Symbol symbol) {
+    if(!enabled || rho == Environment.EMPTY) {
+      return rho.findFunction(context, symbol);
+    }
+    Function function = frameFunction(context, rho.getFrame(), symbol);
+    if(function != null) {
+      return function;
+    }
+    Environment start = rho.getParent();
+    Environment found = cached(start, symbol, true);
+    if(found != null) {
+      if(found == Environment.EMPTY) {
+        return null;
+      }
+      function = frameFunction(context, found.getFrame(), symbol);
+      if(function != null) {
+        return function;
+      }
+    }
+    return searchFunction(context, start, symbol);
+  }
+
+  private static Function frameFunction(Context context, Frame frame, Symbol symbol) {
+    if(frame.isMissingArgument(symbol)) {
+      throw new EvalException("argument '%s' is missing, with no default", symbol.toString());
+    }
+    return frame.getFunction(context, symbol);
+  }
+
+  /**
+   * @return the environment in which the symbol was found when the entry was resolved,
+   * {@code Environment.EMPTY} if it was not found, or {@code null} if there is no valid entry.
+   */
+  private Environment cached(Environment start, Symbol symbol, boolean function) {
+    Entry entry = this.entry;
+    if(entry == null || entry.symbol != symbol || entry.function != function || entry.start.get() != start) {
+      return null;
+    }
+    Environment env = start;
+    int[] modCounts = entry.modCounts;
+    for(int i = 0; i != modCounts.length; ++i) {
+      if(env.getLookupModCount() != modCounts[i]) {
+        this.entry = null;
+        invalidationCount++;
+        if(statistics) {
+          INVALIDATIONS.incrementAndGet();
+        }
+        return null;
+      }
+      env = env.getParent();
+    }
+    hitCount++;
+    if(statistics) {
+      HITS.incrementAndGet();
+    }
+    return env;
+  }
+
+  private SEXP searchVariable(Environment start, Symbol symbol) {
+    countMiss();
+    int[] modCounts = new int[8];
+    int depth = 0;
+    boolean cacheable = true;
+    Environment env = start;
+    while(env != Environment.EMPTY) {
+      SEXP value = env.getFrame().getVariable(symbol);
+      if(value != Symbol.UNBOUND_VALUE) {
+        if(cacheable) {
+          this.entry = new Entry(start, symbol, false, Arrays.copyOf(modCounts, depth));
+        }
+        return value;
+      }
+      if(depth == modCounts.length) {
+        modCounts = Arrays.copyOf(modCounts, depth * 2);
+      }
+      modCounts[depth++] = env.getLookupModCount();
+      cacheable &= isCacheable(env, depth);
+      env = env.getParent();
+    }
+    if(cacheable) {
+      this.entry = new Entry(start, symbol, false, Arrays.copyOf(modCounts, depth));
+    }
+    return Symbol.UNBOUND_VALUE;
+  }
+
+  private Function searchFunction(Context context, Environment start, Symbol symbol) {
+    countMiss();
+    int[] modCounts = new int[8];
+    int depth = 0;
+    boolean cacheable = true;
+    Environment env = start;
+    while(env != Environment.EMPTY) {
+      // read the count before searching the frame, as forcing a promise bound
+      // in the frame may modify it
+      int modCount = env.getLookupModCount();
+      Function function = frameFunction(context, env.getFrame(), symbol);
+      if(function != null) {
+        if(cacheable) {
+          this.entry = new Entry(start, symbol, true, Arrays.copyOf(modCounts, depth));
+        }
+        return function;
+      }
+      if(depth == modCounts.length) {
+        modCounts = Arrays.copyOf(modCounts, depth * 2);
+      }
+      modCounts[depth++] = modCount;
+      cacheable &= isCacheable(env, depth);
+      env = env.getParent();
+    }
+    if(cacheable) {
+      this.entry = new Entry(start, symbol, true, Arrays.copyOf(modCounts, depth));
+    }
+    return null;
+  }
+
+  /**
+   * Only frames whose bindings change through their {@link Environment} can be validated by
+   * the environment's modification count.
+   */
+  private static boolean isCacheable(Environment env, int depth) {
+    Frame frame = env.getFrame();
+    return depth <= MAX_DEPTH && (frame instanceof ArrayFrame || frame instanceof HashFrame ||
+        frame instanceof BaseFrame);
+  }
+
+  private void countMiss() {
+    missCount++;
+    if(statistics) {
+      MISSES.incrementAndGet();
+    }
+  }
+
+  private static final class Entry {
+    private final WeakReference<Environment> start;
+    private final Symbol symbol;
+    private final boolean function;
+
+    /**
+     * The modification counts of the environments searched before the one in
+     * which the symbol was found, starting with {@code start}
+     */
+    private final int[] modCounts;
+
+    private Entry(Environment start, Symbol symbol, boolean function, int[] modCounts) {
+      this.start = new WeakReference<Environment>(start);
+      this.symbol = symbol;
+      this.function = function;
+      this.modCounts = modCounts;
+    }
+  }
+}
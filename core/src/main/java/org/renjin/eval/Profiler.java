@@ -20,6 +20,11 @@ public class Profiler {
 
   public static final boolean ENABLED = Boolean.getBoolean("renjin.profile");
 
+  /**
+   * True while at least one {@link SamplingProfiler} is attributing allocations.
+   */
+  static volatile boolean samplingAllocations = false;
+
 
   private static class FunctionProfile {
     private Symbol symbol;
@@ -94,14 +99,25 @@ public class Profiler {
     }
   }
 
+  /**
+   * @return true if allocations should be reported through {@link #memoryAllocated(int, int)}
+   */
+  public static boolean isTrackingAllocations() {
+    return ENABLED || samplingAllocations;
+  }
+
   /**
    * Records a memory allocation attempt
    * @param size the size, in bits of the array elements allocated
    * @param length the number of elements
    */
   public static void memoryAllocated(int size, int length) {
-    if(CURRENT != null) {
-      CURRENT.bytesAllocated += (length * (size/8));
+    long bytes = (long)length * (size/8);
+    if(ENABLED && CURRENT != null) {
+      CURRENT.bytesAllocated += bytes;
+    }
+    if(samplingAllocations) {
+      SamplingProfiler.allocated(bytes);
     }
   }
 
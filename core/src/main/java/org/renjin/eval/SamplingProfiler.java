@@ -0,0 +1,317 @@
+package org.renjin.eval;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Symbol;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Profiler which samples the R call stack of a single {@link Session} at a fixed interval.
+ *
+ * <p>Unlike {@link Profiler}, which times every call and must be enabled for the whole JVM
+ * at startup, a sampling profiler can be attached to a running session with
+ * {@link Session#startProfiling(SamplingProfiler)} and detached again with
+ * {@link Session#stopProfiling()}. While attached, the evaluating thread only publishes the
+ * innermost closure call; a timer thread walks the {@link Context} chain from there at
+ * each tick.</p>
+ *
+ * <p>Samples can be written as they are taken in the format of GNU R's {@code Rprof()},
+ * so that {@code summaryRprof()} can read them, and are aggregated into "collapsed" stacks
+ * that can be passed directly to flame graph tools. When memory profiling is enabled, the
+ * bytes allocated by the evaluating thread since the previous sample are attributed to
+ * the sampled stack.</p>
+ */
+public class SamplingProfiler {
+
+  /**
+   * Profilers currently attributing allocations.
+   */
+  private static final List<SamplingProfiler> ALLOCATION_PROFILERS = new CopyOnWriteArrayList<>();
+
+  private static class StackCounts {
+    private long samples;
+    private long bytesAllocated;
+  }
+
+  private final long intervalMicros;
+  private final boolean memoryProfiling;
+  private Writer rprofOutput;
+
+  /**
+   * The innermost closure call of the session being profiled.
+   */
+  private volatile Context current;
+
+  private volatile Thread evaluatingThread;
+
+  /**
+   * Bytes allocated by the evaluating thread. Only written from that thread.
+   */
+  private volatile long bytesAllocated;
+
+  private long bytesAllocatedAtLastSample;
+
+  private ScheduledExecutorService timer;
+
+  private final Map<String, StackCounts> stacks = new HashMap<>();
+  private long sampleCount;
+  private IOException outputException;
+
+  /**
+   * @param interval the time between samples
+   * @param unit the unit of {@code interval}
+   * @param memoryProfiling true if allocations should be attributed to sampled stacks
+   */
+  public SamplingProfiler(long interval, TimeUnit unit, boolean memoryProfiling) {
+    this.intervalMicros = Math.max(1, unit.toMicros(interval));
+    this.memoryProfiling = memoryProfiling;
+  }
+
+  public SamplingProfiler(long interval, TimeUnit unit) {
+    this(interval, unit, false);
+  }
+
+  /**
+   * Writes each sample to {@code output} in the format of GNU R's {@code Rprof()}. The
+   * writer is closed when profiling stops.
+   */
+  public synchronized void setRprofOutput(Writer output) {
+    this.rprofOutput = output;
+  }
+
+  public boolean isMemoryProfiling() {
+    return memoryProfiling;
+  }
+
+  synchronized void start() throws IOException {
+    if(timer != null) {
+      throw new IllegalStateException("Profiler has already been started");
+    }
+    evaluatingThread = Thread.currentThread();
+    if(rprofOutput != null) {
+      if(memoryProfiling) {
+        rprofOutput.write("memory profiling: ");
+      }
+      rprofOutput.write("sample.interval=" + intervalMicros + "\n");
+    }
+    if(memoryProfiling) {
+      trackAllocations(this);
+    }
+    timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("renjin-profiler-%d")
+        .setDaemon(true)
+        .build());
+    timer.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        sample();
+      }
+    }, intervalMicros, intervalMicros, TimeUnit.MICROSECONDS);
+  }
+
+  void stop() throws IOException {
+    ScheduledExecutorService timer;
+    synchronized (this) {
+      timer = this.timer;
+      this.timer = null;
+    }
+    if(timer == null) {
+      return;
+    }
+    timer.shutdown();
+    try {
+      timer.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if(memoryProfiling) {
+      untrackAllocations(this);
+    }
+    current = null;
+
+    synchronized (this) {
+      if(rprofOutput != null) {
+        try {
+          rprofOutput.close();
+        } catch (IOException e) {
+          if(outputException == null) {
+            outputException = e;
+          }
+        }
+      }
+      if(outputException != null) {
+        throw outputException;
+      }
+    }
+  }
+
+  /**
+   * Records the start of a closure call. Called by the evaluating thread.
+   */
+  public void enter(Context functionContext) {
+    Thread thread = Thread.currentThread();
+    if(evaluatingThread != thread) {
+      evaluatingThread = thread;
+    }
+    current = functionContext;
+  }
+
+  /**
+   * Records the end of a closure call. Called by the evaluating thread.
+   */
+  public void exit(Context functionContext) {
+    current = functionContext.getParent();
+  }
+
+  private void sample() {
+    List<String> names = new ArrayList<>();
+    Context context = current;
+    while(context != null) {
+      if(context.getType() == Context.Type.FUNCTION) {
+        names.add(functionName(context.getFunctionName()));
+      }
+      context = context.getParent();
+    }
+
+    long allocated = bytesAllocated;
+    long allocatedSinceLastSample = allocated - bytesAllocatedAtLastSample;
+    bytesAllocatedAtLastSample = allocated;
+
+    if(names.isEmpty()) {
+      return;
+    }
+
+    synchronized (this) {
+      sampleCount++;
+
+      String key = collapse(names);
+      StackCounts counts = stacks.get(key);
+      if(counts == null) {
+        counts = new StackCounts();
+        stacks.put(key, counts);
+      }
+      counts.samples++;
+      counts.bytesAllocated += allocatedSinceLastSample;
+
+      if(rprofOutput != null && outputException == null) {
+        try {
+          writeRprofLine(names, allocated);
+        } catch (IOException e) {
+          outputException = e;
+        }
+      }
+    }
+  }
+
+  private void writeRprofLine(List<String> names, long allocated) throws IOException {
+    StringBuilder line = new StringBuilder();
+    if(memoryProfiling) {
+      // summaryRprof() reads the differences between successive lines of the
+      // (small vector, large vector, node, duplication) counters, with vector
+      // sizes measured in 8-byte cells.
+      line.append(":0:").append(allocated / 8).append(":0:0:");
+    }
+    for (String name : names) {
+      line.append('"').append(name).append("\" ");
+    }
+    line.append('\n');
+    rprofOutput.write(line.toString());
+  }
+
+  private static String functionName(SEXP function) {
+    if(function instanceof Symbol) {
+      return ((Symbol) function).getPrintName();
+    } else {
+      return "<Anonymous>";
+    }
+  }
+
+  /**
+   * Joins the names of a stack, outermost call first.
+   */
+  private static String collapse(List<String> innermostFirst) {
+    StringBuilder key = new StringBuilder();
+    for (int i = innermostFirst.size() - 1; i >= 0; i--) {
+      if(key.length() > 0) {
+        key.append(';');
+      }
+      key.append(innermostFirst.get(i));
+    }
+    return key.toString();
+  }
+
+  /**
+   * @return the number of samples taken so far in which at least one R function was running.
+   */
+  public synchronized long getSampleCount() {
+    return sampleCount;
+  }
+
+  /**
+   * Writes the stacks sampled so far in the "collapsed" format used by flame graph tools:
+   * one line per distinct stack, with function names separated by semicolons starting
+   * from the outermost call, followed by a space and the stack's weight.
+   *
+   * @param allocations if true, weight stacks by the bytes allocated rather than by the number
+   *                    of samples. Requires memory profiling.
+   */
+  public void writeCollapsedStacks(Writer writer, boolean allocations) throws IOException {
+    if(allocations && !memoryProfiling) {
+      throw new IllegalStateException("Memory profiling is not enabled");
+    }
+    for (Map.Entry<String, Long> stack : getCollapsedStacks(allocations).entrySet()) {
+      if(stack.getValue() > 0) {
+        writer.write(stack.getKey() + " " + stack.getValue() + "\n");
+      }
+    }
+    writer.flush();
+  }
+
+  /**
+   * @return a map from each sampled stack, collapsed as described in
+   * {@link #writeCollapsedStacks(Writer, boolean)}, to its weight.
+   */
+  public synchronized Map<String, Long> getCollapsedStacks(boolean allocations) {
+    Map<String, Long> map = new TreeMap<>();
+    for (Map.Entry<String, StackCounts> stack : stacks.entrySet()) {
+      StackCounts counts = stack.getValue();
+      map.put(stack.getKey(), allocations ? counts.bytesAllocated : counts.samples);
+    }
+    return Collections.unmodifiableMap(map);
+  }
+
+  private static synchronized void trackAllocations(SamplingProfiler profiler) {
+    ALLOCATION_PROFILERS.add(profiler);
+    Profiler.samplingAllocations = true;
+  }
+
+  private static synchronized void untrackAllocations(SamplingProfiler profiler) {
+    ALLOCATION_PROFILERS.remove(profiler);
+    Profiler.samplingAllocations = !ALLOCATION_PROFILERS.isEmpty();
+  }
+
+  /**
+   * Attributes an allocation to the profiler, if any, of the session evaluating on the
+   * current thread.
+   */
+  static void allocated(long bytes) {
+    Thread thread = Thread.currentThread();
+    for (SamplingProfiler profiler : ALLOCATION_PROFILERS) {
+      if(profiler.evaluatingThread == thread) {
+        profiler.bytesAllocated += bytes;
+      }
+    }
+  }
+}
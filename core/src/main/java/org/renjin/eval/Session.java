@@ -5,6 +5,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemManager;
+import org.renjin.compiler.pipeline.MultiThreadedVectorPipeliner;
 import org.renjin.compiler.pipeline.SimpleVectorPipeliner;
 import org.renjin.compiler.pipeline.VectorPipeliner;
 import org.renjin.primitives.io.connections.ConnectionTable;
@@ -74,7 +75,7 @@ public class Session {
   
   private Map<Class, Object> singletons = Maps.newHashMap();
   
-  private final ConnectionTable connectionTable = new ConnectionTable();
+  private final ConnectionTable connectionTable;
 
   private FileObject workingDirectory;
   
@@ -86,6 +87,18 @@ public class Session {
   
   private VectorPipeliner vectorPipeliner;
 
+  /**
+   * The pipeliner created by {@link #setVectorParallelism(int, int)}, which is shut down
+   * when it is replaced, or {@code null}
+   */
+  private MultiThreadedVectorPipeliner ownPipeliner;
+
+  /**
+   * The profiler sampling this session's call stack, or {@code null}
+   * if the session is not being profiled.
+   */
+  private volatile SamplingProfiler profiler;
+
   /**
    * Whether the result of the evaluation should be "invisible" in a
    * REPL
@@ -102,6 +115,7 @@ public class Session {
     this.baseNamespaceEnv = Environment.createBaseNamespaceEnvironment(globalEnvironment, baseEnvironment);
     this.baseNamespaceEnv.setVariable(Symbol.get(".BaseNamespaceEnv"), baseNamespaceEnv);
     this.topLevelContext = new Context(this);
+    this.connectionTable = new ConnectionTable();
 
     namespaceRegistry = new NamespaceRegistry((PackageLoader) bindings.get(PackageLoader.class),  topLevelContext, baseNamespaceEnv);
     securityManager = new SecurityManager(); 
@@ -118,6 +132,43 @@ public class Session {
     globalEnvironment.setVariable(".Random.seed", IntVector.valueOf(1)); 
   }
 
+  /**
+   * Creates a child session which shares its parent's base environment, loaded
+   * namespaces, connections and file system, but has its own global environment,
+   * top level context and random number generator.
+   */
+  private Session(Session parent) {
+    this.fileSystemManager = parent.fileSystemManager;
+    this.homeDirectory = parent.homeDirectory;
+    this.workingDirectory = parent.workingDirectory;
+    this.systemEnvironment = Maps.newHashMap(parent.systemEnvironment);
+    this.baseEnvironment = parent.baseEnvironment;
+    this.baseNamespaceEnv = parent.baseNamespaceEnv;
+    this.globalEnvironment = Environment.createGlobalEnvironment(parent.globalEnvironment);
+    this.topLevelContext = new Context(this);
+    this.connectionTable = parent.connectionTable;
+    this.namespaceRegistry = parent.namespaceRegistry;
+    this.securityManager = parent.securityManager;
+    this.sessionController = parent.sessionController;
+    this.vectorPipeliner = parent.vectorPipeliner;
+    this.commandLineArguments = parent.commandLineArguments;
+    this.rng.setKind(parent.rng.getKind());
+    this.rng.setNormalKind(parent.rng.getNormalKind());
+  }
+
+  /**
+   * Creates a lightweight child session, analogous to a forked R process, which can
+   * evaluate R code on another thread.
+   *
+   * <p>The child's global environment is enclosed by this session's global environment,
+   * so that variables defined in the parent are visible to the child, while assignments
+   * made by the child do not affect the parent. Namespaces loaded by the parent are
+   * shared with the child.</p>
+   */
+  public Session fork() {
+    return new Session(this);
+  }
+
   /** 
    * Sets the paths in which to search for libraries.
    *
@@ -185,7 +236,66 @@ public class Session {
   public VectorPipeliner getVectorEngine() {
     return vectorPipeliner;
   }
+
+  /**
+   * Sets the number of threads used to compute deferred vector computations, such as
+   * {@code sum(x*y)} on large vectors. Computations whose input has more than
+   * {@code chunkSize} elements are split into chunks which are computed in parallel.
+   *
+   * @param threads the number of threads, or 1 to compute deferred computations on the
+   *                evaluating thread
+   * @param chunkSize the maximum number of elements computed by a single task
+   */
+  public void setVectorParallelism(int threads, int chunkSize) {
+    if(threads < 1) {
+      throw new IllegalArgumentException("threads: " + threads);
+    }
+    if(ownPipeliner != null) {
+      ownPipeliner.shutdown();
+      ownPipeliner = null;
+    }
+    if(threads == 1) {
+      vectorPipeliner = new SimpleVectorPipeliner();
+    } else {
+      ownPipeliner = new MultiThreadedVectorPipeliner(threads, chunkSize);
+      vectorPipeliner = ownPipeliner;
+    }
+  }
   
+  /**
+   * @return the profiler currently sampling this session, or {@code null} if the
+   * session is not being profiled.
+   */
+  public SamplingProfiler getProfiler() {
+    return profiler;
+  }
+
+  /**
+   * Starts sampling this session's call stack with the given profiler, stopping any
+   * profiler that is already attached. This method may be called while the session is
+   * evaluating on another thread.
+   */
+  public synchronized void startProfiling(SamplingProfiler profiler) throws IOException {
+    stopProfiling();
+    profiler.start();
+    this.profiler = profiler;
+  }
+
+  /**
+   * Stops and detaches the profiler sampling this session, if any.
+   *
+   * @return the profiler that was stopped, or {@code null} if the session was not being profiled.
+   * @throws IOException if the profiler failed to write its output.
+   */
+  public synchronized SamplingProfiler stopProfiling() throws IOException {
+    SamplingProfiler stopped = this.profiler;
+    if(stopped != null) {
+      this.profiler = null;
+      stopped.stop();
+    }
+    return stopped;
+  }
+
   public void setCommandLineArguments(String executableName, String... arguments) {
     commandLineArguments = new StringArrayVector(Lists.asList(executableName, arguments));
   }
@@ -267,6 +377,11 @@ public class Session {
    * any finalizers registered with reg.finalizer(on.exit = TRUE)
    */
   public void close() {
+    try {
+      stopProfiling();
+    } catch (IOException e) {
+      throw new EvalException("Error writing profile: " + e.getMessage(), e);
+    }
     topLevelContext.exit();
     if(finalizers != null) {
       finalizers.finalizeOnExit(topLevelContext);
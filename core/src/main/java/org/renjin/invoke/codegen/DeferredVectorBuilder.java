@@ -73,6 +73,7 @@ public class DeferredVectorBuilder {
     implementGetOperands();
     implementGetComputationName();
     implementStaticApply();
+    implementPassNA();
     implementIsConstantAccess();
     implementGetComputationDepth();
 
@@ -265,6 +266,16 @@ public class DeferredVectorBuilder {
     returnValue(method.body(), buildInvocation(params));
   }
 
+  /**
+   * Records whether the static {@code compute} method expects to be called with NA arguments,
+   * so that the pipeline JIT can reproduce the NA handling of the accessor when it inlines
+   * calls to {@code compute}.
+   */
+  private void implementPassNA() {
+    vectorClass.field(JMod.PUBLIC | JMod.STATIC | JMod.FINAL, codeModel.BOOLEAN, "PASS_NA",
+        JExpr.lit(overload.isPassNA()));
+  }
+
   private void implementAccessor() {
     JMethod method = vectorClass.method(JMod.PUBLIC, type.accessorType, type.accessorName);
     JVar index = method.param(int.class, "index");
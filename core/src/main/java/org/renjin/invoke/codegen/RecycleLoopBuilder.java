@@ -13,6 +13,8 @@ import org.renjin.invoke.model.PrimitiveModel;
 import org.renjin.sexp.Symbols;
 import org.renjin.sexp.Vector;
 
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.List;
 import java.util.Map;
 
@@ -62,6 +64,20 @@ public class RecycleLoopBuilder {
     public JExpression getCurrentElement() {
       return vector.invoke(scalarType.getAccessorMethod()).arg(currentElementIndex);
     }
+
+    public boolean isComplex() {
+      return formal.getClazz().equals(Complex.class);
+    }
+
+    public JExpression getCurrentElementReal() {
+      return codeModel.ref(WrapperRuntime.class).staticInvoke("getElementAsComplexReal")
+          .arg(vector).arg(currentElementIndex);
+    }
+
+    public JExpression getCurrentElementImag() {
+      return codeModel.ref(WrapperRuntime.class).staticInvoke("getElementAsComplexImag")
+          .arg(vector).arg(currentElementIndex);
+    }
   }
 
   private JCodeModel codeModel;
@@ -76,6 +92,18 @@ public class RecycleLoopBuilder {
   private final JExpression contextVar;
   private List<RecycledArgument> recycledArguments = Lists.newArrayList();
   private Map<JvmMethod.Argument, JExpression> argumentMap = Maps.newHashMap();
+  private Map<JvmMethod.Argument, RecycledArgument> recycledArgumentMap = Maps.newHashMap();
+
+  /**
+   * A variant of the overload which takes complex arguments as separate real and imaginary
+   * parts, or {@code null} if there is none.
+   */
+  private Method unboxedOverload;
+
+  /**
+   * Receives the real and imaginary parts of a complex result from the {@code unboxedOverload}
+   */
+  private JVar unboxedResult;
 
   private JVar cycleCount;
   private JVar cycleIndex;
@@ -103,10 +131,60 @@ public class RecycleLoopBuilder {
         RecycledArgument recycledArgument = new RecycledArgument(argument, argumentMap.get(argument));
         recycledArguments.add(recycledArgument);
         this.argumentMap.put(argument, recycledArgument.getCurrentElement());
+        this.recycledArgumentMap.put(argument, recycledArgument);
       } else {
         this.argumentMap.put(argument, argumentMap.get(argument));
       }
     }
+    this.unboxedOverload = findUnboxedOverload();
+  }
+
+  /**
+   * Finds a public static method named {@code <name>Unboxed} in the overload's class, which
+   * takes each recycled {@code Complex} argument as a {@code double} real and imaginary part, and,
+   * if the overload returns a {@code Complex} value, stores it instead in a {@code double[]} array at
+   * the given offset. For example:
+   *
+   * <pre>
+   * public static Complex plus(Complex x, Complex y)
+   * public static void plusUnboxed(double xr, double xi, double yr, double yi, double[] result, int offset)
+   * </pre>
+   *
+   * <p>Calling this variant avoids allocating a {@code Complex} object for each element.</p>
+   */
+  private Method findUnboxedOverload() {
+    boolean complex = overload.getReturnType().equals(Complex.class);
+    List<Class<?>> parameterTypes = Lists.newArrayList();
+    for(JvmMethod.Argument argument : overload.getAllArguments()) {
+      RecycledArgument recycled = recycledArgumentMap.get(argument);
+      if(recycled != null && recycled.isComplex()) {
+        parameterTypes.add(double.class);
+        parameterTypes.add(double.class);
+        complex = true;
+      } else {
+        parameterTypes.add(argument.getClazz());
+      }
+    }
+    if(!complex) {
+      return null;
+    }
+    Class<?> returnType = overload.getReturnType();
+    if(returnType.equals(Complex.class)) {
+      parameterTypes.add(double[].class);
+      parameterTypes.add(int.class);
+      returnType = void.class;
+    }
+    Method method;
+    try {
+      method = overload.getDeclaringClass().getMethod(overload.getName() + "Unboxed",
+          parameterTypes.toArray(new Class[parameterTypes.size()]));
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+    if(!Modifier.isStatic(method.getModifiers()) || !method.getReturnType().equals(returnType)) {
+      throw new GeneratorDefinitionException(method + " must be static and return " + returnType.getName());
+    }
+    return method;
   }
 
   public void build() {
@@ -161,6 +239,10 @@ public class RecycleLoopBuilder {
 
     JClass builderClass = codeModel.ref(resultType.getBuilderClass());
     builder = parent.decl(builderClass, "builder", JExpr._new(builderClass).arg(cycleCount));
+
+    if(unboxedOverload != null && unboxedOverload.getReturnType().equals(void.class)) {
+      unboxedResult = parent.decl(codeModel.DOUBLE.array(), "unboxedResult", JExpr.newArray(codeModel.DOUBLE, 2));
+    }
   }
 
   private void loop() {
@@ -180,11 +262,11 @@ public class RecycleLoopBuilder {
       // with missing values, so we need to handle them here
       JConditional ifNA = loopBody._if(isCurrentElementMissing());
       ifNA._then().add(assignNA());
-      ifNA._else().add(assignCycleResult());
+      assignCycleResult(ifNA._else());
     } else {
       // if the implementation is marked with @DataParallel(passNA=true), then
       // we pass in the values as-is
-      loopBody.add(assignCycleResult());
+      assignCycleResult(loopBody);
     }
   }
 
@@ -211,12 +293,41 @@ public class RecycleLoopBuilder {
     return condition;
   }
 
-  private JStatement assignCycleResult() {
+  private void assignCycleResult(JBlock block) {
     // Generate the code to assign the result of the operation. 
     // For example:
     //  result.set(i, org.renjin.primitives.Ops.plus(arg0_element, arg1_element));
 
-    return builder.invoke("set").arg(cycleIndex).arg(computeCycleResult());
+    if(unboxedOverload == null) {
+      block.add(builder.invoke("set").arg(cycleIndex).arg(computeCycleResult()));
+
+    } else if(unboxedResult == null) {
+      block.add(builder.invoke("set").arg(cycleIndex).arg(computeUnboxedCycleResult()));
+
+    } else {
+      //  org.renjin.primitives.Ops.plusUnboxed(arg0_re, arg0_im, arg1_re, arg1_im, unboxedResult, 0);
+      //  result.set(i, unboxedResult[0], unboxedResult[1]);
+      block.add(computeUnboxedCycleResult().arg(unboxedResult).arg(lit(0)));
+      block.add(builder.invoke("set").arg(cycleIndex)
+          .arg(unboxedResult.component(lit(0)))
+          .arg(unboxedResult.component(lit(1))));
+    }
+  }
+
+  private JInvocation computeUnboxedCycleResult() {
+    JInvocation invocation = codeModel.ref(overload.getDeclaringClass())
+        .staticInvoke(unboxedOverload.getName());
+
+    for(JvmMethod.Argument arg : overload.getAllArguments()) {
+      RecycledArgument recycled = recycledArgumentMap.get(arg);
+      if(recycled != null && recycled.isComplex()) {
+        invocation.arg(recycled.getCurrentElementReal());
+        invocation.arg(recycled.getCurrentElementImag());
+      } else {
+        invocation.arg(argumentMap.get(arg));
+      }
+    }
+    return invocation;
   }
 
   private JStatement assignNA() {
@@ -100,6 +100,28 @@ public class WrapperRuntime {
     return (float)vector.getElementAsDouble(0);
   }
   
+  /**
+   * @return the real part of the element at {@code index} of a vector passed as a
+   * complex argument, without allocating a {@code Complex} object
+   */
+  public static double getElementAsComplexReal(Vector vector, int index) {
+    if(vector instanceof ComplexVector) {
+      return ((ComplexVector) vector).getElementAsComplexReal(index);
+    }
+    return vector.getElementAsDouble(index);
+  }
+
+  /**
+   * @return the imaginary part of the element at {@code index} of a vector passed as a
+   * complex argument, without allocating a {@code Complex} object
+   */
+  public static double getElementAsComplexImag(Vector vector, int index) {
+    if(vector instanceof ComplexVector) {
+      return ((ComplexVector) vector).getElementAsComplexImag(index);
+    }
+    return 0;
+  }
+
   private static Vector checkedSubClassAndAssertScalar(SEXP exp) {
     if(exp.length() != 1) {
       throw new ArgumentException("expected vector of length 1");
@@ -0,0 +1,118 @@
+package org.renjin.invoke.reflection;
+
+import org.renjin.sexp.ExternalPtr;
+import org.renjin.sexp.SEXP;
+
+import java.util.List;
+
+/**
+ * Remembers which overload of a {@link FunctionBinding} was selected at a single call
+ * site for each shape of arguments seen there, so that later calls with arguments of the
+ * same shape can skip overload resolution.
+ *
+ * <p>The shape of an argument is its R class, whether its length is zero, one or more,
+ * and, for external pointers, the class of the wrapped JVM object. Whether a
+ * {@link org.renjin.invoke.reflection.converters.Converter} accepts an argument depends
+ * only on its shape.</p>
+ *
+ * <p>Instances are immutable so that calls evaluated concurrently can share them.</p>
+ */
+public final class CallSiteCache {
+
+  /**
+   * The number of shapes remembered per call site; calls with other shapes fall back to
+   * overload resolution.
+   */
+  static final int MAX_SHAPES = 4;
+
+  private final FunctionBinding binding;
+  private final Shape[] shapes;
+
+  private CallSiteCache(FunctionBinding binding, Shape[] shapes) {
+    this.binding = binding;
+    this.shapes = shapes;
+  }
+
+  /**
+   * @return the overload previously selected for arguments of the same shape as {@code args},
+   * or {@code null}
+   */
+  FunctionBinding.Overload lookup(FunctionBinding binding, List<SEXP> args) {
+    if(this.binding == binding) {
+      for (Shape shape : shapes) {
+        if (shape.matches(args)) {
+          return shape.overload;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return a cache which also maps the shape of {@code args} to {@code overload}
+   */
+  static CallSiteCache extend(CallSiteCache cache, FunctionBinding binding, List<SEXP> args,
+                              FunctionBinding.Overload overload) {
+    Shape shape = new Shape(args, overload);
+    if(cache == null || cache.binding != binding) {
+      return new CallSiteCache(binding, new Shape[] { shape });
+    }
+    if(cache.shapes.length == MAX_SHAPES) {
+      return cache;
+    }
+    Shape[] shapes = new Shape[cache.shapes.length + 1];
+    System.arraycopy(cache.shapes, 0, shapes, 0, cache.shapes.length);
+    shapes[cache.shapes.length] = shape;
+    return new CallSiteCache(binding, shapes);
+  }
+
+  private static final class Shape {
+    private final Class[] classes;
+    private final Class[] instanceClasses;
+    private final byte[] lengths;
+    private final FunctionBinding.Overload overload;
+
+    Shape(List<SEXP> args, FunctionBinding.Overload overload) {
+      this.overload = overload;
+      this.classes = new Class[args.size()];
+      this.instanceClasses = new Class[args.size()];
+      this.lengths = new byte[args.size()];
+      for (int i = 0; i < classes.length; i++) {
+        SEXP arg = args.get(i);
+        classes[i] = arg.getClass();
+        instanceClasses[i] = instanceClass(arg);
+        lengths[i] = length(arg);
+      }
+    }
+
+    boolean matches(List<SEXP> args) {
+      if(args.size() != classes.length) {
+        return false;
+      }
+      for (int i = 0; i < classes.length; i++) {
+        SEXP arg = args.get(i);
+        if(arg.getClass() != classes[i] ||
+           length(arg) != lengths[i] ||
+           instanceClass(arg) != instanceClasses[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static byte length(SEXP arg) {
+      int length = arg.length();
+      return (byte) (length > 1 ? 2 : length);
+    }
+
+    private static Class instanceClass(SEXP arg) {
+      if(arg instanceof ExternalPtr) {
+        Object instance = ((ExternalPtr) arg).getInstance();
+        if(instance != null) {
+          return instance.getClass();
+        }
+      }
+      return null;
+    }
+  }
+}
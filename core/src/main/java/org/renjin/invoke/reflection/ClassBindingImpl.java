@@ -16,20 +16,25 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class ClassBindingImpl implements ClassBinding {
   
-  private static final IdentityHashMap<Class, ClassBindingImpl> TABLE = Maps.newIdentityHashMap();
+  private static final ConcurrentMap<Class, ClassBindingImpl> TABLE = new ConcurrentHashMap<>();
   
   public static ClassBindingImpl get(Class clazz) {
-    synchronized (TABLE) {
-      ClassBindingImpl binding = TABLE.get(clazz);
-      if(binding == null) {
-        binding = new ClassBindingImpl(clazz);
-        TABLE.put(clazz, binding);
+    ClassBindingImpl binding = TABLE.get(clazz);
+    if(binding == null) {
+      // Bindings are built outside of any lock: if two threads race, both build one
+      // but only the first is kept
+      binding = new ClassBindingImpl(clazz);
+      ClassBindingImpl existing = TABLE.putIfAbsent(clazz, binding);
+      if(existing != null) {
+        binding = existing;
       }
-      return binding;
     }
+    return binding;
   }
   
   private Class clazz;
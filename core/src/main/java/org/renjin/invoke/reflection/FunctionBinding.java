@@ -8,12 +8,17 @@ import org.renjin.invoke.reflection.converters.Converter;
 import org.renjin.invoke.reflection.converters.Converters;
 import org.renjin.invoke.codegen.ArgumentIterator;
 import org.renjin.sexp.Environment;
+import org.renjin.sexp.FunctionCall;
 import org.renjin.sexp.ListVector;
 import org.renjin.sexp.PairList;
 import org.renjin.sexp.SEXP;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.List;
 
 /**
@@ -58,6 +63,13 @@ public class FunctionBinding {
   public static class Overload extends AbstractOverload {
     private Method method;
     private Converter returnValueConverter;
+
+    /**
+     * The method adapted to the type {@code (Object instance, Object[] arguments)Object},
+     * or {@code null} if it could not be looked up, in which case the method is invoked
+     * through reflection.
+     */
+    private MethodHandle handle;
     
     public Overload(Method method) {
       super(method.getParameterTypes(),
@@ -70,6 +82,24 @@ public class FunctionBinding {
       // public methods on private subclasses
       // see http://download.oracle.com/javase/tutorial/reflect/member/methodTrouble.html
       this.method.setAccessible(true);
+      this.handle = adapt(method);
+    }
+
+    private static MethodHandle adapt(Method method) {
+      MethodHandle handle;
+      try {
+        handle = MethodHandles.lookup().unreflect(method).asFixedArity();
+      } catch (IllegalAccessException e) {
+        return null;
+      }
+      int argCount = method.getParameterTypes().length;
+      if(Modifier.isStatic(method.getModifiers())) {
+        handle = handle.asType(MethodType.genericMethodType(argCount));
+        handle = MethodHandles.dropArguments(handle, 0, Object.class);
+      } else {
+        handle = handle.asType(MethodType.genericMethodType(argCount + 1));
+      }
+      return handle.asSpreader(Object[].class, argCount);
     }
     
     public Class getDeclaringClass() {
@@ -82,6 +112,17 @@ public class FunctionBinding {
     
     public SEXP invoke(Context context, Object instance, List<SEXP> args) {
       Object[] converted = convertArguments(context, args);
+      if(handle != null) {
+        Object result;
+        try {
+          result = (Object) handle.invokeExact(instance, converted);
+        } catch (RuntimeException e) {
+          throw e;
+        } catch (Throwable e) {
+          throw new RuntimeException(e);
+        }
+        return returnValueConverter.convertToR(result);
+      }
       try {
         Object result = method.invoke(instance, converted);
         return returnValueConverter.convertToR(result);
@@ -123,6 +164,32 @@ public class FunctionBinding {
     return invoke(instance, context, args);
   }
 
+  /**
+   * Evaluates the arguments and invokes the overload which accepts them, remembering
+   * the overload selected for arguments of this shape at {@code call}.
+   *
+   * @param instance the JVM object instance
+   * @param context the calling context
+   * @param rho the calling environment
+   * @param call the call site
+   * @param arguments the UNEVALUATED arguments
+   */
+  public SEXP evaluateArgsAndInvoke(Object instance, Context context, Environment rho, FunctionCall call,
+                                    PairList arguments) {
+    List<SEXP> args = Lists.newArrayListWithCapacity(maxArgCount);
+    ArgumentIterator it = new ArgumentIterator(context, rho, arguments);
+    while(it.hasNext()) {
+      args.add(context.evaluate( it.next(), rho));
+    }
+    CallSiteCache cache = call.getCallSiteCache();
+    Overload overload = cache == null ? null : cache.lookup(this, args);
+    if(overload == null) {
+      overload = selectOverload(args);
+      call.setCallSiteCache(CallSiteCache.extend(cache, this, args, overload));
+    }
+    return overload.invoke(context, instance, args);
+  }
+
   /**
    *
    * @param instance the JVM object instance
@@ -135,10 +202,13 @@ public class FunctionBinding {
   }
 
   private SEXP invoke(Object instance, Context context, List<SEXP> args) {
-    // find overload
+    return selectOverload(args).invoke(context, instance, args);
+  }
+
+  private Overload selectOverload(List<SEXP> args) {
     for(Overload overload : overloads) {
       if(overload.accept(args)) {
-        return overload.invoke(context, instance, args);
+        return overload;
       }
     }
     throw new EvalException("Cannot match arguments (%s) to any JVM method overload:\n%s",
@@ -14,8 +14,8 @@ import org.renjin.sexp.SEXP;
 
 public class LazyLoadFrame {
   
-  private static final int OLD_VERSION = 1;
-  private static final int VERSION = 2;
+  static final int OLD_VERSION = 1;
+  static final int VERSION = 2;
 
   
   public static Iterable<NamedValue> load(Context context,
@@ -0,0 +1,225 @@
+package org.renjin.packaging;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Sets;
+import org.renjin.eval.Context;
+import org.renjin.primitives.io.serialization.RDataReader;
+import org.renjin.sexp.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * An immutable, session-independent copy of a lazy-load frame which can be shared
+ * by all the Sessions in a JVM.
+ *
+ * <p>Values are deserialized only once, when the snapshot is read. Values which
+ * do not refer to any environment are shared as-is between sessions. Closures defined
+ * in the snapshot's own namespace share their formals and body, and only need a new
+ * {@code Closure} bound to the session's namespace environment. All other values,
+ * such as environments or closures defined in other namespaces, are kept in serialized
+ * form and deserialized separately for each session.</p>
+ */
+public final class LazyLoadSnapshot {
+
+  private static final byte SHARED = 0;
+  private static final byte CLOSURE = 1;
+  private static final byte SERIALIZED = 2;
+  private static final byte LAZY = 3;
+  private static final byte LAZY_V1 = 4;
+
+  private final Function<String, InputStream> resourceProvider;
+  private final Symbol[] symbols;
+  private final byte[] kinds;
+  private final SEXP[] values;
+  private final byte[][] serialized;
+  private final IdentityHashMap<Symbol, Integer> index;
+
+  private LazyLoadSnapshot(Function<String, InputStream> resourceProvider, int count) {
+    this.resourceProvider = resourceProvider;
+    this.symbols = new Symbol[count];
+    this.kinds = new byte[count];
+    this.values = new SEXP[count];
+    this.serialized = new byte[count][];
+    this.index = new IdentityHashMap<>(count);
+  }
+
+  /**
+   * Reads a snapshot of a lazy-load frame.
+   *
+   * @param resourceProvider provides the frame's "environment" index and any lazily-loaded values
+   * @param namespaceName the name of the namespace to which the frame belongs, or {@code null} if
+   *                      this is the frame of the base namespace.
+   */
+  public static LazyLoadSnapshot read(Function<String, InputStream> resourceProvider,
+                                      Symbol namespaceName) throws IOException {
+
+    SnapshotReadContext readContext = new SnapshotReadContext();
+    Environment namespace = (namespaceName == null) ?
+        readContext.getBaseNamespaceEnvironment() :
+        readContext.findNamespace(namespaceName);
+
+    DataInputStream din = new DataInputStream(resourceProvider.apply("environment"));
+    try {
+      int version = din.readInt();
+      if (version != LazyLoadFrame.OLD_VERSION && version != LazyLoadFrame.VERSION) {
+        throw new IOException("Unsupported version: " + version);
+      }
+      int count = din.readInt();
+      LazyLoadSnapshot snapshot = new LazyLoadSnapshot(resourceProvider, count);
+
+      for (int i = 0; i != count; ++i) {
+        Symbol symbol = Symbol.get(din.readUTF());
+        int length = din.readInt();
+        snapshot.symbols[i] = symbol;
+        snapshot.index.put(symbol, i);
+
+        if (version == LazyLoadFrame.OLD_VERSION) {
+          snapshot.kinds[i] = LAZY_V1;
+          snapshot.serialized[i] = readBytes(din, length);
+
+        } else if (length < 0) {
+          snapshot.kinds[i] = LAZY;
+
+        } else {
+          byte[] bytes = readBytes(din, length);
+          SEXP value = new RDataReader(readContext, new ByteArrayInputStream(bytes)).readFile();
+          if (value instanceof Closure &&
+              ((Closure) value).getEnclosingEnvironment() == namespace &&
+              isClosureShareable((Closure) value)) {
+            snapshot.kinds[i] = CLOSURE;
+            snapshot.values[i] = value;
+
+          } else if (isShareable(value)) {
+            snapshot.kinds[i] = SHARED;
+            snapshot.values[i] = value;
+
+          } else {
+            snapshot.kinds[i] = SERIALIZED;
+            snapshot.serialized[i] = bytes;
+          }
+        }
+      }
+      return snapshot;
+
+    } finally {
+      din.close();
+    }
+  }
+
+  private static byte[] readBytes(DataInputStream din, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    din.readFully(bytes);
+    return bytes;
+  }
+
+  private static boolean isClosureShareable(Closure closure) {
+    return isShareable(closure.getFormals()) &&
+           isShareable(closure.getBody()) &&
+           isShareable(closure.getAttributes());
+  }
+
+  /**
+   * @return true if {@code value} cannot refer to any session's environments, either directly
+   * or through its elements or attributes.
+   */
+  private static boolean isShareable(SEXP value) {
+    if (value == Null.INSTANCE || value instanceof Symbol || value instanceof PrimitiveFunction) {
+      return true;
+    }
+    if (!isShareable(value.getAttributes())) {
+      return false;
+    }
+    if (value instanceof ListVector) {
+      for (SEXP element : (ListVector) value) {
+        if (!isShareable(element)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (value instanceof PairList.Node) {
+      for (PairList.Node node : ((PairList.Node) value).nodes()) {
+        if (!isShareable(node.getRawTag()) || !isShareable(node.getValue())) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return value instanceof AtomicVector;
+  }
+
+  private static boolean isShareable(AttributeMap attributes) {
+    for (PairList.Node node : attributes.nodes()) {
+      if (!isShareable(node.getValue())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int size() {
+    return symbols.length;
+  }
+
+  public Symbol getSymbol(int slot) {
+    return symbols[slot];
+  }
+
+  public Set<Symbol> getSymbols() {
+    Set<Symbol> set = Sets.newIdentityHashSet();
+    Collections.addAll(set, symbols);
+    return set;
+  }
+
+  /**
+   * @return the slot in which the given symbol's value is stored, or -1 if the snapshot
+   * does not contain the symbol
+   */
+  public int indexOf(Symbol symbol) {
+    Integer slot = index.get(symbol);
+    if (slot == null) {
+      return -1;
+    }
+    return slot;
+  }
+
+  /**
+   * Creates the value of the given slot for a specific session.
+   *
+   * @param slot the value's slot
+   * @param context the session's top level context
+   * @param namespaceEnvironment the session's environment for the snapshot's namespace
+   */
+  public SEXP instantiate(int slot, Context context, Environment namespaceEnvironment) {
+    switch (kinds[slot]) {
+      case SHARED:
+        return values[slot];
+
+      case CLOSURE:
+        Closure closure = (Closure) values[slot];
+        return new Closure(namespaceEnvironment, closure.getFormals(), closure.getBody(), closure.getAttributes());
+
+      case SERIALIZED:
+        try {
+          return new RDataReader(context, new ByteArrayInputStream(serialized[slot])).readFile();
+        } catch (IOException e) {
+          throw new IllegalStateException("Failed to deserialize " + symbols[slot] + " from snapshot", e);
+        }
+
+      case LAZY:
+        return new SerializedPromise(resourceProvider, symbols[slot].getPrintName());
+
+      case LAZY_V1:
+        return new SerializedPromise1(serialized[slot]);
+
+      default:
+        throw new IllegalStateException("kind: " + kinds[slot]);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package org.renjin.packaging;
+
+import com.google.common.collect.Maps;
+import org.renjin.primitives.io.serialization.ReadContext;
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.Promise;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Symbol;
+
+import java.util.Map;
+
+/**
+ * Deserializes values independently of any {@code Session}, substituting
+ * placeholder environments for the base, global and namespace environments.
+ */
+class SnapshotReadContext implements ReadContext {
+
+  private final Environment baseEnvironment = placeholder("base");
+  private final Environment baseNamespaceEnvironment = placeholder("namespace:base");
+  private final Environment globalEnvironment = placeholder("R_GlobalEnv");
+  private final Map<Symbol, Environment> namespaces = Maps.newHashMap();
+
+  private static Environment placeholder(String name) {
+    return Environment.createNamedEnvironment(Environment.EMPTY, "<snapshot:" + name + ">");
+  }
+
+  @Override
+  public Environment getBaseEnvironment() {
+    return baseEnvironment;
+  }
+
+  @Override
+  public Promise createPromise(SEXP expr, Environment environment) {
+    return Promise.repromise(environment, expr);
+  }
+
+  @Override
+  public Environment findNamespace(Symbol symbol) {
+    Environment namespace = namespaces.get(symbol);
+    if(namespace == null) {
+      namespace = placeholder("namespace:" + symbol.getPrintName());
+      namespaces.put(symbol, namespace);
+    }
+    return namespace;
+  }
+
+  @Override
+  public Environment getBaseNamespaceEnvironment() {
+    return baseNamespaceEnvironment;
+  }
+
+  @Override
+  public Environment getGlobalEnvironment() {
+    return globalEnvironment;
+  }
+}
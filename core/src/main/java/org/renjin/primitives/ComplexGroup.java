@@ -30,12 +30,41 @@ public class ComplexGroup {
     return z.abs();
   }
 
+  /**
+   * Computes the modulus as {@link Complex#abs()} does, avoiding overflow
+   */
+  public static double ModUnboxed(double real, double imaginary) {
+    if(Double.isNaN(real) || Double.isNaN(imaginary)) {
+      return Double.NaN;
+    }
+    if(Double.isInfinite(real) || Double.isInfinite(imaginary)) {
+      return Double.POSITIVE_INFINITY;
+    }
+    if(Math.abs(real) < Math.abs(imaginary)) {
+      if(imaginary == 0.0) {
+        return Math.abs(real);
+      }
+      double q = real / imaginary;
+      return Math.abs(imaginary) * Math.sqrt(1 + q * q);
+    } else {
+      if(real == 0.0) {
+        return Math.abs(imaginary);
+      }
+      double q = imaginary / real;
+      return Math.abs(real) * Math.sqrt(1 + q * q);
+    }
+  }
+
   @Builtin
   @DataParallel
   public static double Arg(Complex z){
     return z.getArgument();
   }
 
+  public static double ArgUnboxed(double real, double imaginary) {
+    return Math.atan2(imaginary, real);
+  }
+
   @Internal
   public static ComplexVector complex(int lengthOut, AtomicVector realVector, AtomicVector imaginaryVector) {
     if(realVector.length() > lengthOut) {
@@ -55,7 +84,7 @@ public class ComplexGroup {
       if(imaginaryVector.length() > 0) {
         imaginary = imaginaryVector.getElementAsDouble(i % imaginaryVector.length());
       }
-      result.add(new Complex(real, imaginary));
+      result.add(real, imaginary);
     }
     return result.build();
   }
@@ -66,15 +95,28 @@ public class ComplexGroup {
     return z.getReal();
   }
 
+  public static double ReUnboxed(double real, double imaginary) {
+    return real;
+  }
+
   @Builtin
   @DataParallel
   public static double Im(Complex z){
     return z.getImaginary();
   }
+
+  public static double ImUnboxed(double real, double imaginary) {
+    return imaginary;
+  }
   
   @Builtin
   @DataParallel
   public static Complex Conj(Complex z){
     return new Complex(z.getReal(),-1*z.getImaginary());
   }
+
+  public static void ConjUnboxed(double real, double imaginary, double[] result, int offset) {
+    result[offset] = real;
+    result[offset + 1] = -imaginary;
+  }
 }
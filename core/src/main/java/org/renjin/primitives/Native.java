@@ -2,8 +2,6 @@ package org.renjin.primitives;
 
 import com.google.common.base.Charsets;
 import com.google.common.base.Strings;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import org.renjin.base.Base;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
@@ -15,22 +13,28 @@ import org.renjin.invoke.annotations.Current;
 import org.renjin.invoke.annotations.NamedFlag;
 import org.renjin.invoke.reflection.FunctionBinding;
 import org.renjin.methods.Methods;
-import org.renjin.primitives.packaging.FqPackageName;
-import org.renjin.primitives.packaging.Namespace;
+import org.renjin.invoke.annotations.DefaultValue;
+import org.renjin.primitives.match.MatchIndexCache;
+import org.renjin.primitives.packaging.NativeSymbolTable;
 import org.renjin.sexp.*;
 
 import java.awt.*;
 import java.lang.invoke.MethodHandle;
-import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class Native {
 
   public static final boolean DEBUG = false;
 
+  /**
+   * Tables of the classes named by the CLASS argument to {@code .Fortran} and {@code .Call}
+   */
+  private static final ConcurrentMap<String, NativeSymbolTable> CLASS_TABLES = new ConcurrentHashMap<>();
+
 
   @Builtin(".C")
   public static SEXP dotC(@Current Context context,
@@ -39,7 +43,7 @@ public class Native {
                           @ArgumentList ListVector callArguments,
                           @NamedFlag("PACKAGE") String packageName,
                           @NamedFlag("NAOK") boolean naOk,
-                          @NamedFlag("DUP") boolean dup,
+                          @NamedFlag("DUP") @DefaultValue(true) boolean dup,
                           @NamedFlag("ENCODING") boolean encoding) throws IllegalAccessException {
 
     MethodHandle method;
@@ -52,15 +56,13 @@ public class Native {
         return delegateToJavaMethod(context, Base.class, methodName, callArguments);
       }
 
-      List<Method> methods = findMethod(getPackageClass(packageName, context), methodName);
-      if (methods.isEmpty()) {
+      method = getPackageSymbolTable(packageName, context).getRoutine(methodName);
+      if (method == null) {
         throw new EvalException("Can't find method %s in package %s", methodName, packageName);
       }
 
-      method = MethodHandles.publicLookup().unreflect(Iterables.getOnlyElement(methods));
-
     } else if(methodExp instanceof ExternalPtr && ((ExternalPtr) methodExp).getInstance() instanceof Method) {
-      method = MethodHandles.publicLookup().unreflect((Method) ((ExternalPtr) methodExp).getInstance());
+      method = NativeSymbolTable.unreflect((Method) ((ExternalPtr) methodExp).getInstance());
 
     } else if(methodExp instanceof ListVector) {
       ExternalPtr<MethodHandle> address = (ExternalPtr<MethodHandle>) ((ListVector)methodExp).get("address");
@@ -74,9 +76,9 @@ public class Native {
     for(int i=0;i!=nativeArguments.length;++i) {
       Type type = method.type().parameterType(i);
       if(type.equals(IntPtr.class)) {
-        nativeArguments[i] = intPtrFromVector(callArguments.get(i));
+        nativeArguments[i] = intPtrFromVector(callArguments.get(i), dup);
       } else if(type.equals(DoublePtr.class)) {
-        nativeArguments[i] = doublePtrFromVector(callArguments.get(i));
+        nativeArguments[i] = doublePtrFromVector(callArguments.get(i), dup);
       } else if(type.equals(ObjectPtr.class)) {
         nativeArguments[i] = stringPtrToCharPtrPtr(callArguments.get(i));
       } else {
@@ -86,7 +88,7 @@ public class Native {
     }
 
     try {
-      method.invokeWithArguments(nativeArguments);
+      NativeSymbolTable.getCInvoker(method).invokeExact(nativeArguments);
     } catch (EvalException | Error e) {
       throw e;
     } catch (Throwable e) {
@@ -140,7 +142,7 @@ public class Native {
     if(ptr instanceof DoublePtr) {
       return DoubleArrayVector.unsafe(((DoublePtr) ptr).array, attributes);
     } else if(ptr instanceof IntPtr) {
-      return new IntArrayVector(((IntPtr) ptr).array, attributes);
+      return IntArrayVector.unsafe(((IntPtr) ptr).array, attributes);
     } else if(ptr instanceof ObjectPtr) {
       return new NativeStringVector((ObjectPtr)ptr, attributes);
     } else {
@@ -149,22 +151,44 @@ public class Native {
   }
 
   public static DoublePtr doublePtrFromVector(SEXP sexp) {
+    return doublePtrFromVector(sexp, true);
+  }
+
+  /**
+   * @param dup if {@code false}, and {@code sexp} is an unshared vector backed by a {@code double[]}
+   *            array, then the array is passed to the routine without copying. Vectors which are
+   *            {@linkplain SEXP#isShared() shared}, such as the value of a variable, are always
+   *            copied, as GNU R has done since 3.1.0, so that other references never see the changes.
+   */
+  public static DoublePtr doublePtrFromVector(SEXP sexp, boolean dup) {
     if(!(sexp instanceof AtomicVector)) {
       throw new EvalException("expected atomic vector");
     }
+    if(!dup && sexp instanceof DoubleArrayVector && !sexp.isShared()) {
+      MatchIndexCache.INSTANCE.invalidate((Vector) sexp);
+      return new DoublePtr(((DoubleArrayVector) sexp).toDoubleArrayUnsafe());
+    }
     return new DoublePtr(((AtomicVector) sexp).toDoubleArray());
   }
 
   public static IntPtr intPtrFromVector(SEXP sexp) {
+    return intPtrFromVector(sexp, true);
+  }
+
+  /**
+   * @param dup if {@code false}, and {@code sexp} is an unshared vector backed by an {@code int[]}
+   *            array, then the array is passed to the routine without copying. Shared vectors are
+   *            always copied, see {@link #doublePtrFromVector(SEXP, boolean)}.
+   */
+  public static IntPtr intPtrFromVector(SEXP sexp, boolean dup) {
     if(!(sexp instanceof AtomicVector)) {
       throw new EvalException("expected atomic vector");
     }
-    AtomicVector vector = (AtomicVector)sexp;
-    int[] array = new int[vector.length()];
-    for(int i=0;i!=array.length;++i) {
-      array[i] = vector.getElementAsInt(i);
+    if(!dup && sexp instanceof IntArrayVector && !sexp.isShared()) {
+      MatchIndexCache.INSTANCE.invalidate((Vector) sexp);
+      return new IntPtr(((IntArrayVector) sexp).toIntArrayUnsafe(), 0);
     }
-    return new IntPtr(array, 0);
+    return new IntPtr(((AtomicVector) sexp).toIntArray(), 0);
   }
 
   /**
@@ -179,7 +203,7 @@ public class Native {
                                 @NamedFlag("PACKAGE") String packageName,
                                 @NamedFlag("CLASS") String className,
                                 @NamedFlag("NAOK") boolean naOk,
-                                @NamedFlag("DUP") boolean dup,
+                                @NamedFlag("DUP") @DefaultValue(true) boolean dup,
                                 @NamedFlag("ENCODING") boolean encoding) throws IllegalAccessException {
 
     // quick spike: fortran functions in the "base" package are all
@@ -205,7 +229,7 @@ public class Native {
     } else if(methodExp instanceof ExternalPtr && ((ExternalPtr) methodExp).getInstance() instanceof Method) {
       Method methodRef = (Method) ((ExternalPtr) methodExp).getInstance();
       methodName = methodRef.getName();
-      method =  MethodHandles.publicLookup().unreflect(methodRef);
+      method = NativeSymbolTable.unreflect(methodRef);
     } else {
       throw new EvalException("Invalid argument type for method = %s", methodExp.getTypeName());
     }
@@ -224,17 +248,17 @@ public class Native {
     
     // For .Fortran() calls, we make a copy of the arguments, pass them by
     // reference to the fortran subroutine, and then return the modified arguments
-    // as a ListVector.
+    // as a ListVector. With DUP = FALSE, arrays of unshared vectors are passed without copying.
 
     for(int i=0;i!=callArguments.length();++i) {
       AtomicVector vector = (AtomicVector) callArguments.get(i);
       if(fortranTypes[i].equals(DoublePtr.class)) {
-        double[] array = vector.toDoubleArray();
+        double[] array = doublePtrFromVector(vector, dup).array;
         fortranArgs[i] = new DoublePtr(array, 0);
         returnValues.add(callArguments.getName(i), DoubleArrayVector.unsafe(array, vector.getAttributes()));
 
       } else if(fortranTypes[i].equals(IntPtr.class)) {
-        int[] array = vector.toIntArray();
+        int[] array = intPtrFromVector(vector, dup).array;
         fortranArgs[i] = new IntPtr(array, 0);
         returnValues.add(callArguments.getName(i), IntArrayVector.unsafe(array, vector.getAttributes()));
 
@@ -249,7 +273,7 @@ public class Native {
     }
 
     try {
-      method.invokeWithArguments(fortranArgs);
+      NativeSymbolTable.getCInvoker(method).invokeExact(fortranArgs);
     } catch (Error e) {
       throw e;
     } catch (Throwable e) {
@@ -277,23 +301,22 @@ public class Native {
 
 
   private static MethodHandle findFortranMethod(String className, String methodName) throws IllegalAccessException {
-    Class<?> declaringClass = null;
+    NativeSymbolTable table;
     try {
-      declaringClass = Class.forName(className);
+      table = getClassSymbolTable(className);
     } catch (ClassNotFoundException e) {
       throw new EvalException(String.format("Could not find class named %s", className), e);
     }
+    return table.getFortranRoutine(methodName);
+  }
 
-    String mangledName = methodName.toLowerCase() + "_";
-
-    for(Method method : declaringClass.getMethods()) {
-      if(method.getName().equals(mangledName) &&
-              Modifier.isPublic(method.getModifiers()) &&
-              Modifier.isStatic(method.getModifiers())) {
-        return MethodHandles.publicLookup().unreflect(method);
-      }
+  private static NativeSymbolTable getClassSymbolTable(String className) throws ClassNotFoundException {
+    NativeSymbolTable table = CLASS_TABLES.get(className);
+    if(table == null) {
+      table = NativeSymbolTable.of(Class.forName(className));
+      CLASS_TABLES.putIfAbsent(className, table);
     }
-    throw new EvalException("Could not find method %s in class %s", methodName, className);
+    return table;
   }
 
   @Builtin(".Call")
@@ -313,19 +336,14 @@ public class Native {
                 methodHandle.type().parameterCount(),
                 callArguments.length());
       }
-      MethodHandle transformedHandle = methodHandle.asSpreader(SEXP[].class, methodHandle.type().parameterCount());
+      MethodHandle invoker = NativeSymbolTable.getCallInvoker(methodHandle);
       SEXP[] arguments = toSexpArray(callArguments);
       if(Profiler.ENABLED) {
         StringVector nameExp = (StringVector)((ListVector) methodExp).get("name");
         Profiler.functionStart(Symbol.get(nameExp.getElementAsString(0)));
       }
       try {
-        if (methodHandle.type().returnType().equals(void.class)) {
-          transformedHandle.invokeExact(arguments);
-          return Null.INSTANCE;
-        } else {
-          return (SEXP) transformedHandle.invokeExact(arguments);
-        }
+        return (SEXP) invoker.invokeExact(arguments);
       } catch (Error e) {
         throw e;
       } catch (Throwable e) {
@@ -340,11 +358,11 @@ public class Native {
 
       String methodName = ((StringVector) methodExp).getElementAsString(0);
 
-      Class clazz;
+      NativeSymbolTable table;
       if (packageName != null) {
-        clazz = getPackageClass(packageName, context);
+        table = getPackageSymbolTable(packageName, context);
       } else if (className != null) {
-        clazz = Class.forName(className);
+        table = getClassSymbolTable(className);
       } else {
         throw new EvalException("Either the PACKAGE or CLASS argument must be provided");
       }
@@ -352,7 +370,7 @@ public class Native {
         Profiler.functionStart(Symbol.get(methodName));
       }
       try {
-        return delegateToJavaMethod(context, clazz, methodName, callArguments);
+        return delegateToJavaMethod(context, table, methodName, callArguments);
       } finally {
         if(Profiler.ENABLED) {
           Profiler.functionEnd();
@@ -364,11 +382,8 @@ public class Native {
   }
 
   private static SEXP[] toSexpArray(ListVector callArguments) {
-    SEXP args[] = new SEXP[callArguments.length()];
-    for (int i = 0; i < callArguments.length(); i++) {
-      args[i] = callArguments.get(i);
-    }
-    return args;
+    // the argument list is built for this call, so its array can be passed on
+    return callArguments.toArrayUnsafe();
   }
 
   /**
@@ -381,44 +396,36 @@ public class Native {
                                           String methodName,
                                           ListVector arguments) {
 
-    List<Method> overloads = findMethod(clazz, methodName);
+    return delegateToJavaMethod(context, NativeSymbolTable.of(clazz), methodName, arguments);
+  }
+
+  private static SEXP delegateToJavaMethod(Context context,
+                                           NativeSymbolTable table,
+                                           String methodName,
+                                           ListVector arguments) {
+
+    FunctionBinding binding = table.getBinding(methodName);
 
-    if(overloads.isEmpty()) {
-      throw new EvalException("Method " + methodName + " not defined in " + clazz.getName());
+    if(binding == null) {
+      throw new EvalException("Method " + methodName + " not defined in " + table.getDeclaringClass().getName());
     }
 
-    FunctionBinding binding = new FunctionBinding(overloads);
     return binding.invoke(null, context, arguments);
   }
 
   public static List<Method> findMethod(Class packageClass, String methodName) {
-    List<Method> overloads = Lists.newArrayList();
-    for(Method method : packageClass.getMethods()) {
-      if(method.getName().equals(methodName) &&
-              (method.getModifiers() & (Modifier.STATIC | Modifier.PUBLIC)) != 0) {
-        overloads.add(method);
-      }
-    }
-    return overloads;
+    return NativeSymbolTable.of(packageClass).getOverloads(methodName);
   }
 
-  private static Class getPackageClass(String packageName, Context context) {
+  private static NativeSymbolTable getPackageSymbolTable(String packageName, Context context) {
     if(packageName == null || packageName.equals("base")) {
-      return Base.class;
+      return NativeSymbolTable.of(Base.class);
     } else if(packageName.equals("methods")) {
-      return Methods.class;
+      return NativeSymbolTable.of(Methods.class);
     } else if(packageName.equals("grDevices")) {
-      return Graphics.class;
+      return NativeSymbolTable.of(Graphics.class);
     } else {
-      Namespace namespace = context.getNamespaceRegistry().getNamespace(context, packageName);
-      FqPackageName fqname = namespace.getFullyQualifiedName();
-      String packageClassName = fqname.getGroupId()+"."+fqname.getPackageName() + "." +
-              fqname.getPackageName();
-      try {
-        return namespace.getPackage().loadClass(packageClassName);
-      } catch (ClassNotFoundException e) {
-        throw new EvalException("Could not load class '%s' from package '%s'", packageClassName, packageClassName);
-      }
+      return context.getNamespaceRegistry().getNamespace(context, packageName).getNativeSymbolTable();
     }
   }
 }
\ No newline at end of file
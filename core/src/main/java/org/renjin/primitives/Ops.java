@@ -24,6 +24,7 @@ package org.renjin.primitives;
 import org.apache.commons.math.complex.Complex;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.*;
+import org.renjin.sexp.ComplexVector;
 import org.renjin.sexp.DoubleVector;
 import org.renjin.sexp.IntVector;
 import org.renjin.sexp.Logical;
@@ -73,7 +74,12 @@ public class Ops  {
   @Builtin("+")
   @DataParallel(PreserveAttributeStyle.ALL)
   public static Complex plus(Complex x, Complex y) {
-    return x.add(y);
+    return new Complex(x.getReal() + y.getReal(), x.getImaginary() + y.getImaginary());
+  }
+
+  public static void plusUnboxed(double xr, double xi, double yr, double yi, double[] result, int offset) {
+    result[offset] = xr + yr;
+    result[offset + 1] = xi + yi;
   }
 
   @Deferrable
@@ -94,11 +100,21 @@ public class Ops  {
   public static Complex negative(Complex x) {
     return new Complex(-x.getReal(), -x.getImaginary());
   }
+
+  public static void negativeUnboxed(double xr, double xi, double[] result, int offset) {
+    result[offset] = -xr;
+    result[offset + 1] = -xi;
+  }
   
   @Builtin("-")
   @DataParallel(PreserveAttributeStyle.ALL)
   public static Complex minus(Complex x, Complex y) {
-    return x.subtract(y);
+    return new Complex(x.getReal() - y.getReal(), x.getImaginary() - y.getImaginary());
+  }
+
+  public static void minusUnboxed(double xr, double xi, double yr, double yi, double[] result, int offset) {
+    result[offset] = xr - yr;
+    result[offset + 1] = xi - yi;
   }
 
   @Deferrable
@@ -139,16 +155,17 @@ public class Ops  {
   @Builtin("/")
   @DataParallel(PreserveAttributeStyle.ALL)
   public static Complex divide(Complex dividend, Complex divisor) {
+    double[] result = new double[2];
+    divideUnboxed(dividend.getReal(), dividend.getImaginary(), divisor.getReal(), divisor.getImaginary(), result, 0);
+    return new Complex(result[0], result[1]);
+  }
+
+  public static void divideUnboxed(double a, double b, double c, double d, double[] result, int offset) {
     // LICENSE: transcribed code from GCC, which is licensed under GPL
     // libgcc2 - Translated by Tomas Kalibera
     // The Apache Commons math version does not handle edge cases
     // exactly the same as R/GCC does.
 
-    double a = dividend.getReal();
-    double b = dividend.getImaginary();
-    double c = divisor.getReal();
-    double d = divisor.getImaginary();
-
     double x;
     double y;
 
@@ -182,7 +199,8 @@ public class Ops  {
         y = 0.0 * (b * rc - a * rd);
       }
     }
-    return new Complex(x, y);
+    result[offset] = x;
+    result[offset + 1] = y;
   }
 
   
@@ -210,16 +228,17 @@ public class Ops  {
   @Builtin("*")
   @DataParallel(PreserveAttributeStyle.ALL)
   public static Complex multiply(Complex x, Complex y) {
+    double[] result = new double[2];
+    multiplyUnboxed(x.getReal(), x.getImaginary(), y.getReal(), y.getImaginary(), result, 0);
+    return new Complex(result[0], result[1]);
+  }
+
+  public static void multiplyUnboxed(double a, double b, double c, double d, double[] result, int offset) {
     // LICENSE: transcribed code from GCC, which is licensed under GPL
     // libgcc2 - Adapted by Tomas Kalibera
     // The Apache Commons math version does not handle edge cases
     // exactly the same as R/GCC does.
 
-    double a = x.getReal();
-    double b = x.getImaginary();
-    double c = y.getReal();
-    double d = y.getImaginary();
-
     double ac = a * c;
     double bd = b * d;
     double bc = b * c;
@@ -260,7 +279,8 @@ public class Ops  {
         imag = Double.POSITIVE_INFINITY * (ra * rd + rb * rc);
       }
     }
-    return new Complex(real, imag);
+    result[offset] = real;
+    result[offset + 1] = imag;
   }
 
   private static double convertNaN(double d) {
@@ -284,6 +304,10 @@ public class Ops  {
   public static boolean equalTo(Complex x, Complex y) {
     return x.equals(y);
   }
+
+  public static boolean equalToUnboxed(double xr, double xi, double yr, double yi) {
+    return ComplexVector.complexEquals(xr, xi, yr, yi);
+  }
   
   @Deferrable
   @Builtin("==")
@@ -478,12 +502,12 @@ public class Ops  {
     if(k < 0) {
       return reciprocal(power(x, -k));
     } else {
-      Complex result = new Complex(1, 0);
+      double[] result = new double[] { 1, 0 };
       while(k > 0) {
-        result = multiply(result, x);
+        multiplyUnboxed(result[0], result[1], x.getReal(), x.getImaginary(), result, 0);
         k--;
       }
-      return result;
+      return new Complex(result[0], result[1]);
     }
   }
 
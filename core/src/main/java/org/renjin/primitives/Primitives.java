@@ -15,6 +15,7 @@ import org.renjin.primitives.combine.Combine;
 import org.renjin.primitives.files.Files;
 import org.renjin.primitives.io.Cat;
 import org.renjin.primitives.io.DebianControlFiles;
+import org.renjin.primitives.io.columnar.ColumnarFiles;
 import org.renjin.primitives.io.connections.Connections;
 import org.renjin.primitives.io.serialization.Serialization;
 import org.renjin.primitives.match.Duplicates;
@@ -645,6 +646,9 @@ public class Primitives {
     f("loadFromConn2", Serialization.class, 111);
     f("serializeToConn", Serialization.class, 111);
     f("unserializeFromConn", Serialization.class, 111);
+    f("saveColumnar", ColumnarFiles.class, 111);
+    f("readColumnar", ColumnarFiles.class, 11);
+    f("isColumnarFile", ColumnarFiles.class, 11);
     f("deparse", Deparse.class, 11);
     f("deparseRd", /*deparseRd*/ null, 11);
     f("dump", /*dump*/ null, 111);
@@ -702,7 +706,7 @@ public class Primitives {
     f("is.unsorted", Sort.class, 11);
     f("psort", Sort.class, null, 11);
     f("qsort", Sort.class, 11);
-    f("radixsort", /*radixsort*/ null, 11);
+    f("radixsort", Sort.class, 11);
     f("order", Sort.class, 11);
     f("rank", Sort.class, 11);
     f("missing", Evaluation.class, "missing", 0);
@@ -740,7 +744,7 @@ public class Primitives {
     f("colMeans", Matrices.class, 11);
     f("rowSums", Matrices.class, 11);
     f("rowMeans", Matrices.class, 11);
-    f("Rprof", /*Rprof*/ null, 11);
+    f("Rprof", System.class, 11);
     f("Rprofmem", /*Rprofmem*/ null, 11);
     f("tracemem", /*memtrace*/ null, 1);
     f("retracemem", /*memretrace*/ null, 1);
@@ -929,6 +933,7 @@ public class Primitives {
     f("gzfile", Connections.class, 11);
     f("bzfile", /*gzfile*/ null, 11);
     f("xzfile", /*gzfile*/ null, 11);
+    f("lz4file", Connections.class, 11);
     f("unz", /*unz*/ null, 11);
     f("seek", /*seek*/ null, 11);
     f("truncate", /*truncate*/ null, 11);
@@ -23,6 +23,10 @@ public class S3 {
 
   public static final Set<String> GROUPS = Sets.newHashSet("Ops", "Math", "Summary");
 
+  private static final StringVector INTEGER_CLASSES = new StringArrayVector("integer", "numeric");
+
+  private static final StringVector DOUBLE_CLASSES = new StringArrayVector("double", "numeric");
+
   @Builtin
   public static SEXP UseMethod(@Current Context context, String genericMethodName) {
     /*
@@ -86,8 +90,15 @@ public class S3 {
       /*
        * Compute implicit class based on DIM attribute and type
        */
-      StringArrayVector.Builder dataClass = new StringArrayVector.Builder();
       SEXP dim = exp.getAttribute(Symbols.DIM);
+      if(dim.length() == 0) {
+        if(exp instanceof IntVector) {
+          return INTEGER_CLASSES;
+        } else if(exp instanceof DoubleVector) {
+          return DOUBLE_CLASSES;
+        }
+      }
+      StringArrayVector.Builder dataClass = new StringArrayVector.Builder();
       if(dim.length() == 2) {
         dataClass.add("matrix");
       } else if(dim.length() == 1) {
@@ -466,50 +477,94 @@ public class S3 {
     }
 
     private GenericMethod findNextOrDefault() {
-      GenericMethod next = findNext();
+      return lookup(true);
+    }
 
-      if(next != null) {
-        return next;
-      } else {
-        Environment methodTable = getMethodTable();
-        GenericMethod function = findNext(methodTable, genericMethodName, "default");
-        if(function != null) {
-          return function;
-        }
+    public GenericMethod findNext() {
+      return lookup(false);
+    }
 
-        // as a last step, we call BACK into the primitive
-        // to get the default implementation  - ~ YECK ~
-        PrimitiveFunction primitive = Primitives.getBuiltin(genericMethodName);
-        if(primitive != null) {
-          return new GenericMethod(this, Symbol.get(genericMethodName + ".default"), null, primitive);
+    /**
+     * Finds the method for the first class which has one, reusing the result of a previous
+     * search from the session's {@link S3DispatchCache} if none of the environments searched
+     * have changed since.
+     *
+     * @param orDefault true if the default method should be selected if no class has a method
+     */
+    private GenericMethod lookup(boolean orDefault) {
+      S3DispatchCache cache = context.getSession().getSingleton(S3DispatchCache.class);
+      S3DispatchCache.Key key = new S3DispatchCache.Key(genericMethodName, group, classes,
+          definitionEnvironment, callingEnvironment.getParent(), orDefault);
+
+      S3DispatchCache.Entry entry = cache.lookup(key, callingEnvironment);
+      if(entry != null) {
+        if(entry.function == null) {
+          return null;
         }
+        return new GenericMethod(this, entry.method, entry.className, entry.function);
+      }
 
-        return null;
+      List<Symbol> candidates = Lists.newArrayList();
+      GenericMethod method = search(orDefault, candidates);
+
+      // methods defined in the calling frame itself are not cached,
+      // as the frame is usually discarded when the generic returns
+      for(Symbol candidate : candidates) {
+        if(callingEnvironment.getFrame().getVariable(candidate) != Symbol.UNBOUND_VALUE) {
+          return method;
+        }
       }
+      cache.put(key, new S3DispatchCache.Entry(candidates.toArray(new Symbol[candidates.size()]),
+          callingEnvironment.getParent(), definitionEnvironment, getMethodTable(),
+          method == null ? null : method.method,
+          method == null ? null : method.className,
+          method == null ? null : method.function));
+
+      return method;
     }
 
-    public GenericMethod findNext() {
+    /**
+     * Searches the calling environment and the method table for a method for each class in turn.
+     *
+     * @param candidates the list to which the symbols looked up are added
+     */
+    private GenericMethod search(boolean orDefault, List<Symbol> candidates) {
       Environment methodTable = getMethodTable();
       GenericMethod method;
-      
+
       for(String className : classes) {
-        
-        method = findNext(methodTable, genericMethodName, className);
+
+        method = findNext(methodTable, genericMethodName, className, candidates);
         if(method != null) {
           return method;
         }
         if(group != null) {
-          method = findNext(methodTable, group, className);
+          method = findNext(methodTable, group, className, candidates);
           if(method != null) {
             return method;
           }
         }
       }
+
+      if(orDefault) {
+        method = findNext(methodTable, genericMethodName, "default", candidates);
+        if(method != null) {
+          return method;
+        }
+
+        // as a last step, we call BACK into the primitive
+        // to get the default implementation  - ~ YECK ~
+        PrimitiveFunction primitive = Primitives.getBuiltin(genericMethodName);
+        if(primitive != null) {
+          return new GenericMethod(this, Symbol.get(genericMethodName + ".default"), null, primitive);
+        }
+      }
       return null;
     }
 
-    private GenericMethod findNext(Environment methodTable, String name, String className) {
+    private GenericMethod findNext(Environment methodTable, String name, String className, List<Symbol> candidates) {
       Symbol method = Symbol.get(name + "." + className);
+      candidates.add(method);
       SEXP function = callingEnvironment.findFunction(context, method);
       if(function != null) {
         return new GenericMethod(this, method, className, (Function) function);
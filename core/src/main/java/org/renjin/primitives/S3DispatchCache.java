@@ -0,0 +1,193 @@
+package org.renjin.primitives;
+
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.Function;
+import org.renjin.sexp.Symbol;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the methods selected by S3 dispatch, so that {@code UseMethod()}, {@code NextMethod()}
+ * and dispatch from primitives do not need to search every environment for every
+ * {@code generic.class} candidate on each call.
+ *
+ * <p>Methods are cached by the generic, the class vector, the environment in which the generic
+ * was defined, and the enclosure of the calling environment. An entry is only used if none of the
+ * environments searched have been modified since the method was resolved. This is checked with
+ * the environments' modification counts. Because the calling environment is usually a new function
+ * frame, its own bindings are checked for each of the candidate methods instead.</p>
+ *
+ * <p>There is one cache per {@link org.renjin.eval.Session}, obtained through
+ * {@link org.renjin.eval.Session#getSingleton(Class)}.</p>
+ */
+public class S3DispatchCache {
+
+  private static final int MAX_ENTRIES = 2048;
+
+  private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(64, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  private long hitCount;
+  private long missCount;
+  private long invalidationCount;
+
+  /**
+   * @return the valid entry for the given key, or {@code null} if there is no entry or if it
+   * is no longer valid.
+   */
+  Entry lookup(Key key, Environment callingEnvironment) {
+    Entry entry = entries.get(key);
+    if(entry == null) {
+      missCount++;
+      return null;
+    }
+    if(!entry.isValid(callingEnvironment)) {
+      entries.remove(key);
+      invalidationCount++;
+      missCount++;
+      return null;
+    }
+    hitCount++;
+    return entry;
+  }
+
+  void put(Key key, Entry entry) {
+    entries.put(key, entry);
+  }
+
+  /**
+   * @return the number of dispatches resolved from the cache
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return the number of dispatches which had to search for the method, including
+   * those for which the cached entry was invalidated.
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return the number of cached entries discarded because an environment was modified
+   */
+  public long getInvalidationCount() {
+    return invalidationCount;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  static final class Key {
+    private final String generic;
+    private final String group;
+    private final List<String> classes;
+    private final Environment definitionEnvironment;
+    private final Environment enclosingEnvironment;
+    private final boolean orDefault;
+    private final int hashCode;
+
+    Key(String generic, String group, List<String> classes, Environment definitionEnvironment,
+        Environment enclosingEnvironment, boolean orDefault) {
+      this.generic = generic;
+      this.group = group;
+      this.classes = classes;
+      this.definitionEnvironment = definitionEnvironment;
+      this.enclosingEnvironment = enclosingEnvironment;
+      this.orDefault = orDefault;
+
+      int hash = generic.hashCode();
+      hash = 31 * hash + classes.hashCode();
+      hash = 31 * hash + java.lang.System.identityHashCode(definitionEnvironment);
+      hash = 31 * hash + java.lang.System.identityHashCode(enclosingEnvironment);
+      this.hashCode = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if(!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return hashCode == other.hashCode &&
+          orDefault == other.orDefault &&
+          definitionEnvironment == other.definitionEnvironment &&
+          enclosingEnvironment == other.enclosingEnvironment &&
+          generic.equals(other.generic) &&
+          (group == null ? other.group == null : group.equals(other.group)) &&
+          classes.equals(other.classes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * The outcome of a method search, together with the state of the environments searched.
+   */
+  static final class Entry {
+
+    /**
+     * The symbols looked up in the calling environment, in order, up to and including the
+     * selected method.
+     */
+    private final Symbol[] candidates;
+
+    private final Environment enclosingEnvironment;
+    private final int enclosingModCount;
+    private final Environment definitionEnvironment;
+    private final int definitionModCount;
+    private final Environment methodTable;
+    private final int methodTableModCount;
+
+    /**
+     * The selected method, or {@code null} if no method was found
+     */
+    final Symbol method;
+    final String className;
+    final Function function;
+
+    Entry(Symbol[] candidates, Environment enclosingEnvironment, Environment definitionEnvironment,
+          Environment methodTable, Symbol method, String className, Function function) {
+      this.candidates = candidates;
+      this.enclosingEnvironment = enclosingEnvironment;
+      this.enclosingModCount = enclosingEnvironment.getCumulativeModCount();
+      this.definitionEnvironment = definitionEnvironment;
+      this.definitionModCount = definitionEnvironment.getModCount();
+      this.methodTable = methodTable;
+      this.methodTableModCount = methodTable == null ? 0 : methodTable.getModCount();
+      this.method = method;
+      this.className = className;
+      this.function = function;
+    }
+
+    private boolean isValid(Environment callingEnvironment) {
+      if(enclosingEnvironment.getCumulativeModCount() != enclosingModCount ||
+         definitionEnvironment.getModCount() != definitionModCount ||
+         (methodTable != null && methodTable.getModCount() != methodTableModCount)) {
+        return false;
+      }
+      for(Symbol candidate : candidates) {
+        if(callingEnvironment.getFrame().getVariable(candidate) != Symbol.UNBOUND_VALUE) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -20,16 +20,14 @@
  */
 package org.renjin.primitives;
 
-import com.google.common.collect.Lists;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.*;
+import org.renjin.primitives.sort.Ordering;
 import org.renjin.sexp.*;
 
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
 
 public class Sort {
 
@@ -121,10 +119,15 @@ public class Sort {
   }
  
   @Internal
-  public static DoubleVector qsort(DoubleVector x, LogicalVector returnIndexes) {
+  public static SEXP qsort(DoubleVector x, LogicalVector returnIndexes) {
 
     if(returnIndexes.isElementTrue(0)) {
-      throw new EvalException("qsort(indexes=TRUE) not yet implemented");
+      int[] perm = Ordering.order(x, true, false);
+      double[] values = new double[perm.length];
+      for(int i=0;i!=perm.length;++i) {
+        values[i] = x.getElementAsDouble(perm[i]);
+      }
+      return sortedWithIndexes(DoubleArrayVector.unsafe(values), perm);
     }
     
     double[] values = x.toDoubleArray();
@@ -140,14 +143,19 @@ public class Sort {
   @Internal
   public static DoubleVector psort(DoubleVector x, Vector indexes) {
     // stub implementation: we just do a full sort
-    return qsort(x, LogicalVector.FALSE);
+    return (DoubleVector) qsort(x, LogicalVector.FALSE);
   }
 
   @Internal
-  public static IntVector qsort(IntVector x, LogicalVector returnIndexes) {
+  public static SEXP qsort(IntVector x, LogicalVector returnIndexes) {
 
     if(returnIndexes.isElementTrue(0)) {
-      throw new EvalException("qsort(indexes=TRUE) not yet implemented");
+      int[] perm = Ordering.order(x, true, false);
+      int[] values = new int[perm.length];
+      for(int i=0;i!=perm.length;++i) {
+        values[i] = x.getElementAsInt(perm[i]);
+      }
+      return sortedWithIndexes(IntArrayVector.unsafe(values), perm);
     }
     
     int[] values = x.toIntArray();
@@ -162,15 +170,20 @@ public class Sort {
 
   @Internal
   public static IntVector psort(IntVector x, Vector indexes) {
-    return qsort(x, LogicalVector.FALSE);
+    return (IntVector) qsort(x, LogicalVector.FALSE);
   }
 
 
   @Internal
-  public static LogicalVector qsort(LogicalVector x, boolean returnIndexes) {
+  public static SEXP qsort(LogicalVector x, boolean returnIndexes) {
 
     if(returnIndexes) {
-      throw new EvalException("qsort(indexes=TRUE) not yet implemented");
+      int[] perm = Ordering.order(x, true, false);
+      int[] values = new int[perm.length];
+      for(int i=0;i!=perm.length;++i) {
+        values[i] = x.getElementAsRawLogical(perm[i]);
+      }
+      return sortedWithIndexes(new LogicalArrayVector(values), perm);
     }
     
     int[] array = x.toIntArray();
@@ -187,7 +200,25 @@ public class Sort {
   
   @Internal
   public static LogicalVector psort(LogicalVector x, Vector indexes) {
-    return qsort(x, false);
+    return (LogicalVector) qsort(x, false);
+  }
+
+  /**
+   * Builds the result of {@code qsort(x, index.return=TRUE)}: a list containing 
+   * the sorted values {@code x} and the one-based permutation {@code ix} 
+   */
+  private static ListVector sortedWithIndexes(Vector sorted, int[] perm) {
+    ListVector.NamedBuilder result = ListVector.newNamedBuilder();
+    result.add("x", sorted);
+    result.add("ix", oneBased(perm));
+    return result.build();
+  }
+
+  private static IntVector oneBased(int[] perm) {
+    for(int i=0;i!=perm.length;++i) {
+      perm[i]++;
+    }
+    return IntArrayVector.unsafe(perm);
   }
 
   private static void reverse(int[] b) {
@@ -230,56 +261,21 @@ public class Sort {
       }
     }
 
-    List<Integer> ordering = Lists.newArrayListWithCapacity(numRows);
-    for (int i = 0; i != numRows; ++i) {
-      ordering.add(i);
+    AtomicVector[] keys = new AtomicVector[columns.length()];
+    for (int i = 0; i != columns.length(); ++i) {
+      keys[i] = (AtomicVector) columns.getElementAsSEXP(i);
     }
 
-    Collections.sort(ordering, new Comparator<Integer>() {
-
-      @Override
-      public int compare(Integer row1, Integer row2) {
-        int col = 0;
-        int rel;
-        while ((rel = compare(row1, row2, col)) == 0) {
-          col++;
-          if (col == columns.length()) {
-            return 0;
-          }
-        }
-        return rel;
-      }
-
-      private int compare(Integer row1, Integer row2, int col) {
-        AtomicVector column = (AtomicVector) columns.get(col);
-        boolean na1 = column.isElementNA(row1);
-        boolean na2 = column.isElementNA(row2);
-        if(na1 && na2) {
-          // Both values are NA, consider equal
-          return 0;
-        } else if(na1) {
-          // NA <-> 42
-          return naLast ? +1 : -1;
-        } else if(na2) {
-          // 42 <-> NA
-          return naLast ? -1 : +1;
-        } else {
-          // 42 <-> 41
-          return decreasing ?
-              -column.compare(row1, row2) :
-              +column.compare(row1, row2);
-        }
-      }
-
-    });
-
-    IntArrayVector.Builder result = new IntArrayVector.Builder();
-    for (Integer index : ordering) {
-      result.add(index + 1);
-    }
+    return oneBased(Ordering.order(keys, naLast, decreasing));
+  }
 
-    return result.build();
-  }   
+  /**
+   * Returns the permutation which orders an integer vector, using a radix sort.
+   */
+  @Internal
+  public static IntVector radixsort(IntVector x, boolean naLast, boolean decreasing) {
+    return oneBased(Ordering.order(x, naLast, decreasing));
+  }
 
   @Internal("which.min")
   public static IntVector whichMin(Vector v) {
@@ -331,42 +327,20 @@ public class Sort {
   @Internal
   public static Vector rank(final AtomicVector input, String tiesMethod) {
 
-    boolean decreasing = false;
-
-    AtomicVector sortedInput;
-
-    String typeVector = input.getTypeName();
-    switch (typeVector){
-      case "character":
-        StringVector inputStringVector = ((StringVector) input.setAttributes(AttributeMap.EMPTY));
-        sortedInput = ((AtomicVector) sort(inputStringVector, decreasing));
-        break;
-      case "double":
-        DoubleVector inputDoubleVector = ((DoubleVector) input.setAttributes(AttributeMap.EMPTY));
-        sortedInput = ((AtomicVector) sort(inputDoubleVector, decreasing));
-        break;
-      default:
-        IntVector inputIntVector = ((IntVector) input.setAttributes(AttributeMap.EMPTY));
-        sortedInput = ((AtomicVector) sort(inputIntVector, decreasing));
-        break;
-    }
-
-
-
+    int[] perm = Ordering.order(input, true, false);
 
     switch(tiesMethod.toUpperCase()){
       case "MIN":
-        return rankMin(input, sortedInput);
+        return rankMin(input, perm);
 
       case "MAX":
-        return rankMax(input, sortedInput);
+        return rankMax(input, perm);
 
       case "AVERAGE":
-        return rankAverage(input, sortedInput);
+        return rankAverage(input, perm);
 
       case "FIRST":
-        throw new EvalException("ties.method=first not implemented");
-
+        return rankFirst(perm);
 
       case "RANDOM":
         throw new EvalException("ties.method=random not implemented");
@@ -379,43 +353,72 @@ public class Sort {
 
   }
 
-  private static Vector rankAverage(AtomicVector input, AtomicVector sortedInput) {
-    DoubleArrayVector.Builder ranks = new DoubleArrayVector.Builder();
-    for ( int i=0; i < sortedInput.length(); i++ ) {
-      int minRank = sortedInput.indexOf(input, i, 0);
-      int maxRank = minRank;
-      while ( maxRank+1 < sortedInput.length() &&
-              sortedInput.compare(minRank, maxRank+1) == 0) {
-        maxRank++;
-      }
+  /**
+   * @return the index in {@code perm} of the last element which is tied with {@code perm[start]}
+   */
+  private static int endOfTies(AtomicVector input, int[] perm, int start) {
+    int end = start;
+    while(end + 1 < perm.length && isTie(input, perm[start], perm[end + 1])) {
+      end++;
+    }
+    return end;
+  }
 
-      double average = (((double) minRank) + ((double) maxRank)) / 2d;
-      ranks.add(average + 1);
+  private static boolean isTie(AtomicVector input, int index1, int index2) {
+    if(input instanceof DoubleVector) {
+      // compare numerically so that -0 and 0 are tied
+      return input.getElementAsDouble(index1) == input.getElementAsDouble(index2);
+    } else {
+      return input.compare(index1, index2) == 0;
     }
-    return ranks.build();
   }
 
-  private static Vector rankMax(AtomicVector input, AtomicVector sortedInput) {
-    IntArrayVector.Builder ranks = new IntArrayVector.Builder();
-    for ( int i=0; i < sortedInput.length(); i++ ) {
-      int minRank = sortedInput.indexOf(input, i, 0);
-      int maxRank = minRank;
-      while ( maxRank+1 < sortedInput.length() &&
-              sortedInput.compare(minRank, maxRank+1) == 0) {
-        maxRank++;
+  private static Vector rankAverage(AtomicVector input, int[] perm) {
+    double[] ranks = new double[perm.length];
+    int start = 0;
+    while(start < perm.length) {
+      int end = endOfTies(input, perm, start);
+      double average = (((double) start) + ((double) end)) / 2d + 1;
+      for(int i=start;i<=end;++i) {
+        ranks[perm[i]] = average;
       }
-      ranks.add(maxRank + 1);
+      start = end + 1;
     }
-    return ranks.build();
+    return DoubleArrayVector.unsafe(ranks);
   }
 
-  private static Vector rankMin(AtomicVector input, AtomicVector sortedInput) {
-    IntArrayVector.Builder ranks = new IntArrayVector.Builder();
+  private static Vector rankMax(AtomicVector input, int[] perm) {
+    int[] ranks = new int[perm.length];
+    int start = 0;
+    while(start < perm.length) {
+      int end = endOfTies(input, perm, start);
+      for(int i=start;i<=end;++i) {
+        ranks[perm[i]] = end + 1;
+      }
+      start = end + 1;
+    }
+    return IntArrayVector.unsafe(ranks);
+  }
+
+  private static Vector rankMin(AtomicVector input, int[] perm) {
+    int[] ranks = new int[perm.length];
+    int start = 0;
+    while(start < perm.length) {
+      int end = endOfTies(input, perm, start);
+      for(int i=start;i<=end;++i) {
+        ranks[perm[i]] = start + 1;
+      }
+      start = end + 1;
+    }
+    return IntArrayVector.unsafe(ranks);
+  }
 
-    for (int i=0; i < sortedInput.length(); i++) {
-      ranks.add( sortedInput.indexOf( input, i, 0 ) + 1 );
+  private static Vector rankFirst(int[] perm) {
+    int[] ranks = new int[perm.length];
+    for(int i=0;i!=perm.length;++i) {
+      ranks[perm[i]] = i + 1;
     }
-    return ranks.build();
+    return IntArrayVector.unsafe(ranks);
   }
 
   @Builtin
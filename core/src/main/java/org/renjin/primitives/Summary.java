@@ -26,8 +26,7 @@ import org.apache.commons.math.complex.Complex;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.*;
-import org.renjin.primitives.summary.DeferredMean;
-import org.renjin.primitives.summary.DeferredSum;
+import org.renjin.primitives.summary.*;
 import org.renjin.primitives.vector.DeferredComputation;
 import org.renjin.sexp.*;
 
@@ -46,6 +45,10 @@ public class Summary {
   public static SEXP min(@ArgumentList ListVector arguments,
                          @NamedFlag("na.rm") boolean removeNA) {
 
+    if(isDeferredSummary(arguments, removeNA) && arguments.get(0) instanceof DoubleVector) {
+      return new DeferredMin((Vector) arguments.get(0), AttributeMap.EMPTY);
+    }
+
     try {
       return new RangeCalculator()
               .setRemoveNA(removeNA)
@@ -61,6 +64,10 @@ public class Summary {
   public static SEXP max(@ArgumentList ListVector arguments,
                          @NamedFlag("na.rm") boolean removeNA) {
 
+    if(isDeferredSummary(arguments, removeNA) && arguments.get(0) instanceof DoubleVector) {
+      return new DeferredMax((Vector) arguments.get(0), AttributeMap.EMPTY);
+    }
+
     try {
       return new RangeCalculator()
               .setRemoveNA(removeNA)
@@ -104,6 +111,20 @@ public class Summary {
     }
   }
 
+  /**
+   * @return true if the summary of {@code arguments} can be deferred so that it can
+   * be computed together with the deferred computation which it summarizes.
+   */
+  private static boolean isDeferredSummary(ListVector arguments, boolean removeNA) {
+    if(arguments.length() != 1 || removeNA) {
+      return false;
+    }
+    SEXP argument = arguments.get(0);
+    return argument instanceof DeferredComputation &&
+        !((DeferredComputation) argument).isConstantAccessTime() &&
+        argument.length() > 0;
+  }
+
   private static class RangeContainsNA extends Exception {  }
 
   private static class RangeCalculator {
@@ -338,9 +359,16 @@ public class Summary {
    */
   @Builtin
   @GroupGeneric
-  public static Logical any(@ArgumentList ListVector arguments,
-                            @NamedFlag("na.rm") boolean removeNA) {
+  public static SEXP any(@ArgumentList ListVector arguments,
+                         @NamedFlag("na.rm") boolean removeNA) {
 
+    if(isDeferredSummary(arguments, removeNA) && isLogicalOrDouble(arguments.get(0))) {
+      return new DeferredAny((Vector) arguments.get(0), AttributeMap.EMPTY);
+    }
+    return new LogicalArrayVector(anyOf(arguments, removeNA));
+  }
+
+  private static Logical anyOf(ListVector arguments, boolean removeNA) {
     for(SEXP argument : arguments) {
       Vector vector = (Vector) argument;
       for(int i=0;i!=vector.length();++i) {
@@ -370,9 +398,20 @@ public class Summary {
    */
   @Builtin
   @GroupGeneric
-  public static Logical all(@ArgumentList ListVector arguments,
-                            @NamedFlag("na.rm") boolean removeNA) {
+  public static SEXP all(@ArgumentList ListVector arguments,
+                         @NamedFlag("na.rm") boolean removeNA) {
+
+    if(isDeferredSummary(arguments, removeNA) && isLogicalOrDouble(arguments.get(0))) {
+      return new DeferredAll((Vector) arguments.get(0), AttributeMap.EMPTY);
+    }
+    return new LogicalArrayVector(allOf(arguments, removeNA));
+  }
+
+  private static boolean isLogicalOrDouble(SEXP argument) {
+    return argument instanceof LogicalVector || argument instanceof DoubleVector;
+  }
 
+  private static Logical allOf(ListVector arguments, boolean removeNA) {
     for(SEXP argument : arguments) {
       Vector vector = (Vector) argument;
       for(int i=0;i!=vector.length();++i) {
@@ -22,6 +22,7 @@
 package org.renjin.primitives;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.provider.local.LocalFile;
@@ -29,11 +30,16 @@ import org.renjin.RVersion;
 import org.renjin.RenjinVersion;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
+import org.renjin.eval.SamplingProfiler;
+import org.renjin.eval.Session;
 import org.renjin.invoke.annotations.*;
 import org.renjin.sexp.*;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
 import java.lang.management.ThreadMXBean;
@@ -274,6 +280,33 @@ public class System {
     }
   }
 
+  /**
+   * Starts sampling the session's call stack every {@code interval} seconds, writing the
+   * samples to {@code filename}, or stops profiling if {@code filename} is empty.
+   *
+   * <p>GC and line profiling are not supported and are ignored.</p>
+   */
+  @Invisible
+  @Internal
+  public static void Rprof(@Current Context context, String filename, boolean append, double interval,
+                           boolean memoryProfiling, boolean gcProfiling, boolean lineProfiling,
+                           int numFiles, int bufferSize) throws IOException {
+    Session session = context.getSession();
+    if(filename.isEmpty()) {
+      session.stopProfiling();
+      return;
+    }
+    if(!(interval > 0)) {
+      throw new EvalException("invalid 'interval' argument: %s", interval);
+    }
+    FileObject file = context.resolveFile(filename);
+    Writer output = new BufferedWriter(new OutputStreamWriter(file.getContent().getOutputStream(append), Charsets.UTF_8));
+
+    SamplingProfiler profiler = new SamplingProfiler(Math.round(interval * 1e6), TimeUnit.MICROSECONDS, memoryProfiling);
+    profiler.setRprofOutput(output);
+    session.startProfiling(profiler);
+  }
+
   @Internal
   public static DoubleVector gc(@Current Context context, boolean verbose, boolean reset) {
     // Ask the JVM nicely to run garbage collection
@@ -7,6 +7,7 @@ import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.*;
 import org.renjin.invoke.reflection.converters.*;
+import org.renjin.primitives.match.DeferredWhich;
 import org.renjin.primitives.sequence.RepDoubleVector;
 import org.renjin.primitives.vector.ConvertingDoubleVector;
 import org.renjin.primitives.vector.ConvertingStringVector;
@@ -55,7 +56,10 @@ public class Vectors {
 
   @Generic
   @Builtin
-  public static int length(SEXP exp) {
+  public static int length(@Current Context context, SEXP exp) {
+    if(exp instanceof DeferredWhich) {
+      return ((DeferredWhich) exp).length(context);
+    }
     return exp.length();
   }
 
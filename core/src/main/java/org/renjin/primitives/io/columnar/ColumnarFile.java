@@ -0,0 +1,297 @@
+package org.renjin.primitives.io.columnar;
+
+import org.renjin.primitives.vector.RowNamesVector;
+import org.renjin.sexp.*;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import static org.renjin.primitives.io.columnar.ColumnarFormat.*;
+
+/**
+ * Reads a file in the columnar format described by {@link ColumnarFormat}.
+ *
+ * <p>Opening a file reads only its footer. Columns are memory-mapped when they are requested
+ * and returned as vectors which read the mapping directly, so that only the pages of the
+ * file which are actually accessed are read from disk. Vectors remain valid after the file
+ * is closed.</p>
+ */
+public final class ColumnarFile implements Closeable {
+
+  private final RandomAccessFile file;
+  private final FileChannel channel;
+  private final int rowCount;
+  private final Column[] columns;
+  private final Column rowNames;
+
+  private ColumnarFile(RandomAccessFile file) throws IOException {
+    this.file = file;
+    this.channel = file.getChannel();
+
+    long size = channel.size();
+    if(size < MAGIC.length + TRAILER_SIZE || !hasMagic(channel, 0) || !hasMagic(channel, size - MAGIC.length)) {
+      throw new IOException("Not a columnar file");
+    }
+    long footerOffset = read(size - TRAILER_SIZE, 8).getLong();
+    if(footerOffset < MAGIC.length || footerOffset > size - TRAILER_SIZE) {
+      throw new IOException("Corrupt columnar file");
+    }
+    ByteBuffer footer = read(footerOffset, (int) (size - TRAILER_SIZE - footerOffset));
+    rowCount = footer.getInt();
+    columns = new Column[footer.getInt()];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = new Column(footer);
+    }
+    rowNames = footer.get() != 0 ? new Column(footer) : null;
+  }
+
+  public static ColumnarFile open(File file) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      return new ColumnarFile(randomAccessFile);
+    } catch (IOException | RuntimeException e) {
+      randomAccessFile.close();
+      throw e;
+    }
+  }
+
+  /**
+   * @return true if {@code file} starts with the magic number of the columnar format
+   */
+  public static boolean isColumnarFile(File file) throws IOException {
+    if(!file.isFile()) {
+      return false;
+    }
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      return randomAccessFile.length() >= MAGIC.length && hasMagic(randomAccessFile.getChannel(), 0);
+    } finally {
+      randomAccessFile.close();
+    }
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  public String getColumnName(int index) {
+    return columns[index].name;
+  }
+
+  /**
+   * @return the index of the column named {@code name}, or -1
+   */
+  public int getColumnIndex(String name) {
+    for (int i = 0; i < columns.length; i++) {
+      if(columns[i].name.equals(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return a view of rows {@code [fromRow, fromRow + count)} of the column at {@code index}
+   */
+  public Vector getColumn(int index, int fromRow, int count) throws IOException {
+    return map(columns[index], fromRow, count);
+  }
+
+  /**
+   * Reads rows {@code [fromRow, fromRow + count)} of the given columns as a data frame.
+   */
+  public ListVector readDataFrame(int[] columnIndexes, int fromRow, int count) throws IOException {
+    ListVector.NamedBuilder dataFrame = new ListVector.NamedBuilder();
+    for (int index : columnIndexes) {
+      dataFrame.add(columns[index].name, getColumn(index, fromRow, count));
+    }
+    dataFrame.setAttribute(Symbols.CLASS, StringVector.valueOf("data.frame"));
+    dataFrame.setAttribute(Symbols.ROW_NAMES, readRowNames(fromRow, count));
+    return dataFrame.build();
+  }
+
+  /**
+   * Reads the given rows, numbered from zero, of the given columns as a data frame. Only the
+   * pages of the file holding those rows are read.
+   */
+  public ListVector readDataFrame(int[] columnIndexes, int[] rows) throws IOException {
+    if(isRange(rows)) {
+      return readDataFrame(columnIndexes, rows.length == 0 ? 0 : rows[0], rows.length);
+    }
+    for (int row : rows) {
+      if(row < 0 || row >= rowCount) {
+        throw new IndexOutOfBoundsException("row " + (row + 1) + " of " + rowCount);
+      }
+    }
+    ListVector.NamedBuilder dataFrame = new ListVector.NamedBuilder();
+    for (int index : columnIndexes) {
+      dataFrame.add(columns[index].name, select(getColumn(index, 0, rowCount), rows));
+    }
+    dataFrame.setAttribute(Symbols.CLASS, StringVector.valueOf("data.frame"));
+    if(rowNames != null) {
+      dataFrame.setAttribute(Symbols.ROW_NAMES, select(map(rowNames, 0, rowCount), rows));
+    } else {
+      int[] numbers = new int[rows.length];
+      for (int i = 0; i < rows.length; i++) {
+        numbers[i] = rows[i] + 1;
+      }
+      dataFrame.setAttribute(Symbols.ROW_NAMES, new IntArrayVector(numbers));
+    }
+    return dataFrame.build();
+  }
+
+  private static boolean isRange(int[] rows) {
+    for (int i = 1; i < rows.length; i++) {
+      if(rows[i] != rows[0] + i) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Vector select(Vector column, int[] rows) {
+    Vector.Builder selected = column.newBuilderWithInitialCapacity(rows.length);
+    for (int row : rows) {
+      selected.addFrom(column, row);
+    }
+    selected.copyAttributesFrom(column);
+    return selected.build();
+  }
+
+  private Vector readRowNames(int fromRow, int count) throws IOException {
+    if(rowNames != null) {
+      return map(rowNames, fromRow, count);
+    } else if(fromRow == 0) {
+      return new RowNamesVector(count);
+    } else {
+      int[] rows = new int[count];
+      for (int i = 0; i < count; i++) {
+        rows[i] = fromRow + i + 1;
+      }
+      return new IntArrayVector(rows);
+    }
+  }
+
+  private Vector map(Column column, int fromRow, int count) throws IOException {
+    if(fromRow < 0 || count < 0 || fromRow + count > rowCount) {
+      throw new IndexOutOfBoundsException("rows " + fromRow + "-" + (fromRow + count) + " of " + rowCount);
+    }
+    int width = column.type == DOUBLE ? 8 : 4;
+    ByteBuffer data = map(column.dataOffset + (long) fromRow * width, (long) count * width);
+    AttributeMap attributes = column.attributes();
+    switch (column.type) {
+      case DOUBLE:
+        return new DoubleBufferVector(data.asDoubleBuffer(), count, attributes);
+      case INTEGER:
+        return new IntBufferVector(data.asIntBuffer(), count, attributes);
+      case LOGICAL:
+        return new LogicalBufferVector(data.asIntBuffer(), count, attributes);
+      case STRING:
+        return new DictionaryStringVector(data.asIntBuffer(), count, dictionary(column), attributes);
+      default:
+        throw new IOException("Unknown column type " + column.type);
+    }
+  }
+
+  private DictionaryStringVector.Dictionary dictionary(Column column) throws IOException {
+    if(column.dictionary == null) {
+      ByteBuffer offsets = map(column.dictionaryOffset, (column.dictionarySize + 1) * 4L);
+      int byteCount = offsets.getInt(column.dictionarySize * 4);
+      ByteBuffer bytes = map(column.dictionaryOffset + (column.dictionarySize + 1) * 4L, byteCount);
+      column.dictionary = new DictionaryStringVector.Dictionary(offsets.asIntBuffer(), bytes, column.dictionarySize);
+    }
+    return column.dictionary;
+  }
+
+  private ByteBuffer map(long offset, long length) throws IOException {
+    if(length > Integer.MAX_VALUE) {
+      throw new IOException("Cannot map more than 2GB of a column at once");
+    }
+    return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private ByteBuffer read(long offset, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    while(buffer.hasRemaining()) {
+      if(channel.read(buffer, offset + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of columnar file");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private static boolean hasMagic(FileChannel channel, long offset) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(MAGIC.length);
+    while(buffer.hasRemaining()) {
+      if(channel.read(buffer, offset + buffer.position()) < 0) {
+        return false;
+      }
+    }
+    return Arrays.equals(buffer.array(), MAGIC);
+  }
+
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+
+  private static class Column {
+    private final String name;
+    private final byte type;
+    private final long dataOffset;
+    private final long dictionaryOffset;
+    private final int dictionarySize;
+    private final String[] levels;
+    private final String[] classes;
+    private DictionaryStringVector.Dictionary dictionary;
+
+    Column(ByteBuffer footer) {
+      name = readString(footer);
+      type = footer.get();
+      dataOffset = footer.getLong();
+      dictionaryOffset = footer.getLong();
+      dictionarySize = footer.getInt();
+      levels = readStrings(footer);
+      classes = readStrings(footer);
+    }
+
+    AttributeMap attributes() {
+      if(levels.length == 0 && classes.length == 0) {
+        return AttributeMap.EMPTY;
+      }
+      AttributeMap.Builder attributes = AttributeMap.builder();
+      if(levels.length > 0) {
+        attributes.set(Symbols.LEVELS, new StringArrayVector(levels));
+      }
+      if(classes.length > 0) {
+        attributes.set(Symbols.CLASS, new StringArrayVector(classes));
+      }
+      return attributes.build();
+    }
+
+    private static String[] readStrings(ByteBuffer footer) {
+      String[] strings = new String[footer.getInt()];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = readString(footer);
+      }
+      return strings;
+    }
+
+    private static String readString(ByteBuffer footer) {
+      byte[] bytes = new byte[footer.getInt()];
+      footer.get(bytes);
+      return new String(bytes, UTF8);
+    }
+  }
+}
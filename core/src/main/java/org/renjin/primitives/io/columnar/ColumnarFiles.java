@@ -0,0 +1,100 @@
+package org.renjin.primitives.io.columnar;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.provider.local.LocalFile;
+import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
+import org.renjin.invoke.annotations.Current;
+import org.renjin.invoke.annotations.Internal;
+import org.renjin.sexp.*;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Builtins which write data frames to, and read them from, files in the columnar format.
+ *
+ * <p>{@code readRDS()} also recognizes columnar files, so that code which reads a data
+ * frame and then filters it only reads the columns and pages that it uses.</p>
+ */
+public class ColumnarFiles {
+
+  private ColumnarFiles() { }
+
+  @Internal
+  public static void saveColumnar(@Current Context context, ListVector dataFrame, String path) throws IOException {
+    ColumnarWriter.write(dataFrame, localFile(context, path));
+  }
+
+  /**
+   * @param columns the names or indexes of the columns to read, or {@code NULL} for all
+   * @param rows the indexes of the rows to read, or {@code NULL} for all. A range of
+   *             consecutive rows is read without copying.
+   */
+  @Internal
+  public static ListVector readColumnar(@Current Context context, String path, SEXP columns, SEXP rows)
+      throws IOException {
+    ColumnarFile file = ColumnarFile.open(localFile(context, path));
+    try {
+      int[] columnIndexes = columnIndexes(file, columns);
+      if(rows == Null.INSTANCE) {
+        return file.readDataFrame(columnIndexes, 0, file.getRowCount());
+      }
+      if(!(rows instanceof AtomicVector)) {
+        throw new EvalException("invalid 'rows' argument");
+      }
+      int[] rowIndexes = new int[rows.length()];
+      for (int i = 0; i < rowIndexes.length; i++) {
+        int row = ((AtomicVector) rows).getElementAsInt(i);
+        if(row < 1 || row > file.getRowCount()) {
+          throw new EvalException("row %d is out of range: the file has %d rows",
+              row == IntVector.NA ? null : row, file.getRowCount());
+        }
+        rowIndexes[i] = row - 1;
+      }
+      return file.readDataFrame(columnIndexes, rowIndexes);
+    } finally {
+      file.close();
+    }
+  }
+
+  @Internal
+  public static boolean isColumnarFile(@Current Context context, String path) throws IOException {
+    FileObject file = context.resolveFile(path);
+    return file instanceof LocalFile && ColumnarFile.isColumnarFile(new File(file.getURL().getFile()));
+  }
+
+  private static int[] columnIndexes(ColumnarFile file, SEXP columns) {
+    if(columns == Null.INSTANCE) {
+      int[] indexes = new int[file.getColumnCount()];
+      for (int i = 0; i < indexes.length; i++) {
+        indexes[i] = i;
+      }
+      return indexes;
+    }
+    int[] indexes = new int[columns.length()];
+    for (int i = 0; i < indexes.length; i++) {
+      int index;
+      if(columns instanceof StringVector) {
+        index = file.getColumnIndex(((StringVector) columns).getElementAsString(i));
+      } else if(columns instanceof AtomicVector) {
+        index = ((AtomicVector) columns).getElementAsInt(i) - 1;
+      } else {
+        throw new EvalException("invalid 'columns' argument");
+      }
+      if(index < 0 || index >= file.getColumnCount()) {
+        throw new EvalException("undefined columns selected");
+      }
+      indexes[i] = index;
+    }
+    return indexes;
+  }
+
+  private static File localFile(Context context, String path) throws IOException {
+    FileObject file = context.resolveFile(path);
+    if(!(file instanceof LocalFile)) {
+      throw new EvalException("columnar files must be on the local file system: %s", path);
+    }
+    return new File(file.getURL().getFile());
+  }
+}
@@ -0,0 +1,46 @@
+package org.renjin.primitives.io.columnar;
+
+import java.nio.charset.Charset;
+
+/**
+ * Constants of the columnar file format.
+ *
+ * <p>A file begins with the eight-byte {@link #MAGIC}, followed by the data of each column,
+ * each starting at an offset which is a multiple of eight bytes. All numbers are
+ * little-endian.</p>
+ *
+ * <ul>
+ *   <li>Double columns are stored as {@code double}s.</li>
+ *   <li>Integer and logical columns, including the codes of factors, are stored as
+ *   {@code int}s, with {@code NA} stored as R stores it in memory.</li>
+ *   <li>Character columns are stored as an {@code int} code per row, indexing a dictionary of the
+ *   distinct strings, or -1 for {@code NA}. The dictionary follows, as {@code n + 1} {@code int}
+ *   offsets of each string into the UTF-8 bytes of all strings, and then those bytes.</li>
+ * </ul>
+ *
+ * <p>The footer follows the columns: the number of rows and columns, and then for each column
+ * its name, type, data offset, dictionary offset and size for character columns, its
+ * {@code levels} attribute and its {@code class} attribute. A final flag and column hold the
+ * row names if they are not the automatic {@code 1:n}. The file ends with the offset of
+ * the footer and the magic number again.</p>
+ */
+final class ColumnarFormat {
+
+  static final byte[] MAGIC = { 'R', 'N', 'J', 'C', 'O', 'L', '0', '1' };
+
+  static final byte DOUBLE = 1;
+  static final byte INTEGER = 2;
+  static final byte LOGICAL = 3;
+  static final byte STRING = 4;
+
+  static final int NA_CODE = -1;
+
+  /**
+   * The length of the offset of the footer and the closing magic number
+   */
+  static final int TRAILER_SIZE = 8 + 8;
+
+  static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private ColumnarFormat() { }
+}
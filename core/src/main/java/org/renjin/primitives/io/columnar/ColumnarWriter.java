@@ -0,0 +1,281 @@
+package org.renjin.primitives.io.columnar;
+
+import org.renjin.eval.EvalException;
+import org.renjin.primitives.vector.RowNamesVector;
+import org.renjin.sexp.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.renjin.primitives.io.columnar.ColumnarFormat.*;
+
+/**
+ * Writes a data frame in the columnar format described by {@link ColumnarFormat}.
+ *
+ * <p>Columns may be double, integer, logical or character vectors, or factors. Of their
+ * attributes only {@code class} and {@code levels} are kept.</p>
+ */
+public class ColumnarWriter {
+
+  private static final int BUFFER_SIZE = 1024 * 1024;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+  private long position;
+
+  private ColumnarWriter(FileChannel channel) {
+    this.channel = channel;
+  }
+
+  public static void write(ListVector dataFrame, File file) throws IOException {
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      new ColumnarWriter(out.getChannel()).writeDataFrame(dataFrame);
+    } finally {
+      out.close();
+    }
+  }
+
+  private void writeDataFrame(ListVector dataFrame) throws IOException {
+    int rowCount = rowCount(dataFrame);
+    Vector rowNames = storedRowNames(dataFrame, rowCount);
+
+    putBytes(MAGIC);
+    ColumnEntry[] entries = new ColumnEntry[dataFrame.length()];
+    for (int i = 0; i < dataFrame.length(); i++) {
+      String name = dataFrame.getName(i);
+      SEXP column = dataFrame.getElementAsSEXP(i);
+      if(!(column instanceof Vector) || column.length() != rowCount) {
+        throw new EvalException("column '%s' does not have %d rows", name, rowCount);
+      }
+      entries[i] = writeColumn(name, (Vector) column);
+    }
+    ColumnEntry rowNamesEntry = null;
+    if(rowNames != null) {
+      rowNamesEntry = writeColumn("row.names", rowNames);
+    }
+
+    long footerOffset = offset();
+    ensureRemaining(8);
+    buffer.putInt(rowCount);
+    buffer.putInt(entries.length);
+    for (ColumnEntry entry : entries) {
+      writeEntry(entry);
+    }
+    ensureRemaining(1);
+    buffer.put((byte) (rowNamesEntry == null ? 0 : 1));
+    if(rowNamesEntry != null) {
+      writeEntry(rowNamesEntry);
+    }
+    ensureRemaining(8);
+    buffer.putLong(footerOffset);
+    putBytes(MAGIC);
+    flushBuffer();
+  }
+
+  private static int rowCount(ListVector dataFrame) {
+    SEXP rowNames = dataFrame.getAttribute(Symbols.ROW_NAMES);
+    if(rowNames instanceof Vector && rowNames != Null.INSTANCE) {
+      return RowNamesVector.purify(rowNames).length();
+    }
+    return dataFrame.length() == 0 ? 0 : dataFrame.getElementAsSEXP(0).length();
+  }
+
+  /**
+   * @return the row names to store, or {@code null} if they are the automatic {@code 1:n}
+   */
+  private static Vector storedRowNames(ListVector dataFrame, int rowCount) {
+    SEXP rowNames = dataFrame.getAttribute(Symbols.ROW_NAMES);
+    if(rowNames == Null.INSTANCE || rowNames instanceof RowNamesVector ||
+        RowNamesVector.isOldCompactForm(rowNames) || !(rowNames instanceof StringVector)) {
+      return null;
+    }
+    StringVector names = (StringVector) rowNames;
+    for (int i = 0; i < rowCount; i++) {
+      if(!Integer.toString(i + 1).equals(names.getElementAsString(i))) {
+        return names;
+      }
+    }
+    return null;
+  }
+
+  private ColumnEntry writeColumn(String name, Vector column) throws IOException {
+    ColumnEntry entry = new ColumnEntry(name, column);
+    align();
+    entry.dataOffset = offset();
+    int length = column.length();
+    switch (entry.type) {
+      case DOUBLE:
+        for (int i = 0; i < length; i++) {
+          ensureRemaining(8);
+          buffer.putDouble(column.getElementAsDouble(i));
+        }
+        break;
+      case INTEGER:
+        for (int i = 0; i < length; i++) {
+          ensureRemaining(4);
+          buffer.putInt(column.getElementAsInt(i));
+        }
+        break;
+      case LOGICAL:
+        LogicalVector logical = (LogicalVector) column;
+        for (int i = 0; i < length; i++) {
+          ensureRemaining(4);
+          buffer.putInt(logical.getElementAsRawLogical(i));
+        }
+        break;
+      case STRING:
+        writeStrings(entry, (StringVector) column);
+        break;
+    }
+    return entry;
+  }
+
+  private void writeStrings(ColumnEntry entry, StringVector column) throws IOException {
+    Map<String, Integer> codes = new HashMap<>();
+    List<String> dictionary = new ArrayList<>();
+    for (int i = 0; i < column.length(); i++) {
+      String value = column.getElementAsString(i);
+      int code = NA_CODE;
+      if(value != null) {
+        Integer existing = codes.get(value);
+        if(existing == null) {
+          existing = dictionary.size();
+          codes.put(value, existing);
+          dictionary.add(value);
+        }
+        code = existing;
+      }
+      ensureRemaining(4);
+      buffer.putInt(code);
+    }
+
+    byte[][] bytes = new byte[dictionary.size()][];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = dictionary.get(i).getBytes(UTF8);
+    }
+    align();
+    entry.dictionaryOffset = offset();
+    entry.dictionarySize = bytes.length;
+    int offset = 0;
+    for (int i = 0; i <= bytes.length; i++) {
+      ensureRemaining(4);
+      buffer.putInt(offset);
+      if(i < bytes.length) {
+        offset += bytes[i].length;
+      }
+    }
+    for (byte[] string : bytes) {
+      putBytes(string);
+    }
+  }
+
+  private void writeEntry(ColumnEntry entry) throws IOException {
+    writeString(entry.name);
+    ensureRemaining(1 + 8 + 8 + 4);
+    buffer.put(entry.type);
+    buffer.putLong(entry.dataOffset);
+    buffer.putLong(entry.dictionaryOffset);
+    buffer.putInt(entry.dictionarySize);
+    writeStrings(entry.levels);
+    writeStrings(entry.classes);
+  }
+
+  private void writeStrings(StringVector strings) throws IOException {
+    ensureRemaining(4);
+    buffer.putInt(strings.length());
+    for (String string : strings) {
+      writeString(string);
+    }
+  }
+
+  private void writeString(String string) throws IOException {
+    byte[] bytes = string.getBytes(UTF8);
+    ensureRemaining(4);
+    buffer.putInt(bytes.length);
+    putBytes(bytes);
+  }
+
+  private void putBytes(byte[] bytes) throws IOException {
+    int offset = 0;
+    while(offset < bytes.length) {
+      ensureRemaining(1);
+      int count = Math.min(bytes.length - offset, buffer.remaining());
+      buffer.put(bytes, offset, count);
+      offset += count;
+    }
+  }
+
+  /**
+   * @return the offset in the file of the next byte written
+   */
+  private long offset() {
+    return position + buffer.position();
+  }
+
+  private void align() throws IOException {
+    while((offset() & 7) != 0) {
+      ensureRemaining(1);
+      buffer.put((byte) 0);
+    }
+  }
+
+  private void ensureRemaining(int bytes) throws IOException {
+    if(buffer.remaining() < bytes) {
+      flushBuffer();
+    }
+  }
+
+  private void flushBuffer() throws IOException {
+    buffer.flip();
+    position += buffer.remaining();
+    while(buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private static class ColumnEntry {
+    private final String name;
+    private final byte type;
+    private final StringVector levels;
+    private final StringVector classes;
+    private long dataOffset;
+    private long dictionaryOffset;
+    private int dictionarySize;
+
+    ColumnEntry(String name, Vector column) {
+      this.name = name;
+      if(column instanceof DoubleVector) {
+        type = DOUBLE;
+      } else if(column instanceof IntVector) {
+        type = INTEGER;
+      } else if(column instanceof LogicalVector) {
+        type = LOGICAL;
+      } else if(column instanceof StringVector) {
+        type = STRING;
+      } else {
+        throw new EvalException("column '%s' of type '%s' cannot be written in columnar format",
+            name, column.getTypeName());
+      }
+      this.levels = stringAttribute(column, Symbols.LEVELS);
+      this.classes = stringAttribute(column, Symbols.CLASS);
+    }
+
+    private static StringVector stringAttribute(Vector column, Symbol name) {
+      SEXP value = column.getAttribute(name);
+      if(value instanceof StringVector) {
+        return (StringVector) value;
+      }
+      return StringVector.EMPTY;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package org.renjin.primitives.io.columnar;
+
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.StringVector;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A character vector stored as codes into a dictionary of its distinct strings, both read
+ * from a memory-mapped columnar file. Strings are decoded when they are first accessed.
+ */
+public class DictionaryStringVector extends StringVector {
+
+  private final IntBuffer codes;
+  private final int length;
+  private final Dictionary dictionary;
+
+  public DictionaryStringVector(IntBuffer codes, int length, Dictionary dictionary, AttributeMap attributes) {
+    super(attributes);
+    this.codes = codes;
+    this.length = length;
+    this.dictionary = dictionary;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public String getElementAsString(int index) {
+    int code = codes.get(index);
+    if(code == ColumnarFormat.NA_CODE) {
+      return null;
+    }
+    return dictionary.get(code);
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return true;
+  }
+
+  @Override
+  protected StringVector cloneWithNewAttributes(AttributeMap attributes) {
+    return new DictionaryStringVector(codes, length, dictionary, attributes);
+  }
+
+  /**
+   * The distinct strings of a column, shared by all views of the column.
+   */
+  public static final class Dictionary {
+
+    /**
+     * Dictionaries larger than this are not cached, so that columns of mostly
+     * distinct strings do not keep every string that has been read on the heap
+     */
+    private static final int MAX_CACHED_SIZE = 64 * 1024;
+
+    private final IntBuffer offsets;
+    private final ByteBuffer bytes;
+    private final String[] strings;
+
+    Dictionary(IntBuffer offsets, ByteBuffer bytes, int size) {
+      this.offsets = offsets;
+      this.bytes = bytes;
+      this.strings = size <= MAX_CACHED_SIZE ? new String[size] : null;
+    }
+
+    String get(int code) {
+      if(strings != null && strings[code] != null) {
+        return strings[code];
+      }
+      int start = offsets.get(code);
+      byte[] utf8 = new byte[offsets.get(code + 1) - start];
+      for (int i = 0; i < utf8.length; i++) {
+        utf8[i] = bytes.get(start + i);
+      }
+      String string = new String(utf8, ColumnarFormat.UTF8);
+      if(strings != null) {
+        strings[code] = string;
+      }
+      return string;
+    }
+  }
+}
@@ -0,0 +1,4 @@
+/**
+ * A columnar, memory-mappable file format for data frames
+ */
+package org.renjin.primitives.io.columnar;
@@ -78,7 +78,36 @@ public class Connections {
       final String path, String open, String encoding, double compressionLevel)
       throws IOException {
 
-    return newConnection(context, open, new GzFileConnection(context.resolveFile(path)));
+    int level = (int) compressionLevel;
+    if(level < 0 || level > 9) {
+      throw new EvalException("invalid '%s' argument", "compress");
+    }
+    return newConnection(context, open, new GzFileConnection(context.resolveFile(path), level));
+  }
+
+  /**
+   * Opens a connection to a file compressed in the LZ4 frame format, which compresses
+   * several times faster than gzip at a lower ratio. Files opened for reading by
+   * {@code file()} or {@code gzfile()} are recognized as LZ4-compressed automatically.
+   *
+   * @param context
+   *          the current call Context
+   * @param path
+   *          path to the file
+   * @param open
+   *          the mode flag
+   * @param encoding
+   *          the character encoding if the file is to be opened for text
+   *          reading
+   * @return an external reference object which inherits from the (S3) class
+   *         "connection"
+   * @throws IOException
+   */
+  @Internal
+  public static IntVector lz4file(@Current final Context context,
+      final String path, String open, String encoding) throws IOException {
+
+    return newConnection(context, open, new Lz4FileConnection(context.resolveFile(path)));
   }
   
   /**
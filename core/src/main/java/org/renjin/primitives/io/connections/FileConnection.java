@@ -57,20 +57,29 @@ public class FileConnection extends AbstractConnection {
   }
 
   protected InputStream doOpenForInput() throws IOException {
-    // We want to automatically decompress if the underlying file is gzipped
-    int pushBackBufferSize = 2;
+    // We want to automatically decompress if the underlying file is gzipped or LZ4-compressed
+    int pushBackBufferSize = 4;
     PushbackInputStream in;
     try {
       in = new PushbackInputStream(file.getContent().getInputStream(), pushBackBufferSize);
     } catch (FileNotFoundException e) {
       throw new EvalException(e.getMessage());
     }
-    int b1 = in.read();
-    int b2 = in.read();
-    in.unread(b2);
-    in.unread(b1);
-    if(b1 == GzFileConnection.GZIP_MAGIC_BYTE1 && b2 == GzFileConnection.GZIP_MAGIC_BYTE2) {
+    byte[] magic = new byte[pushBackBufferSize];
+    int magicLength = 0;
+    int b;
+    while(magicLength < magic.length && (b = in.read()) != -1) {
+      magic[magicLength++] = (byte) b;
+    }
+    // files shorter than the magic number must not be padded with EOF markers
+    in.unread(magic, 0, magicLength);
+
+    if(magicLength >= 2 &&
+        (magic[0] & 0xFF) == GzFileConnection.GZIP_MAGIC_BYTE1 &&
+        (magic[1] & 0xFF) == GzFileConnection.GZIP_MAGIC_BYTE2) {
       return new GZIPInputStream(in);
+    } else if(magicLength == 4 && Lz4Block.readInt(magic, 0) == Lz4FrameOutputStream.MAGIC) {
+      return new Lz4FrameInputStream(in);
     } else {
       return in;
     }
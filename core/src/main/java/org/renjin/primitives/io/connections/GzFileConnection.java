@@ -26,11 +26,12 @@ import org.apache.commons.vfs2.FileObject;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.Deflater;
 
 /**
- * A connection to a gzipped file.
+ * A connection to a gzipped file, compressed on as many threads as there are processors
+ * (see {@link ParallelGzipOutputStream}).
+ *
  * The connection can be written to or read from, but once read to
  * it can be written to, and vice-versa
  *
@@ -44,12 +45,19 @@ public class GzFileConnection extends FileConnection {
   public static final int GZIP_MAGIC_BYTE2 = 139;
 
 
+  private final int compressionLevel;
+
   public GzFileConnection(FileObject file) throws IOException {
+    this(file, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  public GzFileConnection(FileObject file, int compressionLevel) throws IOException {
     super(file);
+    this.compressionLevel = compressionLevel;
   }
 
   @Override
   protected OutputStream doOpenForOutput() throws IOException {
-    return new GZIPOutputStream(super.doOpenForOutput());
+    return new ParallelGzipOutputStream(super.doOpenForOutput(), compressionLevel);
   }
 }
@@ -0,0 +1,230 @@
+package org.renjin.primitives.io.connections;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compresses and decompresses blocks in the LZ4 block format.
+ *
+ * <p>The compressor is the single-pass greedy algorithm of the reference implementation: a
+ * hash table of recent positions finds earlier occurrences of the next four bytes, and the
+ * search skips ahead faster the longer it goes without finding one, so that incompressible
+ * input passes through quickly.</p>
+ */
+final class Lz4Block {
+
+  static final int MIN_MATCH = 4;
+  static final int MAX_DISTANCE = 65535;
+
+  /**
+   * The last literals of a block which may not be part of a match
+   */
+  private static final int LAST_LITERALS = 5;
+
+  /**
+   * The last bytes of a block at which no match may start
+   */
+  private static final int MF_LIMIT = 12;
+
+  private static final int HASH_LOG = 12;
+
+  private static final int SKIP_TRIGGER = 6;
+
+  private Lz4Block() { }
+
+  static int maxCompressedLength(int length) {
+    return length + length / 255 + 16;
+  }
+
+  static int[] newHashTable() {
+    return new int[1 << HASH_LOG];
+  }
+
+  /**
+   * Compresses {@code src[srcOff, srcOff + srcLen)} into {@code dst}, which must have room for
+   * {@link #maxCompressedLength(int)} bytes from {@code dstOff}.
+   *
+   * @return the position in {@code dst} after the compressed block
+   */
+  static int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int[] table) {
+    int end = srcOff + srcLen;
+    int anchor = srcOff;
+    int dp = dstOff;
+
+    if(srcLen > MF_LIMIT) {
+      Arrays.fill(table, -1);
+      int matchLimit = end - LAST_LITERALS;
+      int mfLimit = end - MF_LIMIT;
+      int ip = srcOff;
+      int misses = 1 << SKIP_TRIGGER;
+
+      while(ip < mfLimit) {
+        int sequence = readInt(src, ip);
+        int h = hash(sequence);
+        int ref = table[h];
+        table[h] = ip;
+        if(ref < 0 || ip - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+          ip += misses++ >>> SKIP_TRIGGER;
+          continue;
+        }
+        misses = 1 << SKIP_TRIGGER;
+
+        while(ip > anchor && ref > srcOff && src[ip - 1] == src[ref - 1]) {
+          ip--;
+          ref--;
+        }
+        int matchLength = MIN_MATCH;
+        while(ip + matchLength < matchLimit && src[ip + matchLength] == src[ref + matchLength]) {
+          matchLength++;
+        }
+        dp = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dst, dp);
+        ip += matchLength;
+        anchor = ip;
+        if(ip < mfLimit) {
+          table[hash(readInt(src, ip - 2))] = ip - 2;
+        }
+      }
+    }
+    return writeSequence(src, anchor, end - anchor, 0, 0, dst, dp);
+  }
+
+  private static int writeSequence(byte[] src, int literalStart, int literalLength, int offset, int matchLength,
+                                   byte[] dst, int dp) {
+    int tokenPos = dp++;
+    int token;
+    if(literalLength >= 15) {
+      token = 15 << 4;
+      dp = writeLength(dst, dp, literalLength - 15);
+    } else {
+      token = literalLength << 4;
+    }
+    System.arraycopy(src, literalStart, dst, dp, literalLength);
+    dp += literalLength;
+
+    if(matchLength > 0) {
+      dst[dp++] = (byte) offset;
+      dst[dp++] = (byte) (offset >>> 8);
+      int extra = matchLength - MIN_MATCH;
+      if(extra >= 15) {
+        token |= 15;
+        dp = writeLength(dst, dp, extra - 15);
+      } else {
+        token |= extra;
+      }
+    }
+    dst[tokenPos] = (byte) token;
+    return dp;
+  }
+
+  private static int writeLength(byte[] dst, int dp, int length) {
+    while(length >= 255) {
+      dst[dp++] = (byte) 255;
+      length -= 255;
+    }
+    dst[dp++] = (byte) length;
+    return dp;
+  }
+
+  /**
+   * Decompresses the block {@code src[srcOff, srcOff + srcLen)} to {@code dst} from
+   * {@code dstOff}. Matches may refer to output from {@code dstStart}, which is less than
+   * {@code dstOff} when blocks depend on the previous block.
+   *
+   * @return the position in {@code dst} after the decompressed block
+   * @throws IOException if the block is corrupt or decompresses past {@code dstLimit}
+   */
+  static int decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstStart, int dstOff, int dstLimit)
+      throws IOException {
+    int sp = srcOff;
+    int srcEnd = srcOff + srcLen;
+    int dp = dstOff;
+    try {
+      while(true) {
+        int token = src[sp++] & 0xFF;
+        int literalLength = token >>> 4;
+        if(literalLength == 15) {
+          int b;
+          do {
+            b = src[sp++] & 0xFF;
+            literalLength += b;
+          } while(b == 255);
+        }
+        if(literalLength > srcEnd - sp || literalLength > dstLimit - dp) {
+          throw new IOException("Corrupt LZ4 block");
+        }
+        System.arraycopy(src, sp, dst, dp, literalLength);
+        sp += literalLength;
+        dp += literalLength;
+        if(sp == srcEnd) {
+          return dp;
+        }
+
+        int offset = (src[sp] & 0xFF) | ((src[sp + 1] & 0xFF) << 8);
+        sp += 2;
+        int matchLength = token & 0xF;
+        if(matchLength == 15) {
+          int b;
+          do {
+            b = src[sp++] & 0xFF;
+            matchLength += b;
+          } while(b == 255);
+        }
+        matchLength += MIN_MATCH;
+        int ref = dp - offset;
+        if(offset == 0 || ref < dstStart || matchLength > dstLimit - dp || sp >= srcEnd) {
+          throw new IOException("Corrupt LZ4 block");
+        }
+        if(offset >= matchLength) {
+          System.arraycopy(dst, ref, dst, dp, matchLength);
+          dp += matchLength;
+        } else {
+          // the match overlaps the output it repeats
+          for (int i = 0; i < matchLength; i++) {
+            dst[dp++] = dst[ref++];
+          }
+        }
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IOException("Corrupt LZ4 block");
+    }
+  }
+
+  /**
+   * Computes the xxHash32 checksum of fewer than 16 bytes, as used for the header of an LZ4 frame.
+   */
+  static int shortXxHash32(byte[] input, int off, int len) {
+    final int prime1 = 0x9E3779B1;
+    final int prime2 = 0x85EBCA77;
+    final int prime3 = 0xC2B2AE3D;
+    final int prime4 = 0x27D4EB2F;
+    final int prime5 = 0x165667B1;
+    if(len >= 16) {
+      throw new IllegalArgumentException("len: " + len);
+    }
+    int end = off + len;
+    int h = prime5 + len;
+    while(off + 4 <= end) {
+      h += readInt(input, off) * prime3;
+      h = Integer.rotateLeft(h, 17) * prime4;
+      off += 4;
+    }
+    while(off < end) {
+      h += (input[off++] & 0xFF) * prime5;
+      h = Integer.rotateLeft(h, 11) * prime1;
+    }
+    h ^= h >>> 15;
+    h *= prime2;
+    h ^= h >>> 13;
+    h *= prime3;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  static int readInt(byte[] b, int i) {
+    return (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) | ((b[i + 2] & 0xFF) << 16) | ((b[i + 3] & 0xFF) << 24);
+  }
+
+  private static int hash(int sequence) {
+    return (sequence * -1640531535) >>> (32 - HASH_LOG);
+  }
+}
@@ -0,0 +1,24 @@
+package org.renjin.primitives.io.connections;
+
+import org.apache.commons.vfs2.FileObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A connection to a file compressed in the LZ4 frame format.
+ *
+ * If the file is to be read, it is opened as a regular file, which recognizes the
+ * format from the magic number at its start.
+ */
+public class Lz4FileConnection extends FileConnection {
+
+  public Lz4FileConnection(FileObject file) throws IOException {
+    super(file);
+  }
+
+  @Override
+  protected OutputStream doOpenForOutput() throws IOException {
+    return new Lz4FrameOutputStream(super.doOpenForOutput());
+  }
+}
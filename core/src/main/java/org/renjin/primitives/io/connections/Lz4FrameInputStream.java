@@ -0,0 +1,202 @@
+package org.renjin.primitives.io.connections;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the LZ4 frame format, as written by {@link Lz4FrameOutputStream} or the {@code lz4}
+ * command line tool. Concatenated and skippable frames, block and content checksums, and
+ * blocks which depend on the previous block are all accepted; checksums other than that
+ * of the frame header are not verified.
+ */
+public class Lz4FrameInputStream extends InputStream {
+
+  private static final int SKIPPABLE_MAGIC = 0x184D2A50;
+  private static final int SKIPPABLE_MAGIC_MASK = 0xFFFFFFF0;
+
+  /**
+   * The size of the window into earlier output to which blocks which depend
+   * on the previous block may refer.
+   */
+  private static final int HISTORY_SIZE = 64 * 1024;
+
+  private final DataInputStream in;
+
+  private boolean blockChecksum;
+  private boolean contentChecksum;
+
+  private byte[] compressed = new byte[0];
+
+  /**
+   * Decompressed data is held in {@code buffer[pos, limit)}, preceded by the history of
+   * earlier output from {@code historyStart} if blocks are dependent.
+   */
+  private byte[] buffer = new byte[0];
+  private int historyOffset;
+  private int historyStart;
+  private int pos;
+  private int limit;
+
+  private boolean finished;
+
+  public Lz4FrameInputStream(InputStream in) throws IOException {
+    this.in = new DataInputStream(in);
+    if(!readFrameHeader()) {
+      throw new IOException("Not an LZ4 frame");
+    }
+  }
+
+  private boolean readFrameHeader() throws IOException {
+    while(true) {
+      int magic;
+      try {
+        magic = readInt();
+      } catch (EOFException e) {
+        return false;
+      }
+      if((magic & SKIPPABLE_MAGIC_MASK) == SKIPPABLE_MAGIC) {
+        in.skipBytes(readInt());
+        continue;
+      }
+      if(magic != Lz4FrameOutputStream.MAGIC) {
+        throw new IOException("Not an LZ4 frame");
+      }
+      break;
+    }
+    byte[] descriptor = new byte[14];
+    in.readFully(descriptor, 0, 2);
+    int flags = descriptor[0] & 0xFF;
+    int blockDescriptor = descriptor[1] & 0xFF;
+    if((flags >>> 6) != 1) {
+      throw new IOException("Unsupported LZ4 frame version");
+    }
+    if((flags & 1) != 0) {
+      throw new IOException("LZ4 frames with dictionaries are not supported");
+    }
+    boolean independent = (flags & 0x20) != 0;
+    blockChecksum = (flags & 0x10) != 0;
+    contentChecksum = (flags & 0x04) != 0;
+    int descriptorLength = 2;
+    if((flags & 0x08) != 0) {
+      // content size
+      in.readFully(descriptor, descriptorLength, 8);
+      descriptorLength += 8;
+    }
+    int checksum = in.readUnsignedByte();
+    if(checksum != ((Lz4Block.shortXxHash32(descriptor, 0, descriptorLength) >>> 8) & 0xFF)) {
+      throw new IOException("Corrupt LZ4 frame header");
+    }
+    int sizeCode = (blockDescriptor >>> 4) & 0x7;
+    if(sizeCode < 4) {
+      throw new IOException("Invalid LZ4 block size");
+    }
+    int maxBlockSize = 1 << (8 + 2 * sizeCode);
+    historyOffset = independent ? 0 : HISTORY_SIZE;
+    if(buffer.length < historyOffset + maxBlockSize) {
+      buffer = new byte[historyOffset + maxBlockSize];
+    }
+    if(compressed.length < maxBlockSize) {
+      compressed = new byte[maxBlockSize];
+    }
+    historyStart = historyOffset;
+    pos = limit = historyOffset;
+    return true;
+  }
+
+  /**
+   * Reads and decompresses the next block.
+   *
+   * @return false at the end of the last frame
+   */
+  private boolean readBlock() throws IOException {
+    while(true) {
+      int size = readInt();
+      if(size == 0) {
+        if(contentChecksum) {
+          readInt();
+        }
+        if(!readFrameHeader()) {
+          return false;
+        }
+        continue;
+      }
+      saveHistory();
+      int length = size & ~Lz4FrameOutputStream.UNCOMPRESSED_BLOCK;
+      if(length > buffer.length - historyOffset) {
+        throw new IOException("Corrupt LZ4 block size");
+      }
+      if((size & Lz4FrameOutputStream.UNCOMPRESSED_BLOCK) != 0) {
+        in.readFully(buffer, historyOffset, length);
+        limit = historyOffset + length;
+      } else {
+        in.readFully(compressed, 0, length);
+        limit = Lz4Block.decompress(compressed, 0, length, buffer, historyStart, historyOffset, buffer.length);
+      }
+      pos = historyOffset;
+      if(blockChecksum) {
+        readInt();
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Moves the end of the last block's output in front of the next block, so that
+   * a dependent block may refer to it.
+   */
+  private void saveHistory() {
+    if(historyOffset == 0) {
+      return;
+    }
+    int length = Math.min(HISTORY_SIZE, limit - historyStart);
+    System.arraycopy(buffer, limit - length, buffer, historyOffset - length, length);
+    historyStart = historyOffset - length;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if(pos == limit && !fill()) {
+      return -1;
+    }
+    return buffer[pos++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if(len == 0) {
+      return 0;
+    }
+    if(pos == limit && !fill()) {
+      return -1;
+    }
+    int count = Math.min(len, limit - pos);
+    System.arraycopy(buffer, pos, b, off, count);
+    pos += count;
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return limit - pos;
+  }
+
+  private boolean fill() throws IOException {
+    while(!finished && pos == limit) {
+      if(!readBlock()) {
+        finished = true;
+      }
+    }
+    return pos < limit;
+  }
+
+  private int readInt() throws IOException {
+    return Integer.reverseBytes(in.readInt());
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
@@ -0,0 +1,121 @@
+package org.renjin.primitives.io.connections;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the LZ4 frame format, which the {@code lz4} command line tool reads.
+ *
+ * <p>LZ4 compresses several times faster than deflate at a lower ratio, which suits large
+ * files that are written often, such as checkpoints. The input is compressed in
+ * independent blocks of 64 KiB; blocks which do not compress are stored as they are.</p>
+ */
+public class Lz4FrameOutputStream extends OutputStream {
+
+  static final int MAGIC = 0x184D2204;
+
+  static final int BLOCK_SIZE = 64 * 1024;
+
+  /**
+   * Version 1, independent blocks, no checksums and no content size
+   */
+  static final int FLAGS = 0x60;
+
+  /**
+   * The code for the 64 KiB maximum block size
+   */
+  static final int BLOCK_DESCRIPTOR = 4 << 4;
+
+  static final int UNCOMPRESSED_BLOCK = 0x80000000;
+
+  private final OutputStream out;
+  private final byte[] block = new byte[BLOCK_SIZE];
+  private int blockLength;
+  private final byte[] compressed = new byte[4 + Lz4Block.maxCompressedLength(BLOCK_SIZE)];
+  private final int[] hashTable = Lz4Block.newHashTable();
+  private boolean closed;
+
+  public Lz4FrameOutputStream(OutputStream out) throws IOException {
+    this.out = out;
+    byte[] header = new byte[7];
+    writeInt(header, 0, MAGIC);
+    header[4] = (byte) FLAGS;
+    header[5] = (byte) BLOCK_DESCRIPTOR;
+    header[6] = (byte) (Lz4Block.shortXxHash32(header, 4, 2) >>> 8);
+    out.write(header);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if(closed) {
+      throw new IOException("Stream closed");
+    }
+    if(blockLength == BLOCK_SIZE) {
+      writeBlock();
+    }
+    block[blockLength++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if(closed) {
+      throw new IOException("Stream closed");
+    }
+    while(len > 0) {
+      if(blockLength == BLOCK_SIZE) {
+        writeBlock();
+      }
+      int count = Math.min(len, BLOCK_SIZE - blockLength);
+      System.arraycopy(b, off, block, blockLength, count);
+      blockLength += count;
+      off += count;
+      len -= count;
+    }
+  }
+
+  private void writeBlock() throws IOException {
+    int end = Lz4Block.compress(block, 0, blockLength, compressed, 4, hashTable);
+    int compressedLength = end - 4;
+    if(compressedLength < blockLength) {
+      writeInt(compressed, 0, compressedLength);
+      out.write(compressed, 0, end);
+    } else {
+      writeInt(compressed, 0, blockLength | UNCOMPRESSED_BLOCK);
+      out.write(compressed, 0, 4);
+      out.write(block, 0, blockLength);
+    }
+    blockLength = 0;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if(blockLength > 0) {
+      writeBlock();
+    }
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if(closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if(blockLength > 0) {
+        writeBlock();
+      }
+      // end mark
+      out.write(new byte[4]);
+    } finally {
+      out.close();
+    }
+  }
+
+  private static void writeInt(byte[] b, int i, int value) {
+    b[i] = (byte) value;
+    b[i + 1] = (byte) (value >>> 8);
+    b[i + 2] = (byte) (value >>> 16);
+    b[i + 3] = (byte) (value >>> 24);
+  }
+}
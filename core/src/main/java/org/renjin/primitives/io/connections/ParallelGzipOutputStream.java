@@ -0,0 +1,226 @@
+package org.renjin.primitives.io.connections;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes the gzip format, compressing blocks of the input in parallel as {@code pigz} does.
+ *
+ * <p>The input is divided into blocks of 128 KiB. Each block is compressed by its own
+ * {@link Deflater}, primed with the last 32 KiB of the previous block so that the
+ * compression ratio is close to that of a single deflater, and ends with a sync flush,
+ * which aligns the compressed block to a byte boundary. The compressed blocks therefore
+ * join into a single deflate stream, and the output is an ordinary gzip file.</p>
+ *
+ * <p>The number of threads is set by the {@code renjin.gzip.threads} system property, and
+ * defaults to the number of processors. With a single thread, blocks are compressed on the
+ * writing thread.</p>
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+  static final int BLOCK_SIZE = 128 * 1024;
+
+  private static final int DICTIONARY_SIZE = 32 * 1024;
+
+  private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+  private static final int THREADS =
+      Math.max(1, Integer.getInteger("renjin.gzip.threads", Runtime.getRuntime().availableProcessors()));
+
+  private static ExecutorService executor;
+
+  private final OutputStream out;
+  private final int level;
+
+  private byte[] block = new byte[BLOCK_SIZE];
+  private int blockLength;
+  private byte[] dictionary;
+
+  private final CRC32 crc = new CRC32();
+  private long length;
+
+  /**
+   * Blocks being compressed, in order. At most two per thread are queued, which bounds the
+   * memory used when compression cannot keep up with the writer.
+   */
+  private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+  private boolean closed;
+
+  public ParallelGzipOutputStream(OutputStream out, int level) throws IOException {
+    this.out = out;
+    this.level = level;
+    out.write(HEADER);
+  }
+
+  public ParallelGzipOutputStream(OutputStream out) throws IOException {
+    this(out, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if(closed) {
+      throw new IOException("Stream closed");
+    }
+    block[blockLength++] = (byte) b;
+    if(blockLength == BLOCK_SIZE) {
+      compressBlock(false);
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if(closed) {
+      throw new IOException("Stream closed");
+    }
+    while(len > 0) {
+      int count = Math.min(len, BLOCK_SIZE - blockLength);
+      System.arraycopy(b, off, block, blockLength, count);
+      blockLength += count;
+      off += count;
+      len -= count;
+      if(blockLength == BLOCK_SIZE) {
+        compressBlock(false);
+      }
+    }
+  }
+
+  private void compressBlock(boolean last) throws IOException {
+    crc.update(block, 0, blockLength);
+    length += blockLength;
+    Callable<byte[]> task = new BlockCompressor(block, blockLength, dictionary, last, level);
+    if(!last) {
+      dictionary = Arrays.copyOfRange(block, blockLength - DICTIONARY_SIZE, blockLength);
+      block = new byte[BLOCK_SIZE];
+    }
+    blockLength = 0;
+
+    if(THREADS == 1) {
+      try {
+        out.write(task.call());
+      } catch (IOException | RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IOException(e);
+      }
+    } else {
+      pending.addLast(executor().submit(task));
+      while(pending.size() > THREADS * 2) {
+        writeCompressed(pending.removeFirst());
+      }
+    }
+  }
+
+  private void writeCompressed(Future<byte[]> compressed) throws IOException {
+    try {
+      out.write(compressed.get());
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      throw new IOException("Exception compressing block", e.getCause());
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if(closed) {
+      return;
+    }
+    closed = true;
+    try {
+      compressBlock(true);
+      while(!pending.isEmpty()) {
+        writeCompressed(pending.removeFirst());
+      }
+      writeInt((int) crc.getValue());
+      writeInt((int) length);
+    } finally {
+      for (Future<byte[]> future : pending) {
+        future.cancel(false);
+      }
+      out.close();
+    }
+  }
+
+  private void writeInt(int value) throws IOException {
+    out.write(value);
+    out.write(value >>> 8);
+    out.write(value >>> 16);
+    out.write(value >>> 24);
+  }
+
+  private static synchronized ExecutorService executor() {
+    if(executor == null) {
+      executor = Executors.newFixedThreadPool(THREADS, new ThreadFactoryBuilder()
+          .setNameFormat("renjin-gzip-%d")
+          .setDaemon(true)
+          .build());
+    }
+    return executor;
+  }
+
+  private static class BlockCompressor implements Callable<byte[]> {
+    private final byte[] input;
+    private final int length;
+    private final byte[] dictionary;
+    private final boolean last;
+    private final int level;
+
+    BlockCompressor(byte[] input, int length, byte[] dictionary, boolean last, int level) {
+      this.input = input;
+      this.length = length;
+      this.dictionary = dictionary;
+      this.last = last;
+      this.level = level;
+    }
+
+    @Override
+    public byte[] call() {
+      Deflater deflater = new Deflater(level, true);
+      try {
+        if(dictionary != null) {
+          deflater.setDictionary(dictionary);
+        }
+        deflater.setInput(input, 0, length);
+        if(last) {
+          deflater.finish();
+        }
+        byte[] output = new byte[length + (length >> 3) + 64];
+        int outputLength = 0;
+        while(true) {
+          int count = last ?
+              deflater.deflate(output, outputLength, output.length - outputLength) :
+              deflater.deflate(output, outputLength, output.length - outputLength, Deflater.SYNC_FLUSH);
+          outputLength += count;
+          if(last ? deflater.finished() : outputLength < output.length) {
+            break;
+          }
+          if(outputLength == output.length) {
+            output = Arrays.copyOf(output, output.length * 2);
+          }
+        }
+        return Arrays.copyOf(output, outputLength);
+      } finally {
+        deflater.end();
+      }
+    }
+  }
+}
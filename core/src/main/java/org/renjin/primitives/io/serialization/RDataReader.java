@@ -26,6 +26,7 @@ import com.google.common.io.ByteSource;
 import com.google.common.io.Closeables;
 import org.apache.commons.math.complex.Complex;
 import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
 import org.renjin.parser.NumericLiterals;
 import org.renjin.primitives.Primitives;
 import org.renjin.primitives.sequence.IntSequence;
@@ -36,8 +37,11 @@ import org.renjin.sexp.*;
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
 import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.util.List;
 
@@ -70,14 +74,54 @@ public class RDataReader {
     this.restorer = restorer;
   }
 
+  public RDataReader(ReadContext readContext, InputStream conn) {
+    this.readContext = readContext;
+    this.conn = conn;
+  }
+
   public RDataReader(InputStream conn) {
     this.readContext = new NullReadContext();
     this.conn = conn;
   }
 
+  /**
+   * Creates a reader which memory-maps an uncompressed XDR stream rather than reading it
+   * through an {@code InputStream}. Double, integer and logical vectors are returned as views
+   * of the mapped file instead of being copied onto the heap.
+   *
+   * <p>The channel must remain open until {@link #readFile()} returns, but the vectors read
+   * remain valid after it is closed.</p>
+   *
+   * @param channel a channel positioned at the start of the serialized stream
+   */
+  public RDataReader(Context context, FileChannel channel) throws IOException {
+    this.readContext = new SessionReadContext(context.getSession());
+    byte streamType = readStreamType(Channels.newInputStream(channel));
+    if(streamType != XDR_FORMAT) {
+      throw new IOException("Only uncompressed XDR streams can be memory-mapped");
+    }
+    this.in = new MappedXdrReader(channel, channel.position());
+  }
+
+  /**
+   * Reads an uncompressed, XDR-formatted file by memory-mapping it.
+   *
+   * @see #RDataReader(Context, FileChannel)
+   */
+  public static SEXP readMapped(Context context, File file) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      return new RDataReader(context, randomAccessFile.getChannel()).readFile();
+    } finally {
+      randomAccessFile.close();
+    }
+  }
+
   public SEXP readFile() throws IOException {
-    byte streamType = readStreamType(conn);
-    in = createStreamReader(streamType, conn);
+    if(in == null) {
+      byte streamType = readStreamType(conn);
+      in = createStreamReader(streamType, conn);
+    }
     readAndVerifyVersion();
     return readExp();
   }
@@ -565,19 +609,25 @@ public class RDataReader {
 
   private SEXP readComplexExp(int flags) throws IOException {
     int length = in.readInt();
+    if(length > Integer.MAX_VALUE / 2) {
+      // the real and imaginary parts are read into a single array
+      throw new EvalException("complex vector of length %d is too long to load", length);
+    }
+    double[] parts = in.readDoubles(length * 2);
     Complex[] values = new Complex[length];
     for(int i=0;i!=length;++i) {
-      values[i] = new Complex(in.readDouble(), in.readDouble());
+      values[i] = new Complex(parts[i * 2], parts[i * 2 + 1]);
     }
     return new ComplexArrayVector(values, readAttributes(flags));
   }
 
   private SEXP readDoubleExp(int flags) throws IOException {
     int length = in.readInt();
-    double[] values = new double[length];
-    for(int i=0;i!=length;++i) {
-      values[i] = in.readDouble();
+    if(in instanceof MappedXdrReader) {
+      DoubleBuffer buffer = ((MappedXdrReader) in).readDoubleBuffer(length);
+      return new DoubleBufferVector(buffer, length, readAttributes(flags));
     }
+    double[] values = in.readDoubles(length);
     return new DoubleArrayVector(values, readAttributes(flags));
   }
 
@@ -590,10 +640,11 @@ public class RDataReader {
 
   private SEXP readLogical(int flags) throws IOException {
     int length = in.readInt();
-    int values[] = new int[length];
-    for(int i=0;i!=length;++i) {
-      values[i] = in.readInt();
+    if(in instanceof MappedXdrReader) {
+      IntBuffer buffer = in.readIntBuffer(length);
+      return new LogicalBufferVector(buffer, length, readAttributes(flags));
     }
+    int values[] = in.readInts(length);
     return new LogicalArrayVector(values, readAttributes(flags));
   }
 
@@ -656,8 +707,10 @@ public class RDataReader {
   private interface StreamReader {
     int readInt() throws IOException;
     IntBuffer readIntBuffer(int size) throws IOException;
+    int[] readInts(int size) throws IOException;
     byte[] readString(int length) throws IOException;
     double readDouble() throws IOException;
+    double[] readDoubles(int size) throws IOException;
   }
 
   private static class AsciiReader implements StreamReader {
@@ -701,11 +754,25 @@ public class RDataReader {
 
     @Override
     public IntBuffer readIntBuffer(int size) throws IOException {
+      return IntBuffer.wrap(readInts(size));
+    }
+
+    @Override
+    public int[] readInts(int size) throws IOException {
       int[] array = new int[size];
       for(int i=0;i!=size;++i) {
         array[i] = readInt();
       }
-      return IntBuffer.wrap(array);
+      return array;
+    }
+
+    @Override
+    public double[] readDoubles(int size) throws IOException {
+      double[] array = new double[size];
+      for(int i=0;i!=size;++i) {
+        array[i] = readDouble();
+      }
+      return array;
     }
 
     @Override
@@ -777,7 +844,14 @@ public class RDataReader {
   }
 
   private static class XdrReader implements StreamReader {
+
+    /**
+     * Size in bytes of the block through which arrays are decoded
+     */
+    private static final int BLOCK_SIZE = 64 * 1024;
+
     private final DataInputStream in;
+    private byte[] block;
 
     private XdrReader(DataInputStream in) throws IOException {
       this.in = in;
@@ -818,6 +892,157 @@ public class RDataReader {
       long bits = in.readLong();
       return Double.longBitsToDouble(bits);
     }
+
+    @Override
+    public int[] readInts(int size) throws IOException {
+      int[] values = new int[size];
+      IntBuffer buffer = ByteBuffer.wrap(block()).asIntBuffer();
+      int i = 0;
+      while(i < size) {
+        int count = Math.min(size - i, BLOCK_SIZE / 4);
+        in.readFully(block, 0, count * 4);
+        buffer.rewind();
+        buffer.get(values, i, count);
+        i += count;
+      }
+      return values;
+    }
+
+    @Override
+    public double[] readDoubles(int size) throws IOException {
+      double[] values = new double[size];
+      DoubleBuffer buffer = ByteBuffer.wrap(block()).asDoubleBuffer();
+      int i = 0;
+      while(i < size) {
+        int count = Math.min(size - i, BLOCK_SIZE / 8);
+        in.readFully(block, 0, count * 8);
+        buffer.rewind();
+        buffer.get(values, i, count);
+        i += count;
+      }
+      return values;
+    }
+
+    private byte[] block() {
+      if(block == null) {
+        block = new byte[BLOCK_SIZE];
+      }
+      return block;
+    }
+  }
+
+  /**
+   * Reads an XDR stream from a memory-mapped file. The file is mapped in regions of at most
+   * 2GB, so that a new region is mapped whenever a value extends past the end of the current one.
+   */
+  private static class MappedXdrReader implements StreamReader {
+    private final FileChannel channel;
+    private final long size;
+    private long regionStart;
+    private MappedByteBuffer region;
+
+    private MappedXdrReader(FileChannel channel, long position) throws IOException {
+      this.channel = channel;
+      this.size = channel.size();
+      map(position);
+    }
+
+    private void map(long position) throws IOException {
+      regionStart = position;
+      region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Ensures that at least {@code bytes} bytes remain in the current region
+     */
+    private void require(int bytes) throws IOException {
+      if(region.remaining() < bytes) {
+        map(regionStart + region.position());
+        if(region.remaining() < bytes) {
+          throw new EOFException();
+        }
+      }
+    }
+
+    /**
+     * @return a view of the next {@code bytes} bytes of the file, or {@code null} if the
+     * view would be larger than a single region
+     */
+    private ByteBuffer slice(long bytes) throws IOException {
+      if(bytes > Integer.MAX_VALUE) {
+        return null;
+      }
+      require((int) bytes);
+      ByteBuffer slice = region.slice();
+      slice.limit((int) bytes);
+      region.position(region.position() + (int) bytes);
+      return slice;
+    }
+
+    @Override
+    public int readInt() throws IOException {
+      require(4);
+      return region.getInt();
+    }
+
+    @Override
+    public IntBuffer readIntBuffer(int size) throws IOException {
+      ByteBuffer slice = slice(size * 4L);
+      if(slice == null) {
+        return IntBuffer.wrap(readInts(size));
+      }
+      return slice.asIntBuffer();
+    }
+
+    public DoubleBuffer readDoubleBuffer(int size) throws IOException {
+      ByteBuffer slice = slice(size * 8L);
+      if(slice == null) {
+        return DoubleBuffer.wrap(readDoubles(size));
+      }
+      return slice.asDoubleBuffer();
+    }
+
+    @Override
+    public int[] readInts(int size) throws IOException {
+      int[] values = new int[size];
+      int i = 0;
+      while(i < size) {
+        require(4);
+        int count = Math.min(size - i, region.remaining() / 4);
+        region.asIntBuffer().get(values, i, count);
+        region.position(region.position() + count * 4);
+        i += count;
+      }
+      return values;
+    }
+
+    @Override
+    public byte[] readString(int length) throws IOException {
+      require(length);
+      byte buf[] = new byte[length];
+      region.get(buf);
+      return buf;
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+      require(8);
+      return region.getDouble();
+    }
+
+    @Override
+    public double[] readDoubles(int size) throws IOException {
+      double[] values = new double[size];
+      int i = 0;
+      while(i < size) {
+        require(8);
+        int count = Math.min(size - i, region.remaining() / 8);
+        region.asDoubleBuffer().get(values, i, count);
+        region.position(region.position() + count * 8);
+        i += count;
+      }
+      return values;
+    }
   }
 
   /**
@@ -27,6 +27,7 @@ import org.renjin.eval.Context;
 import org.renjin.primitives.io.serialization.Serialization.SERIALIZATION_TYPE;
 import org.renjin.sexp.*;
 
+import java.io.BufferedOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -59,13 +60,22 @@ public class RDataWriter {
   private StreamWriter out;
   private SERIALIZATION_TYPE ser_type;
 
-  private Map<SEXP, Integer> references = Maps.newHashMap();
+  /**
+   * Environments, symbols and other reference objects already written, by identity as in
+   * GNU R. Every value written is looked up, so hashing their contents would cost as much
+   * as writing them.
+   */
+  private Map<SEXP, Integer> references = Maps.newIdentityHashMap();
+
+  private static final int BUFFER_SIZE = 64 * 1024;
 
   public RDataWriter(WriteContext context, PersistenceHook hook, OutputStream out,
                      SERIALIZATION_TYPE st) {
     this.context = context;
     this.hook = hook;
-    this.conn = new DataOutputStream(out);
+    // Values are written a few bytes at a time, so buffer them rather than
+    // passing each write through the connection and any compressor
+    this.conn = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
     this.ser_type = st;
     switch(this.ser_type) {
       case ASCII: this.out = new AsciiWriter(this.conn); break;
@@ -125,6 +135,7 @@ public class RDataWriter {
     conn.writeByte('\n');
     writeVersion();
     writeExp(exp);
+    conn.flush();
   }
     
   private void writeVersion() throws IOException {
@@ -0,0 +1,88 @@
+package org.renjin.primitives.match;
+
+import org.renjin.eval.Context;
+import org.renjin.primitives.summary.DeferredCountTrue;
+import org.renjin.primitives.vector.MemoizedComputation;
+import org.renjin.sexp.*;
+
+/**
+ * The indices of the {@code TRUE} elements of a deferred computation.
+ *
+ * <p>The indices are only computed once they are accessed, so that {@code length(which(x))}
+ * can be computed by the vector pipeliner without allocating the indices.</p>
+ */
+public class DeferredWhich extends IntVector implements MemoizedComputation {
+
+  private final Vector vector;
+  private IntVector result;
+
+  public DeferredWhich(Vector vector) {
+    this.vector = vector;
+  }
+
+  /**
+   * @return the number of indices, computed by the session's vector pipeliner
+   * if they have not yet been computed.
+   */
+  public int length(Context context) {
+    if(result != null) {
+      return result.length();
+    }
+    Vector count = context.materialize(new DeferredCountTrue(vector, AttributeMap.EMPTY));
+    return (int) count.getElementAsDouble(0);
+  }
+
+  @Override
+  public int length() {
+    return forceResult().length();
+  }
+
+  @Override
+  public int getElementAsInt(int i) {
+    return forceResult().getElementAsInt(i);
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return result != null;
+  }
+
+  @Override
+  public Vector[] getOperands() {
+    return new Vector[] { vector };
+  }
+
+  @Override
+  public String getComputationName() {
+    return "which";
+  }
+
+  @Override
+  public IntVector forceResult() {
+    if(result == null) {
+      IntArrayVector.Builder indices = new IntArrayVector.Builder();
+      for(int i=0;i!=vector.length();++i) {
+        if(vector.isElementTrue(i)) {
+          indices.add(i+1);
+        }
+      }
+      result = indices.build();
+    }
+    return result;
+  }
+
+  @Override
+  public void setResult(Vector result) {
+    this.result = (IntVector) result;
+  }
+
+  @Override
+  public boolean isCalculated() {
+    return result != null;
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return forceResult().setAttributes(attributes);
+  }
+}
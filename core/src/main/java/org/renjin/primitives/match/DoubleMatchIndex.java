@@ -0,0 +1,81 @@
+package org.renjin.primitives.match;
+
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.Vector;
+
+/**
+ * Open-addressing index of double values, following R's rules for equality in
+ * {@code match()}: NA only matches NA, NaN only matches NaN, and 0 matches -0.
+ */
+class DoubleMatchIndex extends MatchIndex {
+
+  private static final long NaN_BITS = Double.doubleToLongBits(Double.NaN);
+
+  private final int mask;
+  private final long[] keys;
+
+  /**
+   * The position of the key in the table plus one, or zero if the slot is empty.
+   */
+  private final int[] positions;
+
+  DoubleMatchIndex(Vector table) {
+    int capacity = capacityFor(table.length());
+    mask = capacity - 1;
+    keys = new long[capacity];
+    positions = new int[capacity];
+
+    for(int i=0;i!=table.length();++i) {
+      insert(keyOf(table.getElementAsDouble(i)), i);
+    }
+  }
+
+  /**
+   * Maps a double value to the bits used as its hash key, collapsing all NaN
+   * payloads other than R's NA into a single NaN, and -0 into 0.
+   */
+  static long keyOf(double value) {
+    if(Double.isNaN(value)) {
+      return DoubleVector.isNA(value) ? DoubleVector.NA_BITS : NaN_BITS;
+    } else if(value == 0) {
+      return 0L;
+    } else {
+      return Double.doubleToRawLongBits(value);
+    }
+  }
+
+  private void insert(long key, int position) {
+    int slot = mix(key) & mask;
+    while(positions[slot] != 0) {
+      if(keys[slot] == key) {
+        // keep the first occurrence
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    positions[slot] = position + 1;
+  }
+
+  public int lookup(double value) {
+    long key = keyOf(value);
+    int slot = mix(key) & mask;
+    while(positions[slot] != 0) {
+      if(keys[slot] == key) {
+        return positions[slot] - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  @Override
+  public Vector.Type getKeyType() {
+    return DoubleVector.VECTOR_TYPE;
+  }
+
+  @Override
+  public int indexOf(Vector search, int index) {
+    return lookup(search.getElementAsDouble(index));
+  }
+}
@@ -0,0 +1,64 @@
+package org.renjin.primitives.match;
+
+import org.renjin.sexp.IntVector;
+import org.renjin.sexp.Vector;
+
+/**
+ * Open-addressing index of integer and logical values. NA_integer_ is simply
+ * {@code Integer.MIN_VALUE} and so is hashed like any other value.
+ */
+class IntMatchIndex extends MatchIndex {
+
+  private final int mask;
+  private final int[] keys;
+
+  /**
+   * The position of the key in the table plus one, or zero if the slot is empty.
+   */
+  private final int[] positions;
+
+  IntMatchIndex(Vector table) {
+    int capacity = capacityFor(table.length());
+    mask = capacity - 1;
+    keys = new int[capacity];
+    positions = new int[capacity];
+
+    for(int i=0;i!=table.length();++i) {
+      insert(table.getElementAsInt(i), i);
+    }
+  }
+
+  private void insert(int key, int position) {
+    int slot = mix(key) & mask;
+    while(positions[slot] != 0) {
+      if(keys[slot] == key) {
+        // keep the first occurrence
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    positions[slot] = position + 1;
+  }
+
+  public int lookup(int key) {
+    int slot = mix(key) & mask;
+    while(positions[slot] != 0) {
+      if(keys[slot] == key) {
+        return positions[slot] - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  @Override
+  public Vector.Type getKeyType() {
+    return IntVector.VECTOR_TYPE;
+  }
+
+  @Override
+  public int indexOf(Vector search, int index) {
+    return lookup(search.getElementAsInt(index));
+  }
+}
@@ -29,6 +29,7 @@ import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.Current;
 import org.renjin.invoke.annotations.Internal;
 import org.renjin.primitives.Contexts;
+import org.renjin.primitives.vector.DeferredComputation;
 import org.renjin.sexp.*;
 import org.renjin.util.NamesBuilder;
 
@@ -62,6 +63,7 @@ public class Match {
     // We need to handle factors specially here -
     // treat them as strings if one of the other arguments
     // is a string
+    Vector originalTable = table;
     if(search instanceof StringVector || table instanceof StringVector) {
       if(search.inherits("factor")) {
         search = new FactorString(search);
@@ -71,6 +73,64 @@ public class Match {
       }
     }
 
+    Vector.Type keyType = MatchIndex.keyType(search, table);
+    if(keyType != null && useHashing(search, table)) {
+      MatchIndex index = MatchIndexCache.INSTANCE.get(originalTable, table, keyType);
+      return hashedMatch(search, index, noMatch, incomparables);
+    } else {
+      return linearMatch(search, table, noMatch, incomparables);
+    }
+  }
+
+  /**
+   * Below this number of comparisons, a linear scan of the table is cheaper than
+   * building a hash index.
+   */
+  private static final long HASH_THRESHOLD = 64;
+
+  private static boolean useHashing(Vector search, Vector table) {
+    if(table.length() > MatchIndex.MAX_TABLE_LENGTH) {
+      return false;
+    }
+    return (long)search.length() * (long)table.length() > HASH_THRESHOLD;
+  }
+
+  static int[] hashedMatch(Vector search, MatchIndex index, int noMatch, AtomicVector incomparables) {
+    int[] matches = new int[search.length()];
+
+    // Factors being matched against strings only need to have their levels looked up
+    int[] levelPositions = null;
+    if(search instanceof FactorString && index instanceof StringMatchIndex) {
+      levelPositions = ((StringMatchIndex) index).lookupLevels(((FactorString) search).levels);
+    }
+
+    boolean checkIncomparables = incomparables.length() > 0;
+
+    for(int i=0;i!=search.length();++i) {
+      if(checkIncomparables && incomparables.contains(search, i)) {
+        matches[i] = noMatch;
+      } else {
+        int pos;
+        if(levelPositions != null) {
+          pos = lookupFactorElement((FactorString) search, i, levelPositions, index);
+        } else {
+          pos = index.indexOf(search, i);
+        }
+        matches[i] = pos >= 0 ? pos+1 : noMatch;
+      }
+    }
+    return matches;
+  }
+
+  private static int lookupFactorElement(FactorString search, int i, int[] levelPositions, MatchIndex index) {
+    if(search.factor.isElementNA(i)) {
+      return index.indexOf(search, i);
+    } else {
+      return levelPositions[search.factor.getElementAsInt(i)];
+    }
+  }
+
+  static int[] linearMatch(Vector search, Vector table, int noMatch, AtomicVector incomparables) {
     int[] matches = new int[search.length()];
     for(int i=0;i!=search.length();++i) {
       if( incomparables.contains(search, i)) {
@@ -268,6 +328,9 @@ public class Match {
    */
   @Internal
   public static IntVector which(Vector x) {
+    if(x instanceof DeferredComputation && !x.isConstantAccessTime() && x.getNames() == Null.INSTANCE) {
+      return new DeferredWhich(x);
+    }
     IntArrayVector.Builder indices = new IntArrayVector.Builder();
     Vector xn = x.getNames();
 
@@ -285,12 +348,12 @@ public class Match {
       .build();
   }
 
-  private static class FactorString extends StringVector {
+  static class FactorString extends StringVector {
 
     private final Vector factor;
     private final Vector levels;
 
-    private FactorString(Vector factor) {
+    FactorString(Vector factor) {
       super(AttributeMap.EMPTY);
       this.factor = factor;
       this.levels = (Vector) factor.getAttribute(Symbols.LEVELS);
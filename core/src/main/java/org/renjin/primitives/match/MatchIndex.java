@@ -0,0 +1,99 @@
+package org.renjin.primitives.match;
+
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.IntVector;
+import org.renjin.sexp.LogicalVector;
+import org.renjin.sexp.StringVector;
+import org.renjin.sexp.Vector;
+
+/**
+ * Hash index over the elements of a {@code match()} table, mapping each distinct
+ * value to the position of its first occurrence.
+ *
+ * <p>Indexes are immutable once built and can be safely shared between threads and
+ * reused for repeated lookups against the same table.</p>
+ */
+public abstract class MatchIndex {
+
+  /**
+   * The largest table we can index: open addressing requires the slot array to be
+   * at least twice the size of the table.
+   */
+  public static final int MAX_TABLE_LENGTH = 1 << 29;
+
+  static final int MIN_CAPACITY = 16;
+
+  /**
+   * @return the type to which both the search and table values are coerced before
+   * being compared, or {@code null} if the combination of types cannot be hashed.
+   */
+  public static Vector.Type keyType(Vector search, Vector table) {
+    if(!isHashable(search) || !isHashable(table)) {
+      return null;
+    }
+    if(search instanceof StringVector || table instanceof StringVector) {
+      return StringVector.VECTOR_TYPE;
+    }
+    if(search instanceof DoubleVector || table instanceof DoubleVector) {
+      return DoubleVector.VECTOR_TYPE;
+    }
+    return IntVector.VECTOR_TYPE;
+  }
+
+  private static boolean isHashable(Vector vector) {
+    return vector instanceof IntVector ||
+           vector instanceof LogicalVector ||
+           vector instanceof DoubleVector ||
+           vector instanceof StringVector;
+  }
+
+  /**
+   * Builds a new index of the elements of {@code table}, coerced to {@code keyType}.
+   */
+  public static MatchIndex build(Vector table, Vector.Type keyType) {
+    if(keyType == StringVector.VECTOR_TYPE) {
+      return new StringMatchIndex(table);
+    } else if(keyType == DoubleVector.VECTOR_TYPE) {
+      return new DoubleMatchIndex(table);
+    } else if(keyType == IntVector.VECTOR_TYPE) {
+      return new IntMatchIndex(table);
+    } else {
+      throw new IllegalArgumentException("keyType: " + keyType);
+    }
+  }
+
+  /**
+   * @return the type to which table elements were coerced when building this index.
+   */
+  public abstract Vector.Type getKeyType();
+
+  /**
+   * @return the zero-based position of the first element in the table equal to
+   * {@code search[index]}, or -1 if there is no such element.
+   */
+  public abstract int indexOf(Vector search, int index);
+
+  /**
+   * Computes the number of slots needed for a table of the given length, keeping the
+   * load factor at or below 0.5.
+   */
+  static int capacityFor(int length) {
+    if(length > MAX_TABLE_LENGTH) {
+      throw new IllegalArgumentException("table too large to index: " + length);
+    }
+    int capacity = MIN_CAPACITY;
+    while(capacity < length * 2) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  static int mix(int h) {
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  static int mix(long bits) {
+    return mix((int)(bits ^ (bits >>> 32)));
+  }
+}
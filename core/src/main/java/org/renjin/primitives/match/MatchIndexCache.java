@@ -0,0 +1,62 @@
+package org.renjin.primitives.match;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.renjin.sexp.Vector;
+
+/**
+ * Maintains the hash indexes of recently used {@code match()} tables, so that
+ * repeated calls such as {@code x %in% lookup} within a loop only index
+ * {@code lookup} once.
+ *
+ * <p>Entries are keyed on the identity of the table vector, and are held weakly
+ * so that they are discarded along with the table.</p>
+ */
+public class MatchIndexCache {
+
+  public static final MatchIndexCache INSTANCE = new MatchIndexCache();
+
+  /**
+   * Tables shorter than this are cheap enough to re-index on each call.
+   */
+  public static final int MIN_CACHED_LENGTH = 256;
+
+  private final Cache<Vector, MatchIndex> cache;
+
+  private MatchIndexCache() {
+    cache = CacheBuilder.newBuilder()
+        .weakKeys()
+        .maximumSize(64)
+        .build();
+  }
+
+  /**
+   * Returns the index of {@code table}, building it if it has not already been
+   * indexed with the given key type.
+   *
+   * @param key the vector whose identity the index is associated with. This is normally
+   *            {@code table} itself, but may be the original factor when {@code table} is a view of
+   *            its levels.
+   * @param table the table to index
+   * @param keyType the type to which table elements are coerced
+   */
+  public MatchIndex get(Vector key, Vector table, Vector.Type keyType) {
+    if(table.length() < MIN_CACHED_LENGTH) {
+      return MatchIndex.build(table, keyType);
+    }
+    MatchIndex index = cache.getIfPresent(key);
+    if(index == null || index.getKeyType() != keyType) {
+      index = MatchIndex.build(table, keyType);
+      cache.put(key, index);
+    }
+    return index;
+  }
+
+  /**
+   * Discards any cached index of {@code table}. This must be called if the
+   * contents of a vector are modified in place.
+   */
+  public void invalidate(Vector table) {
+    cache.invalidate(table);
+  }
+}
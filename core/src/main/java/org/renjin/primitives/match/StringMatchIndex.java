@@ -0,0 +1,88 @@
+package org.renjin.primitives.match;
+
+import org.renjin.sexp.StringVector;
+import org.renjin.sexp.Vector;
+
+/**
+ * Open-addressing index of string values. NA_character_ is stored separately
+ * as it has no {@code String} representation.
+ */
+class StringMatchIndex extends MatchIndex {
+
+  private final int mask;
+  private final String[] keys;
+  private final int[] positions;
+  private int naPosition = -1;
+
+  StringMatchIndex(Vector table) {
+    int capacity = capacityFor(table.length());
+    mask = capacity - 1;
+    keys = new String[capacity];
+    positions = new int[capacity];
+
+    for(int i=0;i!=table.length();++i) {
+      if(table.isElementNA(i)) {
+        if(naPosition == -1) {
+          naPosition = i;
+        }
+      } else {
+        insert(table.getElementAsString(i), i);
+      }
+    }
+  }
+
+  private void insert(String key, int position) {
+    int slot = mix(key.hashCode()) & mask;
+    while(keys[slot] != null) {
+      if(keys[slot].equals(key)) {
+        // keep the first occurrence
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    positions[slot] = position;
+  }
+
+  public int lookup(String key) {
+    if(StringVector.isNA(key)) {
+      return naPosition;
+    }
+    int slot = mix(key.hashCode()) & mask;
+    while(keys[slot] != null) {
+      if(keys[slot].equals(key)) {
+        return positions[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Looks up each of a factor's levels once, so that the factor's elements
+   * can be matched by their integer codes rather than by string.
+   *
+   * @return an array mapping each one-based factor code to a position in the table,
+   * or -1 if the level does not appear in the table.
+   */
+  public int[] lookupLevels(Vector levels) {
+    int[] positions = new int[levels.length() + 1];
+    for(int i=0;i!=levels.length();++i) {
+      positions[i + 1] = lookup(levels.getElementAsString(i));
+    }
+    return positions;
+  }
+
+  @Override
+  public Vector.Type getKeyType() {
+    return StringVector.VECTOR_TYPE;
+  }
+
+  @Override
+  public int indexOf(Vector search, int index) {
+    if(search.isElementNA(index)) {
+      return naPosition;
+    }
+    return lookup(search.getElementAsString(index));
+  }
+}
@@ -1,19 +1,37 @@
 package org.renjin.primitives.packaging;
 
+import com.google.common.base.Function;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.io.Resources;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemManager;
+import org.renjin.eval.Context;
+import org.renjin.packaging.LazyLoadSnapshot;
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.Symbol;
 import org.renjin.util.NamedByteSource;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Provides access to a Renjin package that is on the application's classpath.
  */
 public class ClasspathPackage extends FileBasedPackage {
 
+  /**
+   * Snapshots of the namespaces of packages loaded from the classpath, shared by all
+   * Sessions in this JVM, keyed by the URL of the package's environment resource.
+   */
+  private static final Cache<String, LazyLoadSnapshot> SNAPSHOTS = CacheBuilder.newBuilder()
+      .softValues()
+      .build();
+
   private ClassLoader classLoader;
 
   public ClasspathPackage(ClassLoader classLoader, FqPackageName name) {
@@ -43,6 +61,51 @@ public class ClasspathPackage extends FileBasedPackage {
     }
   }
 
+  @Override
+  public void populateNamespace(Context context, Environment namespaceEnvironment) throws IOException {
+    LazyLoadSnapshot snapshot = getSnapshot();
+    for (int i = 0; i < snapshot.size(); i++) {
+      namespaceEnvironment.setVariable(snapshot.getSymbol(i), snapshot.instantiate(i, context, namespaceEnvironment));
+    }
+  }
+
+  private LazyLoadSnapshot getSnapshot() throws IOException {
+    URL url = classLoader.getResource(qualifyResourceName("environment"));
+    if (url == null) {
+      throw new IOException("Could not find environment for " + getName());
+    }
+    try {
+      return SNAPSHOTS.get(url.toExternalForm(), new Callable<LazyLoadSnapshot>() {
+        @Override
+        public LazyLoadSnapshot call() throws Exception {
+          return LazyLoadSnapshot.read(new Function<String, InputStream>() {
+            @Override
+            public InputStream apply(String name) {
+              try {
+                return getResource(name).openStream();
+              } catch (IOException e) {
+                throw new RuntimeException(e);
+              }
+            }
+          }, Symbol.get(getCompatibleName()));
+        }
+      });
+    } catch (ExecutionException e) {
+      throw new IOException("Could not read namespace of " + getName(), e.getCause());
+    }
+  }
+
+  /**
+   * @return the name by which the namespace is referenced in serialized closures
+   */
+  private String getCompatibleName() {
+    if (getName().getGroupId().equals(FqPackageName.CORE_GROUP_ID)) {
+      return getName().getPackageName();
+    } else {
+      return getName().toString(':');
+    }
+  }
+
   @Override
   public Class loadClass(String name) throws ClassNotFoundException {
     return classLoader.loadClass(name);
@@ -36,6 +36,8 @@ public class Namespace {
 
   private final List<Symbol> exports = Lists.newArrayList();
 
+  private NativeSymbolTable nativeSymbolTable;
+
 
   public Namespace(Package pkg, Environment namespaceEnvironment) {
     this.pkg = pkg;
@@ -143,6 +145,25 @@ public class Namespace {
     return pkg;
   }
 
+  /**
+   * @return the table of routines in the JVM class {@code groupId.packageName.packageName}, which
+   * holds the package's compiled native code called by name through {@code .C}, {@code .Fortran}
+   * or {@code .Call}
+   */
+  public NativeSymbolTable getNativeSymbolTable() {
+    if(nativeSymbolTable == null) {
+      FqPackageName fqname = pkg.getName();
+      String packageClassName = fqname.getGroupId() + "." + fqname.getPackageName() + "." +
+          fqname.getPackageName();
+      try {
+        nativeSymbolTable = NativeSymbolTable.of(pkg.loadClass(packageClassName));
+      } catch (ClassNotFoundException e) {
+        throw new EvalException("Could not load class '%s' from package '%s'", packageClassName, packageClassName);
+      }
+    }
+    return nativeSymbolTable;
+  }
+
 
   public void initImports(Context context, NamespaceRegistry registry, NamespaceFile file) {
 
@@ -86,7 +86,7 @@ public class NamespaceRegistry {
     return getNamespace(context, Symbol.get(name));
   }
 
-  public Namespace getNamespace(Context context, Symbol symbol) {
+  public synchronized Namespace getNamespace(Context context, Symbol symbol) {
     if(symbol.getPrintName().equals("base")) {
       return baseNamespace;
     }
@@ -139,7 +139,7 @@ public class NamespaceRegistry {
     return CORE_PACKAGES;
   }
 
-  public Namespace getNamespace(Context context, FqPackageName fqPackageName) {
+  public synchronized Namespace getNamespace(Context context, FqPackageName fqPackageName) {
     Optional<Namespace> namespace = tryGetNamespace(context, fqPackageName);
     if(!namespace.isPresent()) {
       throw new EvalException("Could not load package " + fqPackageName);
@@ -207,9 +207,7 @@ public class NamespaceRegistry {
    *
    */
   private void populateNamespace(Context context, Package pkg, Namespace namespace) throws IOException {
-    for(NamedValue value : pkg.loadSymbols(context)) {
-      namespace.getNamespaceEnvironment().setVariable(Symbol.get(value.getName()), value.getValue());
-    }
+    pkg.populateNamespace(context, namespace.getNamespaceEnvironment());
   }
 
   /**
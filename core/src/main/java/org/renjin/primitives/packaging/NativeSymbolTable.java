@@ -0,0 +1,216 @@
+package org.renjin.primitives.packaging;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import org.renjin.eval.EvalException;
+import org.renjin.invoke.reflection.FunctionBinding;
+import org.renjin.sexp.Null;
+import org.renjin.sexp.SEXP;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The routines called by name through {@code .C}, {@code .Fortran} and {@code .Call} from the
+ * JVM class holding a package's compiled native code.
+ *
+ * <p>Each routine is looked up by reflection once, the first time it is called, rather than on
+ * every call. There is one table per class, which {@link Namespace#getNativeSymbolTable()}
+ * returns for a package namespace.</p>
+ *
+ * <p>The table also adapts method handles to the form in which the calling conventions invoke
+ * them, see {@link #getCInvoker(MethodHandle)} and {@link #getCallInvoker(MethodHandle)}, so that
+ * {@link MethodHandle#invokeWithArguments(Object...)} or a new spreader is not needed for each call.</p>
+ */
+public final class NativeSymbolTable {
+
+  private static final ClassValue<NativeSymbolTable> TABLES = new ClassValue<NativeSymbolTable>() {
+    @Override
+    protected NativeSymbolTable computeValue(Class<?> type) {
+      return new NativeSymbolTable(type);
+    }
+  };
+
+  /**
+   * Method handles adapted to {@code (Object[])void}, keyed by the identity of the original handle.
+   * The adapted handle refers to the original, so the values must not be strongly held.
+   */
+  private static final LoadingCache<MethodHandle, MethodHandle> C_INVOKERS = CacheBuilder.newBuilder()
+      .weakKeys()
+      .softValues()
+      .build(new CacheLoader<MethodHandle, MethodHandle>() {
+        @Override
+        public MethodHandle load(MethodHandle handle) {
+          int parameterCount = handle.type().parameterCount();
+          return handle
+              .asSpreader(Object[].class, parameterCount)
+              .asType(MethodType.methodType(void.class, Object[].class));
+        }
+      });
+
+  /**
+   * Method handles adapted to {@code (SEXP[])SEXP}, keyed by the identity of the original handle
+   */
+  private static final LoadingCache<MethodHandle, MethodHandle> CALL_INVOKERS = CacheBuilder.newBuilder()
+      .weakKeys()
+      .softValues()
+      .build(new CacheLoader<MethodHandle, MethodHandle>() {
+        @Override
+        public MethodHandle load(MethodHandle handle) {
+          MethodHandle invoker = handle.asSpreader(SEXP[].class, handle.type().parameterCount());
+          if(invoker.type().returnType().equals(void.class)) {
+            invoker = MethodHandles.filterReturnValue(invoker,
+                MethodHandles.constant(SEXP.class, Null.INSTANCE));
+          }
+          return invoker.asType(MethodType.methodType(SEXP.class, SEXP[].class));
+        }
+      });
+
+  private final Class<?> declaringClass;
+
+  private final ConcurrentMap<String, List<Method>> overloads = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, FunctionBinding> bindings = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, MethodHandle> routines = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, MethodHandle> fortranRoutines = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Method, MethodHandle> handles = new ConcurrentHashMap<>();
+
+  private NativeSymbolTable(Class<?> declaringClass) {
+    this.declaringClass = declaringClass;
+  }
+
+  /**
+   * @return the table of routines declared by {@code declaringClass}
+   */
+  public static NativeSymbolTable of(Class<?> declaringClass) {
+    return TABLES.get(declaringClass);
+  }
+
+  public Class<?> getDeclaringClass() {
+    return declaringClass;
+  }
+
+  /**
+   * @return the public methods of the declaring class named {@code name}
+   */
+  public List<Method> getOverloads(String name) {
+    List<Method> list = overloads.get(name);
+    if(list == null) {
+      ImmutableList.Builder<Method> builder = ImmutableList.builder();
+      for(Method method : declaringClass.getMethods()) {
+        if(method.getName().equals(name) &&
+            (method.getModifiers() & (Modifier.STATIC | Modifier.PUBLIC)) != 0) {
+          builder.add(method);
+        }
+      }
+      list = builder.build();
+      overloads.putIfAbsent(name, list);
+    }
+    return list;
+  }
+
+  /**
+   * @return a binding to the overloads of the public method {@code name}, which converts
+   * arguments and return values between R and Java types, or {@code null} if there is no such method.
+   */
+  public FunctionBinding getBinding(String name) {
+    FunctionBinding binding = bindings.get(name);
+    if(binding == null) {
+      List<Method> methods = getOverloads(name);
+      if(methods.isEmpty()) {
+        return null;
+      }
+      binding = new FunctionBinding(methods);
+      bindings.putIfAbsent(name, binding);
+    }
+    return binding;
+  }
+
+  /**
+   * @return a method handle to the public method {@code name}, or {@code null} if there is no such method.
+   * @throws IllegalArgumentException if there is more than one method with this name
+   */
+  public MethodHandle getRoutine(String name) throws IllegalAccessException {
+    MethodHandle handle = routines.get(name);
+    if(handle == null) {
+      List<Method> methods = getOverloads(name);
+      if(methods.isEmpty()) {
+        return null;
+      }
+      handle = MethodHandles.publicLookup().unreflect(Iterables.getOnlyElement(methods));
+      MethodHandle existing = routines.putIfAbsent(name, handle);
+      if(existing != null) {
+        handle = existing;
+      }
+    }
+    return handle;
+  }
+
+  /**
+   * @return a method handle to the public static method implementing the Fortran subroutine {@code name}
+   * @throws EvalException if there is no such method
+   */
+  public MethodHandle getFortranRoutine(String name) throws IllegalAccessException {
+    MethodHandle handle = fortranRoutines.get(name);
+    if(handle == null) {
+      String mangledName = name.toLowerCase() + "_";
+      for(Method method : declaringClass.getMethods()) {
+        if(method.getName().equals(mangledName) &&
+            Modifier.isPublic(method.getModifiers()) &&
+            Modifier.isStatic(method.getModifiers())) {
+          handle = MethodHandles.publicLookup().unreflect(method);
+          break;
+        }
+      }
+      if(handle == null) {
+        throw new EvalException("Could not find method %s in class %s", name, declaringClass.getName());
+      }
+      MethodHandle existing = fortranRoutines.putIfAbsent(name, handle);
+      if(existing != null) {
+        handle = existing;
+      }
+    }
+    return handle;
+  }
+
+  /**
+   * @return a method handle to {@code method}, which is only created on the first call
+   */
+  public static MethodHandle unreflect(Method method) throws IllegalAccessException {
+    ConcurrentMap<Method, MethodHandle> handles = of(method.getDeclaringClass()).handles;
+    MethodHandle handle = handles.get(method);
+    if(handle == null) {
+      handle = MethodHandles.publicLookup().unreflect(method);
+      MethodHandle existing = handles.putIfAbsent(method, handle);
+      if(existing != null) {
+        handle = existing;
+      }
+    }
+    return handle;
+  }
+
+  /**
+   * @return {@code handle} adapted to take its arguments as an {@code Object[]} and
+   * to discard any return value, as routines called through {@code .C} and {@code .Fortran} are.
+   */
+  public static MethodHandle getCInvoker(MethodHandle handle) {
+    return C_INVOKERS.getUnchecked(handle);
+  }
+
+  /**
+   * @return {@code handle} adapted to take its arguments as an {@code SEXP[]} and to return
+   * an {@code SEXP}, or {@code NULL} if the routine returns {@code void}, as routines called
+   * through {@code .Call} are.
+   */
+  public static MethodHandle getCallInvoker(MethodHandle handle) {
+    return CALL_INVOKERS.getUnchecked(handle);
+  }
+}
@@ -5,9 +5,7 @@ import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemManager;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
-import org.renjin.sexp.NamedValue;
-import org.renjin.sexp.Null;
-import org.renjin.sexp.SEXP;
+import org.renjin.sexp.*;
 import org.renjin.util.NamedByteSource;
 
 import java.io.IOException;
@@ -39,6 +37,16 @@ public abstract class Package {
   }
 
 
+  /**
+   * Adds the R-language symbols that constitute this package's namespace
+   * to a newly created namespace environment.
+   */
+  public void populateNamespace(Context context, Environment namespaceEnvironment) throws IOException {
+    for(NamedValue value : loadSymbols(context)) {
+      namespaceEnvironment.setVariable(Symbol.get(value.getName()), value.getValue());
+    }
+  }
+
   public NamedByteSource getResource(String name) throws IOException {
     throw new IOException();
   }
@@ -0,0 +1,11 @@
+package org.renjin.primitives.sort;
+
+/**
+ * Compares two elements of a vector by their zero-based indices, without
+ * boxing them.
+ */
+public interface IndexComparator {
+
+  int compare(int index1, int index2);
+
+}
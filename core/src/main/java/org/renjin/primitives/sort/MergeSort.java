@@ -0,0 +1,68 @@
+package org.renjin.primitives.sort;
+
+/**
+ * Stable merge sort of a permutation, for element types that have no
+ * radix-sortable key.
+ */
+class MergeSort {
+
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+
+  private MergeSort() { }
+
+  /**
+   * Stably sorts {@code perm[from, to)} using the given comparator.
+   */
+  static void sort(int[] perm, int from, int to, IndexComparator comparator) {
+    if(to - from < 2) {
+      return;
+    }
+    int[] buffer = new int[to - from];
+    sort(perm, from, to, buffer, comparator);
+  }
+
+  private static void sort(int[] perm, int from, int to, int[] buffer, IndexComparator comparator) {
+    int length = to - from;
+    if(length < INSERTION_SORT_THRESHOLD) {
+      insertionSort(perm, from, to, comparator);
+      return;
+    }
+    int mid = (from + to) >>> 1;
+    sort(perm, from, mid, buffer, comparator);
+    sort(perm, mid, to, buffer, comparator);
+
+    // Already in order?
+    if(comparator.compare(perm[mid - 1], perm[mid]) <= 0) {
+      return;
+    }
+
+    System.arraycopy(perm, from, buffer, 0, mid - from);
+    int i = 0;
+    int leftLength = mid - from;
+    int j = mid;
+    int k = from;
+    while(i < leftLength && j < to) {
+      // Take from the right only if strictly less, to keep the sort stable
+      if(comparator.compare(perm[j], buffer[i]) < 0) {
+        perm[k++] = perm[j++];
+      } else {
+        perm[k++] = buffer[i++];
+      }
+    }
+    while(i < leftLength) {
+      perm[k++] = buffer[i++];
+    }
+  }
+
+  private static void insertionSort(int[] perm, int from, int to, IndexComparator comparator) {
+    for(int i=from+1;i<to;++i) {
+      int index = perm[i];
+      int j = i - 1;
+      while(j >= from && comparator.compare(perm[j], index) > 0) {
+        perm[j + 1] = perm[j];
+        j--;
+      }
+      perm[j + 1] = index;
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package org.renjin.primitives.sort;
+
+import org.renjin.sexp.AtomicVector;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.IntVector;
+import org.renjin.sexp.LogicalVector;
+import org.renjin.sexp.RawVector;
+import org.renjin.sexp.StringVector;
+
+/**
+ * Computes the permutations which order one or more vectors, working directly
+ * on {@code int[]} permutations without boxing.
+ *
+ * <p>Integer, logical, factor and double columns are ordered with a radix sort, other
+ * columns with a stable merge sort. Orderings by several columns are computed
+ * by stably sorting by each column in turn, starting with the last.</p>
+ *
+ * <p>All orderings are stable: ties, including ties between NA values, are left in
+ * their original order, regardless of {@code decreasing}.</p>
+ */
+public class Ordering {
+
+  private Ordering() { }
+
+  /**
+   * @return the zero-based permutation which orders {@code x}
+   */
+  public static int[] order(AtomicVector x, boolean naLast, boolean decreasing) {
+    int[] perm = identity(x.length());
+    sortBy(x, perm, naLast, decreasing);
+    return perm;
+  }
+
+  /**
+   * @return the zero-based permutation which orders the rows of {@code columns}, breaking
+   * ties in the first column by the second, and so on.
+   */
+  public static int[] order(AtomicVector[] columns, boolean naLast, boolean decreasing) {
+    if(columns.length == 0) {
+      return new int[0];
+    }
+    int[] perm = identity(columns[0].length());
+    for(int i=columns.length-1;i>=0;--i) {
+      sortBy(columns[i], perm, naLast, decreasing);
+    }
+    return perm;
+  }
+
+  private static int[] identity(int length) {
+    int[] perm = new int[length];
+    for(int i=0;i!=length;++i) {
+      perm[i] = i;
+    }
+    return perm;
+  }
+
+  /**
+   * Stably sorts the permutation {@code perm} by the values of {@code column}
+   */
+  private static void sortBy(AtomicVector column, int[] perm, boolean naLast, boolean decreasing) {
+
+    int naCount = moveNAs(column, perm, naLast);
+    int from = naLast ? 0 : naCount;
+    int length = perm.length - naCount;
+
+    if(column instanceof DoubleVector) {
+      RadixSort.sort(doubleKeys((DoubleVector) column, perm, from, length, decreasing), perm, from, length);
+
+    } else if(column instanceof IntVector || column instanceof LogicalVector || column instanceof RawVector) {
+      RadixSort.sort(intKeys(column, perm, from, length, decreasing), perm, from, length);
+
+    } else if(column instanceof StringVector) {
+      MergeSort.sort(perm, from, from + length, stringComparator((StringVector) column, decreasing));
+
+    } else {
+      MergeSort.sort(perm, from, from + length, elementComparator(column, decreasing));
+    }
+  }
+
+  private static boolean isNA(AtomicVector column, int index) {
+    if(column instanceof DoubleVector) {
+      // NaN is ordered as NA
+      return Double.isNaN(column.getElementAsDouble(index));
+    } else {
+      return column.isElementNA(index);
+    }
+  }
+
+  /**
+   * Stably moves elements of {@code perm} which index NA values to the beginning or the end.
+   *
+   * @return the number of NA values
+   */
+  private static int moveNAs(AtomicVector column, int[] perm, boolean naLast) {
+    int n = perm.length;
+    int[] nas = null;
+    int naCount = 0;
+    int k = 0;
+    for(int i=0;i!=n;++i) {
+      int index = perm[i];
+      if(isNA(column, index)) {
+        if(nas == null) {
+          nas = new int[n - i];
+        }
+        nas[naCount++] = index;
+      } else {
+        perm[k++] = index;
+      }
+    }
+    if(naCount > 0) {
+      if(naLast) {
+        System.arraycopy(nas, 0, perm, k, naCount);
+      } else {
+        System.arraycopy(perm, 0, perm, naCount, k);
+        System.arraycopy(nas, 0, perm, 0, naCount);
+      }
+    }
+    return naCount;
+  }
+
+  private static long[] intKeys(AtomicVector column, int[] perm, int from, int length, boolean decreasing) {
+    long[] keys = new long[length];
+    for(int i=0;i!=length;++i) {
+      long key = column.getElementAsInt(perm[from + i]);
+      keys[i] = decreasing ? ~key : key;
+    }
+    return keys;
+  }
+
+  private static long[] doubleKeys(DoubleVector column, int[] perm, int from, int length, boolean decreasing) {
+    long[] keys = new long[length];
+    for(int i=0;i!=length;++i) {
+      long key = sortableBits(column.getElementAsDouble(perm[from + i]));
+      keys[i] = decreasing ? ~key : key;
+    }
+    return keys;
+  }
+
+  /**
+   * Maps a non-NaN double to a long whose signed order is the same as the
+   * numeric order of the double, with -0 and 0 mapping to the same value.
+   */
+  static long sortableBits(double value) {
+    if(value == 0) {
+      return 0L;
+    }
+    long bits = Double.doubleToRawLongBits(value);
+    return bits >= 0 ? bits : bits ^ Long.MAX_VALUE;
+  }
+
+  private static IndexComparator stringComparator(StringVector column, final boolean decreasing) {
+    final String[] values = column.toArray();
+    return new IndexComparator() {
+      @Override
+      public int compare(int index1, int index2) {
+        int rel = values[index1].compareTo(values[index2]);
+        return decreasing ? -rel : rel;
+      }
+    };
+  }
+
+  private static IndexComparator elementComparator(final AtomicVector column, final boolean decreasing) {
+    return new IndexComparator() {
+      @Override
+      public int compare(int index1, int index2) {
+        int rel = column.compare(index1, index2);
+        return decreasing ? -rel : rel;
+      }
+    };
+  }
+}
@@ -0,0 +1,129 @@
+package org.renjin.primitives.sort;
+
+import java.util.Arrays;
+
+/**
+ * Stable least-significant-digit radix sort of a permutation by {@code long} keys.
+ *
+ * <p>Keys are first rebased on their minimum value so that only the significant
+ * bits of their range need to be sorted: integers and factors with a small range are
+ * sorted in a single counting pass, and passes over digits that are identical
+ * for all keys are skipped entirely.</p>
+ */
+class RadixSort {
+
+  /**
+   * Below this length, insertion sort is faster than allocating buckets
+   */
+  private static final int INSERTION_SORT_THRESHOLD = 32;
+
+  private static final int MAX_SINGLE_PASS_BITS = 16;
+  private static final int DIGIT_BITS = 11;
+
+  private RadixSort() { }
+
+  /**
+   * Stably sorts {@code perm[offset, offset+length)} by the signed values of {@code keys}, where
+   * {@code keys[i]} is the key of {@code perm[offset+i]}. Both arrays are rearranged.
+   */
+  static void sort(long[] keys, int[] perm, int offset, int length) {
+    if(length < 2) {
+      return;
+    }
+    if(length < INSERTION_SORT_THRESHOLD) {
+      insertionSort(keys, perm, offset, length);
+      return;
+    }
+
+    long min = keys[0];
+    long max = keys[0];
+    for(int i=1;i<length;++i) {
+      long key = keys[i];
+      if(key < min) {
+        min = key;
+      } else if(key > max) {
+        max = key;
+      }
+    }
+
+    // The range may overflow a signed long, but is correct as an unsigned value
+    long range = max - min;
+    if(range == 0) {
+      return;
+    }
+    for(int i=0;i<length;++i) {
+      keys[i] -= min;
+    }
+
+    int bits = 64 - Long.numberOfLeadingZeros(range);
+    int digitBits = bits <= MAX_SINGLE_PASS_BITS ? bits : DIGIT_BITS;
+    int numBuckets = 1 << digitBits;
+    long mask = numBuckets - 1;
+
+    long[] keysIn = keys;
+    int[] permIn = copyOfRange(perm, offset, length);
+    long[] keysOut = new long[length];
+    int[] permOut = new int[length];
+    int[] counts = new int[numBuckets];
+
+    for(int shift = 0; shift < bits; shift += digitBits) {
+
+      Arrays.fill(counts, 0);
+      for(int i=0;i<length;++i) {
+        counts[(int)((keysIn[i] >>> shift) & mask)]++;
+      }
+
+      // If every key shares this digit, this pass would not change the order
+      if(counts[(int)((keysIn[0] >>> shift) & mask)] == length) {
+        continue;
+      }
+
+      int start = 0;
+      for(int b=0;b<numBuckets;++b) {
+        int count = counts[b];
+        counts[b] = start;
+        start += count;
+      }
+
+      for(int i=0;i<length;++i) {
+        int pos = counts[(int)((keysIn[i] >>> shift) & mask)]++;
+        keysOut[pos] = keysIn[i];
+        permOut[pos] = permIn[i];
+      }
+
+      long[] keysTmp = keysIn;
+      keysIn = keysOut;
+      keysOut = keysTmp;
+
+      int[] permTmp = permIn;
+      permIn = permOut;
+      permOut = permTmp;
+    }
+
+    System.arraycopy(permIn, 0, perm, offset, length);
+    if(keysIn != keys) {
+      System.arraycopy(keysIn, 0, keys, 0, length);
+    }
+  }
+
+  private static int[] copyOfRange(int[] perm, int offset, int length) {
+    int[] copy = new int[length];
+    System.arraycopy(perm, offset, copy, 0, length);
+    return copy;
+  }
+
+  private static void insertionSort(long[] keys, int[] perm, int offset, int length) {
+    for(int i=1;i<length;++i) {
+      long key = keys[i];
+      int index = perm[offset + i];
+      int j = i - 1;
+      while(j >= 0 && keys[j] > key) {
+        keys[j + 1] = keys[j];
+        perm[offset + j + 1] = perm[offset + j];
+        j--;
+      }
+      keys[j + 1] = key;
+      perm[offset + j + 1] = index;
+    }
+  }
+}
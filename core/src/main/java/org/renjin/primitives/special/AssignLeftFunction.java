@@ -23,11 +23,17 @@ package org.renjin.primitives.special;
 
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
+import org.renjin.primitives.subset.Subsetting;
 import org.renjin.sexp.*;
 
 
 public class AssignLeftFunction extends SpecialFunction {
 
+  private static final Symbol SUBSET = Symbol.get("[");
+  private static final Symbol SUBSET_ASSIGN = Symbol.get("[<-");
+  private static final Symbol ELEMENT = Symbol.get("[[");
+  private static final Symbol ELEMENT_ASSIGN = Symbol.get("[[<-");
+
   public AssignLeftFunction() {
     super("<-");
   }
@@ -58,6 +64,15 @@ public class AssignLeftFunction extends SpecialFunction {
     // class(x$a[3]) <- "foo"
 
     SEXP evaluatedValue = context.evaluate( value, rho);
+
+    if(lhs instanceof FunctionCall && assignsLocally()) {
+      lhs = assignElementInPlace(context, rho, (FunctionCall) lhs, evaluatedValue);
+      if(lhs == null) {
+        context.setInvisibleFlag();
+        return evaluatedValue;
+      }
+    }
+
     SEXP rhs = new Promise(value, evaluatedValue);
 
     while(lhs instanceof FunctionCall) {
@@ -75,6 +90,10 @@ public class AssignLeftFunction extends SpecialFunction {
       rhs = context.evaluate(setterCall, rho);
 
       lhs = call.getArgument(0);
+      if(lhs instanceof Promise) {
+        // the target has already been evaluated by assignElementInPlace()
+        lhs = ((Promise) lhs).getExpression();
+      }
     }
 
     Symbol target;
@@ -100,4 +119,105 @@ public class AssignLeftFunction extends SpecialFunction {
   protected void assignResult(Context context, Environment rho, Symbol target, SEXP rhs) {
     rho.setVariable(target, rhs);
   }
+
+  /**
+   * @return true if the result is assigned in the environment in which the assignment is
+   * evaluated, which is where the value to be replaced is looked up.
+   */
+  protected boolean assignsLocally() {
+    return true;
+  }
+
+  /**
+   * Tries to make an assignment of the form {@code x[i] <- value} or {@code x[[i]] <- value} by
+   * modifying the value of {@code x} in place, rather than calling {@code [<-} or {@code [[<-} to
+   * copy it, so that a loop filling a vector element by element takes linear rather than quadratic time.
+   *
+   * <p>This is only possible if {@code x} is bound in {@code rho} itself, the replacement function is
+   * the builtin, and {@link Subsetting#replaceElementInPlace(Vector, SEXP, SEXP, boolean)} accepts
+   * the index and value.</p>
+   *
+   * @return {@code null} if the assignment was made, or otherwise the call to the getter with which
+   * the assignment should be made. If the subscript has already been evaluated, this is a copy of
+   * {@code call} with its arguments replaced by promises to their values.
+   */
+  private FunctionCall assignElementInPlace(Context context, Environment rho, FunctionCall call, SEXP value) {
+    boolean element;
+    Symbol setterName;
+    if(call.getFunction() == SUBSET) {
+      element = false;
+      setterName = SUBSET_ASSIGN;
+    } else if(call.getFunction() == ELEMENT) {
+      element = true;
+      setterName = ELEMENT_ASSIGN;
+    } else {
+      return call;
+    }
+
+    if(call.getArguments().length() != 2) {
+      return call;
+    }
+    PairList.Node targetNode = (PairList.Node) call.getArguments();
+    PairList.Node subscriptNode = targetNode.getNextNode();
+    if(targetNode.hasTag() || subscriptNode.hasTag() ||
+        !(targetNode.getValue() instanceof Symbol) || !isPlainArgument(subscriptNode.getValue())) {
+      return call;
+    }
+    Symbol target = (Symbol) targetNode.getValue();
+    if(!isPlainArgument(target) || rho.bindingIsLocked(target)) {
+      return call;
+    }
+
+    Frame frame = rho.getFrame();
+    SEXP source = peekVariable(frame, target);
+    if(!(source instanceof Vector) || source.isObject()) {
+      return call;
+    }
+
+    // The call to the getter is not itself evaluated, so its cache can be used to find the setter
+    Function setter = call.getFunctionLookupCache().findFunction(context, rho, setterName);
+    if(!(setter instanceof PrimitiveFunction) ||
+        !((PrimitiveFunction) setter).getName().equals(setterName.getPrintName())) {
+      return call;
+    }
+
+    SEXP subscript = context.evaluate(subscriptNode.getValue(), rho);
+
+    // evaluating the subscript may have read or reassigned x
+    if(peekVariable(frame, target) == source && !rho.bindingIsLocked(target)) {
+      Vector result = Subsetting.replaceElementInPlace((Vector) source, subscript, value, element);
+      if(result != null) {
+        if(result != source) {
+          rho.setVariable(target, result);
+        }
+        return null;
+      }
+    }
+
+    return new FunctionCall(call.getFunction(), PairList.Node.newBuilder()
+        .add(new Promise(target, source))
+        .add(new Promise(subscriptNode.getValue(), subscript))
+        .build());
+  }
+
+  /**
+   * @return the value bound to {@code name} in {@code frame} without marking it shared, or
+   * {@code null} if the frame does not support reading values without marking them.
+   */
+  private static SEXP peekVariable(Frame frame, Symbol name) {
+    if(frame instanceof ArrayFrame) {
+      return ((ArrayFrame) frame).peekVariable(name);
+    } else if(frame instanceof HashFrame) {
+      return ((HashFrame) frame).peekVariable(name);
+    } else {
+      return null;
+    }
+  }
+
+  private static boolean isPlainArgument(SEXP exp) {
+    if(exp == Symbol.MISSING_ARG || exp == Symbols.ELLIPSES) {
+      return false;
+    }
+    return !(exp instanceof Symbol) || !((Symbol) exp).isVarArgReference();
+  }
 }
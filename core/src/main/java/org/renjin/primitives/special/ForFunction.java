@@ -21,6 +21,7 @@
 
 package org.renjin.primitives.special;
 
+import org.renjin.compiler.tiered.TieredCompiler;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.sexp.*;
@@ -56,6 +57,7 @@ public class ForFunction extends SpecialFunction {
     for(int i=0; i!=elements.length(); ++i) {
       try {
         rho.setVariable(symbol, elements.getElementAsSEXP(i));
+        TieredCompiler.countBackEdge(context, rho);
         context.evaluate( statement, rho);
       } catch (BreakException e) {
         break;
@@ -21,6 +21,7 @@
 
 package org.renjin.primitives.special;
 
+import org.renjin.compiler.tiered.TieredCompiler;
 import org.renjin.eval.Context;
 import org.renjin.sexp.Environment;
 import org.renjin.sexp.FunctionCall;
@@ -41,6 +42,7 @@ public class RepeatFunction extends SpecialFunction {
 
     while(true) {
       try {
+        TieredCompiler.countBackEdge(context, rho);
         context.evaluate( statement, rho);
       } catch(BreakException e) {
         break;
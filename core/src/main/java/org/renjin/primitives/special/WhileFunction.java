@@ -21,6 +21,7 @@
 
 package org.renjin.primitives.special;
 
+import org.renjin.compiler.tiered.TieredCompiler;
 import org.renjin.eval.Context;
 import org.renjin.sexp.Environment;
 import org.renjin.sexp.FunctionCall;
@@ -44,6 +45,7 @@ public class WhileFunction extends SpecialFunction {
 
       try {
 
+        TieredCompiler.countBackEdge(context, rho);
         context.evaluate( statement, rho);
 
       } catch(BreakException e) {
@@ -27,6 +27,7 @@ import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.*;
 import org.renjin.methods.MethodDispatch;
 import org.renjin.primitives.Types;
+import org.renjin.primitives.match.MatchIndexCache;
 import org.renjin.sexp.*;
 
 import java.lang.reflect.Array;
@@ -463,4 +464,120 @@ public class Subsetting {
     return builder.build();
   }
 
+  /**
+   * Replaces a single element of a vector bound to a variable, as {@code x[i] <- value} or
+   * {@code x[[i]] <- value} do when {@code i} is a single index within the bounds of {@code x}
+   * and {@code value} does not change the type of {@code x}.
+   *
+   * <p>If {@code source} is not {@linkplain SEXP#isShared() shared}, the element is replaced in
+   * place. Otherwise it is replaced in a copy, which is marked as not shared, so that subsequent
+   * replacements of the same variable do not copy it again. The caller must bind the result to the
+   * variable from which {@code source} was read, and must not otherwise retain or return it.</p>
+   *
+   * @param element true for {@code [[<-}, false for {@code [<-}
+   * @return the modified vector, or {@code null} if the replacement must be made by the
+   * {@code [<-} or {@code [[<-} functions.
+   */
+  public static Vector replaceElementInPlace(Vector source, SEXP subscript, SEXP replacement, boolean element) {
+    if(source.isObject()) {
+      return null;
+    }
+    int index = singleIndex(source, subscript);
+    if(index == -1) {
+      return null;
+    }
+
+    if(source.getClass() == ListVector.class) {
+      if(!element || replacement == Null.INSTANCE) {
+        return null;
+      }
+      ListVector result = source.isShared() ?
+          new ListVector(((ListVector) source).toArrayUnsafe(), source.getAttributes()) : (ListVector) source;
+      result.toArrayUnsafe()[index] = replacement;
+      return ownedResult(source, result);
+    }
+
+    if(!(replacement instanceof AtomicVector) || replacement.length() != 1 || replacement.isObject()) {
+      return null;
+    }
+    Vector value = (Vector) replacement;
+
+    if(source instanceof DoubleVector) {
+      if(!(value instanceof DoubleVector || value instanceof IntVector || value instanceof LogicalVector)) {
+        return null;
+      }
+      DoubleArrayVector result = source.isShared() ?
+          DoubleArrayVector.unsafe(((DoubleVector) source).toDoubleArray(), source.getAttributes()) :
+          (DoubleArrayVector) source;
+      result.toDoubleArrayUnsafe()[index] = value.getElementAsDouble(0);
+      return ownedResult(source, result);
+
+    } else if(source instanceof IntVector) {
+      if(!(value instanceof IntVector || value instanceof LogicalVector)) {
+        return null;
+      }
+      IntArrayVector result = source.isShared() ?
+          IntArrayVector.unsafe(((IntVector) source).toIntArray(), source.getAttributes()) :
+          (IntArrayVector) source;
+      result.toIntArrayUnsafe()[index] = value.getElementAsInt(0);
+      return ownedResult(source, result);
+
+    } else if(source instanceof LogicalVector) {
+      if(!(value instanceof LogicalVector)) {
+        return null;
+      }
+      LogicalArrayVector result = source.isShared() ?
+          LogicalArrayVector.unsafe(((LogicalVector) source).toIntArray(), source.getAttributes()) :
+          (LogicalArrayVector) source;
+      result.toIntArrayUnsafe()[index] = value.getElementAsRawLogical(0);
+      return ownedResult(source, result);
+
+    } else if(source instanceof StringVector) {
+      if(!(value instanceof StringVector)) {
+        return null;
+      }
+      StringArrayVector result = source.isShared() ?
+          new StringArrayVector(((StringVector) source).toArray(), source.getAttributes()) :
+          (StringArrayVector) source;
+      result.toArrayUnsafe()[index] = value.getElementAsString(0);
+      return ownedResult(source, result);
+    }
+    return null;
+  }
+
+  /**
+   * @return the zero-based index selected by {@code subscript} if it is a single positive
+   * integer or double no greater than the length of {@code source}, or -1 otherwise
+   */
+  private static int singleIndex(Vector source, SEXP subscript) {
+    if(subscript.length() != 1 || subscript.isObject()) {
+      return -1;
+    }
+    double index;
+    if(subscript instanceof IntVector) {
+      IntVector vector = (IntVector) subscript;
+      if(vector.isElementNA(0)) {
+        return -1;
+      }
+      index = vector.getElementAsInt(0);
+    } else if(subscript instanceof DoubleVector) {
+      index = ((DoubleVector) subscript).getElementAsDouble(0);
+    } else {
+      return -1;
+    }
+    // double subscripts are truncated towards zero, NaN fails both tests
+    if(index >= 1 && index < source.length() + 1) {
+      return ((int) index) - 1;
+    }
+    return -1;
+  }
+
+  private static Vector ownedResult(Vector source, Vector result) {
+    if(result == source) {
+      MatchIndexCache.INSTANCE.invalidate(source);
+    } else {
+      ((AbstractSEXP) result).markUnshared();
+    }
+    return result;
+  }
 }
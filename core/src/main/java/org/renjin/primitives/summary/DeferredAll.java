@@ -0,0 +1,37 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.IntVector;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Vector;
+
+public class DeferredAll extends DeferredLogicalSummary {
+
+  public DeferredAll(Vector vector, AttributeMap attributes) {
+    super(vector, attributes);
+  }
+
+  @Override
+  protected int calculate() {
+    boolean na = false;
+    for(int i=0;i!=vector.length();++i) {
+      int value = vector.getElementAsRawLogical(i);
+      if(value == 0) {
+        return 0;
+      } else if(value == IntVector.NA) {
+        na = true;
+      }
+    }
+    return na ? IntVector.NA : 1;
+  }
+
+  @Override
+  public String getComputationName() {
+    return "all";
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredAll(vector, attributes);
+  }
+}
@@ -0,0 +1,37 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.IntVector;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Vector;
+
+public class DeferredAny extends DeferredLogicalSummary {
+
+  public DeferredAny(Vector vector, AttributeMap attributes) {
+    super(vector, attributes);
+  }
+
+  @Override
+  protected int calculate() {
+    boolean na = false;
+    for(int i=0;i!=vector.length();++i) {
+      int value = vector.getElementAsRawLogical(i);
+      if(value == 1) {
+        return 1;
+      } else if(value == IntVector.NA) {
+        na = true;
+      }
+    }
+    return na ? IntVector.NA : 0;
+  }
+
+  @Override
+  public String getComputationName() {
+    return "any";
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredAny(vector, attributes);
+  }
+}
@@ -0,0 +1,37 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Vector;
+
+/**
+ * Counts the number of elements which are {@code TRUE}, which is
+ * the length of {@code which(vector)}.
+ */
+public class DeferredCountTrue extends DeferredSummary {
+
+  public DeferredCountTrue(Vector vector, AttributeMap attributes) {
+    super(vector, attributes);
+  }
+
+  @Override
+  protected double calculate() {
+    int count = 0;
+    for(int i=0;i!=vector.length();++i) {
+      if(vector.isElementTrue(i)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public String getComputationName() {
+    return "countTrue";
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredCountTrue(vector, attributes);
+  }
+}
@@ -0,0 +1,82 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.primitives.vector.MemoizedComputation;
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.LogicalArrayVector;
+import org.renjin.sexp.LogicalVector;
+import org.renjin.sexp.Vector;
+
+/**
+ * Summary of a vector whose result is a single logical value, such as {@code any()}.
+ */
+public abstract class DeferredLogicalSummary extends LogicalVector implements MemoizedComputation {
+  protected final Vector vector;
+  private int result;
+  private boolean calculated = false;
+
+  public DeferredLogicalSummary(Vector vector, AttributeMap attributes) {
+    super(attributes);
+    this.vector = vector;
+  }
+
+  @Override
+  public final Vector[] getOperands() {
+    return new Vector[]  { vector };
+  }
+
+  @Override
+  public final int getElementAsRawLogical(int index) {
+    if(index != 0) {
+      throw new IllegalArgumentException("index: " + index);
+    }
+    if(!calculated) {
+      result = calculate();
+      calculated = true;
+    }
+    return result;
+  }
+
+  /**
+   * @return the result as a raw logical value: 0, 1, or {@code NA}
+   */
+  protected abstract int calculate();
+
+  @Override
+  public final int length() {
+    return 1;
+  }
+
+  @Override
+  public final boolean isConstantAccessTime() {
+    return false;
+  }
+
+  @Override
+  public final boolean isCalculated() {
+    return calculated;
+  }
+
+  @Override
+  public final Vector forceResult() {
+    if(!calculated) {
+      result = calculate();
+      calculated = true;
+    }
+    return new LogicalArrayVector(result);
+  }
+
+  @Override
+  public final void setResult(Vector result) {
+    this.result = result.getElementAsRawLogical(0);
+    this.calculated = true;
+  }
+
+  @Override
+  public String toString() {
+    if(calculated) {
+      return super.toString();
+    } else {
+      return "<deferred " + getComputationName() + ">";
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Vector;
+
+public class DeferredMax extends DeferredSummary {
+
+  public DeferredMax(Vector vector, AttributeMap attributes) {
+    super(vector, attributes);
+  }
+
+  @Override
+  protected double calculate() {
+    double max = Double.NEGATIVE_INFINITY;
+    boolean nan = false;
+    for(int i=0;i!=vector.length();++i) {
+      double value = vector.getElementAsDouble(i);
+      if(Double.isNaN(value)) {
+        if(DoubleVector.isNA(value)) {
+          return DoubleVector.NA;
+        }
+        nan = true;
+      } else if(value > max) {
+        max = value;
+      }
+    }
+    return nan ? Double.NaN : max;
+  }
+
+  @Override
+  public String getComputationName() {
+    return "max";
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredMax(vector, attributes);
+  }
+}
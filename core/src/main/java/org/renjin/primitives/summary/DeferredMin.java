@@ -0,0 +1,41 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Vector;
+
+public class DeferredMin extends DeferredSummary {
+
+  public DeferredMin(Vector vector, AttributeMap attributes) {
+    super(vector, attributes);
+  }
+
+  @Override
+  protected double calculate() {
+    double min = Double.POSITIVE_INFINITY;
+    boolean nan = false;
+    for(int i=0;i!=vector.length();++i) {
+      double value = vector.getElementAsDouble(i);
+      if(Double.isNaN(value)) {
+        if(DoubleVector.isNA(value)) {
+          return DoubleVector.NA;
+        }
+        nan = true;
+      } else if(value < min) {
+        min = value;
+      }
+    }
+    return nan ? Double.NaN : min;
+  }
+
+  @Override
+  public String getComputationName() {
+    return "min";
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredMin(vector, attributes);
+  }
+}
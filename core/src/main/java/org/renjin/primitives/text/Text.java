@@ -340,7 +340,7 @@ public class Text {
       boolean useBytes,
       boolean invert) {
 
-    RE re = REFactory.compile(pattern,ignoreCase, perl, fixed, useBytes);
+    RE re = REFactory.compileMatcher(pattern,ignoreCase, perl, fixed, useBytes);
     if(value) {
       StringVector.Builder result = new StringVector.Builder();
       for(String string : x) {
@@ -384,7 +384,7 @@ public class Text {
       boolean useBytes,
       boolean invert) {
 
-    RE re = REFactory.compile(pattern, ignoreCase,  perl, fixed, useBytes);
+    RE re = REFactory.compileMatcher(pattern, ignoreCase,  perl, fixed, useBytes);
     LogicalArrayVector.Builder result = new LogicalArrayVector.Builder();
     for(String string : x) {
       result.add( ! StringVector.isNA(string) && re.match(string ));
@@ -444,7 +444,7 @@ public class Text {
   public static IntVector regexpr(String pattern, StringVector vector, boolean ignoreCase, boolean perl,
       boolean fixed, boolean useBytes) {
     
-    RE re = REFactory.compile(pattern, ignoreCase,  perl, fixed, useBytes);
+    RE re = REFactory.compileMatcher(pattern, ignoreCase,  perl, fixed, useBytes);
     IntArrayVector.Builder position = IntArrayVector.Builder.withInitialCapacity(vector.length());
     IntArrayVector.Builder matchLength = IntArrayVector.Builder.withInitialCapacity(vector.length());
     
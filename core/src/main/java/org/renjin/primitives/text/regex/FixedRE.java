@@ -41,7 +41,7 @@ public class FixedRE implements RE {
 
 	@Override
 	public boolean match(String search) {
-		int matchStart = search.indexOf(pattern);
+		matchStart = search.indexOf(pattern);
 		return matchStart != -1;
 	}
 
@@ -0,0 +1,121 @@
+package org.renjin.primitives.text.regex;
+
+/**
+ * A compiled {@link REProgram} prepared for simulation as a non-deterministic finite
+ * automaton by {@link NfaRE}.
+ *
+ * <p>The nodes of the program are used directly as the states of the automaton. Nodes
+ * which consume a character are the states between which the simulation steps; all other
+ * nodes only lead, in order of preference, to other nodes. Multi-character atoms need
+ * one state per character, and so each character of an atom after the first is given
+ * the state numbered by its own position in the instruction array, which is never the
+ * position of a node.</p>
+ *
+ * <p>Programs with backreferences cannot be matched by an automaton.</p>
+ */
+public final class NfaProgram {
+
+  final char[] instruction;
+  final int length;
+
+  /**
+   * For the characters of atoms, the position of the atom node; -1 for the positions of nodes.
+   * Positions of other operands are never states.
+   */
+  final int[] owner;
+
+  /**
+   * True if the program can only match at the start of the input
+   */
+  final boolean anchored;
+
+  /**
+   * Characters with which every match must start, or {@code null}
+   */
+  final char[] prefix;
+  final String prefixString;
+
+  private NfaProgram(char[] instruction, int length, int[] owner, boolean anchored, char[] prefix) {
+    this.instruction = instruction;
+    this.length = length;
+    this.owner = owner;
+    this.anchored = anchored;
+    this.prefix = prefix;
+    this.prefixString = prefix == null ? null : new String(prefix);
+  }
+
+  /**
+   * @return the automaton for {@code program}, or {@code null} if the program uses features,
+   * such as backreferences, that cannot be matched by an automaton.
+   */
+  public static NfaProgram compile(REProgram program) {
+    if((program.flags & REProgram.OPT_HASBACKREFS) != 0) {
+      return null;
+    }
+    char[] instruction = program.instruction;
+    int length = program.lenInstruction;
+    int[] owner = new int[length + 1];
+    int node = 0;
+    while(node < length) {
+      owner[node] = -1;
+      char opdata = instruction[node + ExtendedRE.offsetOpdata];
+      int operands = 0;
+      switch (instruction[node]) {
+        case ExtendedRE.OP_ATOM:
+          operands = opdata;
+          for (int i = 0; i < operands; i++) {
+            owner[node + ExtendedRE.nodeSize + i] = node;
+          }
+          break;
+        case ExtendedRE.OP_ANYOF:
+          operands = opdata * 2;
+          break;
+        case ExtendedRE.OP_ESCAPE:
+          switch (opdata) {
+            case ExtendedRE.E_BOUND:
+            case ExtendedRE.E_NBOUND:
+            case ExtendedRE.E_ALNUM:
+            case ExtendedRE.E_NALNUM:
+            case ExtendedRE.E_DIGIT:
+            case ExtendedRE.E_NDIGIT:
+            case ExtendedRE.E_SPACE:
+            case ExtendedRE.E_NSPACE:
+              break;
+            default:
+              return null;
+          }
+          break;
+        case ExtendedRE.OP_END:
+        case ExtendedRE.OP_BOL:
+        case ExtendedRE.OP_EOL:
+        case ExtendedRE.OP_ANY:
+        case ExtendedRE.OP_BRANCH:
+        case ExtendedRE.OP_STAR:
+        case ExtendedRE.OP_PLUS:
+        case ExtendedRE.OP_MAYBE:
+        case ExtendedRE.OP_OPEN:
+        case ExtendedRE.OP_OPEN_CLUSTER:
+        case ExtendedRE.OP_CLOSE:
+        case ExtendedRE.OP_CLOSE_CLUSTER:
+        case ExtendedRE.OP_GOTO:
+        case ExtendedRE.OP_NOTHING:
+        case ExtendedRE.OP_CONTINUE:
+        case ExtendedRE.OP_RELUCTANTSTAR:
+        case ExtendedRE.OP_RELUCTANTPLUS:
+        case ExtendedRE.OP_RELUCTANTMAYBE:
+        case ExtendedRE.OP_POSIXCLASS:
+          break;
+        default:
+          return null;
+      }
+      node += ExtendedRE.nodeSize + operands;
+    }
+    owner[length] = -1;
+    boolean anchored = (program.flags & REProgram.OPT_HASBOL) != 0;
+    return new NfaProgram(instruction, length, owner, anchored, program.prefix);
+  }
+
+  int next(int node) {
+    return node + (short) instruction[node + ExtendedRE.offsetNext];
+  }
+}
@@ -0,0 +1,538 @@
+package org.renjin.primitives.text.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Matches a compiled {@link ExtendedRE} program by simulating it as an automaton, in time
+ * linear in the length of the input.
+ *
+ * <p>{@link ExtendedRE} matches by backtracking, which takes time exponential in the
+ * length of the input for patterns such as {@code (a|aa)*b}. This matcher instead
+ * advances all of the ways in which the program could match together, one character at a
+ * time, keeping them in the order in which the backtracking matcher would try them
+ * (Thompson's construction, as extended by Pike to report the preferred match). It therefore
+ * finds exactly the same match as {@link ExtendedRE} for any program without
+ * backreferences.</p>
+ *
+ * <p>Only the extent of the whole match is tracked, so {@link #getGroupStart(int)} and
+ * {@link #getGroupEnd(int)} only accept group 0, and replacements cannot refer to
+ * parenthesized subexpressions.</p>
+ */
+public class NfaRE implements RE {
+
+  private final NfaProgram program;
+  private final boolean caseFold;
+
+  private String search;
+  private int length;
+  private int matchStart = -1;
+  private int matchEnd = -1;
+
+  /**
+   * The states reached so far, in order of preference, and the input position
+   * at which the match leading to each state started.
+   */
+  private int[] states;
+  private int[] starts;
+  private int count;
+
+  private int[] nextStates;
+  private int[] nextStarts;
+  private int nextCount;
+
+  /**
+   * The generation in which each state was last added to a list
+   */
+  private final int[] marks;
+  private int generation;
+
+  private int[] stack = new int[16];
+
+  public NfaRE(NfaProgram program, boolean caseFold) {
+    this.program = program;
+    this.caseFold = caseFold;
+    int size = program.length + 1;
+    states = new int[size];
+    starts = new int[size];
+    nextStates = new int[size];
+    nextStarts = new int[size];
+    marks = new int[size];
+  }
+
+  @Override
+  public boolean match(String search) {
+    return match(search, 0);
+  }
+
+  /**
+   * Finds the preferred match of the program in {@code search} starting at or after
+   * position {@code from}.
+   */
+  public boolean match(String search, int from) {
+    this.search = search;
+    this.length = search.length();
+    this.matchStart = -1;
+    this.matchEnd = -1;
+
+    if(program.anchored && from != 0) {
+      return false;
+    }
+
+    count = 0;
+    for (int pos = from; pos <= length; pos++) {
+      if(count == 0) {
+        // Skip ahead to the next position at which a match could start
+        if(matchStart != -1 || (program.anchored && pos != 0)) {
+          break;
+        }
+        pos = nextStart(pos);
+        if(pos == -1) {
+          break;
+        }
+        newGeneration();
+        nextCount = 0;
+        add(0, pos, pos);
+        swap();
+      }
+      newGeneration();
+      nextCount = 0;
+      char c = pos < length ? search.charAt(pos) : 0;
+      for (int i = 0; i < count; i++) {
+        int state = states[i];
+        if(program.owner[state] == -1 && program.instruction[state] == ExtendedRE.OP_END) {
+          // Less preferred matches will never be chosen over this one
+          matchStart = starts[i];
+          matchEnd = pos;
+          break;
+        }
+        if(pos < length) {
+          step(state, starts[i], c, pos);
+        }
+      }
+      // A match starting at the next position is preferred only to no match at all
+      if(matchStart == -1 && nextCount > 0 && !program.anchored && pos < length && prefixAt(pos + 1)) {
+        add(0, pos + 1, pos + 1);
+      }
+      swap();
+    }
+    return matchStart != -1;
+  }
+
+  /**
+   * @return the first position from {@code pos} at which a match could start, or -1
+   */
+  private int nextStart(int pos) {
+    if(program.prefix == null) {
+      return pos;
+    }
+    if(!caseFold) {
+      return search.indexOf(program.prefixString, pos);
+    }
+    for (int i = pos; i <= length - program.prefix.length; i++) {
+      if(prefixAt(i)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean prefixAt(int pos) {
+    char[] prefix = program.prefix;
+    if(prefix == null) {
+      return true;
+    }
+    if(pos + prefix.length > length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if(compareChars(search.charAt(pos + i), prefix[i]) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void newGeneration() {
+    generation++;
+    if(generation == 0) {
+      Arrays.fill(marks, 0);
+      generation = 1;
+    }
+  }
+
+  private void swap() {
+    int[] states = this.states;
+    int[] starts = this.starts;
+    this.states = nextStates;
+    this.starts = nextStarts;
+    this.count = nextCount;
+    this.nextStates = states;
+    this.nextStarts = starts;
+  }
+
+  /**
+   * Advances the state {@code state} over the character {@code c} at {@code pos}.
+   */
+  private void step(int state, int start, char c, int pos) {
+    char[] instruction = program.instruction;
+    int atom = program.owner[state];
+    if(atom != -1) {
+      // A character of an atom after the first
+      if(compareChars(c, instruction[state]) == 0) {
+        int end = atom + ExtendedRE.nodeSize + instruction[atom + ExtendedRE.offsetOpdata];
+        add(state + 1 == end ? program.next(atom) : state + 1, start, pos + 1);
+      }
+      return;
+    }
+    char opdata = instruction[state + ExtendedRE.offsetOpdata];
+    switch (instruction[state]) {
+      case ExtendedRE.OP_ATOM:
+        if(compareChars(c, instruction[state + ExtendedRE.nodeSize]) == 0) {
+          add(opdata == 1 ? program.next(state) : state + ExtendedRE.nodeSize + 1, start, pos + 1);
+        }
+        break;
+
+      case ExtendedRE.OP_ANY:
+        if(!isNewline(c)) {
+          add(program.next(state), start, pos + 1);
+        }
+        break;
+
+      case ExtendedRE.OP_ANYOF:
+        if(inRanges(state, opdata, c)) {
+          add(program.next(state), start, pos + 1);
+        }
+        break;
+
+      case ExtendedRE.OP_ESCAPE:
+        if(matchesEscape(opdata, c)) {
+          add(program.next(state), start, pos + 1);
+        }
+        break;
+
+      case ExtendedRE.OP_POSIXCLASS:
+        if(matchesPosixClass(opdata, c)) {
+          add(program.next(state), start, pos + 1);
+        }
+        break;
+    }
+  }
+
+  /**
+   * Adds {@code state} to the next list, together with all of the states which
+   * consume the character at {@code pos} or accept that can be reached from it
+   * without consuming any input, in order of preference.
+   */
+  private void add(int state, int start, int pos) {
+    char[] instruction = program.instruction;
+    int depth = 0;
+    stack[depth++] = state;
+    while(depth > 0) {
+      int node = stack[--depth];
+      if(marks[node] == generation) {
+        continue;
+      }
+      marks[node] = generation;
+
+      if(program.owner[node] != -1) {
+        append(node, start);
+        continue;
+      }
+      int next = program.next(node);
+      switch (instruction[node]) {
+        case ExtendedRE.OP_END:
+        case ExtendedRE.OP_ANY:
+        case ExtendedRE.OP_ANYOF:
+        case ExtendedRE.OP_POSIXCLASS:
+          append(node, start);
+          break;
+
+        case ExtendedRE.OP_ATOM:
+          if(instruction[node + ExtendedRE.offsetOpdata] > 0) {
+            append(node, start);
+          } else if(pos < length) {
+            depth = push(depth, next);
+          }
+          break;
+
+        case ExtendedRE.OP_ESCAPE:
+          char escape = instruction[node + ExtendedRE.offsetOpdata];
+          if(escape == ExtendedRE.E_BOUND || escape == ExtendedRE.E_NBOUND) {
+            char last = pos == 0 ? '\n' : search.charAt(pos - 1);
+            char following = pos >= length ? '\n' : search.charAt(pos);
+            if((Character.isLetterOrDigit(last) != Character.isLetterOrDigit(following)) ==
+                (escape == ExtendedRE.E_BOUND)) {
+              depth = push(depth, next);
+            }
+          } else {
+            append(node, start);
+          }
+          break;
+
+        case ExtendedRE.OP_BOL:
+          if(pos == 0) {
+            depth = push(depth, next);
+          }
+          break;
+
+        case ExtendedRE.OP_EOL:
+          if(pos >= length) {
+            depth = push(depth, next);
+          }
+          break;
+
+        case ExtendedRE.OP_BRANCH:
+          if(instruction[next] != ExtendedRE.OP_BRANCH) {
+            depth = push(depth, node + ExtendedRE.nodeSize);
+          } else {
+            // Push the alternatives in reverse, so that the first is followed first
+            int first = depth;
+            int branch = node;
+            int offset;
+            do {
+              depth = push(depth, branch + ExtendedRE.nodeSize);
+              offset = (short) instruction[branch + ExtendedRE.offsetNext];
+              branch += offset;
+            } while(offset != 0 && instruction[branch] == ExtendedRE.OP_BRANCH);
+            reverse(first, depth);
+          }
+          break;
+
+        case ExtendedRE.OP_STAR:
+        case ExtendedRE.OP_MAYBE:
+          depth = push(depth, next);
+          depth = push(depth, node + ExtendedRE.nodeSize);
+          break;
+
+        case ExtendedRE.OP_RELUCTANTSTAR:
+        case ExtendedRE.OP_RELUCTANTMAYBE:
+          depth = push(depth, node + ExtendedRE.nodeSize);
+          depth = push(depth, next);
+          break;
+
+        case ExtendedRE.OP_PLUS:
+          depth = push(depth, program.next(next));
+          depth = push(depth, next);
+          break;
+
+        case ExtendedRE.OP_RELUCTANTPLUS:
+          depth = push(depth, next);
+          depth = push(depth, program.next(next));
+          break;
+
+        case ExtendedRE.OP_CONTINUE:
+          depth = push(depth, node + ExtendedRE.nodeSize);
+          break;
+
+        default:
+          // Parentheses, gotos and other nodes which match the empty string
+          depth = push(depth, next);
+          break;
+      }
+    }
+  }
+
+  private int push(int depth, int state) {
+    if(depth == stack.length) {
+      stack = Arrays.copyOf(stack, depth * 2);
+    }
+    stack[depth] = state;
+    return depth + 1;
+  }
+
+  private void reverse(int from, int to) {
+    for (int i = from, j = to - 1; i < j; i++, j--) {
+      int tmp = stack[i];
+      stack[i] = stack[j];
+      stack[j] = tmp;
+    }
+  }
+
+  private void append(int state, int start) {
+    nextStates[nextCount] = state;
+    nextStarts[nextCount] = start;
+    nextCount++;
+  }
+
+  private int compareChars(char c1, char c2) {
+    if(caseFold) {
+      c1 = Character.toLowerCase(c1);
+      c2 = Character.toLowerCase(c2);
+    }
+    return c1 - c2;
+  }
+
+  private static boolean isNewline(char c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+
+  private boolean inRanges(int node, int ranges, char c) {
+    char[] instruction = program.instruction;
+    int i = node + ExtendedRE.nodeSize;
+    int end = i + ranges * 2;
+    while(i < end) {
+      char s = instruction[i++];
+      char e = instruction[i++];
+      if(compareChars(c, s) >= 0 && compareChars(c, e) <= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean matchesEscape(char escape, char c) {
+    switch (escape) {
+      case ExtendedRE.E_ALNUM:
+      case ExtendedRE.E_NALNUM:
+        return (Character.isLetterOrDigit(c) || c == '_') == (escape == ExtendedRE.E_ALNUM);
+      case ExtendedRE.E_DIGIT:
+      case ExtendedRE.E_NDIGIT:
+        return Character.isDigit(c) == (escape == ExtendedRE.E_DIGIT);
+      case ExtendedRE.E_SPACE:
+      case ExtendedRE.E_NSPACE:
+        return Character.isWhitespace(c) == (escape == ExtendedRE.E_SPACE);
+      default:
+        return false;
+    }
+  }
+
+  private static boolean matchesPosixClass(char posixClass, char c) {
+    switch (posixClass) {
+      case ExtendedRE.POSIX_CLASS_ALNUM:
+        return Character.isLetterOrDigit(c);
+      case ExtendedRE.POSIX_CLASS_ALPHA:
+        return Character.isLetter(c);
+      case ExtendedRE.POSIX_CLASS_DIGIT:
+        return Character.isDigit(c);
+      case ExtendedRE.POSIX_CLASS_BLANK:
+        return Character.isSpaceChar(c);
+      case ExtendedRE.POSIX_CLASS_SPACE:
+        return Character.isWhitespace(c);
+      case ExtendedRE.POSIX_CLASS_CNTRL:
+        return Character.getType(c) == Character.CONTROL;
+      case ExtendedRE.POSIX_CLASS_GRAPH:
+        switch (Character.getType(c)) {
+          case Character.MATH_SYMBOL:
+          case Character.CURRENCY_SYMBOL:
+          case Character.MODIFIER_SYMBOL:
+          case Character.OTHER_SYMBOL:
+            return true;
+          default:
+            return false;
+        }
+      case ExtendedRE.POSIX_CLASS_LOWER:
+        return Character.getType(c) == Character.LOWERCASE_LETTER;
+      case ExtendedRE.POSIX_CLASS_UPPER:
+        return Character.getType(c) == Character.UPPERCASE_LETTER;
+      case ExtendedRE.POSIX_CLASS_PRINT:
+        return Character.getType(c) != Character.CONTROL;
+      case ExtendedRE.POSIX_CLASS_PUNCT:
+        switch (Character.getType(c)) {
+          case Character.DASH_PUNCTUATION:
+          case Character.START_PUNCTUATION:
+          case Character.END_PUNCTUATION:
+          case Character.CONNECTOR_PUNCTUATION:
+          case Character.OTHER_PUNCTUATION:
+            return true;
+          default:
+            return false;
+        }
+      case ExtendedRE.POSIX_CLASS_XDIGIT:
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+      case ExtendedRE.POSIX_CLASS_JSTART:
+        return Character.isJavaIdentifierStart(c);
+      case ExtendedRE.POSIX_CLASS_JPART:
+        return Character.isJavaIdentifierPart(c);
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  public int getGroupStart(int groupIndex) {
+    if(groupIndex != 0) {
+      throw new IllegalArgumentException("groupIndex out of bounds: only the whole match is tracked");
+    }
+    return matchStart;
+  }
+
+  @Override
+  public int getGroupEnd(int groupIndex) {
+    if(groupIndex != 0) {
+      throw new IllegalArgumentException("groupIndex out of bounds: only the whole match is tracked");
+    }
+    return matchEnd;
+  }
+
+  @Override
+  public String[] split(String s) {
+    List<String> splits = new ArrayList<>();
+    int pos = 0;
+    int len = s.length();
+    while(pos < len && match(s, pos)) {
+      int newpos = matchEnd;
+      if(newpos == pos) {
+        splits.add(s.substring(pos, matchStart + 1));
+        newpos++;
+      } else {
+        splits.add(s.substring(pos, matchStart));
+      }
+      pos = newpos;
+    }
+    if(pos < len) {
+      splits.add(s.substring(pos));
+    }
+    return splits.toArray(new String[splits.size()]);
+  }
+
+  @Override
+  public String subst(String substituteIn, String substitution) {
+    return subst(substituteIn, substitution, REPLACE_ALL);
+  }
+
+  @Override
+  public String subst(String substituteIn, String substitution, int flags) {
+    StringBuilder ret = new StringBuilder();
+    int pos = 0;
+    int len = substituteIn.length();
+    while(pos < len && match(substituteIn, pos)) {
+      ret.append(substituteIn, pos, matchStart);
+      if((flags & REPLACE_BACKREFERENCES) != 0) {
+        appendReplacement(ret, substituteIn, substitution);
+      } else {
+        ret.append(substitution);
+      }
+      int newpos = matchEnd;
+      if(newpos == pos) {
+        newpos++;
+      }
+      pos = newpos;
+      if((flags & REPLACE_FIRSTONLY) != 0) {
+        break;
+      }
+    }
+    if(pos < len) {
+      ret.append(substituteIn.substring(pos));
+    }
+    return ret.toString();
+  }
+
+  private void appendReplacement(StringBuilder ret, String substituteIn, String substitution) {
+    int last = 0;
+    int i = 0;
+    while((i = substitution.indexOf('\\', i)) >= 0) {
+      if((i == 0 || substitution.charAt(i - 1) != '\\') && i + 1 < substitution.length()) {
+        char c = substitution.charAt(i + 1);
+        if(c >= '0' && c <= '9') {
+          ret.append(substitution, last, i);
+          ret.append(substituteIn, getGroupStart(c - '0'), matchEnd);
+          last = i + 2;
+        }
+      }
+      i++;
+    }
+    ret.append(substitution.substring(last));
+  }
+}
@@ -0,0 +1,203 @@
+package org.renjin.primitives.text.regex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Perl-compatible regular expression, used when {@code perl = TRUE}, backed by
+ * {@link java.util.regex.Pattern}.
+ *
+ * <p>The syntax of {@code java.util.regex} is close to that of PCRE, which GNU R uses.
+ * POSIX character classes such as {@code [[:alpha:]]}, which PCRE accepts within
+ * brackets, are translated to their Java equivalents. Replacements may refer to groups
+ * with {@code \\1} through {@code \\9} and, as in GNU R, change the case of the text that
+ * follows with {@code \\U}, {@code \\L} and {@code \\E}.</p>
+ */
+public class PerlRE implements RE {
+
+  private static final String[][] POSIX_CLASSES = {
+      { "[:alnum:]", "\\p{Alnum}" },
+      { "[:alpha:]", "\\p{Alpha}" },
+      { "[:blank:]", "\\p{Blank}" },
+      { "[:cntrl:]", "\\p{Cntrl}" },
+      { "[:digit:]", "\\p{Digit}" },
+      { "[:graph:]", "\\p{Graph}" },
+      { "[:lower:]", "\\p{Lower}" },
+      { "[:print:]", "\\p{Print}" },
+      { "[:punct:]", "\\p{Punct}" },
+      { "[:space:]", "\\p{Space}" },
+      { "[:upper:]", "\\p{Upper}" },
+      { "[:xdigit:]", "\\p{XDigit}" },
+      { "[:word:]", "\\w" }
+  };
+
+  private final Pattern pattern;
+  private Matcher matcher;
+  private boolean matched;
+
+  public PerlRE(Pattern pattern) {
+    this.pattern = pattern;
+  }
+
+  /**
+   * Compiles a Perl-compatible regular expression.
+   *
+   * @throws RESyntaxException if the pattern is not valid
+   */
+  public static Pattern compile(String regex, boolean ignoreCase) throws RESyntaxException {
+    for (String[] posixClass : POSIX_CLASSES) {
+      regex = regex.replace(posixClass[0], posixClass[1]);
+    }
+    try {
+      return Pattern.compile(regex, ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+    } catch (PatternSyntaxException e) {
+      throw new RESyntaxException(e.getDescription());
+    }
+  }
+
+  private boolean find(String search, int from) {
+    if(matcher == null) {
+      matcher = pattern.matcher(search);
+    } else {
+      matcher.reset(search);
+    }
+    matched = matcher.find(from);
+    return matched;
+  }
+
+  /**
+   * Searches {@code search} from {@code from} as if it began there, so that {@code ^}
+   * and lookbehinds do not see the text before {@code from}, as GNU R does when splitting.
+   */
+  private boolean findFrom(String search, int from) {
+    if(matcher == null) {
+      matcher = pattern.matcher(search);
+    } else {
+      matcher.reset(search);
+    }
+    matcher.region(from, search.length());
+    matched = matcher.find();
+    return matched;
+  }
+
+  @Override
+  public boolean match(String search) {
+    return find(search, 0);
+  }
+
+  @Override
+  public int getGroupStart(int groupIndex) {
+    return matched && groupIndex <= matcher.groupCount() ? matcher.start(groupIndex) : -1;
+  }
+
+  @Override
+  public int getGroupEnd(int groupIndex) {
+    return matched && groupIndex <= matcher.groupCount() ? matcher.end(groupIndex) : -1;
+  }
+
+  @Override
+  public String[] split(String s) {
+    List<String> splits = new ArrayList<>();
+    int pos = 0;
+    int len = s.length();
+    while(pos < len && findFrom(s, pos)) {
+      if(matcher.end() > pos) {
+        splits.add(s.substring(pos, matcher.start()));
+        pos = matcher.end();
+      } else {
+        // an empty match at the start splits off a single character
+        int next = pos + Character.charCount(s.codePointAt(pos));
+        splits.add(s.substring(pos, next));
+        pos = next;
+      }
+    }
+    if(pos < len) {
+      splits.add(s.substring(pos));
+    }
+    return splits.toArray(new String[splits.size()]);
+  }
+
+  @Override
+  public String subst(String substituteIn, String substitution) {
+    return subst(substituteIn, substitution, REPLACE_ALL);
+  }
+
+  @Override
+  public String subst(String substituteIn, String substitution, int flags) {
+    StringBuilder ret = new StringBuilder();
+    int pos = 0;
+    int len = substituteIn.length();
+    // as in GNU R, an empty match where the previous match ended is not replaced
+    int lastEnd = -1;
+    while(find(substituteIn, pos)) {
+      ret.append(substituteIn, pos, matcher.start());
+      if(matcher.end() > lastEnd) {
+        if((flags & REPLACE_BACKREFERENCES) != 0) {
+          appendReplacement(ret, substitution);
+        } else {
+          ret.append(substitution);
+        }
+        lastEnd = matcher.end();
+      }
+      pos = matcher.end();
+      if(pos == len || (flags & REPLACE_FIRSTONLY) != 0) {
+        break;
+      }
+      if(matcher.start() == pos) {
+        // step over the character following an empty match, keeping it
+        int next = pos + Character.charCount(substituteIn.codePointAt(pos));
+        ret.append(substituteIn, pos, next);
+        pos = next;
+      }
+    }
+    ret.append(substituteIn, pos, len);
+    return ret.toString();
+  }
+
+  private void appendReplacement(StringBuilder ret, String substitution) {
+    // 'U' or 'L' while the case of the text being appended is changed
+    char caseChange = 0;
+    int i = 0;
+    while(i < substitution.length()) {
+      char c = substitution.charAt(i);
+      if(c == '\\' && i + 1 < substitution.length()) {
+        char escaped = substitution.charAt(i + 1);
+        if(escaped >= '0' && escaped <= '9') {
+          int group = escaped - '0';
+          if(group <= matcher.groupCount() && matcher.group(group) != null) {
+            appendCase(ret, matcher.group(group), caseChange);
+          }
+          i += 2;
+          continue;
+        } else if(escaped == 'U' || escaped == 'L') {
+          caseChange = escaped;
+          i += 2;
+          continue;
+        } else if(escaped == 'E') {
+          caseChange = 0;
+          i += 2;
+          continue;
+        } else if(escaped == '\\') {
+          ret.append('\\');
+          i += 2;
+          continue;
+        }
+      }
+      appendCase(ret, String.valueOf(c), caseChange);
+      i++;
+    }
+  }
+
+  private static void appendCase(StringBuilder ret, String text, char caseChange) {
+    if(caseChange == 'U') {
+      ret.append(text.toUpperCase());
+    } else if(caseChange == 'L') {
+      ret.append(text.toLowerCase());
+    } else {
+      ret.append(text);
+    }
+  }
+}
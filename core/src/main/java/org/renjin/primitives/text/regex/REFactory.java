@@ -21,28 +21,111 @@
 
 package org.renjin.primitives.text.regex;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.renjin.eval.EvalException;
 
+import java.util.regex.Pattern;
+
 /**
  * Compiles a regular expression based on the supplied options.
+ *
+ * <p>Compiled programs are immutable and are kept in a bounded cache shared by all
+ * sessions, so that functions such as {@code gsub()}, which are called once per element
+ * of their input, compile each pattern only once. Each call to {@code compile} still
+ * returns a new {@link RE}, as matchers hold the state of the last match.</p>
  */
 public class REFactory {
 
+  /**
+   * True if patterns which are only matched, and not used for replacement,
+   * should be matched by {@link NfaRE} in linear time where possible.
+   */
+  private static volatile boolean linearMatching =
+      Boolean.parseBoolean(System.getProperty("renjin.regex.linear", "true"));
+
+  private static final Cache<Key, Object> PROGRAMS = CacheBuilder.newBuilder()
+      .maximumSize(500)
+      .build();
+
+  private static final class Key {
+    private final String pattern;
+    private final boolean perl;
+    private final boolean ignoreCase;
+
+    private Key(String pattern, boolean perl, boolean ignoreCase) {
+      this.pattern = pattern;
+      this.perl = perl;
+      this.ignoreCase = ignoreCase;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if(!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return perl == other.perl && ignoreCase == other.ignoreCase && pattern.equals(other.pattern);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(pattern, perl, ignoreCase);
+    }
+  }
+
+  /**
+   * Compiled form of an extended regular expression
+   */
+  private static final class Extended {
+    private final REProgram program;
+    private NfaProgram automaton;
+    private boolean automatonCompiled;
+
+    private Extended(REProgram program) {
+      this.program = program;
+    }
+
+    private synchronized NfaProgram getAutomaton() {
+      if(!automatonCompiled) {
+        automaton = NfaProgram.compile(program);
+        automatonCompiled = true;
+      }
+      return automaton;
+    }
+  }
+
   /**
    * Compiles the pattern based on the supplied arguments.
    *
    * @param pattern  the matching pattern
    * @param ignoreCase whether case should be ignored
-   * @param extended true to use "extended" regular expression
-   * @param perl true to use "perl-style" regular expressions (not yet implemented)
+   * @param perl true to use "perl-style" regular expressions
    * @param fixed true to treat the pattern as
    * @param useBytes true to match on bytes (not implemented)
    * @return the compiled regular expression
    */
   public static RE compile(String pattern, boolean ignoreCase, boolean perl, boolean fixed,
                            boolean useBytes) {
-    
+    return compileRE(pattern, ignoreCase, perl, fixed, false);
+  }
+
+  /**
+   * Compiles a pattern which will only be used to find matches, as by {@code grepl()}
+   * and {@code regexpr()}, and not to replace them or to split strings. Where possible,
+   * the returned expression finds matches in time linear in the length of the input.
+   *
+   * @see #compile(String, boolean, boolean, boolean, boolean)
+   */
+  public static RE compileMatcher(String pattern, boolean ignoreCase, boolean perl, boolean fixed,
+                                  boolean useBytes) {
+    return compileRE(pattern, ignoreCase, perl, fixed, linearMatching);
+  }
+
+  private static RE compileRE(String pattern, boolean ignoreCase, boolean perl, boolean fixed,
+                            boolean linear) {
     try {
       if (fixed) {
         if (pattern.length() == 0) {
@@ -50,8 +133,17 @@ public class REFactory {
         } else {
           return new FixedRE(pattern);
         }
+      } else if (perl) {
+        return new PerlRE(compilePerl(pattern, ignoreCase));
       } else {
-        return new ExtendedRE(pattern, ignoreCase);
+        Extended compiled = compileExtended(pattern);
+        if (linear) {
+          NfaProgram automaton = compiled.getAutomaton();
+          if (automaton != null) {
+            return new NfaRE(automaton, ignoreCase);
+          }
+        }
+        return new ExtendedRE(compiled.program, ignoreCase ? ExtendedRE.MATCH_CASEINDEPENDENT : ExtendedRE.MATCH_NORMAL);
       }
     } catch (RESyntaxException e) {
       throw new EvalException("Invalid pattern '%s': %s (perl=%s, fixed=%s)",
@@ -61,7 +153,35 @@ public class REFactory {
           fixed ? "TRUE" : "FALSE");
     }
   }
-  
+
+  private static Extended compileExtended(String pattern) throws RESyntaxException {
+    // The case sensitivity of extended expressions is set when matching
+    Key key = new Key(pattern, false, false);
+    Extended compiled = (Extended) PROGRAMS.getIfPresent(key);
+    if(compiled == null) {
+      compiled = new Extended(new RECompiler().compile(pattern));
+      PROGRAMS.put(key, compiled);
+    }
+    return compiled;
+  }
+
+  private static Pattern compilePerl(String pattern, boolean ignoreCase) throws RESyntaxException {
+    Key key = new Key(pattern, true, ignoreCase);
+    Pattern compiled = (Pattern) PROGRAMS.getIfPresent(key);
+    if(compiled == null) {
+      compiled = PerlRE.compile(pattern, ignoreCase);
+      PROGRAMS.put(key, compiled);
+    }
+    return compiled;
+  }
+
+  /**
+   * Enables or disables matching in linear time by {@link NfaRE}.
+   */
+  public static void setLinearMatching(boolean enabled) {
+    linearMatching = enabled;
+  }
+
   public static Predicate<String> asPredicate(final RE re) {
     return new Predicate<String>() {
       @Override
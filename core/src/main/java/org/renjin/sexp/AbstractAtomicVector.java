@@ -87,7 +87,7 @@ public abstract class AbstractAtomicVector extends AbstractVector implements Ato
 
   @Override
   public double[] toDoubleArray() {
-    if(Profiler.ENABLED) {
+    if(Profiler.isTrackingAllocations()) {
       Profiler.memoryAllocated(Double.SIZE, length());
     }
     double [] d = new double[length()];
@@ -99,7 +99,7 @@ public abstract class AbstractAtomicVector extends AbstractVector implements Ato
 
   @Override
   public int[] toIntArray() {
-    if(Profiler.ENABLED) {
+    if(Profiler.isTrackingAllocations()) {
       Profiler.memoryAllocated(Integer.SIZE, length());
     }
     int[] array = new int[length()];
@@ -36,6 +36,13 @@ public abstract class AbstractSEXP implements SEXP {
 
   private boolean object;
 
+  /**
+   * True if this value has been newly created by an in-place replacement and bound to a single
+   * variable, see {@link #isShared()}. All other values are shared from the start, so that
+   * values shared between sessions or threads are never modified.
+   */
+  private boolean unshared;
+
   protected AbstractSEXP() {
     this.attributes = AttributeMap.EMPTY;
     this.object = false;
@@ -65,6 +72,26 @@ public abstract class AbstractSEXP implements SEXP {
     return 1;
   }
 
+  @Override
+  public final boolean isShared() {
+    return !unshared;
+  }
+
+  @Override
+  public final void markShared() {
+    if(unshared) {
+      unshared = false;
+    }
+  }
+
+  /**
+   * Marks this newly created value as not shared. This may only be called by a replacement
+   * which binds the value to a single variable without otherwise retaining or returning it.
+   */
+  public final void markUnshared() {
+    unshared = true;
+  }
+
   @Override
   public final boolean hasAttributes() {
     return attributes != AttributeMap.EMPTY;
@@ -0,0 +1,215 @@
+package org.renjin.sexp;
+
+import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Frame for the environment of a closure call.
+ *
+ * <p>Function environments usually hold only the closure's arguments and a handful of
+ * local variables, and are discarded as soon as the call returns. This frame keeps its
+ * bindings in a pair of arrays, sized when the call begins from the number of variables
+ * the closure is expected to bind, and searched linearly by identity, which for a few
+ * bindings is faster and far smaller than hashing.</p>
+ *
+ * <p>Frames to which more than {@code MAX_ARRAY_SIZE} variables are assigned, for example
+ * by {@code assign()} or {@code eval()} in a loop, are promoted to an
+ * {@link IdentityHashMap} like that of {@link HashFrame}.</p>
+ */
+public class ArrayFrame implements Frame {
+
+  static final int MAX_ARRAY_SIZE = 24;
+
+  private Symbol[] names;
+  private SEXP[] values;
+  private int size;
+
+  /**
+   * The bindings of a promoted frame, or {@code null}
+   */
+  private IdentityHashMap<Symbol, SEXP> map;
+
+  /**
+   * Bloom-esque filter keeping track of which functions have
+   * been (potentially) set into this frame.
+   */
+  private int functionFilter = 0;
+
+  /**
+   * @param expectedSize the number of variables expected to be bound in this frame
+   */
+  public ArrayFrame(int expectedSize) {
+    int capacity = Math.min(Math.max(expectedSize, 1), MAX_ARRAY_SIZE);
+    names = new Symbol[capacity];
+    values = new SEXP[capacity];
+  }
+
+  private int indexOf(Symbol name) {
+    Symbol[] names = this.names;
+    for (int i = 0; i < size; i++) {
+      if(names[i] == name) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private SEXP get(Symbol name) {
+    if(map != null) {
+      return map.get(name);
+    }
+    int index = indexOf(name);
+    return index == -1 ? null : values[index];
+  }
+
+  @Override
+  public Set<Symbol> getSymbols() {
+    if(map != null) {
+      return map.keySet();
+    }
+    return new LinkedHashSet<>(Arrays.asList(names).subList(0, size));
+  }
+
+  @Override
+  public SEXP getVariable(Symbol name) {
+    SEXP value = get(name);
+    if(value == null) {
+      return Symbol.UNBOUND_VALUE;
+    }
+    // the caller may retain a reference to the value, so it can no longer be modified in place
+    value.markShared();
+    return value;
+  }
+
+  /**
+   * Returns the value bound to {@code name} without marking it as shared.
+   *
+   * @see HashFrame#peekVariable(Symbol)
+   */
+  public SEXP peekVariable(Symbol name) {
+    SEXP value = get(name);
+    return value == null ? Symbol.UNBOUND_VALUE : value;
+  }
+
+  @Override
+  public Function getFunction(Context context, Symbol name) {
+    if(functionFilter != 0 && (functionFilter & name.hashBit()) != 0) {
+      SEXP value = get(name);
+      if(value != null) {
+        value = value.force(context);
+        if(value == Symbol.MISSING_ARG) {
+          throw new EvalException("argument '%s' is missing with no default", name.toString());
+        }
+        if(value instanceof Function) {
+          return (Function)value;
+        }
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public boolean isMissingArgument(Symbol name) {
+    if(functionFilter != 0 && (functionFilter & name.hashBit()) != 0) {
+      return get(name) == Symbol.MISSING_ARG;
+    }
+    return false;
+  }
+
+  @Override
+  public void setVariable(Symbol name, SEXP value) {
+    if(map != null) {
+      map.put(name, value);
+    } else {
+      int index = indexOf(name);
+      if(index != -1) {
+        values[index] = value;
+      } else if(size < names.length) {
+        names[size] = name;
+        values[size] = value;
+        size++;
+      } else if(size < MAX_ARRAY_SIZE) {
+        int capacity = Math.min(size * 2, MAX_ARRAY_SIZE);
+        names = Arrays.copyOf(names, capacity);
+        values = Arrays.copyOf(values, capacity);
+        names[size] = name;
+        values[size] = value;
+        size++;
+      } else {
+        promote();
+        map.put(name, value);
+      }
+    }
+    // we add Promises to the function filter because they *could* be
+    // functions
+    if(value instanceof Function || value instanceof Promise ||
+        value == Symbol.MISSING_ARG) {
+      functionFilter |= name.hashBit();
+    }
+  }
+
+  private void promote() {
+    map = new IdentityHashMap<>(size * 2);
+    for (int i = 0; i < size; i++) {
+      map.put(names[i], values[i]);
+    }
+    names = null;
+    values = null;
+    size = 0;
+  }
+
+  @Override
+  public void remove(Symbol name) {
+    if(map != null) {
+      map.remove(name);
+    } else {
+      int index = indexOf(name);
+      if(index != -1) {
+        size--;
+        System.arraycopy(names, index + 1, names, index, size - index);
+        System.arraycopy(values, index + 1, values, index, size - index);
+        names[size] = null;
+        values[size] = null;
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    if(map != null) {
+      map.clear();
+    } else {
+      Arrays.fill(names, 0, size, null);
+      Arrays.fill(values, 0, size, null);
+      size = 0;
+    }
+  }
+
+  /**
+   * @return true if the bindings of this frame have been moved to a hash map.
+   */
+  boolean isPromoted() {
+    return map != null;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    if(map != null) {
+      for(Map.Entry<Symbol,SEXP> entry : map.entrySet()) {
+        sb.append(entry.getKey()).append(" = ").append(entry.getValue()).append("\n");
+      }
+    } else {
+      for (int i = 0; i < size; i++) {
+        sb.append(names[i]).append(" = ").append(values[i]).append("\n");
+      }
+    }
+    return sb.toString();
+  }
+}
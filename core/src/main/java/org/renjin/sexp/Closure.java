@@ -22,10 +22,17 @@
 package org.renjin.sexp;
 
 import com.google.common.base.Objects;
+import com.google.common.collect.Sets;
+import org.renjin.compiler.tiered.ClosureProfile;
+import org.renjin.compiler.tiered.TieredCompiler;
+import org.renjin.eval.ArgumentMatcher;
 import org.renjin.eval.ClosureDispatcher;
 import org.renjin.eval.Context;
+import org.renjin.eval.SamplingProfiler;
 import org.renjin.primitives.special.ReturnException;
 
+import java.util.Set;
+
 
 /**
  * The function closure data type.
@@ -42,6 +49,14 @@ public class Closure extends AbstractSEXP implements Function {
   private Environment enclosingEnvironment;
   private SEXP body;
   private PairList formals;
+  private ClosureProfile profile;
+  private ArgumentMatcher argumentMatcher;
+  private int frameSize = -1;
+
+  private static final Symbol FUNCTION = Symbol.get("function");
+  private static final Symbol ASSIGN = Symbol.get("<-");
+  private static final Symbol EQUALS = Symbol.get("=");
+  private static final Symbol FOR = Symbol.get("for");
 
   public Closure(Environment enclosingEnvironment, PairList formals, SEXP body, AttributeMap attributes) {
     super(attributes);
@@ -87,7 +102,7 @@ public class Closure extends AbstractSEXP implements Function {
     Context functionContext = callingContext.beginFunction(callingEnvironment, call, this, promisedArgs);
     Environment functionEnvironment = functionContext.getEnvironment();    
 
-    ClosureDispatcher.matchArgumentsInto(getFormals(), promisedArgs, functionContext, functionEnvironment);
+    ArgumentMatcher.matchInto(call, this, promisedArgs, functionEnvironment);
 
     SEXP result;
     try {
@@ -104,8 +119,36 @@ public class Closure extends AbstractSEXP implements Function {
   }
 
   public SEXP doApply(Context functionContext) {
+    SamplingProfiler profiler = functionContext.getSession().getProfiler();
+    if(profiler == null) {
+      return evaluateBody(functionContext);
+    }
+    profiler.enter(functionContext);
+    try {
+      return evaluateBody(functionContext);
+    } finally {
+      profiler.exit(functionContext);
+    }
+  }
+
+  private SEXP evaluateBody(Context functionContext) {
+    if(TieredCompiler.isEnabled()) {
+      return TieredCompiler.evaluate(functionContext, this);
+    }
     return functionContext.evaluate(body);
   }
+
+  /**
+   * @return the profile used by the tiered compiler, shared by all closures
+   * with the same body, or {@code null} if not yet profiled.
+   */
+  public ClosureProfile getProfile() {
+    return profile;
+  }
+
+  public void setProfile(ClosureProfile profile) {
+    this.profile = profile;
+  }
    
 
   /**
@@ -157,6 +200,65 @@ public class Closure extends AbstractSEXP implements Function {
     return formals;
   }
 
+  /**
+   * @return the index of this closure's formals used to match the arguments of calls
+   */
+  public ArgumentMatcher getArgumentMatcher() {
+    ArgumentMatcher matcher = argumentMatcher;
+    if(matcher == null) {
+      matcher = new ArgumentMatcher(formals);
+      argumentMatcher = matcher;
+    }
+    return matcher;
+  }
+
+  /**
+   * @return the number of variables that a call to this closure is expected to bind
+   * in its environment: its formals and the variables assigned by its body.
+   */
+  public int getFrameSize() {
+    int size = frameSize;
+    if(size == -1) {
+      Set<Symbol> locals = Sets.newIdentityHashSet();
+      for (PairList.Node formal : formals.nodes()) {
+        if(formal.hasTag()) {
+          locals.add(formal.getTag());
+        }
+      }
+      addAssignedVariables(body, locals);
+      size = locals.size();
+      frameSize = size;
+    }
+    return size;
+  }
+
+  private static void addAssignedVariables(SEXP exp, Set<Symbol> locals) {
+    if(!(exp instanceof FunctionCall)) {
+      return;
+    }
+    FunctionCall call = (FunctionCall) exp;
+    SEXP function = call.getFunction();
+    if(function == FUNCTION) {
+      // nested functions bind their variables in their own environments
+      return;
+    }
+    if((function == ASSIGN || function == EQUALS) && call.getArguments().length() == 2) {
+      SEXP target = call.getArgument(0);
+      // the variable assigned by a complex assignment such as names(x)[i] <- v is x
+      while(target instanceof FunctionCall && ((FunctionCall) target).getArguments().length() > 0) {
+        target = ((FunctionCall) target).getArgument(0);
+      }
+      if(target instanceof Symbol) {
+        locals.add((Symbol) target);
+      }
+    } else if(function == FOR && call.getArguments().length() == 3 && call.getArgument(0) instanceof Symbol) {
+      locals.add((Symbol) call.getArgument(0));
+    }
+    for (SEXP argument : call.getArguments().values()) {
+      addAssignedVariables(argument, locals);
+    }
+  }
+
 
   @Override
   public String toString() {
@@ -21,44 +21,93 @@
 
 package org.renjin.sexp;
 
-import com.google.common.collect.Iterators;
 import org.apache.commons.math.complex.Complex;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
-
-import static org.renjin.util.RInternalDSL.complex;
 
+/**
+ * A complex vector stored as a single {@code double[]} array in which the real and imaginary
+ * parts of each element are interleaved, so that element {@code i} is stored at {@code 2i} and
+ * {@code 2i+1}. This is the same layout as a C99 {@code double complex} array.
+ *
+ * <p>Elements can be read without allocating a {@link Complex} object through
+ * {@link #getElementAsComplexReal(int)} and {@link #getElementAsComplexImag(int)}, or
+ * set through {@link Builder#set(int, double, double)}.</p>
+ */
 public class ComplexArrayVector extends ComplexVector {
 
-  private final Complex[] values;
+  private double[] values;
+
+  private ComplexArrayVector(AttributeMap attributes) {
+    super(attributes);
+  }
 
   public ComplexArrayVector(Complex... values) {
-    this.values = Arrays.copyOf(values, values.length);
+    this.values = toInterleaved(values, values.length);
   }
 
+  /**
+   * Creates a new ComplexArrayVector whose elements have the real parts {@code values}
+   * and no imaginary parts.
+   */
   public ComplexArrayVector(double[] values, AttributeMap attributes) {
     super(attributes);
-    this.values=new Complex[values.length];
+    this.values = new double[values.length * 2];
     for(int i=0; i<values.length; i++){
-      this.values[i]=complex(values[i]);
+      this.values[i * 2] = values[i];
     }
   }
   
   public ComplexArrayVector(Complex[] values, AttributeMap attributes) {
     super(attributes);
-    this.values = Arrays.copyOf(values, values.length);
+    this.values = toInterleaved(values, values.length);
   }
   
   public ComplexArrayVector(Complex[] values, int length, AttributeMap attributes) {
     super(attributes);
-    this.values = Arrays.copyOf(values, length);
+    this.values = toInterleaved(values, length);
   }
 
   public ComplexArrayVector(Complex[] values, int length) {
     super();
-    this.values = Arrays.copyOf(values, length);
+    this.values = toInterleaved(values, length);
+  }
+
+  /**
+   * Creates a new ComplexArrayVector by wrapping an existing array of interleaved
+   * real and imaginary parts, without copying. The array provided CAN NOT BE SUBSEQUENTLY
+   * MODIFIED.
+   */
+  public static ComplexArrayVector unsafe(double[] interleaved) {
+    return unsafe(interleaved, AttributeMap.EMPTY);
+  }
+
+  /**
+   * Creates a new ComplexArrayVector by wrapping an existing array of interleaved
+   * real and imaginary parts, without copying. The array provided CAN NOT BE SUBSEQUENTLY
+   * MODIFIED.
+   */
+  public static ComplexArrayVector unsafe(double[] interleaved, AttributeMap attributes) {
+    if(interleaved.length % 2 != 0) {
+      throw new IllegalArgumentException("array of interleaved real and imaginary parts must have an even length");
+    }
+    ComplexArrayVector vector = new ComplexArrayVector(attributes);
+    vector.values = interleaved;
+    return vector;
+  }
+
+  private static double[] toInterleaved(Complex[] values, int length) {
+    double[] array = new double[length * 2];
+    int n = Math.min(length, values.length);
+    for(int i=0; i!=n; ++i) {
+      array[i * 2] = values[i].getReal();
+      array[i * 2 + 1] = values[i].getImaginary();
+    }
+    for(int i=n; i<length; ++i) {
+      array[i * 2] = DoubleVector.NA;
+    }
+    return array;
   }
 
   public static ComplexVector newMatrix(Complex[] values, int nRows, int nCols) {
@@ -67,12 +116,42 @@ public class ComplexArrayVector extends ComplexVector {
 
   @Override
   public int length() {
-    return values.length;
+    return values.length / 2;
   }
 
   @Override
   public Complex getElementAsComplex(int index) {
-    return values[index];
+    return new Complex(values[index * 2], values[index * 2 + 1]);
+  }
+
+  @Override
+  public double getElementAsComplexReal(int index) {
+    return values[index * 2];
+  }
+
+  @Override
+  public double getElementAsComplexImag(int index) {
+    return values[index * 2 + 1];
+  }
+
+  @Override
+  public double getElementAsDouble(int index) {
+    return values[index * 2];
+  }
+
+  /**
+   * @return the interleaved real and imaginary parts of this vector's elements. The
+   * array MUST NOT be modified.
+   */
+  public double[] toInterleavedArrayUnsafe() {
+    return values;
+  }
+
+  /**
+   * @return a copy of the interleaved real and imaginary parts of this vector's elements
+   */
+  public double[] toInterleavedArray() {
+    return Arrays.copyOf(values, values.length);
   }
 
   @Override
@@ -83,7 +162,7 @@ public class ComplexArrayVector extends ComplexVector {
         return false;
       } else{
         for(int i=0; i<this.length(); i++){
-          if(!this.values[i].equals(that.values[i])){
+          if(!complexEquals(this.values[i * 2], this.values[i * 2 + 1], that.values[i * 2], that.values[i * 2 + 1])){
             return false;
           }
         }
@@ -93,20 +172,20 @@ public class ComplexArrayVector extends ComplexVector {
       return false;
     }
   }
-  
+
   @Override
   protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
-    return new ComplexArrayVector(this.values, attributes);
+    return unsafe(this.values, attributes);
   }
 
   @Override
   public boolean isElementNA(int index) {
-    return isNA(values[index]);
+    return DoubleVector.isNA(values[index * 2]);
   }
 
   @Override
-  public Iterator<Complex> iterator() {
-    return Iterators.forArray(values);
+  public boolean isElementNaN(int index) {
+    return Double.isNaN(values[index * 2]);
   }
 
   @Override
@@ -117,15 +196,19 @@ public class ComplexArrayVector extends ComplexVector {
   @Override
   public String toString(){
     ArrayList<String> list = new ArrayList<String>();
-    for(Complex z : values){
-      list.add(z.getReal()+"+"+z.getImaginary()+"i");
+    for(int i=0; i<length(); i++){
+      list.add(values[i * 2]+"+"+values[i * 2 + 1]+"i");
     }
     return list.toString();
   }
   
   public static class Builder extends AbstractAtomicBuilder{
     private static final int MIN_INITIAL_CAPACITY = 50;
-    private Complex values[];
+
+    /**
+     * The interleaved real and imaginary parts
+     */
+    private double values[];
     private int size;
 
     public Builder(int initialSize, int initialCapacity) {
@@ -135,9 +218,9 @@ public class ComplexArrayVector extends ComplexVector {
       if(initialSize > initialCapacity) {
         initialCapacity = initialSize;
       }
-      values = new Complex[initialCapacity];
+      values = new double[initialCapacity * 2];
       size = initialSize;
-      Arrays.fill(values, NA);
+      fillNA(values, 0);
     }
     
 
@@ -150,11 +233,16 @@ public class ComplexArrayVector extends ComplexVector {
     }
 
     public Builder(ComplexVector toCopy) {
-      values = new Complex[toCopy.length()];
-      for(int i=0;i!=values.length;++i) {
-        values[i] = toCopy.getElementAsComplex(i);
+      if(toCopy instanceof ComplexArrayVector) {
+        values = ((ComplexArrayVector) toCopy).toInterleavedArray();
+      } else {
+        values = new double[toCopy.length() * 2];
+        for(int i=0;i!=toCopy.length();++i) {
+          values[i * 2] = toCopy.getElementAsComplexReal(i);
+          values[i * 2 + 1] = toCopy.getElementAsComplexImag(i);
+        }
       }
-      size = values.length;
+      size = toCopy.length();
       copyAttributesFrom(toCopy);
     }
 
@@ -165,20 +253,22 @@ public class ComplexArrayVector extends ComplexVector {
     public static Builder withInitialCapacity(int capacity) {
       return new Builder(0, capacity);
     }
-    
-    private Builder(ComplexArrayVector exp) {
-      this.values = Arrays.copyOf(exp.values, exp.values.length);
-      this.size = this.values.length;
 
-      copyAttributesFrom(exp);
+    public Builder set(int index, Complex value) {
+      return set(index, value.getReal(), value.getImaginary());
     }
 
-    public Builder set(int index, Complex value) {
+    /**
+     * Sets the element at {@code index} to {@code real + imaginary i}, without
+     * allocating a {@link Complex} object.
+     */
+    public Builder set(int index, double real, double imaginary) {
       ensureCapacity(index+1);
       if(index+1 > size) {
         size = index+1;
       }
-      values[index] = value;
+      values[index * 2] = real;
+      values[index * 2 + 1] = imaginary;
       return this;
     }
 
@@ -186,48 +276,66 @@ public class ComplexArrayVector extends ComplexVector {
       return set(size, value);
     }
 
+    public Builder add(double real, double imaginary) {
+      return set(size, real, imaginary);
+    }
+
     @Override
     public Builder add(Number value) {
-      return add(new Complex(value.doubleValue(),0));
+      return add(value.doubleValue(), 0);
     }
 
     @Override
     public Builder setNA(int index) {
-      return set(index, NA);
+      return set(index, DoubleVector.NA, 0);
     }
 
     @Override
     public Builder setFrom(int destinationIndex, Vector source, int sourceIndex) {
+      if(source instanceof ComplexVector) {
+        ComplexVector complexSource = (ComplexVector) source;
+        return set(destinationIndex,
+            complexSource.getElementAsComplexReal(sourceIndex),
+            complexSource.getElementAsComplexImag(sourceIndex));
+      }
       return set(destinationIndex, source.getElementAsComplex(sourceIndex));
     }
 
-   
-//    public Builder set(int index, Double value) {
-//      return set(index, (double)value);
-//    }
-
     @Override
     public int length() {
       return size;
     }
 
     public void ensureCapacity(int minCapacity) {
-      int oldCapacity = values.length;
+      int oldCapacity = values.length / 2;
       if (minCapacity > oldCapacity) {
-        Complex oldData[] = values;
+        double oldData[] = values;
         int newCapacity = (oldCapacity * 3)/2 + 1;
         if (newCapacity < minCapacity) {
           newCapacity = minCapacity;
         }
         // minCapacity is usually close to size, so this is a win:
-        values = Arrays.copyOf(oldData, newCapacity);
-        Arrays.fill(values, oldCapacity, values.length, NA);
+        values = Arrays.copyOf(oldData, newCapacity * 2);
+        fillNA(values, oldCapacity);
+      }
+    }
+
+    private static void fillNA(double[] values, int fromIndex) {
+      for(int i = fromIndex * 2; i < values.length; i += 2) {
+        values[i] = DoubleVector.NA;
       }
     }
 
     @Override
     public ComplexVector build() {
-      return new ComplexArrayVector(values, size, buildAttributes());
+      if(values.length == size * 2) {
+        // Do not make an extra copy of the array
+        ComplexArrayVector vector = unsafe(values, buildAttributes());
+        values = null; // will trigger an error if the caller attempts subsequent modification
+        return vector;
+      } else {
+        return unsafe(Arrays.copyOf(values, size * 2), buildAttributes());
+      }
     }
   }
 }
@@ -24,6 +24,19 @@ public abstract class ComplexVector extends AbstractAtomicVector implements Iter
     return DoubleVector.isNA(value.getReal());
   }
 
+  /**
+   * Compares two complex values with the same semantics as {@link Complex#equals(Object)}: all
+   * values with a {@code NaN} part are equal to each other.
+   */
+  public static boolean complexEquals(double xr, double xi, double yr, double yi) {
+    boolean xNaN = Double.isNaN(xr) || Double.isNaN(xi);
+    boolean yNaN = Double.isNaN(yr) || Double.isNaN(yi);
+    if(xNaN || yNaN) {
+      return xNaN && yNaN;
+    }
+    return xr == yr && xi == yi;
+  }
+  
   @Override
   public String getTypeName() {
     return TYPE_NAME;
@@ -34,9 +47,23 @@ public abstract class ComplexVector extends AbstractAtomicVector implements Iter
     visitor.visit(this);
   }
 
+  /**
+   * @return the real part of the element at {@code index}, without allocating a {@link Complex} object
+   */
+  public double getElementAsComplexReal(int index) {
+    return getElementAsComplex(index).getReal();
+  }
+
+  /**
+   * @return the imaginary part of the element at {@code index}, without allocating a {@link Complex} object
+   */
+  public double getElementAsComplexImag(int index) {
+    return getElementAsComplex(index).getImaginary();
+  }
+
   @Override
   public SEXP getElementAsSEXP(int index) {
-    return new ComplexArrayVector(getElementAsComplex(index));
+    return ComplexArrayVector.unsafe(new double[] { getElementAsComplexReal(index), getElementAsComplexImag(index) });
   }
 
   @Override
@@ -46,7 +73,7 @@ public abstract class ComplexVector extends AbstractAtomicVector implements Iter
 
   @Override
   public double getElementAsDouble(int index) {
-    return getElementAsComplex(index).getReal();
+    return getElementAsComplexReal(index);
   }
 
   @Override
@@ -89,13 +116,12 @@ public abstract class ComplexVector extends AbstractAtomicVector implements Iter
 
   @Override
   public boolean isElementNA(int index) {
-    return Double.isNaN(getElementAsComplex(index).getReal());
+    return Double.isNaN(getElementAsComplexReal(index));
   }
 
   @Override
   public boolean isElementNaN(int index) {
-    double real = getElementAsComplex(index).getReal();
-    return Double.isNaN(real);
+    return Double.isNaN(getElementAsComplexReal(index));
   }
 
   @Override
@@ -111,8 +137,10 @@ public abstract class ComplexVector extends AbstractAtomicVector implements Iter
   @Override
   public int indexOf(AtomicVector vector, int vectorIndex, int startIndex) {
     Complex value = vector.getElementAsComplex(vectorIndex);
+    double real = value.getReal();
+    double imaginary = value.getImaginary();
     for(int i=startIndex;i<length();++i) {
-      if(getElementAsComplex(i).equals(value)) {
+      if(complexEquals(getElementAsComplexReal(i), getElementAsComplexImag(i), real, imaginary)) {
         return i;
       }
     }
@@ -164,6 +192,13 @@ public abstract class ComplexVector extends AbstractAtomicVector implements Iter
     @Override
     public boolean elementsEqual(Vector vector1, int index1, Vector vector2,
         int index2) {
+      if(vector1 instanceof ComplexVector && vector2 instanceof ComplexVector) {
+        ComplexVector complex1 = (ComplexVector) vector1;
+        ComplexVector complex2 = (ComplexVector) vector2;
+        return complexEquals(
+            complex1.getElementAsComplexReal(index1), complex1.getElementAsComplexImag(index1),
+            complex2.getElementAsComplexReal(index2), complex2.getElementAsComplexImag(index2));
+      }
       return vector1.getElementAsComplex(index1).equals(vector2.getElementAsComplex(index2));
     }
 
@@ -45,7 +45,7 @@ public final class DoubleArrayVector extends DoubleVector {
 
   public DoubleArrayVector(double[] values, int length, AttributeMap attributes) {
     this(attributes);
-    if(Profiler.ENABLED) {
+    if(Profiler.isTrackingAllocations()) {
       Profiler.memoryAllocated(Double.SIZE, length);
     }
     
@@ -261,7 +261,7 @@ public final class DoubleArrayVector extends DoubleVector {
     @Override
     public DoubleVector build() {
       if(values.length == size) {
-        if(Profiler.ENABLED) {
+        if(Profiler.isTrackingAllocations()) {
           Profiler.memoryAllocated(Double.SIZE, values.length);
         }
         
@@ -0,0 +1,40 @@
+package org.renjin.sexp;
+
+import java.nio.DoubleBuffer;
+
+public class DoubleBufferVector extends DoubleVector {
+
+  private final DoubleBuffer buffer;
+  private int length;
+
+  public DoubleBufferVector(DoubleBuffer buffer, int length) {
+    this.buffer = buffer;
+    this.length = length;
+  }
+
+  public DoubleBufferVector(DoubleBuffer buffer, int length, AttributeMap attributes) {
+    super(attributes);
+    this.buffer = buffer;
+    this.length = length;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public double getElementAsDouble(int i) {
+    return buffer.get(i);
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return true;
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DoubleBufferVector(buffer, length, attributes);
+  }
+}
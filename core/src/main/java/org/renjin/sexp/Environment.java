@@ -71,6 +71,20 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
    * environment.
    */
   private transient int modCount = 0;
+
+  /**
+   * Keeps track of the number of changes to this environment which could change the
+   * result of looking up a symbol through it: adding or removing a binding, binding
+   * a value which could be a function, or changing the parent. Assigning an ordinary
+   * value to an existing binding does not count.
+   */
+  private transient int lookupModCount = 0;
+
+  /**
+   * Another environment sharing this environment's frame, whose modification count
+   * must also change when bindings are changed through this environment.
+   */
+  private Environment sharesFrameWith;
   
   /**
    * The root of the environment hierarchy.
@@ -128,6 +142,8 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
   public static Environment createBaseNamespaceEnvironment(Environment globalEnv, Environment baseEnvironment) {
     Environment ns = createChildEnvironment(globalEnv, baseEnvironment.getFrame());
     ns.name = "namespace:base";
+    ns.sharesFrameWith = baseEnvironment;
+    baseEnvironment.sharesFrameWith = ns;
     return ns;
   }
 
@@ -154,10 +170,25 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
 
   public void remove(Symbol symbol) {
     frame.remove(symbol);
+    bindingsModified(true);
   }
   
   public void clear() {
     frame.clear();
+    bindingsModified(true);
+  }
+
+  private void bindingsModified(boolean lookupChanged) {
+    modCount++;
+    if(lookupChanged) {
+      lookupModCount++;
+    }
+    if(sharesFrameWith != null) {
+      sharesFrameWith.modCount++;
+      if(lookupChanged) {
+        sharesFrameWith.lookupModCount++;
+      }
+    }
   }
 
 
@@ -179,6 +210,7 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
   public void setParent(Environment parent) {
     this.parent = parent;
     modCount ++;
+    lookupModCount ++;
   }
 
   @Override
@@ -235,8 +267,10 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
     } else if(locked && frame.getVariable(symbol) != Symbol.UNBOUND_VALUE) {
       throw new EvalException("cannot add bindings to a locked environment");
     }
+    boolean lookupChanged = value instanceof Function || value instanceof Promise ||
+        value == Symbol.MISSING_ARG || frame.getVariable(symbol) == Symbol.UNBOUND_VALUE;
     frame.setVariable(symbol, value);
-    modCount++;
+    bindingsModified(lookupChanged);
   }
 
   /**
@@ -335,6 +369,24 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
     return locked;
   }
 
+  /**
+   * @return the number of times bindings have been added to, changed in, or removed from this
+   * environment, or its parent changed.
+   */
+  public int getModCount() {
+    return modCount;
+  }
+
+  /**
+   * @return the number of times a binding has been added to or removed from this environment,
+   * a value which could be a function bound, or its parent changed. A lookup which passed through
+   * this environment without finding the symbol has the same result for as long as this
+   * count is unchanged.
+   */
+  public int getLookupModCount() {
+    return lookupModCount;
+  }
+
   /**
    * 
    * @return the number of modifications to this environment
@@ -21,6 +21,10 @@
 
 package org.renjin.sexp;
 
+import org.renjin.eval.ArgumentMatcher;
+import org.renjin.eval.LookupCache;
+import org.renjin.invoke.reflection.CallSiteCache;
+
 /**
  * Expression representing a call to an R function, consisting of
  * a function reference and a list of arguments.
@@ -32,6 +36,12 @@ public class FunctionCall extends PairList.Node {
   public static final String TYPE_NAME = "language";
   public static final String IMPLICIT_CLASS = "call";
 
+  private transient LookupCache functionLookupCache;
+
+  private transient ArgumentMatcher.Plan argumentMatchPlan;
+
+  private transient CallSiteCache callSiteCache;
+
   public FunctionCall(SEXP function, PairList arguments) {
     super(function, arguments);
   }
@@ -60,6 +70,43 @@ public class FunctionCall extends PairList.Node {
     return getArguments().<X>getElementAsSEXP(index);
   }
 
+  /**
+   * @return the cache used to find the function called by this call when it is
+   * evaluated by the interpreter
+   */
+  public LookupCache getFunctionLookupCache() {
+    LookupCache cache = functionLookupCache;
+    if(cache == null) {
+      cache = new LookupCache();
+      functionLookupCache = cache;
+    }
+    return cache;
+  }
+
+  /**
+   * @return the arguments matched the last time a closure was called from this call,
+   * or {@code null}
+   */
+  public ArgumentMatcher.Plan getArgumentMatchPlan() {
+    return argumentMatchPlan;
+  }
+
+  public void setArgumentMatchPlan(ArgumentMatcher.Plan plan) {
+    this.argumentMatchPlan = plan;
+  }
+
+  /**
+   * @return the overloads of JVM methods selected the last times a JVM method was called
+   * from this call, or {@code null}
+   */
+  public CallSiteCache getCallSiteCache() {
+    return callSiteCache;
+  }
+
+  public void setCallSiteCache(CallSiteCache cache) {
+    this.callSiteCache = cache;
+  }
+
   @Override
   public void accept(SexpVisitor visitor) {
     visitor.visit(this);
@@ -46,6 +46,23 @@ public class HashFrame implements Frame{
 
   @Override
   public SEXP getVariable(Symbol name) {
+    SEXP value = values.get(name);
+    if(value == null) {
+      return Symbol.UNBOUND_VALUE;
+    }
+    // the caller may retain a reference to the value, so it can no longer be modified in place
+    value.markShared();
+    return value;
+  }
+
+  /**
+   * Returns the value bound to {@code name} without marking it as shared. This may only
+   * be used by replacements which modify the value in place if it is not shared, and which
+   * do not otherwise retain or return it.
+   *
+   * @return the value bound to {@code name}, or {@code Symbol.UNBOUND_VALUE}
+   */
+  public SEXP peekVariable(Symbol name) {
     SEXP value = values.get(name);
     return value == null ? Symbol.UNBOUND_VALUE : value;
   }
@@ -45,7 +45,7 @@ public class IntArrayVector extends IntVector {
   public IntArrayVector(int[] values, int length, AttributeMap attributes) {
     super(attributes);
 
-    if (Profiler.ENABLED) {
+    if (Profiler.isTrackingAllocations()) {
       Profiler.memoryAllocated(Integer.SIZE, length);
     }
 
@@ -193,7 +193,7 @@ public class IntArrayVector extends IntVector {
 
     @Override
     public IntVector build() {
-      if(Profiler.ENABLED) {
+      if(Profiler.isTrackingAllocations()) {
         Profiler.memoryAllocated(Integer.SIZE, values.length);
       }
       if(size == values.length) {
@@ -43,7 +43,7 @@ public class LogicalArrayVector extends LogicalVector {
 
   public LogicalArrayVector(int[] values, int size, AttributeMap attributes) {
     super(attributes);
-    if(Profiler.ENABLED) {
+    if(Profiler.isTrackingAllocations()) {
       Profiler.memoryAllocated(Integer.SIZE, size);
     }
     this.values = Arrays.copyOf(values, size);
@@ -79,11 +79,27 @@ public class LogicalArrayVector extends LogicalVector {
   }
 
   public static LogicalArrayVector unsafe(int[] array) {
-    LogicalArrayVector vector = new LogicalArrayVector(AttributeMap.EMPTY);
+    return unsafe(array, AttributeMap.EMPTY);
+  }
+
+  /**
+   * Creates a new LogicalArrayVector by wrapping an existing
+   * array, without copying. The array provided CAN NOT BE SUBSEQUENTLY
+   * MODIFIED.
+   */
+  public static LogicalArrayVector unsafe(int[] array, AttributeMap attributes) {
+    LogicalArrayVector vector = new LogicalArrayVector(attributes);
     vector.values = array;
     return vector;
   }
 
+  /**
+   * @return a pointer to the underlying array. DO NOT MODIFY!!
+   */
+  public int[] toIntArrayUnsafe() {
+    return values;
+  }
+
   @Override
   public int length() {
     return values.length;
@@ -201,7 +217,7 @@ public class LogicalArrayVector extends LogicalVector {
     
     @Override
     public LogicalVector build() {
-      if(Profiler.ENABLED) {
+      if(Profiler.isTrackingAllocations()) {
         Profiler.memoryAllocated(Integer.SIZE, size);
       }
       if(values.length == size) {
@@ -0,0 +1,40 @@
+package org.renjin.sexp;
+
+import java.nio.IntBuffer;
+
+public class LogicalBufferVector extends LogicalVector {
+
+  private final IntBuffer buffer;
+  private int length;
+
+  public LogicalBufferVector(IntBuffer buffer, int length) {
+    this.buffer = buffer;
+    this.length = length;
+  }
+
+  public LogicalBufferVector(IntBuffer buffer, int length, AttributeMap attributes) {
+    super(attributes);
+    this.buffer = buffer;
+    this.length = length;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public int getElementAsRawLogical(int i) {
+    return buffer.get(i);
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return true;
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new LogicalBufferVector(buffer, length, attributes);
+  }
+}
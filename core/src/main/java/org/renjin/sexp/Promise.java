@@ -69,6 +69,9 @@ public class Promise extends AbstractSEXP implements Recursive {
     this.environment = Environment.EMPTY;
     this.expression = expression;
     this.result = result;
+    if(result != null) {
+      result.markShared();
+    }
   }
 
 
@@ -83,6 +86,7 @@ public class Promise extends AbstractSEXP implements Recursive {
   public SEXP force(Context context) {
     if (result == null) {
       this.result = doEval(context);
+      this.result.markShared();
     }
     return result;
   }
@@ -94,6 +98,9 @@ public class Promise extends AbstractSEXP implements Recursive {
   
   public void setResult(SEXP exp) {
     this.result = exp;
+    if(exp != null) {
+      exp.markShared();
+    }
   }
 
   @Override
@@ -74,6 +74,23 @@ public interface SEXP {
    */
   boolean isObject();
 
+  /**
+   * Values are shared unless they were created by a replacement such as {@code x[i] <- v}, and
+   * have since only been reachable through the single variable binding to which they were assigned.
+   * Such values may be modified in place by the next replacement of the same variable.
+   *
+   * @return false if this value is referenced only by a single variable binding, and may be modified
+   * in place
+   */
+  boolean isShared();
+
+  /**
+   * Marks this value as shared, so that it is never modified in place. This must be called when a
+   * reference to a value is obtained from a variable binding, as {@link HashFrame#getVariable(Symbol)}
+   * and {@link Promise#force(org.renjin.eval.Context)} do.
+   */
+  void markShared();
+
   /**
    * 
    * R possesses a simple generic function mechanism which can be used
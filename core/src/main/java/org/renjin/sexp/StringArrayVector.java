@@ -37,7 +37,7 @@ public class StringArrayVector extends StringVector implements Iterable<String>
   public StringArrayVector(String[] values, AttributeMap attributes) {
     super(attributes);
     
-    if(Profiler.ENABLED) {
+    if(Profiler.isTrackingAllocations()) {
       Profiler.memoryAllocated(32, values.length);
     }
     
@@ -114,6 +114,13 @@ public class StringArrayVector extends StringVector implements Iterable<String>
     return values.clone();
   }
 
+  /**
+   * @return a pointer to the underlying array. DO NOT MODIFY!!
+   */
+  public String[] toArrayUnsafe() {
+    return values;
+  }
+
   public static StringArrayVector coerceFrom(SEXP exp) {
 
     if(exp instanceof Vector) {
@@ -21,10 +21,10 @@
 
 package org.renjin.sexp;
 
-import com.google.common.collect.Maps;
 import org.renjin.eval.EvalException;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public final class Symbol extends AbstractSEXP {
 
@@ -35,8 +35,11 @@ public final class Symbol extends AbstractSEXP {
    * The global symbol table. We store symbols here so that
    * we can compare symbols using reference equality (==) rather than
    * the equals() method.
+   *
+   * <p>The table is shared by all Sessions in the JVM, so lookups of symbols that
+   * have already been interned must not block.</p>
    */
-  private static final HashMap<String, Symbol> TABLE;
+  private static final ConcurrentMap<String, Symbol> TABLE;
 
   public static final Symbol UNBOUND_VALUE = new Symbol();
   
@@ -59,7 +62,7 @@ public final class Symbol extends AbstractSEXP {
   private static final int NUM_RESERVED_BITS = 4;
   
   static { 
-    TABLE = Maps.newHashMap();
+    TABLE = new ConcurrentHashMap<>(4096);
     addReserved(0, 
         "if", 
         ".Internal",   
@@ -166,18 +169,26 @@ public final class Symbol extends AbstractSEXP {
   public static Symbol get(String printName) {
     if(StringVector.isNA(printName)) {
       return get("NA");
-    } else if(printName.length() == 0) {
-      throw new EvalException("attempt to use zero-length variable name");
     }
+    Symbol symbol = TABLE.get(printName);
+    if(symbol == null) {
+      symbol = intern(printName);
+    }
+    return symbol;
+  }
 
-    synchronized (TABLE) {
-      Symbol symbol = TABLE.get(printName);
-      if(symbol == null) {
-        symbol = new Symbol(printName, calcHashBit(printName));
-        TABLE.put(printName, symbol);
-      }
-      return symbol;
+  private static Symbol intern(String printName) {
+    if(printName.length() == 0) {
+      throw new EvalException("attempt to use zero-length variable name");
+    }
+    // The hash bit depends only on the name, so it does not matter
+    // which thread's instance wins the race to be added to the table
+    Symbol symbol = new Symbol(printName, calcHashBit(printName));
+    Symbol existing = TABLE.putIfAbsent(printName, symbol);
+    if(existing != null) {
+      return existing;
     }
+    return symbol;
   }
 
   private Symbol() {
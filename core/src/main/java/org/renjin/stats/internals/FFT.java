@@ -1,7 +1,6 @@
 package org.renjin.stats.internals;
 
 import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
-import org.apache.commons.math.complex.Complex;
 import org.renjin.invoke.annotations.Internal;
 import org.renjin.sexp.*;
 
@@ -21,10 +20,15 @@ public class FFT {
   public static ComplexVector fft(ComplexVector x, boolean inverse) {
     DoubleFFT_1D fft = new DoubleFFT_1D(x.length());
     
-    double array[] = new double[x.length() * 2];
-    for(int i=0;i!=x.length();++i) {
-      array[i*2] = x.getElementAsComplex(i).getReal();
-      array[i*2+1] = x.getElementAsComplex(i).getImaginary();
+    double array[];
+    if(x instanceof ComplexArrayVector) {
+      array = ((ComplexArrayVector) x).toInterleavedArray();
+    } else {
+      array = new double[x.length() * 2];
+      for(int i=0;i!=x.length();++i) {
+        array[i*2] = x.getElementAsComplexReal(i);
+        array[i*2+1] = x.getElementAsComplexImag(i);
+      }
     }
     if(inverse) {
       fft.complexInverse(array, false);
@@ -51,13 +55,12 @@ public class FFT {
     return toComplex(array);
   }
 
+  /**
+   * JTransforms stores complex results with interleaved real and imaginary parts, as
+   * {@link ComplexArrayVector} does, so the array can be used without copying.
+   */
   private static ComplexVector toComplex(double[] array) {
-    int n = array.length / 2;
-    ComplexArrayVector.Builder result = new ComplexArrayVector.Builder(0, n);
-    for(int i=0;i!=n;++i) {
-      result.add(new Complex(array[i*2], array[i*2+1]));
-    }
-    return result.build();
+    return ComplexArrayVector.unsafe(array);
   }
     
   private static boolean isPowerOfTwo(int n) {
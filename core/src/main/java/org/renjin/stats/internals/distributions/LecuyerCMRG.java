@@ -0,0 +1,219 @@
+package org.renjin.stats.internals.distributions;
+
+/**
+ * L'Ecuyer's MRG32k3a combined multiple-recursive generator, modeled after GNU R's
+ * "L'Ecuyer-CMRG" kind.
+ *
+ * <p>The generator's period of about 2^191 is divided into streams of length 2^127, each
+ * of which is divided into substreams of length 2^76. Independent streams can be assigned
+ * to parallel workers to obtain reproducible, non-overlapping random numbers.</p>
+ */
+public class LecuyerCMRG {
+
+  private static final long M1 = 4294967087L;
+  private static final long M2 = 4294944443L;
+
+  private static final double NORMC = 2.328306549295727688e-10;
+  private static final long A12 = 1403580L;
+  private static final long A13N = 810728L;
+  private static final long A21 = 527612L;
+  private static final long A23N = 1370589L;
+
+  private static final int GNU_R_SEED_SCRAMBLE_CONSTANT = 50;
+
+  /**
+   * Transition matrices advancing the state by 2^127 steps (one stream)
+   */
+  private static final long[][] A1P127 = {
+      {    2427906178L, 3580155704L,  949770784L },
+      {     226153695L, 1230515664L, 3580155704L },
+      {    1988835001L,  986791581L, 1230515664L }
+  };
+
+  private static final long[][] A2P127 = {
+      {    1464411153L,  277697599L, 1610723613L },
+      {      32183930L, 1464411153L, 1022607788L },
+      {    2824425944L,   32183930L, 2093834863L }
+  };
+
+  /**
+   * Transition matrices advancing the state by 2^76 steps (one substream)
+   */
+  private static final long[][] A1P76 = {
+      {      82758667L, 1871391091L, 4127413238L },
+      {    3672831523L,   69195019L, 1871391091L },
+      {    3672091415L, 3528743235L,   69195019L }
+  };
+
+  private static final long[][] A2P76 = {
+      {    1511326704L, 3759209742L, 1610795712L },
+      {    4292754251L, 1511326704L, 3889917532L },
+      {    3859662829L, 4292754251L, 3708466080L }
+  };
+
+  /**
+   * The six components of the generator's state, each stored as an unsigned 32-bit value
+   */
+  private final long[] state = new long[6];
+
+  /**
+   * Creates a new generator seeded as GNU R's {@code set.seed(seed, kind="L'Ecuyer-CMRG")}
+   */
+  public LecuyerCMRG(int seed) {
+    setSeed(seed);
+  }
+
+  /**
+   * Creates a new generator with the given state.
+   *
+   * @param state the six components of the state
+   */
+  public LecuyerCMRG(long[] state) {
+    setState(state);
+  }
+
+  public void setSeed(int seed) {
+    // Initial seed scrambling (GNU R convention)
+    for(int j=0;j<GNU_R_SEED_SCRAMBLE_CONSTANT;++j) {
+      seed = (69069 * seed + 1);
+    }
+    for(int j=0;j<6;++j) {
+      seed = (69069 * seed + 1);
+      while((seed & 0xFFFFFFFFL) >= M2) {
+        seed = (69069 * seed + 1);
+      }
+      state[j] = seed & 0xFFFFFFFFL;
+    }
+  }
+
+  public void setState(long[] state) {
+    if(state.length != 6 || !isValid(state)) {
+      throw new IllegalArgumentException("invalid L'Ecuyer-CMRG seed");
+    }
+    System.arraycopy(state, 0, this.state, 0, 6);
+  }
+
+  /**
+   * @return a copy of the generator's current state
+   */
+  public long[] getState() {
+    return state.clone();
+  }
+
+  /**
+   * Each set of three seeds must be in range and not all zero.
+   */
+  private static boolean isValid(long[] state) {
+    return isValid(state, 0, M1) && isValid(state, 3, M2);
+  }
+
+  private static boolean isValid(long[] state, int offset, long modulus) {
+    boolean allZero = true;
+    for(int j=offset;j<offset+3;++j) {
+      if(state[j] < 0 || state[j] >= modulus) {
+        return false;
+      }
+      if(state[j] != 0) {
+        allZero = false;
+      }
+    }
+    return !allZero;
+  }
+
+  public double nextDouble() {
+    long p1 = A12 * state[1] - A13N * state[0];
+    p1 %= M1;
+    if(p1 < 0) {
+      p1 += M1;
+    }
+    state[0] = state[1];
+    state[1] = state[2];
+    state[2] = p1;
+
+    long p2 = A21 * state[5] - A23N * state[3];
+    p2 %= M2;
+    if(p2 < 0) {
+      p2 += M2;
+    }
+    state[3] = state[4];
+    state[4] = state[5];
+    state[5] = p2;
+
+    return ((p1 > p2) ? (p1 - p2) : (p1 - p2 + M1)) * NORMC;
+  }
+
+  /**
+   * Fills {@code values[from, to)} with the next doubles from the generator, producing the
+   * same sequence as calling {@link #nextDouble()} for each element.
+   */
+  public void nextDoubles(double[] values, int from, int to) {
+    long s0 = state[0], s1 = state[1], s2 = state[2];
+    long s3 = state[3], s4 = state[4], s5 = state[5];
+    for (int i = from; i < to; i++) {
+      long p1 = (A12 * s1 - A13N * s0) % M1;
+      if(p1 < 0) {
+        p1 += M1;
+      }
+      s0 = s1;
+      s1 = s2;
+      s2 = p1;
+
+      long p2 = (A21 * s5 - A23N * s3) % M2;
+      if(p2 < 0) {
+        p2 += M2;
+      }
+      s3 = s4;
+      s4 = s5;
+      s5 = p2;
+
+      values[i] = ((p1 > p2) ? (p1 - p2) : (p1 - p2 + M1)) * NORMC;
+    }
+    state[0] = s0; state[1] = s1; state[2] = s2;
+    state[3] = s3; state[4] = s4; state[5] = s5;
+  }
+
+  /**
+   * @return the state at the start of the stream following the stream starting at {@code state},
+   * as computed by R's {@code parallel::nextRNGStream}
+   */
+  public static long[] nextStream(long[] state) {
+    return advance(state, A1P127, A2P127);
+  }
+
+  /**
+   * @return the state at the start of the substream following the substream
+   * starting at {@code state}, as computed by R's {@code parallel::nextRNGSubStream}
+   */
+  public static long[] nextSubStream(long[] state) {
+    return advance(state, A1P76, A2P76);
+  }
+
+  private static long[] advance(long[] state, long[][] a1, long[][] a2) {
+    long[] next = new long[6];
+    for(int i=0;i<3;++i) {
+      long sum = 0;
+      for(int j=0;j<3;++j) {
+        sum = (sum + multiplyMod(a1[i][j], state[j], M1)) % M1;
+      }
+      next[i] = sum;
+    }
+    for(int i=0;i<3;++i) {
+      long sum = 0;
+      for(int j=0;j<3;++j) {
+        sum = (sum + multiplyMod(a2[i][j], state[j + 3], M2)) % M2;
+      }
+      next[i + 3] = sum;
+    }
+    return next;
+  }
+
+  /**
+   * Computes {@code (a * b) % m} for values of {@code a} and {@code b} below 2^32
+   * without overflowing
+   */
+  private static long multiplyMod(long a, long b, long m) {
+    long high = ((a * (b >>> 16)) % m) << 16;
+    long low = a * (b & 0xFFFFL);
+    return ((high % m) + (low % m)) % m;
+  }
+}
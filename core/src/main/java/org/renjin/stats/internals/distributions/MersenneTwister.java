@@ -86,41 +86,61 @@ public class MersenneTwister {
      * @return The next double
      */
     public double nextDouble() {
-        int y;
-        int[] mag01 = new int[]{0x0, MATRIX_A};
-
         stateVectorIndex = stateVector[0];
-
-        // Should N new words be generated?
         if (stateVectorIndex >= N) {
-            int kk;
-
-            for (kk = 1; kk < N - M + 1; kk++) {
-                y = (stateVector[kk] & UPPER_MASK) | (stateVector[kk + 1] & LOWER_MASK);
-                stateVector[kk] = stateVector[kk + M] ^ (y >>> 1) ^ mag01[y & 0x1];  // Note: Unsigned right shift
+            generate();
+        }
+        double value = temper(stateVector[stateVectorIndex + 1]);
+        stateVector[0] = ++stateVectorIndex;
+        return value;
+    }
 
+    /**
+     * Fills {@code values[from, to)} with the next doubles from the PRNG, producing
+     * the same sequence as calling {@link #nextDouble()} for each element.
+     */
+    public void nextDoubles(double[] values, int from, int to) {
+        int[] mt = stateVector;
+        int index = mt[0];
+        for (int i = from; i < to; i++) {
+            if (index >= N) {
+                generate();
+                index = 0;
             }
-            for (; kk < N; kk++) {
-                y = (stateVector[kk] & UPPER_MASK) | (stateVector[kk + 1] & LOWER_MASK);
-                stateVector[kk] = stateVector[kk + (M - N)] ^ (y >>> 1) ^ mag01[y & 0x1];   // Note: Unsigned right shift
-            }
-            y = (stateVector[N] & UPPER_MASK) | (stateVector[1] & LOWER_MASK);
+            values[i] = temper(mt[++index]);
+        }
+        stateVector[0] = stateVectorIndex = index;
+    }
+
+    /**
+     * Generates the next N words of the state vector
+     */
+    private void generate() {
+        int[] mt = stateVector;
+        int y;
+        int kk;
 
-            stateVector[N] = stateVector[M] ^ (y >>> 1) ^ mag01[y & 0x1]; // Note: Unsigned right shift
-            stateVectorIndex = 0;
+        for (kk = 1; kk < N - M + 1; kk++) {
+            y = (mt[kk] & UPPER_MASK) | (mt[kk + 1] & LOWER_MASK);
+            mt[kk] = mt[kk + M] ^ (y >>> 1) ^ ((y & 0x1) * MATRIX_A);  // Note: Unsigned right shift
         }
+        for (; kk < N; kk++) {
+            y = (mt[kk] & UPPER_MASK) | (mt[kk + 1] & LOWER_MASK);
+            mt[kk] = mt[kk + (M - N)] ^ (y >>> 1) ^ ((y & 0x1) * MATRIX_A);   // Note: Unsigned right shift
+        }
+        y = (mt[N] & UPPER_MASK) | (mt[1] & LOWER_MASK);
+
+        mt[N] = mt[M] ^ (y >>> 1) ^ ((y & 0x1) * MATRIX_A); // Note: Unsigned right shift
+        stateVectorIndex = 0;
+    }
 
-        y = stateVector[stateVectorIndex +1];
+    private static double temper(int y) {
         y ^= TEMPERING_SHIFT_U(y);
         y ^= TEMPERING_SHIFT_S(y) & TEMPERING_MASK_B;
         y ^= TEMPERING_SHIFT_T(y) & TEMPERING_MASK_C;
         y ^= TEMPERING_SHIFT_L(y);
-        stateVector[0] = ++stateVectorIndex;
-
-        // Unsign y
-        long yUnsigned = (((long) y) & 0xFFFFFFFFL);
 
-        // [0,1) interval
-        return yUnsigned * 2.3283064365386963e-10;
+        // Unsign y, [0,1) interval
+        return (y & 0xFFFFFFFFL) * 2.3283064365386963e-10;
     }
 }
@@ -7,6 +7,7 @@ public enum N01type {
   BOX_MULLER,
   USER_NORM,
   INVERSION, //This is default
-  KINDERMAN_RAMAGE
+  KINDERMAN_RAMAGE,
+  ZIGGURAT //Not in GNU R
   
 }
@@ -20,6 +20,7 @@
  */
 package org.renjin.stats.internals.distributions;
 
+import org.renjin.eval.EvalException;
 import org.renjin.eval.Session;
 
 
@@ -72,12 +73,6 @@ public class Normal {
   static double g(double x) {
     return (C1 * Math.exp(-x * x / 2.0) - C2 * (A - x));
   }
-  /*
-   * This is hard coded in snorm.c
-   * so i will not implement other methods but just inversion.
-   */
-  static N01type N01_kind = N01type.INVERSION;
-
   
   public static double rnorm(Session context, double mu, double sigma) {
     if ((Double.NaN == mu) || sigma < 0.) {
@@ -91,10 +86,36 @@ public class Normal {
   }
 
   
+  /**
+   * Fills {@code values[from, to)} with standard normal deviates, producing the same
+   * deviates as calling {@link #norm_rand(Session)} for each element.
+   */
+  public static void norm_rand(Session context, double[] values, int from, int to) {
+    RNG rng = context.rng;
+    if(rng.getNormalKind() != N01type.INVERSION) {
+      for (int i = from; i < to; i++) {
+        values[i] = norm_rand(context);
+      }
+      return;
+    }
+    // Inversion always takes two uniforms per deviate, so they can be drawn in blocks
+    int BIG = 134217728; /* 2^27 */
+    double[] u = new double[2 * Math.min(to - from, 4096)];
+    for (int start = from; start < to; start += u.length / 2) {
+      int count = Math.min(to - start, u.length / 2);
+      rng.unif_rand(u, 0, 2 * count);
+      for (int i = 0; i < count; i++) {
+        double u1 = (int) (BIG * u[2 * i]) + u[2 * i + 1];
+        values[start + i] = qnorm5(u1 / BIG, 0.0, 1.0, 1, 0);
+      }
+    }
+  }
+
   public static double norm_rand(Session context) {
     double s, u1, w, y, u2, u3, aa, tt, theta, R;
     int i;
 
+    N01type N01_kind = context.rng.getNormalKind();
     switch (N01_kind) {
 
       case AHRENS_DIETER: /* see Reference above */
@@ -229,10 +250,10 @@ public class Normal {
           }
         }
       case BOX_MULLER:
-        throw new UnsupportedOperationException(N01_kind.toString() + " not implemented yet");
+        throw new EvalException(N01_kind.toString() + " not implemented yet");
 
       case USER_NORM:
-        throw new UnsupportedOperationException(N01_kind.toString() + " not implemented yet");
+        throw new EvalException(N01_kind.toString() + " not implemented yet");
 
       case INVERSION:
         int BIG = 134217728; /* 2^27 */
@@ -303,8 +324,10 @@ public class Normal {
             return (u2 < u3) ? tt : -tt;
           }
         }
+      case ZIGGURAT:
+        return Ziggurat.norm_rand(context.rng);
       default:
-        throw new UnsupportedOperationException("Unsupported type: " + N01_kind);
+        throw new EvalException("Unsupported type: " + N01_kind);
     }/*switch*/
   }
 
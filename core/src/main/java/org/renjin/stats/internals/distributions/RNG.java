@@ -8,13 +8,23 @@ import org.renjin.invoke.annotations.Current;
 import org.renjin.invoke.annotations.Internal;
 import org.renjin.sexp.*;
 
+import java.util.Arrays;
 
+
+/**
+ * A session's random number generator, and the builtins which draw from it.
+ *
+ * <p>Each session has its own generator, so that sessions evaluating on different threads
+ * draw without contention. Workers which need independent, reproducible sequences are each
+ * given their own stream of the "L'Ecuyer-CMRG" generator with {@link #setStream(long[])}.</p>
+ */
 public class RNG {
 
-  public MersenneTwister mersenneTwisterAlg = null;
-  public RNGtype RNG_kind = RNGtype.MERSENNE_TWISTER; //default
-  public N01type N01_kind = N01type.INVERSION; //default
-  int randomseed = 0;
+  private MersenneTwister mersenneTwisterAlg = null;
+  private LecuyerCMRG lecuyerAlg = null;
+  private RNGtype RNG_kind = RNGtype.MERSENNE_TWISTER; //default
+  private N01type N01_kind = N01type.INVERSION; //default
+  private int randomseed = 0;
   public Session context;
 
 
@@ -22,6 +32,43 @@ public class RNG {
     this.context = globals;
   }
 
+  public RNGtype getKind() {
+    return RNG_kind;
+  }
+
+  public void setKind(RNGtype kind) {
+    this.RNG_kind = kind;
+  }
+
+  public N01type getNormalKind() {
+    return N01_kind;
+  }
+
+  public void setNormalKind(N01type kind) {
+    this.N01_kind = kind;
+  }
+
+  /**
+   * @return the current state of the "L'Ecuyer-CMRG" generator, which is seeded from the
+   * clock if it has not yet been seeded
+   */
+  public long[] getStreamState() {
+    return lecuyer().getState();
+  }
+
+  /**
+   * Switches to the "L'Ecuyer-CMRG" generator, starting from {@code state}: typically the start
+   * of a stream obtained with {@link LecuyerCMRG#nextStream(long[])}.
+   */
+  public void setStream(long[] state) {
+    if (lecuyerAlg == null) {
+      lecuyerAlg = new LecuyerCMRG(state);
+    } else {
+      lecuyerAlg.setState(state);
+    }
+    RNG_kind = RNGtype.LECUYER_CMRG;
+  }
+
   @Internal
   public static IntVector RNGkind(@Current Context context, SEXP kindExp, SEXP normalkindExp) {
     RNG rng = context.getSession().rng;  
@@ -29,18 +76,23 @@ public class RNG {
     if(kindExp != Null.INSTANCE) {
       int kind = ((AtomicVector)kindExp).getElementAsInt(0);
       try {
-        rng.RNG_kind = RNGtype.values()[kind];
+        rng.RNG_kind = (kind == -1) ? RNGtype.MERSENNE_TWISTER : RNGtype.values()[kind];
       } catch (Exception e) {
         throw new EvalException("RNGkind: unimplemented RNG kind " + kind);
       }
     }
     if(normalkindExp != Null.INSTANCE) {
       int normalkind = ((AtomicVector)normalkindExp).getElementAsInt(0);
+      N01type normalKind;
       try {
-        rng.N01_kind = N01type.values()[normalkind];
+        normalKind = (normalkind == -1) ? N01type.INVERSION : N01type.values()[normalkind];
       } catch (Exception e) {
         throw new EvalException("invalid Normal type in RNGkind");
       }
+      if(normalKind == N01type.BOX_MULLER || normalKind == N01type.USER_NORM) {
+        throw new EvalException("RNGkind: unimplemented Normal type " + normalKind);
+      }
+      rng.N01_kind = normalKind;
     } 
 
     return (new IntArrayVector(rng.RNG_kind.ordinal(), rng.N01_kind.ordinal()));
@@ -72,6 +124,14 @@ public class RNG {
       }
       return;
 
+    case LECUYER_CMRG:
+      if (rng.lecuyerAlg == null) {
+        rng.lecuyerAlg = new LecuyerCMRG(seed);
+      } else {
+        rng.lecuyerAlg.setSeed(seed);
+      }
+      return;
+
     case KNUTH_TAOCP:
     case KNUTH_TAOCP2:
       throw new EvalException(rng.RNG_kind + " not implemented yet");
@@ -84,193 +144,200 @@ public class RNG {
 
   @Internal
   public static DoubleVector runif(@Current Context context, int n, double a, double b) {
-    RNG rng = context.getSession().rng;
-    DoubleArrayVector.Builder vb = DoubleArrayVector.Builder.withInitialCapacity(n);
+    double[] values = new double[n];
+    context.getSession().rng.unif_rand(values, 0, n);
     for (int i = 0; i < n; i++) {
-      vb.add(a + rng.unif_rand() * (b - a));
+      values[i] = a + values[i] * (b - a);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rnorm(@Current Context context, int n, double mean, double sd) {
-    DoubleArrayVector.Builder vb = DoubleArrayVector.Builder.withInitialCapacity(n);
-    for (int i = 0; i < n; i++) {
-      vb.add(Normal.rnorm(context.getSession(), mean, sd));
+    double[] values = new double[n];
+    if (Double.isNaN(mean) || sd < 0) {
+      Arrays.fill(values, Double.NaN);
+    } else if (sd == 0) {
+      Arrays.fill(values, mean);
+    } else {
+      Normal.norm_rand(context.getSession(), values, 0, n);
+      for (int i = 0; i < n; i++) {
+        values[i] = mean + sd * values[i];
+      }
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rgamma(@Current Context context, int n, double shape, double scale) {
-    DoubleArrayVector.Builder vb = DoubleArrayVector.Builder.withInitialCapacity(n);
+    double[] values = new double[n];
     for (int i = 0; i < n; i++) {
-      vb.add(Gamma.rgamma(context.getSession(), shape, scale));
+      values[i] = Gamma.rgamma(context.getSession(), shape, scale);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rchisq(@Current Context context, int n, double df) {
-    DoubleArrayVector.Builder vb = DoubleArrayVector.Builder.withInitialCapacity(n);
+    double[] values = new double[n];
     for (int i = 0; i < n; i++) {
-      vb.add(ChiSquare.rchisq(context.getSession(), df));
+      values[i] = ChiSquare.rchisq(context.getSession(), df);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rnchisq(@Current Context context, int n, double df, double ncp) {
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
+    double[] values = new double[n];
     for (int i = 0; i < n; i++) {
-      vb.add(ChiSquare.rnchisq(context.getSession(), df, ncp));
+      values[i] = ChiSquare.rnchisq(context.getSession(), df, ncp);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rexp(@Current Context context, int n, double invrate) {
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
+    double[] values = new double[n];
     for (int i = 0; i < n; i++) {
-      vb.add(Exponantial.rexp(context.getSession(), invrate));
+      values[i] = Exponantial.rexp(context.getSession(), invrate);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rpois(@Current Context context, int n, double mu) {
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
+    double[] values = new double[n];
     for (int i = 0; i < n; i++) {
-      vb.add(Poisson.rpois(context.getSession(), mu));
+      values[i] = Poisson.rpois(context.getSession(), mu);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rsignrank(@Current Context context, int nn, double n) {
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
+    double[] values = new double[nn];
     for (int i = 0; i < nn; i++) {
-      vb.add(SignRank.rsignrank(context.getSession(), n));
+      values[i] = SignRank.rsignrank(context.getSession(), n);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rwilcox(@Current Context context, int nn, double m, double n) {
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
+    double[] values = new double[nn];
     for (int i = 0; i < nn; i++) {
-      vb.add(Wilcox.rwilcox(context.getSession(), m, n));
+      values[i] = Wilcox.rwilcox(context.getSession(), m, n);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rgeom(@Current Context context, int n, double p) {
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
+    double[] values = new double[n];
     for (int i = 0; i < n; i++) {
-      vb.add(Geometric.rgeom(context.getSession(), p));
+      values[i] = Geometric.rgeom(context.getSession(), p);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rt(@Current Context context, int n, double df) {
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
+    double[] values = new double[n];
     for (int i = 0; i < n; i++) {
-      vb.add(StudentsT.rt(context.getSession(), df));
+      values[i] = StudentsT.rt(context.getSession(), df);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rcauchy(@Current Context context, int n, double location, double scale) {
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
+    double[] values = new double[n];
     for (int i = 0; i < n; i++) {
-      vb.add(Cauchy.rcauchy(context.getSession(), location, scale));
+      values[i] = Cauchy.rcauchy(context.getSession(), location, scale);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rlnorm(@Current Context context, int n, double meanlog, double sdlog) {
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
+    double[] values = new double[n];
     for (int i = 0; i < n; i++) {
-      vb.add(LNorm.rlnorm(context.getSession(), meanlog, sdlog));
+      values[i] = LNorm.rlnorm(context.getSession(), meanlog, sdlog);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rlogis(@Current Context context, int n, double location, double scale) {
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
+    double[] values = new double[n];
     for (int i = 0; i < n; i++) {
-      vb.add(RLogis.rlogis(context.getSession(), location, scale));
+      values[i] = RLogis.rlogis(context.getSession(), location, scale);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rweibull(@Current Context context, int n, double shape, double scale) {
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
+    double[] values = new double[n];
     for (int i = 0; i < n; i++) {
-      vb.add(Weibull.rweibull(context.getSession(), shape, scale));
+      values[i] = Weibull.rweibull(context.getSession(), shape, scale);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rnbinom(@Current Context context, int n, double size, double prob) {
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
+    double[] values = new double[n];
     for (int i = 0; i < n; i++) {
-      vb.add(NegativeBinom.rnbinom(context.getSession(), size, prob));
+      values[i] = NegativeBinom.rnbinom(context.getSession(), size, prob);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rnbinom_mu(@Current Context context, int n, double size, double mu) {
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
+    double[] values = new double[n];
     for (int i = 0; i < n; i++) {
-      vb.add(NegativeBinom.rnbinom_mu(context.getSession(), size, mu));
+      values[i] = NegativeBinom.rnbinom_mu(context.getSession(), size, mu);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rbinom(@Current Context context, int n, double size, double prob) {
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
+    double[] values = new double[n];
     for (int i = 0; i < n; i++) {
-      vb.add(Binom.rbinom(context.getSession(), size, prob));
+      values[i] = Binom.rbinom(context.getSession(), size, prob);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
 
   @Internal
   public static DoubleVector rf(@Current Context context, int n, double df1, double df2) {
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
+    double[] values = new double[n];
     for (int i = 0; i < n; i++) {
-      vb.add(F.rf(context.getSession(), df1, df2));
+      values[i] = F.rf(context.getSession(), df1, df2);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rbeta(@Current Context context, int n, double shape1, double shape2) {
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
+    double[] values = new double[n];
     for (int i = 0; i < n; i++) {
-      vb.add(Beta.rbeta(context.getSession(), shape1, shape2));
+      values[i] = Beta.rbeta(context.getSession(), shape1, shape2);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
   public static DoubleVector rhyper(@Current Context context, int nn, double m, double n, double k){
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
+    double[] values = new double[nn];
     for (int i = 0; i < nn; i++) {
-      vb.add(HyperGeometric.Random_hyper_geometric.rhyper(context.getSession(), m, n, k));
+      values[i] = HyperGeometric.Random_hyper_geometric.rhyper(context.getSession(), m, n, k);
     }
-    return (vb.build());
+    return DoubleArrayVector.unsafe(values);
   }
 
   @Internal
@@ -298,36 +365,54 @@ public class RNG {
    * mhsatman
    */
   public double unif_rand() {
-    double value;
-
     switch (this.RNG_kind) {
-
-    case WICHMANN_HILL:
-      throw new EvalException(RNG_kind + " not implemented yet");
-
-    case MARSAGLIA_MULTICARRY:
+    case MERSENNE_TWISTER:
+      return mersenneTwister().nextDouble();
+    case LECUYER_CMRG:
+      return lecuyer().nextDouble();
+    default:
       throw new EvalException(RNG_kind + " not implemented yet");
+    }
+  }
 
-    case SUPER_DUPER:
+  /**
+   * Fills {@code values[from, to)} with uniform random numbers, producing the same sequence
+   * as calling {@link #unif_rand()} for each element, but without choosing the generator
+   * for every number.
+   */
+  public void unif_rand(double[] values, int from, int to) {
+    switch (this.RNG_kind) {
+    case MERSENNE_TWISTER:
+      mersenneTwister().nextDoubles(values, from, to);
+      return;
+    case LECUYER_CMRG:
+      lecuyer().nextDoubles(values, from, to);
+      return;
+    default:
       throw new EvalException(RNG_kind + " not implemented yet");
+    }
+  }
 
-    case MERSENNE_TWISTER:
-      if (mersenneTwisterAlg == null) {
-        if (this.randomseed == 0) {
-          Randomize(RNG_kind);
-        }
+  private MersenneTwister mersenneTwister() {
+    if (mersenneTwisterAlg == null) {
+      if (this.randomseed == 0) {
+        Randomize(RNGtype.MERSENNE_TWISTER);
+      } else {
         mersenneTwisterAlg = new MersenneTwister((long) this.randomseed);
       }
-      return (mersenneTwisterAlg.nextDouble());
+    }
+    return mersenneTwisterAlg;
+  }
 
-    case KNUTH_TAOCP:
-    case KNUTH_TAOCP2:
-      throw new EvalException(RNG_kind + " not implemented yet");
-    case USER_UNIF:
-      throw new EvalException(RNG_kind + " not implemented yet");
-    default:
-      throw new EvalException(RNG_kind + " not implemented yet");
+  private LecuyerCMRG lecuyer() {
+    if (lecuyerAlg == null) {
+      if (this.randomseed == 0) {
+        Randomize(RNGtype.LECUYER_CMRG);
+      } else {
+        lecuyerAlg = new LecuyerCMRG(this.randomseed);
+      }
     }
+    return lecuyerAlg;
   }
 
   /*
@@ -337,16 +422,16 @@ public class RNG {
     int sseed;
     sseed = (int) (new java.util.Date()).getTime();
     this.randomseed = sseed;
-    switch (RNG_kind) {
+    switch (kind) {
 
     case WICHMANN_HILL:
-      throw new EvalException(RNG_kind + " not implemented yet");
+      throw new EvalException(kind + " not implemented yet");
 
     case MARSAGLIA_MULTICARRY:
-      throw new EvalException(RNG_kind + " not implemented yet");
+      throw new EvalException(kind + " not implemented yet");
 
     case SUPER_DUPER:
-      throw new EvalException(RNG_kind + " not implemented yet");
+      throw new EvalException(kind + " not implemented yet");
 
     case MERSENNE_TWISTER:
       if (mersenneTwisterAlg == null) {
@@ -356,13 +441,21 @@ public class RNG {
       }
       return;
 
+    case LECUYER_CMRG:
+      if (lecuyerAlg == null) {
+        lecuyerAlg = new LecuyerCMRG(sseed);
+      } else {
+        lecuyerAlg.setSeed(sseed);
+      }
+      return;
+
     case KNUTH_TAOCP:
     case KNUTH_TAOCP2:
-      throw new EvalException(RNG_kind + " not implemented yet");
+      throw new EvalException(kind + " not implemented yet");
     case USER_UNIF:
-      throw new EvalException(RNG_kind + " not implemented yet");
+      throw new EvalException(kind + " not implemented yet");
     default:
-      throw new EvalException(RNG_kind + " not implemented yet");
+      throw new EvalException(kind + " not implemented yet");
     }
   }
 }
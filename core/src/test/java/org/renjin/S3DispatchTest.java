@@ -23,6 +23,7 @@ package org.renjin;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.renjin.primitives.S3DispatchCache;
 import org.renjin.sexp.Logical;
 
 import java.io.IOException;
@@ -135,4 +136,45 @@ public class S3DispatchTest extends EvalTestCase {
 
   }
 
+  @Test
+  public void cachedDispatch() {
+    S3DispatchCache cache = topLevelContext.getSession().getSingleton(S3DispatchCache.class);
+
+    eval("describe <- function(x) UseMethod('describe') ");
+    eval("describe.foo <- function(x) 'foo' ");
+    eval("describe.default <- function(x) 'default' ");
+    eval("x <- structure(1, class=c('bar', 'foo')) ");
+    eval("f <- function(x, n) { for(i in 1:n) r <- describe(x); r }");
+
+    long hits = cache.getHitCount();
+    assertThat(eval("f(x, 10)"), equalTo(c("foo")));
+    assertThat(cache.getHitCount() - hits, equalTo(9L));
+
+    // defining a method for an earlier class invalidates the cached method
+    eval("describe.bar <- function(x) 'bar' ");
+    assertThat(eval("f(x, 2)"), equalTo(c("bar")));
+
+    eval("rm(describe.bar, describe.foo)");
+    assertThat(eval("f(x, 2)"), equalTo(c("default")));
+
+    // as does a method defined in the calling frame
+    eval("describe <- function(x) { describe.foo <- function(x) 'local'; UseMethod('describe') }");
+    assertThat(eval("f(x, 2)"), equalTo(c("local")));
+  }
+
+  @Test
+  public void cachedDispatchOfRegisteredMethods() {
+    eval("ns <- new.env()");
+    eval("ns$summarize <- function(x) UseMethod('summarize')");
+    eval("environment(ns$summarize) <- ns");
+    eval("ns$.__S3MethodsTable__. <- new.env()");
+    eval("f <- function(x) ns$summarize(x)");
+    eval("x <- structure(1, class='foo')");
+
+    assertThat(eval("tryCatch(f(x), error=function(e) 'none')"), equalTo(c("none")));
+
+    eval("assign('summarize.foo', function(x) 'registered', envir = ns$.__S3MethodsTable__.)");
+    assertThat(eval("f(x)"), equalTo(c("registered")));
+  }
+
 }
@@ -0,0 +1,110 @@
+package org.renjin.compiler.pipeline;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.primitives.R$primitive$$greater$deferred_dd;
+import org.renjin.primitives.R$primitive$$plus$deferred_ii;
+import org.renjin.primitives.R$primitive$$times$deferred_dd;
+import org.renjin.primitives.R$primitive$sqrt$deferred_d;
+import org.renjin.primitives.summary.*;
+import org.renjin.primitives.vector.DeferredComputation;
+import org.renjin.sexp.*;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class DeferredJitterTest extends EvalTestCase {
+
+  private final DoubleArrayVector x = new DoubleArrayVector(4, 1, 9, 16);
+  private final DoubleArrayVector y = new DoubleArrayVector(2, 3);
+  private final DoubleArrayVector withNA = new DoubleArrayVector(4, DoubleVector.NA, Double.NaN, 1);
+  private final DoubleArrayVector withNaN = new DoubleArrayVector(4, Double.NaN, 1);
+
+  @Test
+  public void sumOfRecycledProduct() {
+    Vector product = new R$primitive$$times$deferred_dd(x, y, AttributeMap.EMPTY);
+    assertThat(jit(new DeferredSum(product, AttributeMap.EMPTY)), equalTo(8d + 3d + 18d + 48d));
+  }
+
+  @Test
+  public void minAndMax() {
+    Vector root = new R$primitive$sqrt$deferred_d(x, AttributeMap.EMPTY);
+    assertThat(jit(new DeferredMin(root, AttributeMap.EMPTY)), equalTo(1d));
+    assertThat(jit(new DeferredMax(root, AttributeMap.EMPTY)), equalTo(4d));
+
+    assertTrue(DoubleVector.isNA(jit(new DeferredMax(times(withNA, 1), AttributeMap.EMPTY))));
+    assertTrue(Double.isNaN(jit(new DeferredMin(times(withNaN, 1), AttributeMap.EMPTY))));
+    assertTrue(!DoubleVector.isNA(jit(new DeferredMin(times(withNaN, 1), AttributeMap.EMPTY))));
+  }
+
+  @Test
+  public void anyAndAll() {
+    assertThat(jitLogical(new DeferredAny(greater(x, 10), AttributeMap.EMPTY)), equalTo(1));
+    assertThat(jitLogical(new DeferredAny(greater(x, 20), AttributeMap.EMPTY)), equalTo(0));
+    assertThat(jitLogical(new DeferredAll(greater(x, 0), AttributeMap.EMPTY)), equalTo(1));
+    assertThat(jitLogical(new DeferredAll(greater(x, 1), AttributeMap.EMPTY)), equalTo(0));
+
+    // NA comparisons yield NA, unless the answer is known from other elements
+    assertThat(jitLogical(new DeferredAny(greater(withNA, 2), AttributeMap.EMPTY)), equalTo(1));
+    assertThat(jitLogical(new DeferredAny(greater(withNA, 10), AttributeMap.EMPTY)), equalTo(IntVector.NA));
+    assertThat(jitLogical(new DeferredAll(greater(new DoubleArrayVector(4, DoubleVector.NA, 1), 0), AttributeMap.EMPTY)),
+        equalTo(IntVector.NA));
+  }
+
+  @Test
+  public void countTrue() {
+    assertThat(jit(new DeferredCountTrue(greater(x, 3), AttributeMap.EMPTY)), equalTo(3d));
+    assertThat(jit(new DeferredCountTrue(greater(withNA, 0), AttributeMap.EMPTY)), equalTo(2d));
+  }
+
+  @Test
+  public void materializeIntegerOperation() {
+    IntArrayVector a = new IntArrayVector(1, IntVector.NA, 3, 4);
+    IntArrayVector b = new IntArrayVector(10, 20);
+    Vector sum = new R$primitive$$plus$deferred_ii(a, b, AttributeMap.EMPTY);
+
+    DeferredGraph graph = new DeferredGraph((DeferredComputation) times(sum, 1));
+    double[] result = new DeferredJitter().compile(graph.getRoot()).compute(graph.getRoot().flattenVectors());
+
+    assertThat(result.length, equalTo(4));
+    assertThat(result[0], equalTo(11d));
+    assertTrue(DoubleVector.isNA(result[1]));
+    assertThat(result[2], equalTo(13d));
+    assertThat(result[3], equalTo(24d));
+  }
+
+  @Test
+  public void fusedSummariesFromR() {
+    eval("x <- as.double(1:200000)");
+
+    assertThat(eval("length(which(x > 100))"), equalTo(c_i(199900)));
+    assertThat(eval("any(sqrt(x) > 400)"), equalTo(c(true)));
+    assertThat(eval("all(x * 2 > 1)"), equalTo(c(true)));
+    assertThat(eval("max(sqrt(x) * 2)"), equalTo(c(Math.sqrt(200000) * 2)));
+    assertThat(eval("min(x - 5)"), equalTo(c(-4)));
+    assertThat(eval("which(x[1:10] > 8)"), equalTo(c_i(9, 10)));
+  }
+
+  private Vector times(Vector vector, double factor) {
+    return new R$primitive$$times$deferred_dd(vector, new DoubleArrayVector(factor), AttributeMap.EMPTY);
+  }
+
+  private Vector greater(Vector vector, double value) {
+    return new R$primitive$$greater$deferred_dd(vector, new DoubleArrayVector(value), AttributeMap.EMPTY);
+  }
+
+  private double jit(DeferredSummary summary) {
+    DeferredGraph graph = new DeferredGraph(summary);
+    new DeferredNodeComputer(graph.getRoot()).run();
+    assertTrue(summary.isCalculated());
+    return summary.getElementAsDouble(0);
+  }
+
+  private int jitLogical(DeferredLogicalSummary summary) {
+    DeferredGraph graph = new DeferredGraph(summary);
+    new DeferredNodeComputer(graph.getRoot()).run();
+    assertTrue(summary.isCalculated());
+    return summary.getElementAsRawLogical(0);
+  }
+}
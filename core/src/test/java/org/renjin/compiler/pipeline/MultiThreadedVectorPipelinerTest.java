@@ -0,0 +1,144 @@
+package org.renjin.compiler.pipeline;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.primitives.R$primitive$$greater$deferred_dd;
+import org.renjin.primitives.R$primitive$sqrt$deferred_d;
+import org.renjin.primitives.matrix.DeferredRowMeans;
+import org.renjin.primitives.summary.*;
+import org.renjin.primitives.vector.DeferredComputation;
+import org.renjin.sexp.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class MultiThreadedVectorPipelinerTest extends EvalTestCase {
+
+  private static final int LENGTH = 10007;
+
+  private final MultiThreadedVectorPipeliner pipeliner = new MultiThreadedVectorPipeliner(4, 100);
+
+  @Test
+  public void chunkedSummaries() {
+    DoubleArrayVector x = sequence(LENGTH);
+    Vector root = new R$primitive$sqrt$deferred_d(x, AttributeMap.EMPTY);
+
+    assertSame(new DeferredSum(root, AttributeMap.EMPTY), new DeferredSum(root, AttributeMap.EMPTY));
+    assertSame(new DeferredMean(root, AttributeMap.EMPTY), new DeferredMean(root, AttributeMap.EMPTY));
+    assertSame(new DeferredMin(root, AttributeMap.EMPTY), new DeferredMin(root, AttributeMap.EMPTY));
+    assertSame(new DeferredMax(root, AttributeMap.EMPTY), new DeferredMax(root, AttributeMap.EMPTY));
+    assertSame(new DeferredCountTrue(greater(x, 5000), AttributeMap.EMPTY),
+        new DeferredCountTrue(greater(x, 5000), AttributeMap.EMPTY));
+  }
+
+  @Test
+  public void chunkedAnyAndAll() {
+    double[] values = sequence(LENGTH).toDoubleArray();
+    values[9000] = DoubleVector.NA;
+    DoubleArrayVector x = new DoubleArrayVector(values);
+
+    assertThat(computeLogical(new DeferredAny(greater(x, LENGTH - 2), AttributeMap.EMPTY)), equalTo(1));
+    assertThat(computeLogical(new DeferredAny(greater(x, LENGTH), AttributeMap.EMPTY)), equalTo(IntVector.NA));
+    assertThat(computeLogical(new DeferredAll(greater(x, 1), AttributeMap.EMPTY)), equalTo(0));
+    assertThat(computeLogical(new DeferredAll(greater(x, -1), AttributeMap.EMPTY)), equalTo(IntVector.NA));
+  }
+
+  @Test
+  public void chunkedRowMeans() {
+    DoubleArrayVector x = sequence(1000 * 7);
+    DeferredRowMeans expected = new DeferredRowMeans(x, 1000, AttributeMap.EMPTY);
+    DeferredRowMeans actual = new DeferredRowMeans(x, 1000, AttributeMap.EMPTY);
+
+    new DeferredNodeComputer(new DeferredGraph(expected).getRoot()).run();
+    pipeliner.materialize(actual);
+
+    assertThat(actual.toDoubleArray(), equalTo(expected.toDoubleArray()));
+  }
+
+  @Test
+  public void chunkedMaterialization() {
+    DoubleArrayVector x = sequence(LENGTH);
+    Vector root = new R$primitive$sqrt$deferred_d(x, AttributeMap.dim(LENGTH, 1));
+
+    Vector result = pipeliner.simplify((DeferredComputation) root);
+
+    assertTrue(result instanceof DoubleArrayVector);
+    assertThat(result.getAttributes(), equalTo(root.getAttributes()));
+    for(int i=0;i!=LENGTH;++i) {
+      assertThat(result.getElementAsDouble(i), equalTo(Math.sqrt(i + 1)));
+    }
+  }
+
+  @Test
+  public void sessionParallelism() {
+    topLevelContext.getSession().setVectorParallelism(4, 1000);
+
+    eval("x <- as.double(1:200000)");
+    assertThat(eval("sum(x * 2)"), equalTo(c(200000d * 200001d)));
+    assertThat(eval("mean(x)"), equalTo(c(100000.5)));
+    assertThat(eval("max(x - 1)"), equalTo(c(199999)));
+    assertThat(eval("length(which(x > 10))"), equalTo(c_i(199990)));
+  }
+
+  @Test
+  public void suppliedExecutorIsUsed() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      MultiThreadedVectorPipeliner pipeliner = new MultiThreadedVectorPipeliner(executor);
+      assertThat(pipeliner.getThreadCount(), equalTo(1));
+
+      Vector root = new R$primitive$sqrt$deferred_d(sequence(LENGTH), AttributeMap.EMPTY);
+      DeferredSum expected = new DeferredSum(root, AttributeMap.EMPTY);
+      new DeferredNodeComputer(new DeferredGraph(expected).getRoot()).run();
+      DeferredSum actual = new DeferredSum(root, AttributeMap.EMPTY);
+      pipeliner.materialize(actual);
+      assertThat(actual.getElementAsDouble(0), closeTo(expected.getElementAsDouble(0), 1e-6));
+
+      pipeliner.shutdown();
+      assertFalse(executor.isShutdown());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(expected = RejectedExecutionException.class)
+  public void replacedPoolIsShutDown() {
+    topLevelContext.getSession().setVectorParallelism(2, 100);
+    VectorPipeliner replaced = topLevelContext.getSession().getVectorEngine();
+    topLevelContext.getSession().setVectorParallelism(1, 100);
+
+    Vector root = new R$primitive$sqrt$deferred_d(sequence(LENGTH), AttributeMap.EMPTY);
+    replaced.simplify((DeferredComputation) root);
+  }
+
+  private void assertSame(DeferredSummary expected, DeferredSummary actual) {
+    new DeferredNodeComputer(new DeferredGraph(expected).getRoot()).run();
+    pipeliner.materialize(actual);
+    assertTrue(actual.isCalculated());
+    assertThat(actual.getElementAsDouble(0), closeTo(expected.getElementAsDouble(0), 1e-6));
+  }
+
+  private int computeLogical(DeferredLogicalSummary summary) {
+    pipeliner.materialize(summary);
+    assertTrue(summary.isCalculated());
+    return summary.getElementAsRawLogical(0);
+  }
+
+  private Vector greater(Vector vector, double value) {
+    return new R$primitive$$greater$deferred_dd(vector, new DoubleArrayVector(value), AttributeMap.EMPTY);
+  }
+
+  private DoubleArrayVector sequence(int length) {
+    double[] values = new double[length];
+    for(int i=0;i!=length;++i) {
+      values[i] = i + 1;
+    }
+    return new DoubleArrayVector(values);
+  }
+}
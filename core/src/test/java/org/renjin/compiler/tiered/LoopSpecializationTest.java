@@ -0,0 +1,117 @@
+package org.renjin.compiler.tiered;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LoopSpecializationTest extends EvalTestCase {
+
+  @Before
+  public void compileEagerly() {
+    TieredCompiler.setEnabled(true);
+    TieredCompiler.setInvocationThreshold(1);
+    TieredCompiler.setBackground(false);
+    TieredCompiler.setLoopSpecializationEnabled(true);
+  }
+
+  @After
+  public void restoreDefaults() {
+    TieredCompiler.setInvocationThreshold(500);
+    TieredCompiler.setBackground(true);
+  }
+
+  @Test
+  public void scalarLoop() {
+    long specialized = TieredCompiler.getSpecializedLoopCount();
+    eval("f <- function(x, y) { s <- 0; for(i in seq_along(x)) s <- s + x[i] * y[i]; s }");
+
+    assertThat(eval("f(c(1, 2, 3), c(4, 5, 6))"), equalTo(c(32)));
+    assertThat(eval("f(c(1, 2, 3), c(4, 5, 6))"), equalTo(c(32)));
+    assertThat(eval("is.na(f(c(1, NA, 3), c(4, 5, 6)))"), equalTo(c(true)));
+    assertTrue(TieredCompiler.getSpecializedLoopCount() > specialized);
+  }
+
+  @Test
+  public void specializedForEachSignature() {
+    eval("f <- function(x) { s <- 0L; for(i in seq_along(x)) s <- s + x[i]; s }");
+
+    assertThat(eval("f(1:4)"), equalTo(c_i(10)));
+    assertThat(eval("f(c(1.5, 2.5))"), equalTo(c(4)));
+    assertThat(eval("f(c(TRUE, TRUE, FALSE))"), equalTo(c_i(2)));
+  }
+
+  @Test
+  public void whileLoop() {
+    eval("f <- function(n) { steps <- 0L; while(n != 1) { if(n %% 2 == 0) n <- n / 2 else n <- 3 * n + 1; " +
+         "steps <- steps + 1L }; steps }");
+
+    assertThat(eval("f(27)"), equalTo(c_i(111)));
+  }
+
+  @Test
+  public void replacedElements() {
+    eval("f <- function(x) { for(i in 2:length(x)) x[i] <- x[i - 1] + x[i]; x }");
+    eval("y <- c(1, 2, 3)");
+
+    assertThat(eval("f(y)"), equalTo(c(1, 3, 6)));
+    assertThat(eval("y"), equalTo(c(1, 2, 3)));
+    assertThat(eval("f(1:4)"), equalTo(c_i(1, 3, 6, 10)));
+    assertThat(eval("dim(f(matrix(1:4, 2)))"), equalTo(c_i(2, 2)));
+  }
+
+  @Test
+  public void matrixElements() {
+    eval("f <- function(m) { t <- 0; for(i in 1:nrow(m)) for(j in 1:ncol(m)) t <- t + m[i, j] * i; t }");
+
+    assertThat(eval("f(matrix(1:12, 3))"), equalTo(c(164)));
+  }
+
+  @Test
+  public void outOfBoundsIndexLeavesLoop() {
+    long deoptimizations = TieredCompiler.getDeoptimizationCount();
+    eval("f <- function(x) { s <- 0; for(i in 1:5) s <- s + x[i]; s }");
+
+    assertThat(eval("is.na(f(c(1, 2, 3)))"), equalTo(c(true)));
+    assertTrue(TieredCompiler.getDeoptimizationCount() > deoptimizations);
+
+    eval("g <- function(n) { x <- numeric(0); for(i in 1:n) x[i] <- i; x }");
+    assertThat(eval("g(3)"), equalTo(c(1, 2, 3)));
+  }
+
+  @Test
+  public void missingConditionLeavesLoop() {
+    eval("f <- function(x) { k <- 0; for(v in x) { if(v > 1) k <- k + 1 }; k }");
+
+    assertThat(eval("f(c(1, 2, 3))"), equalTo(c(2)));
+    assertThat(eval("tryCatch(f(c(1, NA, 3)), error = function(e) 'error')"), equalTo(c("error")));
+  }
+
+  @Test
+  public void typeChangeIsNotSpecialized() {
+    eval("f <- function(n) { x <- 0L; for(i in 1:n) x <- x + 0.5; x }");
+
+    assertThat(eval("f(4)"), equalTo(c(2)));
+  }
+
+  @Test
+  public void unboundVariable() {
+    eval("f <- function(n) { for(i in 1:n) { if(i > 1) y <- y + i else y <- i }; y }");
+    eval("g <- function(n) { for(i in 1:n) { if(i > 1) z <- z + 1 }; z }");
+
+    assertThat(eval("f(4)"), equalTo(c_i(10)));
+    assertThat(eval("tryCatch(g(3), error = function(e) 'error')"), equalTo(c("error")));
+  }
+
+  @Test
+  public void loopVariableIsAssigned() {
+    eval("f <- function(x) { i <- 100; for(i in x) {}; i }");
+
+    assertThat(eval("f(c(3, 4))"), equalTo(c(4)));
+    assertThat(eval("f(numeric(0))"), equalTo(c(100)));
+  }
+}
@@ -0,0 +1,100 @@
+package org.renjin.compiler.tiered;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.eval.EvalException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TieredCompilerTest extends EvalTestCase {
+
+  @Before
+  public void compileEagerly() {
+    TieredCompiler.setEnabled(true);
+    TieredCompiler.setInvocationThreshold(1);
+    TieredCompiler.setBackground(false);
+  }
+
+  @After
+  public void restoreDefaults() {
+    TieredCompiler.setInvocationThreshold(500);
+    TieredCompiler.setBackground(true);
+  }
+
+  @Test
+  public void loops() {
+    long compiled = TieredCompiler.getCompiledCount();
+    eval("f <- function(n) { s <- 0; for(i in 1:n) { if(i %% 2 == 0) next; s <- s + i }; s }");
+
+    assertThat(eval("f(10)"), equalTo(c(25)));
+    assertThat(eval("f(10)"), equalTo(c(25)));
+    assertTrue(TieredCompiler.getCompiledCount() > compiled);
+
+    eval("g <- function(x) { i <- 0; repeat { i <- i + 1; if(i >= x) break }; i }");
+    assertThat(eval("g(5)"), equalTo(c(5)));
+  }
+
+  @Test
+  public void forLoopEvaluatesSequenceOnce() {
+    eval("calls <- 0");
+    eval("s <- function() { calls <<- calls + 1; 1:3 }");
+    eval("f <- function() { n <- 0; for(i in s()) n <- n + i; n }");
+
+    assertThat(eval("f()"), equalTo(c(6)));
+    assertThat(eval("calls"), equalTo(c(1)));
+  }
+
+  @Test
+  public void subsetAssignment() {
+    eval("f <- function(x) { x[2] <- 9; x$a <- 1; names(x)[1] <- 'z'; x }");
+    eval("y <- f(list(1, 2))");
+
+    assertThat(eval("y[[2]]"), equalTo(c(9)));
+    assertThat(eval("names(y)"), equalTo(c("z", "", "a")));
+  }
+
+  @Test
+  public void namedArgumentsToBuiltins() {
+    eval("f <- function(m) m[, 1, drop = FALSE]");
+    assertThat(eval("dim(f(matrix(1:4, 2)))"), equalTo(c_i(2, 1)));
+  }
+
+  @Test
+  public void visibility() {
+    eval("f <- function() x <- 42");
+    eval("f()");
+    assertTrue(topLevelContext.getSession().isInvisible());
+
+    eval("g <- function() { x <- 42; x }");
+    eval("g()");
+    assertThat(topLevelContext.getSession().isInvisible(), equalTo(false));
+  }
+
+  @Test
+  public void redefinedPrimitiveFallsBackToInterpreter() {
+    eval("f <- function(a, b) a + b");
+    assertThat(eval("f(1, 2)"), equalTo(c(3)));
+
+    long guardFailures = TieredCompiler.getGuardFailureCount();
+    eval("`+` <- function(e1, e2) 'redefined'");
+
+    assertThat(eval("f(1, 2)"), equalTo(c("redefined")));
+    assertThat(TieredCompiler.getGuardFailureCount(), equalTo(guardFailures + 1));
+  }
+
+  @Test(expected = EvalException.class)
+  public void missingCondition() {
+    eval("f <- function(x) if(x) 1 else 2");
+    eval("f(NA)");
+  }
+
+  @Test
+  public void promisesAreNotForced() {
+    eval("f <- function(a, b) if(a) 1 else b");
+    assertThat(eval("f(TRUE, stop('forced'))"), equalTo(c(1)));
+  }
+}
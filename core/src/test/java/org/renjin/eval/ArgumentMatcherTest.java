@@ -0,0 +1,86 @@
+package org.renjin.eval;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.*;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ArgumentMatcherTest extends EvalTestCase {
+
+  @Test
+  public void matchOrder() {
+    // exact matches come first, then partial matches, then positional matches
+    PairList matched = match("function(alpha, beta, gamma, ...) NULL", "f(1, gam = 2, beta = 3, 4, 5)");
+    assertThat(matched.getNames(), equalTo(c("beta", "gamma", "alpha", "...")));
+
+    matched = match("function(x, y, z) NULL", "f(z = 1)", false);
+    assertThat(matched.getNames(), equalTo(c("z")));
+  }
+
+  @Test
+  public void partialMatchingStopsAtEllipses() {
+    PairList matched = match("function(x, ..., value) NULL", "f(1, val = 2)");
+    assertThat(matched.getNames(), equalTo(c("x", "...", "value")));
+    assertThat(((PairList) matched.getElementAsSEXP(1)).getNames(), equalTo(c("val")));
+  }
+
+  @Test(expected = EvalException.class)
+  public void ambiguousPartialMatch() {
+    match("function(fumble, fooey) NULL", "f(f = 1)");
+  }
+
+  @Test(expected = EvalException.class)
+  public void taggedArgumentStopsPositionalMatching() {
+    match("function(x, y) NULL", "f(z = 1, 2)");
+  }
+
+  @Test
+  public void planIsReusedForSameTags() {
+    eval("f <- function(a, b = 2, ...) a * b + length(list(...))");
+    eval("g <- function(...) f(...)");
+    assertThat(eval("g(1)"), equalTo(c(2)));
+
+    FunctionCall call = (FunctionCall) ((Closure) eval("g")).getBody();
+    ArgumentMatcher.Plan plan = call.getArgumentMatchPlan();
+
+    assertThat(eval("g(3)"), equalTo(c(6)));
+    assertThat(call.getArgumentMatchPlan(), sameInstance(plan));
+
+    // the same call site now passes different tags
+    assertThat(eval("g(b = 10, 2, 0, 0)"), equalTo(c(22)));
+    assertThat(eval("g(b = 10, a = 3)"), equalTo(c(30)));
+    assertThat(eval("g(2, bb = 1)"), equalTo(c(5)));
+  }
+
+  @Test
+  public void planIsKeyedOnFormals() {
+    eval("apply1 <- function(fn) fn(x = 1, 2)");
+    assertThat(eval("apply1(function(x, y) x - y)"), equalTo(c(-1)));
+    assertThat(eval("apply1(function(y, x) x - y)"), equalTo(c(-1)));
+    assertThat(eval("apply1(function(y, xx) xx * 10 + y)"), equalTo(c(12)));
+    assertThat(eval("apply1(function(a, ...) length(list(...)))"), equalTo(c_i(2)));
+  }
+
+  @Test
+  public void missingArgumentsUseDefaults() {
+    eval("f <- function(x, y = x * 2) if(missing(x)) 'none' else y");
+    assertThat(eval("f()"), equalTo(c("none")));
+    assertThat(eval("f(4)"), equalTo(c(8)));
+    assertThat(eval("f(4, 1)"), equalTo(c(1)));
+  }
+
+  private PairList match(String function, String call) {
+    return match(function, call, true);
+  }
+
+  private PairList match(String function, String call, boolean populateMissing) {
+    FunctionCall definition = (FunctionCall) RParser.parseSource(function + "\n").getElementAsSEXP(0);
+    PairList formals = definition.getArgument(0);
+    PairList actuals = ((FunctionCall) RParser.parseSource(call + "\n").getElementAsSEXP(0)).getArguments();
+    return ClosureDispatcher.matchArguments(formals, actuals, populateMissing);
+  }
+}
@@ -0,0 +1,117 @@
+package org.renjin.eval;
+
+import org.junit.After;
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.sexp.*;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LookupCacheTest extends EvalTestCase {
+
+  @After
+  public void disableStatistics() {
+    LookupCache.setStatisticsEnabled(false);
+  }
+
+  @Test
+  public void redefinedFunction() {
+    eval("f <- function(x) length(x)");
+    assertThat(eval("f(1:3)"), equalTo(c_i(3)));
+    assertThat(eval("f(1:3)"), equalTo(c_i(3)));
+
+    eval("length <- function(x) 42L");
+    assertThat(eval("f(1:3)"), equalTo(c_i(42)));
+
+    eval("rm(length)");
+    assertThat(eval("f(1:3)"), equalTo(c_i(3)));
+  }
+
+  @Test
+  public void shadowedInEnclosingEnvironment() {
+    eval("e <- new.env()");
+    eval("f <- function(x) length(x)");
+    eval("environment(f) <- e");
+    assertThat(eval("f(1:3)"), equalTo(c_i(3)));
+
+    eval("assign('length', function(x) -1L, envir = e)");
+    assertThat(eval("f(1:3)"), equalTo(c_i(-1)));
+
+    eval("parent.env(e) <- emptyenv()");
+    assertThat(eval("tryCatch(f(1:3), error = function(e) 'error')"), equalTo(c_i(-1)));
+    eval("rm('length', envir = e)");
+    assertThat(eval("tryCatch(f(1:3), error = function(e) 'error')"), equalTo(c("error")));
+  }
+
+  @Test
+  public void nonFunctionBindingsAreSkipped() {
+    eval("f <- function(x) c(x, x)");
+    assertThat(eval("f(1)"), equalTo(c(1, 1)));
+
+    eval("c <- 3");
+    assertThat(eval("f(1)"), equalTo(c(1, 1)));
+  }
+
+  @Test
+  public void missingArgument() {
+    eval("f <- function(g) g()");
+    assertThat(eval("tryCatch(f(), error = function(e) 'error')"), equalTo(c("error")));
+    assertThat(eval("f(function() 1)"), equalTo(c(1)));
+  }
+
+  @Test
+  public void sharedBaseFrame() {
+    Environment baseNamespace = topLevelContext.getSession().getBaseNamespaceEnv();
+    Environment rho = Environment.createChildEnvironment(baseNamespace);
+    Symbol symbol = Symbol.get("lookupCacheTestValue");
+
+    LookupCache cache = new LookupCache();
+    assertThat(cache.findVariable(rho, symbol), equalTo((SEXP) Symbol.UNBOUND_VALUE));
+    assertThat(cache.findVariable(rho, symbol), equalTo((SEXP) Symbol.UNBOUND_VALUE));
+    assertThat(cache.getHitCount(), equalTo(1L));
+
+    // the base environment and the base namespace share the same frame
+    base.setVariable(symbol, c(1));
+    assertThat(cache.findVariable(rho, symbol), equalTo(c(1)));
+  }
+
+  @Test
+  public void variables() {
+    Environment enclosure = Environment.createChildEnvironment(global);
+    Symbol symbol = Symbol.get("x");
+    global.setVariable(symbol, c(1));
+
+    LookupCache cache = new LookupCache();
+    assertThat(cache.findVariable(Environment.createChildEnvironment(enclosure), symbol), equalTo(c(1)));
+
+    // reassigning the variable where it was found does not invalidate the entry
+    global.setVariable(symbol, c(2));
+    assertThat(cache.findVariable(Environment.createChildEnvironment(enclosure), symbol), equalTo(c(2)));
+    assertThat(cache.getInvalidationCount(), equalTo(0L));
+
+    enclosure.setVariable(symbol, c(3));
+    assertThat(cache.findVariable(Environment.createChildEnvironment(enclosure), symbol), equalTo(c(3)));
+    assertThat(cache.getInvalidationCount(), equalTo(1L));
+
+    Environment rho = Environment.createChildEnvironment(enclosure);
+    rho.setVariable(symbol, c(4));
+    assertThat(cache.findVariable(rho, symbol), equalTo(c(4)));
+    assertThat(cache.findFunction(topLevelContext, rho, Symbol.get("nonExistentFunction")), nullValue());
+  }
+
+  @Test
+  public void statistics() {
+    LookupCache.setStatisticsEnabled(true);
+    long hits = LookupCache.getTotalHitCount();
+    long misses = LookupCache.getTotalMissCount();
+
+    eval("f <- function(x) length(x)");
+    eval("for(i in 1:10) f(i)");
+
+    assertTrue(LookupCache.getTotalHitCount() >= hits + 9);
+    assertTrue(LookupCache.getTotalMissCount() > misses);
+  }
+}
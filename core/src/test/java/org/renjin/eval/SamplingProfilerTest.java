@@ -0,0 +1,86 @@
+package org.renjin.eval;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class SamplingProfilerTest extends EvalTestCase {
+
+  @After
+  public void stopProfiling() throws IOException {
+    topLevelContext.getSession().stopProfiling();
+  }
+
+  @Test
+  public void collapsedStacks() throws IOException {
+    defineFunctions();
+
+    SamplingProfiler profiler = new SamplingProfiler(1, TimeUnit.MILLISECONDS, true);
+    topLevelContext.getSession().startProfiling(profiler);
+    runUntilSampled(profiler);
+    assertThat(topLevelContext.getSession().stopProfiling(), equalTo(profiler));
+    assertThat(topLevelContext.getSession().getProfiler(), nullValue());
+
+    Map<String, Long> stacks = profiler.getCollapsedStacks(false);
+    for (String stack : stacks.keySet()) {
+      assertTrue(stack, stack.startsWith("outer"));
+    }
+    assertTrue(stacks.containsKey("outer;inner"));
+
+    long allocated = 0;
+    for (Long bytes : profiler.getCollapsedStacks(true).values()) {
+      allocated += bytes;
+    }
+    assertTrue(allocated > 0);
+
+    StringWriter writer = new StringWriter();
+    profiler.writeCollapsedStacks(writer, false);
+    assertTrue(writer.toString().contains("outer;inner " + stacks.get("outer;inner") + "\n"));
+  }
+
+  @Test
+  public void rprofOutput() throws IOException {
+    File file = File.createTempFile("Rprof", ".out");
+    file.deleteOnExit();
+
+    defineFunctions();
+    eval(".Internal(Rprof('" + file.getAbsolutePath() + "', FALSE, 0.001, TRUE, FALSE, FALSE, 100L, 10000L))");
+    runUntilSampled(topLevelContext.getSession().getProfiler());
+    eval(".Internal(Rprof('', FALSE, 0.02, FALSE, FALSE, FALSE, 100L, 10000L))");
+    assertThat(topLevelContext.getSession().getProfiler(), nullValue());
+
+    List<String> lines = Files.readLines(file, Charsets.UTF_8);
+    assertThat(lines.get(0), equalTo("memory profiling: sample.interval=1000"));
+    assertTrue(lines.size() > 1);
+    for (String line : lines.subList(1, lines.size())) {
+      assertTrue(line, line.matches(":0:\\d+:0:0:(\"inner\" )?\"outer\" "));
+    }
+  }
+
+  private void defineFunctions() {
+    eval("inner <- function(n) { x <- 0; for(i in 1:n) x <- x + sqrt(seq_len(10)); x }");
+    eval("outer <- function(n) inner(n)");
+  }
+
+  private void runUntilSampled(SamplingProfiler profiler) {
+    long deadline = java.lang.System.currentTimeMillis() + 10000;
+    while(profiler.getSampleCount() < 5 && java.lang.System.currentTimeMillis() < deadline) {
+      eval("outer(1000)");
+    }
+    assertTrue(profiler.getSampleCount() >= 5);
+  }
+}
@@ -0,0 +1,57 @@
+package org.renjin.invoke.reflection;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class CallSiteCacheTest extends EvalTestCase {
+
+  @Test
+  public void overloadsSelectedByShape() {
+    eval("import(java.lang.StringBuilder)");
+    eval("sb <- StringBuilder$new()");
+    eval("for(x in list(1L, 'a', TRUE, 2.5, 3L, 'b', FALSE, c('x', 'y'))) sb$append(x)");
+
+    // Each argument from its own call site, resolved without the cache
+    eval("expected <- StringBuilder$new()");
+    eval("expected$append(1L)");
+    eval("expected$append('a')");
+    eval("expected$append(TRUE)");
+    eval("expected$append(2.5)");
+    eval("expected$append(3L)");
+    eval("expected$append('b')");
+    eval("expected$append(FALSE)");
+    eval("expected$append(c('x', 'y'))");
+
+    assertThat(eval("sb$toString()"), equalTo(eval("expected$toString()")));
+  }
+
+  @Test
+  public void callSiteSharedByClasses() {
+    eval("import(java.util.ArrayList)");
+    eval("import(java.util.HashSet)");
+    eval("objects <- list(ArrayList$new(), HashSet$new(), ArrayList$new())");
+    eval("sizes <- sapply(objects, function(o) { o$add('x'); o$add('x'); o$size() })");
+
+    assertThat(eval("sizes"), equalTo(c_i(2, 1, 2)));
+  }
+
+  @Test
+  public void staticAndVarArgsMethods() {
+    eval("import(java.lang.String)");
+    eval("import(java.lang.Math)");
+    eval("s <- character(0)");
+    eval("for(i in 1:3) s <- c(s, String$format('%s-%s', i, Math$max(i, 2L)))");
+
+    assertThat(eval("s"), equalTo(c("1-2", "2-2", "3-3")));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void exceptionsArePropagated() {
+    eval("import(java.util.ArrayList)");
+    eval("list <- ArrayList$new()");
+    eval("list$get(0L)");
+  }
+}
@@ -0,0 +1,87 @@
+package org.renjin.packaging;
+
+import com.google.common.base.Function;
+import com.google.common.io.Files;
+import org.junit.Test;
+import org.renjin.eval.Context;
+import org.renjin.parser.RParser;
+import org.renjin.primitives.packaging.FqPackageName;
+import org.renjin.primitives.packaging.Namespace;
+import org.renjin.sexp.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LazyLoadSnapshotTest {
+
+  @Test
+  public void valuesAreSharedBetweenSessions() throws Exception {
+
+    Context tlContext = Context.newTopLevelContext();
+    Namespace ns = tlContext.getNamespaceRegistry().createNamespace(new TestPackage());
+
+    Context ctx = tlContext.beginEvalContext(ns.getNamespaceEnvironment());
+    ctx.evaluate(RParser.parseSource(
+        "f <- function(x) x*x*42\n" +
+        "x <- 1:10\n" +
+        "e <- new.env()\n"));
+
+    final File dir = Files.createTempDir();
+    new LazyLoadFrameBuilder(tlContext)
+        .outputTo(dir)
+        .build(ns.getNamespaceEnvironment());
+
+    LazyLoadSnapshot snapshot = LazyLoadSnapshot.read(new Function<String, InputStream>() {
+      @Override
+      public InputStream apply(String name) {
+        try {
+          return new FileInputStream(new File(dir, name));
+        } catch (FileNotFoundException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    }, Symbol.get(ns.getCompatibleName()));
+
+    Environment ns1 = createNamespace();
+    Environment ns2 = createNamespace();
+
+    int f = snapshot.indexOf(Symbol.get("f"));
+    Closure f1 = (Closure) snapshot.instantiate(f, tlContext, ns1);
+    Closure f2 = (Closure) snapshot.instantiate(f, tlContext, ns2);
+    assertTrue(f1.getEnclosingEnvironment() == ns1);
+    assertTrue(f2.getEnclosingEnvironment() == ns2);
+    assertTrue(f1.getBody() == f2.getBody());
+
+    int x = snapshot.indexOf(Symbol.get("x"));
+    assertTrue(snapshot.instantiate(x, tlContext, ns1) == snapshot.instantiate(x, tlContext, ns2));
+
+    int e = snapshot.indexOf(Symbol.get("e"));
+    assertThat(snapshot.instantiate(e, tlContext, ns1), instanceOf(Environment.class));
+    assertTrue(snapshot.instantiate(e, tlContext, ns1) != snapshot.instantiate(e, tlContext, ns2));
+
+    assertThat(snapshot.indexOf(Symbol.get("g")), equalTo(-1));
+  }
+
+  private Environment createNamespace() {
+    Context context = Context.newTopLevelContext();
+    return context.getNamespaceRegistry().createNamespace(new TestPackage()).getNamespaceEnvironment();
+  }
+
+  private static class TestPackage extends org.renjin.primitives.packaging.Package {
+
+    protected TestPackage() {
+      super(FqPackageName.cranPackage("testns"));
+    }
+
+    @Override
+    public Class loadClass(String name) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
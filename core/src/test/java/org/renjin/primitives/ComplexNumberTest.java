@@ -58,4 +58,33 @@ public class ComplexNumberTest extends EvalTestCase {
     assumingBasePackagesLoad();
     assertThat(eval("Im(Conj(complex(real=0,i=1)))"),equalTo(c(-1)));
   }
+
+  @Test
+  public void arithmetic() throws IOException {
+    assertThat(eval("c(1+2i, 3-1i) + 1i"), equalTo(c(complex(1, 3), complex(3, 0))));
+    assertThat(eval("c(1+2i, 3-1i) - c(1, 2)"), equalTo(c(complex(0, 2), complex(1, -1))));
+    assertThat(eval("-(1+2i)"), equalTo(c(complex(-1, -2))));
+    assertThat(eval("(1+2i) * (3-1i)"), equalTo(c(complex(5, 5))));
+    assertThat(eval("(4+2i) / 2i"), equalTo(c(complex(1, -2))));
+    assertThat(eval("(1+1i)^3"), equalTo(c(complex(-2, 2))));
+  }
+
+  @Test
+  public void arithmeticWithMissingValues() throws IOException {
+    eval("z <- c(1+2i, NA, 3i) * 2i");
+    assertThat(eval("is.na(z)"), equalTo(c(false, true, false)));
+    assertThat(eval("z[c(1, 3)]"), equalTo(c(complex(-4, 2), complex(-6, 0))));
+  }
+
+  @Test
+  public void equality() throws IOException {
+    assertThat(eval("c(1+2i, 1+3i) == 1+2i"), equalTo(c(true, false)));
+  }
+
+  @Test
+  public void attributesArePreserved() throws IOException {
+    eval("z <- c(a = 1+1i, b = 2)");
+    assertThat(eval("names(Conj(z))"), equalTo(c("a", "b")));
+    assertThat(eval("Im(Conj(z))"), equalTo(c(-1, 0)));
+  }
 }
@@ -0,0 +1,80 @@
+package org.renjin.primitives;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.gcc.runtime.DoublePtr;
+import org.renjin.gcc.runtime.IntPtr;
+import org.renjin.primitives.packaging.DllInfo;
+import org.renjin.primitives.packaging.DllSymbol;
+import org.renjin.primitives.packaging.NativeSymbolTable;
+import org.renjin.sexp.*;
+
+import java.lang.invoke.MethodHandle;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class NativeTest extends EvalTestCase {
+
+  public static void scale_(DoublePtr x, IntPtr n) {
+    for(int i = 0; i < n.array[n.offset]; ++i) {
+      x.array[x.offset + i] *= 2;
+    }
+  }
+
+  public static IntVector count(SEXP x) {
+    return IntArrayVector.valueOf(x.length());
+  }
+
+  public static void ignore(SEXP x) {
+  }
+
+  @Test
+  public void fortranCopiesArguments() {
+    eval("x <- c(1, 2, 3)");
+    assertThat(eval(".Fortran('scale', x = x, 3L, CLASS = 'org.renjin.primitives.NativeTest')$x"), equalTo(c(2, 4, 6)));
+    assertThat(eval(".Fortran('scale', x = x, 3L, CLASS = 'org.renjin.primitives.NativeTest')$x"), equalTo(c(2, 4, 6)));
+    assertThat(eval("x"), equalTo(c(1, 2, 3)));
+  }
+
+  @Test
+  public void fortranWithoutDuplicationLeavesAliasesUnchanged() {
+    eval("x <- c(as.numeric(1:1000), 0)");
+    eval("y <- x");
+    assertThat(eval("match(4, x)"), equalTo(c_i(4)));
+    eval("r <- .Fortran('scale', x = x, 1001L, DUP = FALSE, CLASS = 'org.renjin.primitives.NativeTest')");
+    assertThat(eval("r$x[1:3]"), equalTo(c(2, 4, 6)));
+    assertThat(eval("x[1:3]"), equalTo(c(1, 2, 3)));
+    assertThat(eval("y[1:3]"), equalTo(c(1, 2, 3)));
+    assertThat(eval("match(4, x)"), equalTo(c_i(4)));
+    assertThat(eval("match(4, r$x)"), equalTo(c_i(2)));
+  }
+
+  @Test
+  public void callRegisteredSymbol() throws Exception {
+    NativeSymbolTable table = NativeSymbolTable.of(NativeTest.class);
+    assertThat(table.getRoutine("count"), sameInstance(table.getRoutine("count")));
+
+    global.setVariable("count", symbol("count", table.getRoutine("count")));
+    global.setVariable("ignore", symbol("ignore", table.getRoutine("ignore")));
+
+    assertThat(eval(".Call(count, 1:10)"), equalTo(c_i(10)));
+    assertThat(eval(".Call(count, 1:3)"), equalTo(c_i(3)));
+    assertThat(eval(".Call(ignore, 1:3)"), equalTo((SEXP) Null.INSTANCE));
+  }
+
+  @Test
+  public void callByClassName() {
+    assertThat(eval(".Call('count', 1:4, CLASS = 'org.renjin.primitives.NativeTest')"), equalTo(c_i(4)));
+    assertThat(eval(".Call('count', 1:5, CLASS = 'org.renjin.primitives.NativeTest')"), equalTo(c_i(5)));
+  }
+
+  private ListVector symbol(String name, MethodHandle handle) {
+    DllSymbol symbol = new DllSymbol(new DllInfo("test"));
+    symbol.setName(name);
+    symbol.setMethodHandle(handle);
+    symbol.setConvention(DllSymbol.Convention.CALL);
+    return symbol.createObject();
+  }
+}
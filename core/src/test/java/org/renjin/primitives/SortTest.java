@@ -102,6 +102,49 @@ public class SortTest extends EvalTestCase {
       assertThat( eval(".Internal(qsort(c(3,1,5,0), FALSE))"), equalTo(c(0, 1, 3, 5)));
     }
 
+    @Test
+    public void qsortWithIndexes() {
+      eval("y <- .Internal(qsort(c(3,1,5,0), TRUE))");
+      assertThat( eval("y$x"), equalTo(c(0, 1, 3, 5)));
+      assertThat( eval("y$ix"), equalTo(c_i(4, 2, 1, 3)));
+
+      eval("y <- .Internal(qsort(c(3L,1L,5L,1L), TRUE))");
+      assertThat( eval("y$x"), equalTo(c_i(1, 1, 3, 5)));
+      assertThat( eval("y$ix"), equalTo(c_i(2, 4, 1, 3)));
+    }
+
+    @Test
+    public void orderIsStable() {
+      assertThat( eval(".Internal(order(TRUE, FALSE, c(2, 1, 2, 1, 0)))"), equalTo(c_i(5, 2, 4, 1, 3)));
+      assertThat( eval(".Internal(order(TRUE, TRUE, c(2, 1, 2, 1, 0)))"), equalTo(c_i(1, 3, 2, 4, 5)));
+      assertThat( eval(".Internal(order(TRUE, FALSE, c('b', 'a', 'b', 'a')))"), equalTo(c_i(2, 4, 1, 3)));
+    }
+
+    @Test
+    public void orderNA() {
+      assertThat( eval(".Internal(order(TRUE, FALSE, c(3, NA, -0, NaN, 0, -Inf, Inf)))"), equalTo(c_i(6, 3, 5, 1, 7, 2, 4)));
+      assertThat( eval(".Internal(order(FALSE, FALSE, c(3, NA, 1, NaN)))"), equalTo(c_i(2, 4, 3, 1)));
+      assertThat( eval(".Internal(order(TRUE, TRUE, c(3L, NA, 1L, 5L)))"), equalTo(c_i(4, 1, 3, 2)));
+      assertThat( eval(".Internal(order(TRUE, FALSE, c('b', NA, 'a')))"), equalTo(c_i(3, 1, 2)));
+    }
+
+    @Test
+    public void orderLarge() {
+      eval("x <- c(1e9, -5L, 100000L, 3L, rep(7L, 40), -1e9)");
+      eval("x <- as.integer(x)");
+      assertThat( eval(".Internal(order(TRUE, FALSE, x))"), equalTo(eval("c(45L, 2L, 4L, 5:44, 3L, 1L)")));
+      assertThat( eval(".Internal(radixsort(x, TRUE, TRUE))"), equalTo(eval("c(1L, 3L, 5:44, 4L, 2L, 45L)")));
+
+      eval("y <- c(seq(-1, 1, length.out = 50), 1e300, -1e-300)");
+      assertThat( eval("identical(y[.Internal(order(TRUE, FALSE, y))], c(-1e-300, seq(-1, 1, length.out = 50), 1e300)[c(2:26, 1, 27:52)])"), equalTo(c(true)));
+    }
+
+    @Test
+    public void rankFirst() {
+      assertThat(eval(".Internal(rank(c(2, 3, 1, 1, 2), \"first\"))"), equalTo(c_i(3, 5, 1, 2, 4)));
+      assertThat(eval(".Internal(rank(c(0, -0, 1), \"min\"))"), equalTo(c_i(1, 1, 3)));
+    }
+
     @Test
     public void unsorted() {
       assertThat( eval(".Internal(is.unsorted(c(1,2,3), TRUE))"), equalTo(c(false)) );
@@ -325,4 +325,36 @@ public class TextTest extends EvalTestCase {
     assertThat(eval("attr(m, 'match.length')"), equalTo(c_i(-1,3,4)));
     
   }
+
+  @Test
+  public void regexprFixed() {
+    eval("m <- .Internal(regexpr('b.', c('ab.c', 'b.', 'x'), ignore.case=FALSE, perl=FALSE, fixed=TRUE, useBytes=FALSE))");
+    assertThat(eval("m"), equalTo(c_i(2,1,-1)));
+  }
+
+  @Test
+  public void perl() {
+    assertThat(eval(".Internal(gsub('(?<=a)b+', '\\\\U\\\\0', c('abbc', 'bab'), FALSE, TRUE, FALSE, FALSE))"),
+        equalTo(c("aBBc", "baB")));
+    assertThat(eval(".Internal(grepl('^\\\\d+$', c('123', '12a'), FALSE, FALSE, TRUE, FALSE, FALSE, FALSE))"),
+        equalTo(c(true, false)));
+    assertThat(eval(".Internal(regexpr('[[:upper:]]+', 'abCDe', FALSE, TRUE, FALSE, FALSE))"),
+        equalTo(c_i(3)));
+  }
+
+  @Test
+  public void perlEmptyMatches() {
+    assertThat(eval(".Internal(sub('', 'X', 'abc', FALSE, TRUE, FALSE, FALSE))"), equalTo(c("Xabc")));
+    assertThat(eval(".Internal(gsub('\\\\b', '|', 'ab cd', FALSE, TRUE, FALSE, FALSE))"), equalTo(c("|ab| |cd|")));
+    assertThat(eval(".Internal(gsub('x*', '-', 'abc', FALSE, TRUE, FALSE, FALSE))"), equalTo(c("-a-b-c-")));
+    assertThat(eval(".Internal(gsub('x*', '-', '', FALSE, TRUE, FALSE, FALSE))"), equalTo(c("-")));
+    assertThat(eval(".Internal(gsub('a*', 'x', 'baaac', FALSE, TRUE, FALSE, FALSE))"), equalTo(c("xbxcx")));
+    assertThat(eval(".Internal(gsub('(?=b)', '^', 'abab', FALSE, TRUE, FALSE, FALSE))"), equalTo(c("a^ba^b")));
+    assertThat(eval(".Internal(gsub('(?<=a)', '-', 'aaa', FALSE, TRUE, FALSE, FALSE))"), equalTo(c("a-a-a-")));
+
+    assertThat(eval(".Internal(strsplit('ab cd', '\\\\b', FALSE, TRUE, FALSE))[[1]]"), equalTo(c("a", "b", " ", "c", "d")));
+    assertThat(eval(".Internal(strsplit('abc', '', FALSE, TRUE, FALSE))[[1]]"), equalTo(c("a", "b", "c")));
+    assertThat(eval(".Internal(strsplit('a1b22c', '(?<=\\\\d)(?=\\\\D)', FALSE, TRUE, FALSE))[[1]]"),
+        equalTo(c("a1", "b22", "c")));
+  }
 }
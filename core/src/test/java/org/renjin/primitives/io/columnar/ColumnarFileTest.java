@@ -0,0 +1,79 @@
+package org.renjin.primitives.io.columnar;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.sexp.DoubleBufferVector;
+import org.renjin.sexp.IntVector;
+import org.renjin.sexp.ListVector;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+
+public class ColumnarFileTest extends EvalTestCase {
+
+  @Before
+  public void writeFile() {
+    eval("df <- data.frame(x = c(1.5, NA, -3, 4, 5), n = c(1L, 2L, NA, 4L, 5L), " +
+        "b = c(TRUE, FALSE, NA, TRUE, TRUE), s = c('a', 'b', NA, 'a', 'c'), " +
+        "f = factor(c('lo', 'hi', 'lo', NA, 'hi')), stringsAsFactors = FALSE)");
+    eval("f <- tempfile()");
+    eval("saveColumnar(df, f)");
+  }
+
+  @Test
+  public void roundTrip() {
+    assertThat(eval("identical(readColumnar(f), df)"), equalTo(c(true)));
+    assertThat(eval("readColumnar(f)$f"), equalTo(eval("df$f")));
+  }
+
+  @Test
+  public void readRdsDetectsColumnarFiles() {
+    assertThat(eval("identical(readRDS(f), df)"), equalTo(c(true)));
+    assertThat(eval("readRDS(f)$x"), instanceOf(DoubleBufferVector.class));
+  }
+
+  @Test
+  public void selectColumns() {
+    assertThat(eval("names(readColumnar(f, columns = c('s', 'x')))"), equalTo(c("s", "x")));
+    assertThat(eval("readColumnar(f, columns = 2L)$n"), equalTo(c_i(1, 2, IntVector.NA, 4, 5)));
+  }
+
+  @Test(expected = org.renjin.eval.EvalException.class)
+  public void undefinedColumn() {
+    eval("readColumnar(f, columns = 'z')");
+  }
+
+  @Test
+  public void selectRowRange() {
+    eval("y <- readColumnar(f, rows = 2:4)");
+    assertThat(eval("identical(y$s, df$s[2:4])"), equalTo(c(true)));
+    assertThat(eval("row.names(y)"), equalTo(c("2", "3", "4")));
+    assertThat(((ListVector) eval("y")).getElementAsSEXP(0), instanceOf(DoubleBufferVector.class));
+  }
+
+  @Test
+  public void selectRows() {
+    eval("y <- readColumnar(f, rows = c(5, 1, 3))");
+    assertThat(eval("identical(y$x, df$x[c(5, 1, 3)])"), equalTo(c(true)));
+    assertThat(eval("identical(y$f, df$f[c(5, 1, 3)])"), equalTo(c(true)));
+    assertThat(eval("row.names(y)"), equalTo(c("5", "1", "3")));
+    assertThat(eval("nrow(readColumnar(f, rows = df$x > 1))"), equalTo(c_i(3)));
+  }
+
+  @Test
+  public void storedRowNames() {
+    eval("row.names(df) <- c('v', 'w', 'x', 'y', 'z')");
+    eval("saveColumnar(df, f)");
+    assertThat(eval("identical(readColumnar(f), df)"), equalTo(c(true)));
+    assertThat(eval("row.names(readColumnar(f, rows = c(4, 2)))"), equalTo(c("y", "w")));
+  }
+
+  @Test
+  public void emptyFrame() {
+    eval("saveColumnar(df[integer(0), ], f)");
+    assertThat(eval("nrow(readColumnar(f))"), equalTo(c_i(0)));
+    assertThat(eval("names(readColumnar(f))"), equalTo(eval("names(df)")));
+  }
+}
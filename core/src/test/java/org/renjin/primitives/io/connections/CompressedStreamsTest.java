@@ -0,0 +1,123 @@
+package org.renjin.primitives.io.connections;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class CompressedStreamsTest {
+
+  @Test
+  public void parallelGzipIsReadableByGzip() throws IOException {
+    for (int length : new int[] { 0, 1, 1000, ParallelGzipOutputStream.BLOCK_SIZE, 1234567 }) {
+      byte[] input = sample(length);
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      OutputStream out = new ParallelGzipOutputStream(compressed, 6);
+      write(out, input);
+      out.close();
+
+      byte[] output = ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())));
+      assertArrayEquals("length " + length, input, output);
+      if(length > 1000) {
+        assertTrue(compressed.size() < length / 2);
+      }
+    }
+  }
+
+  @Test
+  public void lz4RoundTrip() throws IOException {
+    for (int length : new int[] { 0, 1, 12, 13, 1000, Lz4FrameOutputStream.BLOCK_SIZE, 1234567 }) {
+      byte[] input = sample(length);
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      OutputStream out = new Lz4FrameOutputStream(compressed);
+      write(out, input);
+      out.close();
+
+      byte[] output = ByteStreams.toByteArray(new Lz4FrameInputStream(new ByteArrayInputStream(compressed.toByteArray())));
+      assertArrayEquals("length " + length, input, output);
+      if(length > 1000) {
+        assertTrue(compressed.size() < length / 2);
+      }
+    }
+  }
+
+  @Test
+  public void lz4IncompressibleBlocksAreStored() throws IOException {
+    byte[] input = new byte[100000];
+    new Random(1).nextBytes(input);
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    OutputStream out = new Lz4FrameOutputStream(compressed);
+    out.write(input);
+    out.close();
+
+    assertThat(compressed.size(), equalTo(7 + 4 + 65536 + 4 + (100000 - 65536) + 4));
+    assertArrayEquals(input, ByteStreams.toByteArray(
+        new Lz4FrameInputStream(new ByteArrayInputStream(compressed.toByteArray()))));
+  }
+
+  @Test
+  public void lz4FrameHeaders() throws IOException {
+    // An empty frame written by the lz4 command line tool, with a content checksum
+    byte[] empty = bytes(0x04, 0x22, 0x4D, 0x18, 0x64, 0x40, 0xA7, 0, 0, 0, 0, 0x05, 0x5D, 0xCC, 0x02);
+    assertThat(new Lz4FrameInputStream(new ByteArrayInputStream(empty)).read(), equalTo(-1));
+
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    new Lz4FrameOutputStream(compressed).close();
+    assertArrayEquals(bytes(0x04, 0x22, 0x4D, 0x18, 0x60, 0x40, 0x82, 0, 0, 0, 0), compressed.toByteArray());
+  }
+
+  /**
+   * Text-like data with repetition at varying distances, so that both codecs find
+   * matches within and across blocks
+   */
+  private static byte[] sample(int length) {
+    Random random = new Random(length);
+    String[] words = { "alpha ", "beta ", "gamma ", "delta ", "1.2345 ", "NA ", "\n" };
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    while(out.size() < length) {
+      byte[] word = words[random.nextInt(words.length)].getBytes();
+      out.write(word, 0, word.length);
+      out.write('0' + random.nextInt(10));
+    }
+    byte[] bytes = out.toByteArray();
+    byte[] sample = new byte[length];
+    System.arraycopy(bytes, 0, sample, 0, length);
+    return sample;
+  }
+
+  /**
+   * Writes in pieces of varying size, as serialization does
+   */
+  private static void write(OutputStream out, byte[] input) throws IOException {
+    Random random = new Random(input.length);
+    int pos = 0;
+    while(pos < input.length) {
+      int count = Math.min(input.length - pos, random.nextBoolean() ? 1 : random.nextInt(20000));
+      if(count == 1) {
+        out.write(input[pos]);
+      } else {
+        out.write(input, pos, count);
+      }
+      pos += count;
+    }
+  }
+
+  private static byte[] bytes(int... values) {
+    byte[] bytes = new byte[values.length];
+    for (int i = 0; i < values.length; i++) {
+      bytes[i] = (byte) values[i];
+    }
+    return bytes;
+  }
+}
@@ -69,4 +69,19 @@ public class GzFileConnectionTest extends EvalTestCase {
     assertThat(reader.readLine(), equalTo("Hello again, dear world"));
   }
 
+  @Test
+  public void saveAndReadCompressed() throws IOException {
+    eval("x <- list(a = 1:100000, b = rep(c('x', 'y'), 5000))");
+    eval("f <- tempfile()");
+    for (String compress : new String[] { "TRUE", "'gzip'", "'lz4'", "FALSE" }) {
+      eval("saveRDS(x, f, compress = " + compress + ")");
+      assertThat(eval("identical(readRDS(f), x)"), equalTo(c(true)));
+    }
+    eval("y <- 42");
+    eval("save(x, y, file = f, compress = 'lz4')");
+    eval("rm(x, y)");
+    eval("load(f)");
+    assertThat(eval("y"), equalTo(c(42)));
+  }
+
 }
@@ -24,10 +24,10 @@ package org.renjin.primitives.io.serialization;
 import com.google.common.io.ByteSource;
 import org.junit.Test;
 import org.renjin.EvalTestCase;
+import org.renjin.eval.EvalException;
 import org.renjin.sexp.*;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
 import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -179,6 +179,54 @@ public class RDataReaderTest extends EvalTestCase {
     assertThat(df.getAttribute(Symbol.get("row.names")).length(), equalTo(1000));
   }
 
+  @Test
+  public void readLargeVectors() throws IOException {
+    SEXP list = eval("list(x = c(seq(0, 1, length.out = 20000), NA, NaN), " +
+        "y = rep(c(TRUE, FALSE, NA), 10000), z = complex(real = 1:9000, imaginary = -1), r = as.raw(0:255))");
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    new RDataWriter(topLevelContext, baos).serialize(list);
+
+    RDataReader reader = new RDataReader(topLevelContext, new ByteArrayInputStream(baos.toByteArray()));
+    assertThat(reader.readFile(), equalTo(list));
+  }
+
+  @Test
+  public void readMapped() throws IOException {
+    SEXP list = eval("list(x = c(seq(0, 1, length.out = 20000), NA, NaN), " +
+        "y = rep(c(TRUE, FALSE, NA), 10000), i = 1:300, z = complex(real = 1:100, imaginary = -1), s = 'foo')");
+
+    File file = File.createTempFile("mapped", ".rds");
+    file.deleteOnExit();
+    FileOutputStream out = new FileOutputStream(file);
+    new RDataWriter(topLevelContext, out).serialize(list);
+    out.close();
+
+    SEXP mapped = RDataReader.readMapped(topLevelContext, file);
+    assertThat(mapped, equalTo(list));
+    assertThat(mapped.getElementAsSEXP(0), instanceOf(DoubleBufferVector.class));
+    assertThat(mapped.getElementAsSEXP(1), instanceOf(LogicalBufferVector.class));
+    assertThat(mapped.getElementAsSEXP(2), instanceOf(IntBufferVector.class));
+  }
+
+  @Test(expected = EvalException.class)
+  public void complexVectorTooLongToLoad() throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    new RDataWriter(topLevelContext, baos).serialize(eval("complex(real = 1:3, imaginary = 0)"));
+    byte[] bytes = baos.toByteArray();
+
+    // replace the length following the CPLXSXP header with 2^30 + 1
+    byte[] header = { 0, 0, 0, 15, 0, 0, 0, 3 };
+    int offset = 0;
+    while(!ByteSource.wrap(bytes).slice(offset, header.length).contentEquals(ByteSource.wrap(header))) {
+      offset++;
+    }
+    bytes[offset + 4] = 0x40;
+    bytes[offset + 7] = 1;
+
+    new RDataReader(topLevelContext, new ByteArrayInputStream(bytes)).readFile();
+  }
+
   protected Symbol symbol(String name){
     return Symbol.get(name);
   }
@@ -65,6 +65,46 @@ public class MatchTest extends EvalTestCase {
     
   }
 
+  @Test
+  public void matchNaNAndNA() {
+    assertThat( eval(".Internal(match(c(NaN, NA, 1, -0), c(1, NA, 0, NaN, 3:100), NA_integer_, NULL))"),
+        equalTo(c_i(4, 2, 1, 3)));
+    assertThat( eval(".Internal(match(c(NA, 2L, 101L), c(NA, 1:100), 0L, NULL))"),
+        equalTo(c_i(1, 3, 0)));
+  }
+
+  @Test
+  public void matchMixedTypes() {
+    assertThat( eval(".Internal(match(c(1.5, 2, NA), 1:100, NA_integer_, NULL))"),
+        equalTo(c_i(IntVector.NA, 2, IntVector.NA)));
+    assertThat( eval(".Internal(match(c(TRUE, FALSE, NA), c(0, 1, 2:50), NA_integer_, NULL))"),
+        equalTo(c_i(2, 1, IntVector.NA)));
+    assertThat( eval(".Internal(match(c(3L, 42L), as.character(1:50), NA_integer_, NULL))"),
+        equalTo(c_i(3, 42)));
+  }
+
+  @Test
+  public void matchLargeTables() {
+    eval("table <- as.character(1000:1)");
+    assertThat( eval(".Internal(match(c('1', '1000', 'x', NA), table, NA_integer_, NULL))"),
+        equalTo(c_i(1000, 1, IntVector.NA, IntVector.NA)));
+
+    // the cached index of table should be reused
+    assertThat( eval(".Internal(match('999', table, NA_integer_, NULL))"), equalTo(c_i(2)));
+
+    // duplicates in the table match the first occurrence
+    assertThat( eval(".Internal(match(c(3, 7), rep(1:10, 100), NA_integer_, NULL))"), equalTo(c_i(3, 7)));
+  }
+
+  @Test
+  public void matchFactorAgainstStrings() {
+    eval("f <- structure(c(2L, 1L, NA, 3L, 2L), levels = c('b', 'a', 'z'), class = 'factor')");
+    assertThat( eval(".Internal(match(f, c(letters, NA), NA_integer_, NULL))"),
+        equalTo(c_i(1, 2, 27, 26, 1)));
+    assertThat( eval(".Internal(match(letters[1:3], f, NA_integer_, NULL))"),
+        equalTo(c_i(1, 2, IntVector.NA)));
+  }
+
   @Test
   public void pmatch() {
     eval(" pmatch <- function (x, table, nomatch = NA_integer_, duplicates.ok = FALSE) \n" +
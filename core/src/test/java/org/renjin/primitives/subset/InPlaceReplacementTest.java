@@ -0,0 +1,111 @@
+package org.renjin.primitives.subset;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.HashFrame;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Symbol;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class InPlaceReplacementTest extends EvalTestCase {
+
+  @Test
+  public void modifiedInPlaceAfterFirstCopy() {
+    eval("x <- c(1, 2, 3)");
+    SEXP original = binding("x");
+    eval("x[1] <- 10");
+    SEXP copy = binding("x");
+    assertThat(copy, not(sameInstance(original)));
+
+    eval("x[2] <- 20");
+    eval("x[[3]] <- 30L");
+    assertThat(binding("x"), sameInstance(copy));
+    assertThat(eval("x"), equalTo(c(10, 20, 30)));
+  }
+
+  @Test
+  public void aliasesAreNotModified() {
+    eval("x <- c(1, 2, 3)");
+    eval("x[1] <- 10");
+    eval("y <- x");
+    eval("x[2] <- 20");
+    assertThat(eval("y"), equalTo(c(10, 2, 3)));
+    assertThat(eval("x"), equalTo(c(10, 20, 3)));
+
+    eval("y[3] <- 30");
+    assertThat(eval("x"), equalTo(c(10, 20, 3)));
+  }
+
+  @Test
+  public void fillLoop() {
+    eval("x <- integer(5)");
+    eval("for(i in 1:5) x[i] <- i * 2L");
+    eval("y <- x");
+    eval("for(i in 1:5) x[i] <- 0L");
+    assertThat(eval("y"), equalTo(c_i(2, 4, 6, 8, 10)));
+    assertThat(eval("x"), equalTo(c_i(0, 0, 0, 0, 0)));
+  }
+
+  @Test
+  public void argumentsAreNotModified() {
+    eval("f <- function(v) { v[1] <- 0; v[2] <- 0; v }");
+    eval("z <- c(5, 6, 7)");
+    assertThat(eval("f(z)"), equalTo(c(0, 0, 7)));
+    assertThat(eval("z"), equalTo(c(5, 6, 7)));
+  }
+
+  @Test
+  public void enclosingVariableIsNotModified() {
+    eval("x <- c(1, 2)");
+    eval("x[1] <- 3");
+    eval("f <- function() { x[2] <- 4; x }");
+    assertThat(eval("f()"), equalTo(c(3, 4)));
+    assertThat(eval("x"), equalTo(c(3, 2)));
+  }
+
+  @Test
+  public void listElements() {
+    eval("l <- list(1, 2)");
+    eval("l[[1]] <- 'a'");
+    eval("m <- l");
+    eval("l[[2]] <- 'b'");
+    assertThat(eval("m[[2]]"), equalTo(c(2)));
+    assertThat(eval("l[[2]]"), equalTo(c("b")));
+  }
+
+  @Test
+  public void typeChangesAndExtension() {
+    eval("x <- 1:3");
+    eval("x[1] <- 0L");
+    eval("x[2] <- 2.5");
+    assertThat(eval("x"), equalTo(c(0, 2.5, 3)));
+
+    eval("x[5] <- 1");
+    assertThat(eval("x"), equalTo(c(0, 2.5, 3, DoubleVector.NA, 1)));
+  }
+
+  @Test
+  public void subscriptReassignsTarget() {
+    eval("x <- c(1, 2, 3)");
+    eval("x[1] <- 1");
+    eval("x[{ x <- c(7, 8, 9); 2 }] <- 0");
+    assertThat(eval("x"), equalTo(c(1, 0, 3)));
+  }
+
+  @Test(expected = Exception.class)
+  public void lockedBinding() {
+    eval("x <- c(1, 2, 3)");
+    eval("x[1] <- 1");
+    eval("lockBinding('x', environment())");
+    eval("x[2] <- 0");
+  }
+
+  private SEXP binding(String name) {
+    return ((HashFrame) global.getFrame()).peekVariable(Symbol.get(name));
+  }
+}
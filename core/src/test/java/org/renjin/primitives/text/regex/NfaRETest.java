@@ -0,0 +1,83 @@
+package org.renjin.primitives.text.regex;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class NfaRETest {
+
+  private static final String[] PATTERNS = {
+      "a", "abc", "a*", "a+b", "ab?c", "a|b|cc", "(a|ab)(c|bcd)", "^ab", "b$", "^$", "a.c",
+      "[a-c]+", "[^ab]", "x*y*", "(ab)*", "(a|aa)+$", "a*?b", "a+?",
+      "\\bab", "b\\B", "\\w+", "\\d\\s", "[[:digit:]]+[[:alpha:]]", "[:alpha:]+",
+      "(?:ab|a)c", "a{2,3}", "a{2}b", "(a|b)*c(a|b)*", ".*b", "^(a|b)+$", "c|"
+  };
+
+  @Test
+  public void sameMatchesAsBacktracking() throws RESyntaxException {
+    Random random = new Random(42);
+    String alphabet = "abcd1 x\n";
+    for (String pattern : PATTERNS) {
+      REProgram program = new RECompiler().compile(pattern);
+      NfaProgram automaton = NfaProgram.compile(program);
+      for (int trial = 0; trial < 300; trial++) {
+        StringBuilder input = new StringBuilder();
+        int length = random.nextInt(10);
+        for (int i = 0; i < length; i++) {
+          input.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        boolean ignoreCase = random.nextBoolean();
+        int flags = ignoreCase ? ExtendedRE.MATCH_CASEINDEPENDENT : ExtendedRE.MATCH_NORMAL;
+        String search = random.nextInt(4) == 0 ? input.toString().toUpperCase() : input.toString();
+
+        ExtendedRE expected = new ExtendedRE(program, flags);
+        NfaRE actual = new NfaRE(automaton, ignoreCase);
+        String message = "/" + pattern + "/ on '" + search + "'";
+
+        boolean matched = expected.match(search);
+        assertThat(message, actual.match(search), equalTo(matched));
+        if(matched) {
+          assertThat(message, actual.getGroupStart(0), equalTo(expected.getGroupStart(0)));
+          assertThat(message, actual.getGroupEnd(0), equalTo(expected.getGroupEnd(0)));
+        }
+        assertThat(message, actual.subst(search, "<\\0>", RE.REPLACE_BACKREFERENCES),
+            equalTo(expected.subst(search, "<\\0>", RE.REPLACE_BACKREFERENCES)));
+      }
+    }
+  }
+
+  @Test
+  public void linearTime() throws RESyntaxException {
+    StringBuilder input = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      input.append('a');
+    }
+    // Backtracking would take time exponential in the length of the input
+    NfaRE re = new NfaRE(NfaProgram.compile(new RECompiler().compile("^(a|aa)*b")), false);
+    assertFalse(re.match(input.toString()));
+    assertTrue(re.match(input.append('b').toString()));
+    assertThat(re.getGroupEnd(0), equalTo(input.length()));
+  }
+
+  @Test
+  public void backreferencesAreNotSupported() throws RESyntaxException {
+    assertThat(NfaProgram.compile(new RECompiler().compile("(a)\\1")), nullValue());
+  }
+
+  @Test
+  public void perl() throws RESyntaxException {
+    PerlRE re = new PerlRE(PerlRE.compile("(\\w+)@(?=example)", false));
+    assertTrue(re.match("mail bob@example.com"));
+    assertThat(re.getGroupStart(1), equalTo(5));
+    assertThat(re.subst("bob@example", "\\U\\1\\E at ", RE.REPLACE_BACKREFERENCES), equalTo("BOB at example"));
+
+    re = new PerlRE(PerlRE.compile("^x[[:digit:]]+$", true));
+    assertTrue(re.match("X42"));
+  }
+}
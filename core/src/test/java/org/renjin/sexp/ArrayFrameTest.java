@@ -0,0 +1,62 @@
+package org.renjin.sexp;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ArrayFrameTest extends EvalTestCase {
+
+  @Test
+  public void bindAndRemove() {
+    Symbol a = Symbol.get("a");
+    Symbol b = Symbol.get("b");
+    Symbol c = Symbol.get("c");
+
+    ArrayFrame frame = new ArrayFrame(1);
+    frame.setVariable(a, c(1));
+    frame.setVariable(b, c(2));
+    frame.setVariable(c, c(3));
+    frame.setVariable(a, c(4));
+    assertThat(frame.getSymbols().size(), equalTo(3));
+    assertThat(frame.getVariable(a), equalTo(c(4)));
+
+    frame.remove(b);
+    assertThat(frame.getVariable(b), equalTo((SEXP) Symbol.UNBOUND_VALUE));
+    assertThat(frame.getVariable(c), equalTo(c(3)));
+    assertThat(frame.getSymbols().size(), equalTo(2));
+  }
+
+  @Test
+  public void promotion() {
+    ArrayFrame frame = new ArrayFrame(2);
+    for (int i = 0; i < ArrayFrame.MAX_ARRAY_SIZE; i++) {
+      frame.setVariable(Symbol.get("v" + i), c(i));
+    }
+    assertFalse(frame.isPromoted());
+
+    frame.setVariable(Symbol.get("extra"), c(-1));
+    assertTrue(frame.isPromoted());
+    assertThat(frame.getSymbols().size(), equalTo(ArrayFrame.MAX_ARRAY_SIZE + 1));
+    assertThat(frame.getVariable(Symbol.get("v7")), equalTo(c(7)));
+    assertThat(frame.getVariable(Symbol.get("extra")), equalTo(c(-1)));
+  }
+
+  @Test
+  public void functionEnvironments() {
+    eval("f <- function(a, b) { x <- a; y <- b; for(i in 1:3) x <- x + i; environment() }");
+    Closure f = (Closure) eval("f");
+    assertThat(f.getFrameSize(), equalTo(5));
+
+    eval("e <- f(1, 2)");
+    assertThat(eval("sort(ls(e))"), equalTo(c("a", "b", "i", "x", "y")));
+    assertThat(eval("e$x"), equalTo(c(7)));
+
+    // variables assigned dynamically are still bound in the function's frame
+    eval("g <- function(n) { for(i in seq_len(n)) assign(paste0('v', i), i); v40 + length(ls()) }");
+    assertThat(eval("g(40)"), equalTo(c_i(82)));
+  }
+}
@@ -0,0 +1,42 @@
+package org.renjin.sexp;
+
+import org.apache.commons.math.complex.Complex;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ComplexArrayVectorTest {
+
+  @Test
+  public void interleavedStorage() {
+    ComplexArrayVector vector = ComplexArrayVector.unsafe(new double[] { 1, 2, 3, -4 });
+    assertThat(vector.length(), equalTo(2));
+    assertThat(vector.getElementAsComplexReal(1), equalTo(3d));
+    assertThat(vector.getElementAsComplexImag(1), equalTo(-4d));
+    assertThat(vector, equalTo(new ComplexArrayVector(new Complex(1, 2), new Complex(3, -4))));
+  }
+
+  @Test
+  public void builder() {
+    ComplexArrayVector.Builder builder = new ComplexArrayVector.Builder();
+    builder.add(1, 2);
+    builder.set(60, 3, 4);
+    ComplexVector vector = builder.build();
+
+    assertThat(vector.length(), equalTo(61));
+    assertThat(vector.getElementAsComplex(0), equalTo(new Complex(1, 2)));
+    assertTrue(vector.isElementNA(1));
+    assertFalse(vector.isElementNA(60));
+  }
+
+  @Test
+  public void nanValuesAreEqual() {
+    ComplexVector x = ComplexArrayVector.unsafe(new double[] { Double.NaN, 1 });
+    ComplexVector y = ComplexArrayVector.unsafe(new double[] { 2, Double.NaN });
+    assertThat(x, equalTo(y));
+    assertThat(x.indexOf(y, 0, 0), equalTo(0));
+  }
+}
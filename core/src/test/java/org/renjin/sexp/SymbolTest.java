@@ -1,10 +1,18 @@
 package org.renjin.sexp;
 
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 import org.renjin.sexp.Symbol;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
 public class SymbolTest {
 
   @Test
@@ -37,6 +45,38 @@ public class SymbolTest {
     assertTrue(Symbol.get("*").isReservedWord());
   }
 
+  @Test
+  public void concurrentInterning() throws Exception {
+    final int numThreads = 8;
+    final int numSymbols = 5000;
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<Symbol[]>> results = new ArrayList<>();
+      for (int i = 0; i < numThreads; i++) {
+        results.add(executor.submit(new Callable<Symbol[]>() {
+          @Override
+          public Symbol[] call() throws Exception {
+            Symbol[] symbols = new Symbol[numSymbols];
+            for (int j = 0; j < numSymbols; j++) {
+              symbols[j] = Symbol.get("concurrent.symbol." + j);
+            }
+            return symbols;
+          }
+        }));
+      }
+      Symbol[] expected = results.get(0).get();
+      for (Future<Symbol[]> result : results) {
+        Symbol[] symbols = result.get();
+        for (int j = 0; j < numSymbols; j++) {
+          assertSame(expected[j], symbols[j]);
+          assertSame(Symbol.get("concurrent.symbol." + j), symbols[j]);
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   private void print(String name) {
     System.out.println(toBinaryString(Symbol.get(name).hashBit()) + " " + name);
   }
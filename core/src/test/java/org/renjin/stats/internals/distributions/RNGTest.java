@@ -0,0 +1,112 @@
+package org.renjin.stats.internals.distributions;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class RNGTest extends EvalTestCase {
+
+  @Before
+  public void defineGenerators() {
+    // the stats package is not loaded by core tests
+    eval("runif <- function(n) .Internal(runif(n, 0, 1))");
+    eval("rnorm <- function(n) .Internal(rnorm(n, 0, 1))");
+  }
+
+  @Test
+  public void uniformMatchesGnuR() {
+    eval("set.seed(123)");
+    assertThat(eval("runif(3)"), closeTo(c(0.2875775, 0.7883051, 0.4089769), 1e-7));
+  }
+
+  @Test
+  public void normalMatchesGnuR() {
+    eval("set.seed(123)");
+    assertThat(eval("rnorm(3)"), closeTo(c(-0.56047565, -0.23017749, 1.55870831), 1e-7));
+  }
+
+  @Test
+  public void bulkDrawsContinueTheSequence() {
+    for (String kind : new String[] { "Mersenne-Twister", "L'Ecuyer-CMRG" }) {
+      eval("set.seed(1, kind = \"" + kind + "\")");
+      eval("x <- c(runif(400), rnorm(1000), runif(2))");
+      eval("set.seed(1)");
+      eval("y <- c(runif(1), runif(399), rnorm(300), rnorm(700), runif(1), runif(1))");
+      assertThat(eval("identical(x, y)"), equalTo(c(true)));
+    }
+  }
+
+  @Test
+  public void bulkFillsMatchSingleDraws() {
+    MersenneTwister mt1 = new MersenneTwister(42);
+    MersenneTwister mt2 = new MersenneTwister(42);
+    double[] expected = new double[2000];
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = mt1.nextDouble();
+    }
+    double[] actual = new double[2000];
+    mt2.nextDoubles(actual, 0, 700);
+    actual[700] = mt2.nextDouble();
+    mt2.nextDoubles(actual, 701, 2000);
+    assertArrayEquals(expected, actual, 0);
+
+    LecuyerCMRG lecuyer1 = new LecuyerCMRG(42);
+    LecuyerCMRG lecuyer2 = new LecuyerCMRG(42);
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = lecuyer1.nextDouble();
+    }
+    lecuyer2.nextDoubles(actual, 0, 2000);
+    assertArrayEquals(expected, actual, 0);
+    assertArrayEquals(lecuyer1.getState(), lecuyer2.getState());
+  }
+
+  @Test
+  public void normalKind() {
+    eval("set.seed(1)");
+    eval("x <- rnorm(10)");
+    eval("RNGkind(normal.kind = 'Kinderman-Ramage')");
+    eval("set.seed(1)");
+    assertThat(eval("identical(rnorm(10), x)"), equalTo(c(false)));
+    assertThat(eval("RNGkind()[2]"), equalTo(c("Kinderman-Ramage")));
+  }
+
+  @Test
+  public void unimplementedNormalKind() {
+    eval("RNGkind(normal.kind = 'Ahrens-Dieter')");
+    assertThat(eval("tryCatch(RNGkind(normal.kind = 'Box-Muller'), error = function(e) 'rejected')"),
+        equalTo(c("rejected")));
+    assertThat(eval("RNGkind()[2]"), equalTo(c("Ahrens-Dieter")));
+  }
+
+  @Test
+  public void ziggurat() {
+    eval("RNGkind(normal.kind = 'Ziggurat')");
+    eval("set.seed(1)");
+    eval("x <- rnorm(200000)");
+    assertThat(eval("abs(mean(x)) < 0.01"), equalTo(c(true)));
+    assertThat(eval("abs(sqrt(sum((x - mean(x))^2) / length(x)) - 1) < 0.01"), equalTo(c(true)));
+    assertThat(eval("abs(mean(abs(x) > 1.959964) - 0.05) < 0.002"), equalTo(c(true)));
+    // the tail beyond the bottom layer, where P(X > 3.442620) = 2.8794e-4
+    assertThat(eval("abs(mean(x > 3.442620) / 2.8794e-4 - 1) < 0.2"), equalTo(c(true)));
+
+    eval("set.seed(1)");
+    assertThat(eval("identical(rnorm(200000), x)"), equalTo(c(true)));
+  }
+
+  @Test
+  public void streams() {
+    long[] state = new LecuyerCMRG(7).getState();
+    long[] next = LecuyerCMRG.nextStream(state);
+
+    RNG rng = new RNG(topLevelContext.getSession());
+    rng.setStream(next);
+    assertThat(rng.getKind(), equalTo(RNGtype.LECUYER_CMRG));
+    assertThat(rng.unif_rand(), equalTo(new LecuyerCMRG(next).nextDouble()));
+    assertThat(rng.getStreamState(), not(equalTo(next)));
+  }
+}
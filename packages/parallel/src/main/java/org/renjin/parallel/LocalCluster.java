@@ -0,0 +1,138 @@
+package org.renjin.parallel;
+
+import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
+import org.renjin.eval.Session;
+import org.renjin.invoke.annotations.Current;
+import org.renjin.sexp.*;
+import org.renjin.stats.internals.distributions.LecuyerCMRG;
+import org.renjin.stats.internals.distributions.RNG;
+import org.renjin.stats.internals.distributions.RNGtype;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A cluster of workers running within this JVM, each evaluating calls in its own
+ * forked {@link Session} on its own thread.
+ *
+ * <p>This is the Renjin counterpart of a "FORK" cluster in GNU R: workers see the
+ * master's global environment and loaded namespaces as they were at the time of the call,
+ * but assignments made on a worker remain local to that worker.</p>
+ */
+public class LocalCluster {
+
+  private final Worker[] workers;
+
+  /**
+   * Results in the order in which they were completed, used for load balancing
+   */
+  private final BlockingQueue<Worker.Result> completed = new LinkedBlockingQueue<>();
+
+  private LocalCluster(Session master, int nodes) {
+    this.workers = new Worker[nodes];
+    for (int i = 0; i < nodes; i++) {
+      workers[i] = new Worker(i + 1, master.fork());
+    }
+  }
+
+  /**
+   * Creates a new cluster of {@code nodes} workers, forked from the current session. Each
+   * worker's random number generator is seeded from the master's: if the master is using
+   * "L'Ecuyer-CMRG", the workers are assigned successive streams, otherwise they are seeded
+   * with numbers drawn from the master's generator.
+   */
+  public static LocalCluster create(@Current Context context, int nodes) {
+    if(nodes < 1) {
+      throw new EvalException("number of nodes must be >= 1");
+    }
+    Session master = context.getSession();
+    LocalCluster cluster = new LocalCluster(master, nodes);
+
+    RNG rng = master.rng;
+    if(rng.getKind() == RNGtype.LECUYER_CMRG) {
+      cluster.setStreams(LecuyerCMRG.nextStream(rng.getStreamState()));
+    } else {
+      for (Worker worker : cluster.workers) {
+        int seed = (int) Math.floor(rng.unif_rand() * Integer.MAX_VALUE);
+        RNG.set_seed(worker.getSession().getTopLevelContext(), seed, Null.INSTANCE, Null.INSTANCE);
+      }
+    }
+    return cluster;
+  }
+
+  public int getSize() {
+    return workers.length;
+  }
+
+  /**
+   * Sets the random number generator of each worker to "L'Ecuyer-CMRG", assigning each worker
+   * an independent stream. The first worker uses the stream obtained from {@code set.seed(iseed)},
+   * as GNU R's {@code clusterSetRNGStream} does.
+   */
+  public void setRNGStreams(@Current Context context, SEXP iseed) {
+    int seed;
+    if(iseed == Null.INSTANCE) {
+      seed = (int) Math.floor(context.getSession().rng.unif_rand() * Integer.MAX_VALUE);
+    } else {
+      seed = ((AtomicVector) iseed).getElementAsInt(0);
+    }
+    setStreams(new LecuyerCMRG(seed).getState());
+  }
+
+  private void setStreams(long[] state) {
+    for (Worker worker : workers) {
+      worker.getSession().rng.setStream(state);
+      state = LecuyerCMRG.nextStream(state);
+    }
+  }
+
+  /**
+   * Submits {@code do.call(fun, args)} for evaluation on the worker with the given rank, returning
+   * immediately.
+   */
+  public void send(int rank, SEXP fun, ListVector args, SEXP tag) {
+    getWorker(rank).submit(fun, args, tag, completed);
+  }
+
+  /**
+   * Waits for the result of the next call sent to the worker with the given rank.
+   */
+  public SEXP receive(int rank) throws InterruptedException {
+    Worker.Result result = getWorker(rank).take();
+    synchronized (completed) {
+      completed.remove(result);
+    }
+    return result.value;
+  }
+
+  /**
+   * Waits for the next result from any worker, returning a list containing the {@code value},
+   * the rank of the {@code node} which computed it, and the {@code tag} with which the call was sent.
+   */
+  public ListVector receiveAny() throws InterruptedException {
+    Worker.Result result = completed.take();
+    Worker.Result next = result.worker.take();
+    if(next != result) {
+      throw new IllegalStateException("Results from worker " + result.worker.getRank() + " received out of order");
+    }
+    ListVector.NamedBuilder list = new ListVector.NamedBuilder();
+    list.add("value", result.value);
+    list.add("node", result.worker.getRank());
+    list.add("tag", result.tag);
+    return list.build();
+  }
+
+  public void shutdown() {
+    for (Worker worker : workers) {
+      worker.shutdown();
+    }
+  }
+
+  private Worker getWorker(int rank) {
+    if(rank < 1 || rank > workers.length) {
+      throw new EvalException("invalid node rank: " + rank);
+    }
+    return workers[rank - 1];
+  }
+}
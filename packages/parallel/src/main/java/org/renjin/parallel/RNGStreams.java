@@ -0,0 +1,44 @@
+package org.renjin.parallel;
+
+import org.renjin.eval.EvalException;
+import org.renjin.sexp.IntArrayVector;
+import org.renjin.sexp.IntVector;
+import org.renjin.stats.internals.distributions.LecuyerCMRG;
+
+/**
+ * Implements {@code nextRNGStream} and {@code nextRNGSubStream}, which operate on
+ * "L'Ecuyer-CMRG" seeds in the format of GNU R's {@code .Random.seed}: the kind code (407)
+ * followed by the generator's six 32-bit state components.
+ */
+public class RNGStreams {
+
+  private static final int LECUYER_KIND_CODE = 407;
+
+  public static IntVector nextRNGStream(IntVector seed) {
+    return toSeed(LecuyerCMRG.nextStream(toState(seed)));
+  }
+
+  public static IntVector nextRNGSubStream(IntVector seed) {
+    return toSeed(LecuyerCMRG.nextSubStream(toState(seed)));
+  }
+
+  private static long[] toState(IntVector seed) {
+    if(seed.length() != 7 || seed.getElementAsInt(0) % 100 != LECUYER_KIND_CODE % 100) {
+      throw new EvalException("invalid value of 'seed'");
+    }
+    long[] state = new long[6];
+    for (int i = 0; i < 6; i++) {
+      state[i] = seed.getElementAsInt(i + 1) & 0xFFFFFFFFL;
+    }
+    return state;
+  }
+
+  private static IntVector toSeed(long[] state) {
+    int[] seed = new int[7];
+    seed[0] = LECUYER_KIND_CODE;
+    for (int i = 0; i < 6; i++) {
+      seed[i + 1] = (int) state[i];
+    }
+    return new IntArrayVector(seed);
+  }
+}
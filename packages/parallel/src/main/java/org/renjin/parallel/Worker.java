@@ -0,0 +1,119 @@
+package org.renjin.parallel;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.renjin.eval.ConditionException;
+import org.renjin.eval.EvalException;
+import org.renjin.eval.Session;
+import org.renjin.sexp.*;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A node of a {@link LocalCluster}, which evaluates calls within its own
+ * forked {@link Session} on its own thread.
+ */
+class Worker {
+
+  private final int rank;
+  private final Session session;
+  private final ExecutorService executor;
+
+  private final BlockingQueue<Result> results = new LinkedBlockingQueue<>();
+
+  static class Result {
+    final Worker worker;
+    final SEXP value;
+    final SEXP tag;
+
+    Result(Worker worker, SEXP value, SEXP tag) {
+      this.worker = worker;
+      this.value = value;
+      this.tag = tag;
+    }
+  }
+
+  Worker(int rank, Session session) {
+    this.rank = rank;
+    this.session = session;
+    this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("renjin-cluster-node-" + rank)
+        .setDaemon(true)
+        .build());
+  }
+
+  public int getRank() {
+    return rank;
+  }
+
+  public Session getSession() {
+    return session;
+  }
+
+  /**
+   * Submits {@code do.call(fun, args, quote = TRUE)} for evaluation within this worker's session,
+   * returning immediately. The result is queued both on this worker and on {@code completed}.
+   * Calls are evaluated one at a time, in the order they are submitted, and each produces exactly
+   * one result, even if evaluation fails with an {@code Error}.
+   */
+  void submit(final SEXP fun, final ListVector args, final SEXP tag, final BlockingQueue<Result> completed) {
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        evaluate(fun, args, tag, completed);
+      }
+    });
+  }
+
+  private void evaluate(SEXP fun, ListVector args, SEXP tag, BlockingQueue<Result> completed) {
+    FunctionCall call = new FunctionCall(Symbol.get("do.call"),
+        new PairList.Builder()
+            .add(fun)
+            .add(args)
+            .add("quote", LogicalVector.TRUE)
+            .build());
+
+    SEXP value;
+    try {
+      value = session.getTopLevelContext().evaluate(call, session.getGlobalEnvironment());
+    } catch (EvalException e) {
+      value = tryError(e.getMessage(), e.getCondition());
+    } catch (ConditionException e) {
+      value = tryError("unhandled condition", e.getCondition());
+    } catch (Throwable e) {
+      value = tryError(e.getClass().getName() + ": " + e.getMessage(), Null.INSTANCE);
+    }
+    Result result = new Result(this, value, tag);
+    // Queued together, so that a result taken from one queue can always be removed from the other
+    synchronized (completed) {
+      results.add(result);
+      completed.add(result);
+    }
+  }
+
+  /**
+   * Waits for the result of the next call submitted to this worker.
+   */
+  Result take() throws InterruptedException {
+    return results.take();
+  }
+
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Constructs an object equivalent to that returned by {@code try()} when an error
+   * is signaled, so that {@code checkForRemoteErrors} can report it.
+   */
+  private static SEXP tryError(String message, SEXP condition) {
+    AttributeMap.Builder attributes = AttributeMap.builder();
+    attributes.setClass("try-error");
+    if(condition != null && condition != Null.INSTANCE) {
+      attributes.set("condition", condition);
+    }
+    return new StringArrayVector(new String[] { "Error : " + message + "\n" }, attributes.build());
+  }
+}
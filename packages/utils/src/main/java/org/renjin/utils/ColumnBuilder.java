@@ -0,0 +1,115 @@
+package org.renjin.utils;
+
+import org.renjin.sexp.Vector;
+
+/**
+ * Appends the fields of one column of a table to a primitive array, parsing them
+ * directly from their bytes.
+ *
+ * <p>Each builder accepts values of a single type. When a field cannot be parsed
+ * as that type, the column is promoted to the next type which can hold both the values
+ * already read and the new field, in the order logical, integer, double and character.</p>
+ */
+abstract class ColumnBuilder {
+
+  protected final FieldFormat format;
+  protected int size;
+
+  /**
+   * The text of the fields from previous blocks, or null for a builder whose
+   * type is final.
+   */
+  private FieldText previousText;
+
+  protected ColumnBuilder(FieldFormat format) {
+    this.format = format;
+  }
+
+  /**
+   * Appends the column's fields from every row of the block.
+   *
+   * @return the builder holding the column, which is a new builder if the column
+   * had to be promoted to a different type.
+   */
+  public final ColumnBuilder parse(FieldBlock block, int column) {
+    byte[] data = block.getData();
+    int numRows = block.getNumRows();
+    for(int row=0;row!=numRows;++row) {
+      int start = block.getStart(row, column);
+      int end = block.getEnd(row, column);
+      if(!add(data, start, end)) {
+        ColumnBuilder promoted = promote(data, start, end);
+        if(previousText != null) {
+          // fields from previous blocks are parsed again from their original text,
+          // so that a character column keeps them exactly as they were written
+          previousText.appendTo(promoted);
+          if(promoted.canBePromoted()) {
+            promoted.previousText = previousText;
+          }
+        }
+        return promoted.parse(block, column);
+      }
+    }
+    if(canBePromoted()) {
+      if(previousText == null) {
+        previousText = new FieldText();
+      }
+      for(int row=0;row!=numRows;++row) {
+        previousText.add(data, block.getStart(row, column), block.getEnd(row, column));
+      }
+    }
+    return this;
+  }
+
+  private boolean canBePromoted() {
+    return canBePromotedTo(new StringColumnBuilder(format));
+  }
+
+  private ColumnBuilder promote(byte[] data, int start, int end) {
+    ColumnBuilder[] candidates = new ColumnBuilder[] {
+        new IntColumnBuilder(format),
+        new DoubleColumnBuilder(format),
+        new StringColumnBuilder(format)
+    };
+    for(ColumnBuilder candidate : candidates) {
+      if(canBePromotedTo(candidate) && candidate.accepts(data, start, end)) {
+        return candidate;
+      }
+    }
+    throw new IllegalStateException();
+  }
+
+  /**
+   * @return the number of values appended so far
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return true if the values of this column can be converted to the type of {@code other}
+   */
+  protected abstract boolean canBePromotedTo(ColumnBuilder other);
+
+  /**
+   * @return true if this builder can append the given field
+   */
+  protected abstract boolean accepts(byte[] data, int start, int end);
+
+  /**
+   * Parses and appends the given field, or returns false if it can not be parsed
+   * as this builder's type. {@code start} is -1 if the row has no field for this column.
+   */
+  protected abstract boolean add(byte[] data, int start, int end);
+
+  /**
+   * @return a new, empty builder of the same type.
+   */
+  public abstract ColumnBuilder newBuilder();
+
+  public abstract Vector build();
+
+  protected static int grow(int capacity) {
+    return Math.max(16, capacity + (capacity >> 1));
+  }
+}
@@ -0,0 +1,229 @@
+package org.renjin.utils;
+
+import org.renjin.eval.EvalException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Splits a byte stream into rows of delimited fields without first decoding
+ * it into characters. The separator and quote characters must be ASCII, so they
+ * can never occur within a multi-byte character of an ASCII-compatible encoding.
+ *
+ * <p>Quoted fields may contain separators and line breaks, and a doubled quote
+ * within a quoted field is read as a single quote. Blank lines are skipped.</p>
+ */
+class CsvTokenizer {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final InputStream in;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int bufferPos;
+  private int bufferLimit;
+
+  /**
+   * The separator, or -1 if fields are separated by runs of white space
+   */
+  private final int separator;
+  private final boolean[] quotes = new boolean[128];
+
+  private byte[] row = new byte[1024];
+  private int rowLength;
+  private int[] fieldStarts = new int[16];
+  private int[] fieldEnds = new int[16];
+  private int fieldCount;
+
+  private int lineNumber;
+
+  CsvTokenizer(InputStream in, String sep, String quote) {
+    this.in = in;
+    if(sep.isEmpty()) {
+      this.separator = -1;
+    } else if(sep.length() == 1 && sep.charAt(0) < 128) {
+      this.separator = sep.charAt(0);
+    } else {
+      throw new EvalException("invalid 'sep' value: must be one ASCII character");
+    }
+    for(int i=0;i!=quote.length();++i) {
+      char q = quote.charAt(i);
+      if(q >= 128) {
+        throw new EvalException("invalid 'quote' value: must contain only ASCII characters");
+      }
+      quotes[q] = true;
+    }
+  }
+
+  /**
+   * Reads the fields of the next non-blank row.
+   *
+   * @return false if the end of the stream has been reached
+   */
+  public boolean nextRow() throws IOException {
+    rowLength = 0;
+    fieldCount = 0;
+
+    int c = read();
+    while(c == '\n' || c == '\r' || (separator == -1 && isWhitespace(c))) {
+      if(c != ' ' && c != '\t') {
+        endLine(c);
+      }
+      c = read();
+    }
+    if(c == -1) {
+      return false;
+    }
+
+    while(true) {
+      int start = rowLength;
+      if(c < 128 && c >= 0 && quotes[c]) {
+        c = readQuoted(c);
+      }
+      while(c != -1 && c != '\n' && c != '\r' && !isSeparator(c)) {
+        append(c);
+        c = read();
+      }
+      addField(start, rowLength);
+
+      if(isSeparator(c)) {
+        c = read();
+        if(separator == -1) {
+          while(isWhitespace(c)) {
+            c = read();
+          }
+          if(c == -1 || c == '\n' || c == '\r') {
+            break;
+          }
+        }
+      } else {
+        break;
+      }
+    }
+    endLine(c);
+    return true;
+  }
+
+  /**
+   * Appends the contents of a quoted string to the current field.
+   *
+   * @return the character following the closing quote
+   */
+  private int readQuoted(int quote) throws IOException {
+    int startLine = lineNumber + 1;
+    while(true) {
+      int c = read();
+      if(c == -1) {
+        throw new EvalException("EOF within quoted string starting on line %d", startLine);
+      }
+      if(c == quote) {
+        c = read();
+        if(c != quote) {
+          return c;
+        }
+      } else if(c == '\n') {
+        lineNumber++;
+      }
+      append(c);
+    }
+  }
+
+  private void endLine(int c) throws IOException {
+    if(c == '\r') {
+      // swallow the LF of a CRLF line ending
+      if(bufferPos == bufferLimit) {
+        fill();
+      }
+      if(bufferPos < bufferLimit && buffer[bufferPos] == '\n') {
+        bufferPos++;
+      }
+    }
+    if(c != -1) {
+      lineNumber++;
+    }
+  }
+
+  private boolean isSeparator(int c) {
+    if(separator == -1) {
+      return isWhitespace(c);
+    } else {
+      return c == separator;
+    }
+  }
+
+  private static boolean isWhitespace(int c) {
+    return c == ' ' || c == '\t';
+  }
+
+  private int read() throws IOException {
+    if(bufferPos == bufferLimit) {
+      fill();
+      if(bufferLimit <= 0) {
+        return -1;
+      }
+    }
+    return buffer[bufferPos++] & 0xFF;
+  }
+
+  private void fill() throws IOException {
+    bufferPos = 0;
+    bufferLimit = in.read(buffer);
+    if(bufferLimit < 0) {
+      bufferLimit = 0;
+    }
+  }
+
+  private void append(int c) {
+    if(rowLength == row.length) {
+      byte[] newRow = new byte[row.length * 2];
+      System.arraycopy(row, 0, newRow, 0, rowLength);
+      row = newRow;
+    }
+    row[rowLength++] = (byte)c;
+  }
+
+  private void addField(int start, int end) {
+    if(fieldCount == fieldStarts.length) {
+      int[] newStarts = new int[fieldCount * 2];
+      int[] newEnds = new int[fieldCount * 2];
+      System.arraycopy(fieldStarts, 0, newStarts, 0, fieldCount);
+      System.arraycopy(fieldEnds, 0, newEnds, 0, fieldCount);
+      fieldStarts = newStarts;
+      fieldEnds = newEnds;
+    }
+    fieldStarts[fieldCount] = start;
+    fieldEnds[fieldCount] = end;
+    fieldCount++;
+  }
+
+  /**
+   * @return the number of the line on which the current row ended, starting at 1.
+   */
+  public int getLineNumber() {
+    return lineNumber;
+  }
+
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  public String getField(int index, Charset charset) {
+    return new String(row, fieldStarts[index], fieldEnds[index] - fieldStarts[index], charset);
+  }
+
+  byte[] getRowBytes() {
+    return row;
+  }
+
+  int getRowLength() {
+    return rowLength;
+  }
+
+  int getFieldStart(int index) {
+    return fieldStarts[index];
+  }
+
+  int getFieldEnd(int index) {
+    return fieldEnds[index];
+  }
+}
@@ -0,0 +1,139 @@
+package org.renjin.utils;
+
+import org.renjin.parser.NumericLiterals;
+import org.renjin.sexp.DoubleArrayVector;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.Vector;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Builds a double column from decimal or hexadecimal constants, {@code NaN}, {@code Inf}
+ * or {@code infinity}.
+ */
+class DoubleColumnBuilder extends ColumnBuilder {
+
+  private static final Pattern DECIMAL = Pattern.compile("[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?");
+  private static final Pattern HEX = Pattern.compile("[-+]?0[xX][0-9a-fA-F]+(\\.[0-9a-fA-F]*)?([pP][-+]?\\d+)?");
+  private static final Pattern SPECIAL = Pattern.compile("[-+]?(nan|inf|infinity)", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Powers of ten which are exactly representable as doubles
+   */
+  private static final double[] POWERS_OF_TEN = new double[23];
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for(int i=1;i!=POWERS_OF_TEN.length;++i) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private double[] values = new double[0];
+
+  /**
+   * The value of the last field parsed
+   */
+  private double value;
+
+  DoubleColumnBuilder(FieldFormat format) {
+    super(format);
+  }
+
+  @Override
+  protected boolean canBePromotedTo(ColumnBuilder other) {
+    return other instanceof StringColumnBuilder;
+  }
+
+  @Override
+  protected boolean accepts(byte[] data, int start, int end) {
+    return format.isNA(data, start, end) || parse(data, start, end);
+  }
+
+  @Override
+  protected boolean add(byte[] data, int start, int end) {
+    if(format.isNA(data, start, end)) {
+      value = DoubleVector.NA;
+    } else if(!parse(data, start, end)) {
+      return false;
+    }
+    if(size == values.length) {
+      values = Arrays.copyOf(values, grow(size));
+    }
+    values[size++] = value;
+    return true;
+  }
+
+  /**
+   * Parses the field into {@code value}.
+   *
+   * @return false if the field is not a numeric constant
+   */
+  private boolean parse(byte[] data, int start, int end) {
+    start = FieldFormat.trimStart(data, start, end);
+    end = FieldFormat.trimEnd(data, start, end);
+    return parseSimple(data, start, end) || parseGeneral(data, start, end);
+  }
+
+  /**
+   * Parses constants of up to 15 significant digits without an exponent, such as {@code -123.25}.
+   * The mantissa and the power of ten are then both exact, so the quotient is correctly rounded.
+   */
+  private boolean parseSimple(byte[] data, int start, int end) {
+    int i = start;
+    boolean negative = false;
+    if(i < end && (data[i] == '-' || data[i] == '+')) {
+      negative = data[i] == '-';
+      i++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int fractionDigits = -1;
+    byte dec = format.getDec();
+    for(;i < end;++i) {
+      byte b = data[i];
+      if(b >= '0' && b <= '9') {
+        mantissa = mantissa * 10 + (b - '0');
+        digits++;
+        if(fractionDigits >= 0) {
+          fractionDigits++;
+        }
+      } else if(b == dec && fractionDigits == -1) {
+        fractionDigits = 0;
+      } else {
+        return false;
+      }
+    }
+    if(digits == 0 || digits > 15) {
+      return false;
+    }
+    value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+    if(negative) {
+      value = -value;
+    }
+    return true;
+  }
+
+  private boolean parseGeneral(byte[] data, int start, int end) {
+    String string = new String(data, start, end - start, format.getCharset());
+    if(format.getDec() != '.' && string.indexOf('.') == -1) {
+      string = string.replace((char) format.getDec(), '.');
+    }
+    if(DECIMAL.matcher(string).matches() || HEX.matcher(string).matches() || SPECIAL.matcher(string).matches()) {
+      value = NumericLiterals.parseDouble(string);
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public ColumnBuilder newBuilder() {
+    return new DoubleColumnBuilder(format);
+  }
+
+  @Override
+  public Vector build() {
+    return DoubleArrayVector.unsafe(Arrays.copyOf(values, size));
+  }
+}
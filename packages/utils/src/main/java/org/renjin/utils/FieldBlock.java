@@ -0,0 +1,93 @@
+package org.renjin.utils;
+
+import org.renjin.eval.EvalException;
+
+/**
+ * A block of rows read by a {@link CsvTokenizer}, holding the raw bytes of every field
+ * so that the columns can then be parsed independently of each other.
+ */
+class FieldBlock {
+
+  private final int numColumns;
+  private final int maxRows;
+
+  private byte[] data = new byte[64 * 1024];
+  private int dataLength;
+
+  /**
+   * The start of each field within {@code data}, indexed by {@code row * numColumns + column},
+   * or -1 if the row had no field for the column.
+   */
+  private final int[] starts;
+  private final int[] ends;
+  private int numRows;
+
+  FieldBlock(int numColumns, int maxRows) {
+    this.numColumns = numColumns;
+    this.maxRows = maxRows;
+    this.starts = new int[numColumns * maxRows];
+    this.ends = new int[numColumns * maxRows];
+  }
+
+  public void clear() {
+    dataLength = 0;
+    numRows = 0;
+  }
+
+  public boolean isFull() {
+    return numRows == maxRows;
+  }
+
+  public int getNumRows() {
+    return numRows;
+  }
+
+  public int getNumColumns() {
+    return numColumns;
+  }
+
+  /**
+   * Copies the fields of the tokenizer's current row into this block. Missing
+   * trailing fields are filled with missing values.
+   */
+  public void addRow(CsvTokenizer tokenizer) {
+    int fieldCount = tokenizer.getFieldCount();
+    if(fieldCount > numColumns) {
+      throw new EvalException("line %d has %d fields, but only %d columns were expected",
+          tokenizer.getLineNumber(), fieldCount, numColumns);
+    }
+    int rowLength = tokenizer.getRowLength();
+    if(dataLength + rowLength > data.length) {
+      byte[] newData = new byte[Math.max(data.length * 2, dataLength + rowLength)];
+      System.arraycopy(data, 0, newData, 0, dataLength);
+      data = newData;
+    }
+    System.arraycopy(tokenizer.getRowBytes(), 0, data, dataLength, rowLength);
+
+    int index = numRows * numColumns;
+    for(int i=0;i!=fieldCount;++i) {
+      starts[index] = dataLength + tokenizer.getFieldStart(i);
+      ends[index] = dataLength + tokenizer.getFieldEnd(i);
+      index++;
+    }
+    for(int i=fieldCount;i<numColumns;++i) {
+      starts[index] = -1;
+      ends[index] = -1;
+      index++;
+    }
+    dataLength += rowLength;
+    numRows++;
+  }
+
+  public byte[] getData() {
+    return data;
+  }
+
+  public int getStart(int row, int column) {
+    return starts[row * numColumns + column];
+  }
+
+  public int getEnd(int row, int column) {
+    return ends[row * numColumns + column];
+  }
+}
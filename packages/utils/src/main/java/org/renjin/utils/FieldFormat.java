@@ -0,0 +1,87 @@
+package org.renjin.utils;
+
+import org.renjin.eval.EvalException;
+import org.renjin.sexp.StringVector;
+
+import java.nio.charset.Charset;
+
+/**
+ * The encoding, decimal separator and missing value strings shared by
+ * the {@link ColumnBuilder}s of a table.
+ */
+class FieldFormat {
+
+  private final Charset charset;
+  private final byte dec;
+  private final byte[][] naStrings;
+
+  FieldFormat(Charset charset, String dec, StringVector naStrings) {
+    if(dec.length() != 1 || dec.charAt(0) >= 128) {
+      throw new EvalException("invalid decimal separator");
+    }
+    this.charset = charset;
+    this.dec = (byte) dec.charAt(0);
+    this.naStrings = new byte[naStrings.length()][];
+    for(int i=0;i!=naStrings.length();++i) {
+      this.naStrings[i] = naStrings.getElementAsString(i).getBytes(charset);
+    }
+  }
+
+  public Charset getCharset() {
+    return charset;
+  }
+
+  public byte getDec() {
+    return dec;
+  }
+
+  /**
+   * @return true if the field is missing from its row, or matches one of the {@code na.strings}
+   */
+  public boolean isNAString(byte[] data, int start, int end) {
+    if(start == -1) {
+      return true;
+    }
+    int length = end - start;
+    for(byte[] naString : naStrings) {
+      if(naString.length == length && regionMatches(data, start, naString)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return true if the field is missing from its row, blank, or matches one of the {@code na.strings}.
+   */
+  public boolean isNA(byte[] data, int start, int end) {
+    return isNAString(data, start, end) || trimStart(data, start, end) == end;
+  }
+
+  private static boolean regionMatches(byte[] data, int start, byte[] string) {
+    for(int i=0;i!=string.length;++i) {
+      if(data[start + i] != string[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public static int trimStart(byte[] data, int start, int end) {
+    while(start < end && isWhitespace(data[start])) {
+      start++;
+    }
+    return start;
+  }
+
+  public static int trimEnd(byte[] data, int start, int end) {
+    while(end > start && isWhitespace(data[end - 1])) {
+      end--;
+    }
+    return end;
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\t';
+  }
+}
@@ -0,0 +1,53 @@
+package org.renjin.utils;
+
+import java.util.Arrays;
+
+/**
+ * The original text of the fields appended to a column from earlier blocks, which
+ * is kept until the column's type is final so that they can be parsed again if the
+ * column is promoted.
+ */
+class FieldText {
+
+  private byte[] data = new byte[0];
+  private int length;
+
+  private int[] starts = new int[0];
+  private int[] ends = new int[0];
+  private int count;
+
+  /**
+   * Appends the field from {@code start} to {@code end}, or a missing field if {@code start} is -1.
+   */
+  public void add(byte[] source, int start, int end) {
+    if(count == starts.length) {
+      starts = Arrays.copyOf(starts, ColumnBuilder.grow(count));
+      ends = Arrays.copyOf(ends, starts.length);
+    }
+    if(start == -1) {
+      starts[count] = -1;
+      ends[count] = -1;
+    } else {
+      int fieldLength = end - start;
+      if(length + fieldLength > data.length) {
+        data = Arrays.copyOf(data, Math.max(length + fieldLength, ColumnBuilder.grow(data.length)));
+      }
+      System.arraycopy(source, start, data, length, fieldLength);
+      starts[count] = length;
+      ends[count] = length + fieldLength;
+      length += fieldLength;
+    }
+    count++;
+  }
+
+  /**
+   * Appends the field text to {@code builder}, which must accept every field.
+   */
+  public void appendTo(ColumnBuilder builder) {
+    for(int i=0;i!=count;++i) {
+      if(!builder.add(data, starts[i], ends[i])) {
+        throw new IllegalStateException("Field " + i + " could not be parsed again");
+      }
+    }
+  }
+}
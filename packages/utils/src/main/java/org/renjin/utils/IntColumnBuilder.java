@@ -0,0 +1,87 @@
+package org.renjin.utils;
+
+import org.renjin.sexp.IntArrayVector;
+import org.renjin.sexp.IntVector;
+import org.renjin.sexp.Vector;
+
+import java.util.Arrays;
+
+/**
+ * Builds an integer column from decimal integer constants, such as {@code -12}, which
+ * can be represented as R integers.
+ */
+class IntColumnBuilder extends ColumnBuilder {
+
+  private int[] values = new int[0];
+
+  IntColumnBuilder(FieldFormat format) {
+    super(format);
+  }
+
+  @Override
+  protected boolean canBePromotedTo(ColumnBuilder other) {
+    return other instanceof DoubleColumnBuilder || other instanceof StringColumnBuilder;
+  }
+
+  @Override
+  protected boolean accepts(byte[] data, int start, int end) {
+    return format.isNA(data, start, end) || parse(data, start, end) != IntVector.NA;
+  }
+
+  @Override
+  protected boolean add(byte[] data, int start, int end) {
+    int value;
+    if(format.isNA(data, start, end)) {
+      value = IntVector.NA;
+    } else {
+      value = parse(data, start, end);
+      if(value == IntVector.NA) {
+        return false;
+      }
+    }
+    if(size == values.length) {
+      values = Arrays.copyOf(values, grow(size));
+    }
+    values[size++] = value;
+    return true;
+  }
+
+  /**
+   * @return the value of the field, or {@code NA} if it is not an integer constant in the range of
+   * R's integers.
+   */
+  private static int parse(byte[] data, int start, int end) {
+    start = FieldFormat.trimStart(data, start, end);
+    end = FieldFormat.trimEnd(data, start, end);
+    boolean negative = false;
+    if(start < end && (data[start] == '-' || data[start] == '+')) {
+      negative = data[start] == '-';
+      start++;
+    }
+    if(start == end || end - start > 10) {
+      return IntVector.NA;
+    }
+    long value = 0;
+    for(int i=start;i!=end;++i) {
+      int digit = data[i] - '0';
+      if(digit < 0 || digit > 9) {
+        return IntVector.NA;
+      }
+      value = value * 10 + digit;
+    }
+    if(value > Integer.MAX_VALUE) {
+      return IntVector.NA;
+    }
+    return (int) (negative ? -value : value);
+  }
+
+  @Override
+  public ColumnBuilder newBuilder() {
+    return new IntColumnBuilder(format);
+  }
+
+  @Override
+  public Vector build() {
+    return IntArrayVector.unsafe(Arrays.copyOf(values, size));
+  }
+}
@@ -0,0 +1,96 @@
+package org.renjin.utils;
+
+import org.renjin.sexp.LogicalArrayVector;
+import org.renjin.sexp.LogicalVector;
+import org.renjin.sexp.Vector;
+
+import java.util.Arrays;
+
+/**
+ * Builds a logical column from the values {@code T}, {@code F}, {@code TRUE}, {@code FALSE},
+ * {@code True}, {@code False}, {@code true} and {@code false}. This is the initial
+ * type of every column.
+ */
+class LogicalColumnBuilder extends ColumnBuilder {
+
+  private int[] values = new int[0];
+  private boolean hasValues;
+
+  LogicalColumnBuilder(FieldFormat format) {
+    super(format);
+  }
+
+  @Override
+  protected boolean canBePromotedTo(ColumnBuilder other) {
+    if(other instanceof StringColumnBuilder) {
+      return true;
+    }
+    // TRUE and FALSE are not accepted as numbers
+    return !hasValues && !(other instanceof LogicalColumnBuilder);
+  }
+
+  @Override
+  protected boolean accepts(byte[] data, int start, int end) {
+    return format.isNA(data, start, end) || parse(data, start, end) != -1;
+  }
+
+  @Override
+  protected boolean add(byte[] data, int start, int end) {
+    int value;
+    if(format.isNA(data, start, end)) {
+      value = LogicalVector.NA;
+    } else {
+      value = parse(data, start, end);
+      if(value == -1) {
+        return false;
+      }
+      hasValues = true;
+    }
+    if(size == values.length) {
+      values = Arrays.copyOf(values, grow(size));
+    }
+    values[size++] = value;
+    return true;
+  }
+
+  /**
+   * @return 1 for true, 0 for false, or -1 if the field is not a logical value
+   */
+  private static int parse(byte[] data, int start, int end) {
+    start = FieldFormat.trimStart(data, start, end);
+    end = FieldFormat.trimEnd(data, start, end);
+    switch(end - start) {
+      case 1:
+        return data[start] == 'T' ? 1 : (data[start] == 'F' ? 0 : -1);
+      case 4:
+        return matches(data, start, "TRUE", "True", "true") ? 1 : -1;
+      case 5:
+        return matches(data, start, "FALSE", "False", "false") ? 0 : -1;
+      default:
+        return -1;
+    }
+  }
+
+  private static boolean matches(byte[] data, int start, String... words) {
+    for(String word : words) {
+      int i = 0;
+      while(i < word.length() && data[start + i] == word.charAt(i)) {
+        i++;
+      }
+      if(i == word.length()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public ColumnBuilder newBuilder() {
+    return new LogicalColumnBuilder(format);
+  }
+
+  @Override
+  public Vector build() {
+    return LogicalArrayVector.unsafe(Arrays.copyOf(values, size));
+  }
+}
@@ -0,0 +1,54 @@
+package org.renjin.utils;
+
+import org.renjin.sexp.StringArrayVector;
+import org.renjin.sexp.StringVector;
+import org.renjin.sexp.Vector;
+
+import java.util.Arrays;
+
+/**
+ * Builds a character column, which accepts every field.
+ */
+class StringColumnBuilder extends ColumnBuilder {
+
+  private String[] values = new String[0];
+
+  StringColumnBuilder(FieldFormat format) {
+    super(format);
+  }
+
+  @Override
+  protected boolean canBePromotedTo(ColumnBuilder other) {
+    return false;
+  }
+
+  @Override
+  protected boolean accepts(byte[] data, int start, int end) {
+    return true;
+  }
+
+  @Override
+  protected boolean add(byte[] data, int start, int end) {
+    String value;
+    if(format.isNAString(data, start, end)) {
+      value = StringVector.NA;
+    } else {
+      value = new String(data, start, end - start, format.getCharset());
+    }
+    if(size == values.length) {
+      values = Arrays.copyOf(values, grow(size));
+    }
+    values[size++] = value;
+    return true;
+  }
+
+  @Override
+  public ColumnBuilder newBuilder() {
+    return new StringColumnBuilder(format);
+  }
+
+  @Override
+  public Vector build() {
+    return new StringArrayVector(Arrays.copyOf(values, size));
+  }
+}
@@ -0,0 +1,231 @@
+package org.renjin.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
+import org.renjin.invoke.annotations.Current;
+import org.renjin.primitives.io.connections.Connections;
+import org.renjin.primitives.vector.RowNamesVector;
+import org.renjin.sexp.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads delimited text directly from a connection's byte stream into primitive columns,
+ * for {@code read.csv.native} and {@code read.csv.chunked}.
+ *
+ * <p>Rows are tokenized into blocks of raw fields. The type of each column is inferred
+ * from the first block, whose size is the sample size. Each later block is parsed
+ * starting from the types inferred so far. A column is promoted if a later field does
+ * not fit its type. The columns of a block are independent of each other, so they can
+ * be parsed on several threads.</p>
+ */
+public class TableReader {
+
+  /**
+   * The maximum number of rows tokenized before they are parsed
+   */
+  private static final int BLOCK_ROWS = 8192;
+
+  private final CsvTokenizer tokenizer;
+  private final FieldFormat format;
+  private final StringVector columnNames;
+  private final int sampleSize;
+  private final ExecutorService executor;
+  private final int threads;
+
+  private ColumnBuilder[] types;
+  private boolean pendingRow;
+  private boolean sampled;
+  private boolean finished;
+  private FieldBlock block;
+
+  private TableReader(InputStream in, boolean header, String sep, String quote, String dec,
+                      StringVector naStrings, String encoding, int sampleSize, int threads) throws IOException {
+
+    this.format = new FieldFormat(Charset.forName(encoding), dec, naStrings);
+    this.tokenizer = new CsvTokenizer(in, sep, quote);
+    this.sampleSize = Math.max(1, sampleSize);
+    this.threads = Math.max(1, threads);
+
+    // the header, or the first row, determines the number of columns
+    this.pendingRow = tokenizer.nextRow();
+    int numColumns = pendingRow ? tokenizer.getFieldCount() : 0;
+    StringVector.Builder names = new StringVector.Builder();
+    for(int i=0;i!=numColumns;++i) {
+      names.add(header ? tokenizer.getField(i, format.getCharset()) : ("V" + (i + 1)));
+    }
+    this.columnNames = names.build();
+    if(header && pendingRow) {
+      pendingRow = tokenizer.nextRow();
+    }
+
+    this.types = new ColumnBuilder[numColumns];
+    for(int i=0;i!=numColumns;++i) {
+      types[i] = new LogicalColumnBuilder(format);
+    }
+
+    if(this.threads > 1 && numColumns > 1) {
+      this.executor = Executors.newFixedThreadPool(this.threads,
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("renjin-table-reader-%d").build());
+    } else {
+      this.executor = null;
+    }
+  }
+
+  /**
+   * Opens a reader on a connection.
+   *
+   * @param conn the connection from which to read
+   * @param header true if the first row contains the names of the columns
+   * @param sep the field separator, or an empty string if fields are separated by white space
+   * @param quote the set of quoting characters
+   * @param dec the decimal separator
+   * @param naStrings the strings which are read as missing values
+   * @param encoding the character encoding of the input
+   * @param sampleSize the number of rows from which the column types are inferred
+   * @param threads the number of threads on which columns are parsed
+   */
+  public static TableReader open(@Current Context context, SEXP conn, boolean header, String sep, String quote,
+                                 String dec, StringVector naStrings, String encoding,
+                                 int sampleSize, int threads) throws IOException {
+
+    InputStream in = Connections.getConnection(context, conn).getInputStream();
+    return new TableReader(in, header, sep, quote, dec, naStrings, encoding, sampleSize, threads);
+  }
+
+  public StringVector getColumnNames() {
+    return columnNames;
+  }
+
+  /**
+   * Reads all remaining rows.
+   *
+   * @return a data frame, which has no rows if the input is exhausted.
+   */
+  public ListVector readAll() throws IOException {
+    SEXP frame = read(Integer.MAX_VALUE);
+    return frame == Null.INSTANCE ? buildFrame(types, 0) : (ListVector) frame;
+  }
+
+  /**
+   * Reads the next {@code maxRows} rows.
+   *
+   * @return a data frame of at most {@code maxRows} rows, or {@code NULL} if the input is exhausted.
+   */
+  public SEXP read(int maxRows) throws IOException {
+    if(maxRows <= 0) {
+      throw new EvalException("invalid 'maxRows' argument: %d", maxRows);
+    }
+
+    ColumnBuilder[] columns = new ColumnBuilder[types.length];
+    for(int i=0;i!=columns.length;++i) {
+      columns[i] = types[i].newBuilder();
+    }
+
+    int numRows = 0;
+    while(numRows < maxRows && fillBlock(maxRows - numRows)) {
+      parseBlock(columns);
+      numRows += block.getNumRows();
+    }
+
+    if(numRows == 0 && finished) {
+      return Null.INSTANCE;
+    }
+
+    // later chunks start from the types inferred so far
+    types = columns;
+
+    return buildFrame(columns, numRows);
+  }
+
+  /**
+   * Tokenizes up to {@code maxRows} rows into the block.
+   *
+   * @return false if there are no more rows.
+   */
+  private boolean fillBlock(int maxRows) throws IOException {
+    if(block == null) {
+      // the first block is the sample from which the types are inferred
+      block = new FieldBlock(types.length, sampleSize);
+    } else if(!sampled) {
+      block = new FieldBlock(types.length, BLOCK_ROWS);
+      sampled = true;
+    }
+    block.clear();
+    while(pendingRow && !block.isFull() && block.getNumRows() < maxRows) {
+      block.addRow(tokenizer);
+      pendingRow = tokenizer.nextRow();
+    }
+    if(!pendingRow) {
+      finished = true;
+    }
+    return block.getNumRows() > 0;
+  }
+
+  private void parseBlock(final ColumnBuilder[] columns) throws IOException {
+    if(executor == null) {
+      for(int i=0;i!=columns.length;++i) {
+        columns[i] = columns[i].parse(block, i);
+      }
+      return;
+    }
+    List<Future<?>> futures = new ArrayList<Future<?>>();
+    int columnsPerTask = (columns.length + threads - 1) / threads;
+    for(int start=0;start<columns.length;start+=columnsPerTask) {
+      final int from = start;
+      final int to = Math.min(columns.length, start + columnsPerTask);
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() {
+          for(int i=from;i!=to;++i) {
+            columns[i] = columns[i].parse(block, i);
+          }
+          return null;
+        }
+      }));
+    }
+    for(Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new EvalException("Interrupted while parsing table");
+      } catch (ExecutionException e) {
+        if(e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new EvalException(e.getCause());
+      }
+    }
+  }
+
+  private ListVector buildFrame(ColumnBuilder[] columns, int numRows) {
+    ListVector.Builder frame = new ListVector.Builder();
+    for(ColumnBuilder column : columns) {
+      frame.add(column.build());
+    }
+    frame.setAttribute(Symbols.NAMES, columnNames);
+    frame.setAttribute(Symbols.CLASS, StringVector.valueOf("data.frame"));
+    frame.setAttribute(Symbols.ROW_NAMES, new RowNamesVector(numRows));
+    return frame.build();
+  }
+
+  /**
+   * Stops any threads used to parse the table. The connection is closed separately.
+   */
+  public void close() {
+    if(executor != null) {
+      executor.shutdown();
+    }
+  }
+}